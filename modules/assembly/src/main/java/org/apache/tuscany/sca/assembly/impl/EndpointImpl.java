@@ -209,8 +209,8 @@ public class EndpointImpl implements Endpoint {
     }
 
     public boolean matches(String serviceURI) {
-        String[] parts1 = parseServiceURI(serviceURI);
-        String[] parts2 = parseStructuralURI(getURI());
+        String[] parts1 = EndpointURIHelper.parseServiceURI(serviceURI);
+        String[] parts2 = EndpointURIHelper.parseStructuralURI(getURI());
         for (int i = 0; i < parts1.length; i++) {
             if (parts1[i] == null || parts1[i].equals(parts2[i])) {
                 continue;
@@ -221,63 +221,4 @@ public class EndpointImpl implements Endpoint {
         return true;
     }
 
-    /**
-     * Parse the service URI into an array of names. The service URI is in one of the following formats:
-     * <ul>
-     * <li>componentName
-     * <li>componentName/serviceName
-     * <li>componentName/serviceName/bindingName
-     * </ul> 
-     * @param serviceURI
-     * @return
-     */
-    private static String[] parseServiceURI(String serviceURI) {
-        if (serviceURI.startsWith("/")) {
-            serviceURI = serviceURI.substring(1);
-        }
-        if (serviceURI.contains("#")) {
-            return parseStructuralURI(serviceURI);
-        }
-        String[] names = new String[3];
-        String[] segments = serviceURI.split("/");
-        for (int i = 0; i < names.length && i < segments.length; i++) {
-            names[i] = segments[i];
-        }
-        return names;
-    }
-
-    /**
-     * Parse the structural URI into an array of parts (componentURI, serviceName, bindingName)
-     * @param structuralURI
-     * @return [0]: componentURI [1]: serviceName [2]: bindingName
-     */
-    private static String[] parseStructuralURI(String structuralURI) {
-        String[] names = new String[3];
-        int index = structuralURI.lastIndexOf('#');
-        if (index == -1) {
-            names[0] = structuralURI;
-        } else {
-            names[0] = structuralURI.substring(0, index);
-            String str = structuralURI.substring(index + 1);
-            if (str.startsWith("service-binding(") && str.endsWith(")")) {
-                str = str.substring("service-binding(".length(), str.length() - 1);
-                String[] parts = str.split("/");
-                if (parts.length != 2) {
-                    throw new IllegalArgumentException("Invalid service-binding URI: " + structuralURI);
-                }
-                names[1] = parts[0];
-                names[2] = parts[1];
-            } else if (str.startsWith("service(") && str.endsWith(")")) {
-                str = str.substring("service(".length(), str.length() - 1);
-                // [rfeng] Deal with empty service name
-                if (!"".equals(str)) {
-                    names[1] = str;
-                }
-            } else {
-                throw new IllegalArgumentException("Invalid structural URI: " + structuralURI);
-            }
-        }
-        return names;
-    }
-
 }
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.assembly.impl;
+
+/**
+ * Parses the service URIs accepted by {@link org.apache.tuscany.sca.assembly.Endpoint#matches(String)}
+ * and the structural URIs of endpoints, so that endpoint registries can index endpoints the same way
+ * as they are matched.
+ */
+public final class EndpointURIHelper {
+
+    private EndpointURIHelper() {
+    }
+
+    /**
+     * Parse the service URI into an array of names. The service URI is either a structural URI or
+     * in one of the following formats:
+     * <ul>
+     * <li>componentName
+     * <li>componentName/serviceName
+     * <li>componentName/serviceName/bindingName
+     * </ul> 
+     * @param serviceURI
+     * @return [0]: componentURI [1]: serviceName [2]: bindingName
+     */
+    public static String[] parseServiceURI(String serviceURI) {
+        if (serviceURI.startsWith("/")) {
+            serviceURI = serviceURI.substring(1);
+        }
+        if (serviceURI.contains("#")) {
+            return parseStructuralURI(serviceURI);
+        }
+        String[] names = new String[3];
+        String[] segments = serviceURI.split("/");
+        for (int i = 0; i < names.length && i < segments.length; i++) {
+            names[i] = segments[i];
+        }
+        return names;
+    }
+
+    /**
+     * Parse the structural URI into an array of parts (componentURI, serviceName, bindingName)
+     * @param structuralURI
+     * @return [0]: componentURI [1]: serviceName [2]: bindingName
+     * @throws IllegalArgumentException if the fragment is neither service-binding() nor service()
+     */
+    public static String[] parseStructuralURI(String structuralURI) {
+        String[] names = new String[3];
+        int index = structuralURI.lastIndexOf('#');
+        if (index == -1) {
+            names[0] = structuralURI;
+        } else {
+            names[0] = structuralURI.substring(0, index);
+            String str = structuralURI.substring(index + 1);
+            if (str.startsWith("service-binding(") && str.endsWith(")")) {
+                str = str.substring("service-binding(".length(), str.length() - 1);
+                String[] parts = str.split("/");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid service-binding URI: " + structuralURI);
+                }
+                names[1] = parts[0];
+                names[2] = parts[1];
+            } else if (str.startsWith("service(") && str.endsWith(")")) {
+                str = str.substring("service(".length(), str.length() - 1);
+                // [rfeng] Deal with empty service name
+                if (!"".equals(str)) {
+                    names[1] = str;
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid structural URI: " + structuralURI);
+            }
+        }
+        return names;
+    }
+
+}
@@ -19,10 +19,12 @@
 package org.apache.tuscany.sca.binding.jms.context;
 
 import javax.jms.Destination;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
 
 import org.apache.tuscany.sca.binding.jms.JMSBindingException;
+import org.apache.tuscany.sca.binding.jms.provider.JMSReplyListener;
 import org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory;
 
 
@@ -38,6 +40,7 @@ public class JMSBindingContext {
     private Session jmsResponseSession;
     private Destination requestDestination;
     private Destination replyToDestination;
+    private JMSReplyListener replyListener;
     private JMSResourceFactory jmsResourceFactory;
     private long timeToLive;
     private boolean useBytesForWFJMSDefaultResponse;
@@ -73,6 +76,16 @@ public class JMSBindingContext {
         }
     }
 
+    /**
+     * Closes the session after a JMSException rather than letting it be reused
+     */
+    public synchronized void discardJmsSession() {
+        if (jmsSession != null) {
+            getJmsResourceFactory().discardSession(jmsSession);
+            jmsSession = null;
+        }
+    }
+
     public synchronized Session getJmsResponseSession() {
         if (jmsResponseSession == null) {
             try {
@@ -96,6 +109,26 @@ public class JMSBindingContext {
         }
     }
 
+    public synchronized void discardJmsResponseSession() {
+        if (jmsResponseSession != null) {
+            getJmsResourceFactory().discardSession(jmsResponseSession);
+            jmsResponseSession = null;
+        }
+    }
+
+    /**
+     * Tests whether an invocation failed with a JMSException, when the sessions
+     * it used may be unusable
+     */
+    public static boolean isJMSFailure(Throwable e) {
+        for (; e != null; e = e.getCause()) {
+            if (e instanceof JMSException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Destination getRequestDestination() {
         return requestDestination;
     }
@@ -112,6 +145,18 @@ public class JMSBindingContext {
         this.replyToDestination = replyToDestination;
     }
     
+    /**
+     * Returns the shared listener that receives the reply, or null if the reply
+     * is to be received with a consumer of its own
+     */
+    public JMSReplyListener getReplyListener() {
+        return replyListener;
+    }
+
+    public void setReplyListener(JMSReplyListener replyListener) {
+        this.replyListener = replyListener;
+    }
+
     // TODO - difficult to get the resource factory into all the JMS providers
     //        so it's here for the moment
     public JMSResourceFactory getJmsResourceFactory() {
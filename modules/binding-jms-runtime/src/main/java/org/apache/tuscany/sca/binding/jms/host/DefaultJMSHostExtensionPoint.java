@@ -19,6 +19,8 @@
 
 package org.apache.tuscany.sca.binding.jms.host;
 
+import java.util.Map;
+
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.UtilityExtensionPoint;
 import org.apache.tuscany.sca.work.WorkScheduler;
@@ -28,9 +30,18 @@ public class DefaultJMSHostExtensionPoint implements JMSHostExtensionPoint {
     private JMSServiceListenerFactory jmsServiceListenerFactory;
 
     public DefaultJMSHostExtensionPoint(ExtensionPointRegistry extensionPoints) {
+        this(extensionPoints, null);
+    }
+
+    /**
+     * @param extensionPoints
+     * @param attributes The concurrentConsumers, batchSize, acknowledgeMode, maxPendingWork,
+     * maxRedeliveries and deadLetterDestination attributes configure the service listeners
+     */
+    public DefaultJMSHostExtensionPoint(ExtensionPointRegistry extensionPoints, Map<String, String> attributes) {
         UtilityExtensionPoint utilities = extensionPoints.getExtensionPoint(UtilityExtensionPoint.class);
         WorkScheduler workScheduler = utilities.getUtility(WorkScheduler.class);
-        this.jmsServiceListenerFactory = new DefaultJMSServiceListenerFactory(workScheduler);
+        this.jmsServiceListenerFactory = new DefaultJMSServiceListenerFactory(workScheduler, attributes);
     }
 
     public JMSServiceListenerFactory getJMSServiceListenerFactory() {
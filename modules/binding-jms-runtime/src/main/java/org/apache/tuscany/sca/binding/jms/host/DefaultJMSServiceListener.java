@@ -19,6 +19,13 @@
 
 package org.apache.tuscany.sca.binding.jms.host;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +34,7 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
 import javax.jms.Topic;
@@ -47,6 +55,9 @@ import org.apache.tuscany.sca.work.WorkScheduler;
 public class DefaultJMSServiceListener implements JMSServiceListener {
     private static final Logger logger = Logger.getLogger(DefaultJMSServiceListener.class.getName());
 
+    // Time a consumer waits for a message before checking whether the listener is stopping
+    private static final long RECEIVE_TIMEOUT = 1000;
+
     private MessageListener listener;
     private String serviceName;
     private boolean isCallbackService;
@@ -54,11 +65,20 @@ public class DefaultJMSServiceListener implements JMSServiceListener {
     private WorkScheduler workScheduler;
 
     private JMSResourceFactory jmsResourceFactory;
-    private MessageConsumer consumer;
-    private boolean running;
+    private final List<Consumer> consumers = new ArrayList<Consumer>();
+    private volatile boolean running;
 
     private Destination destination;
 
+    private int concurrentConsumers = 1;
+    private int batchSize = 1;
+    private int acknowledgeMode = Session.AUTO_ACKNOWLEDGE;
+    private int maxPendingWork = 100;
+    private Semaphore pendingWork;
+    private int maxRedeliveries = 10;
+    private String deadLetterDestinationName;
+    private Destination deadLetterDestination;
+
     public DefaultJMSServiceListener(MessageListener listener, String serviceName, boolean isCallbackService, JMSBinding jmsBinding, WorkScheduler workScheduler, JMSResourceFactory rf) {
         this.listener = listener;
         this.serviceName = serviceName;
@@ -68,6 +88,55 @@ public class DefaultJMSServiceListener implements JMSServiceListener {
         this.jmsResourceFactory = rf;
     }
     
+    /**
+     * Sets the number of consumers, each with its own session, that receive
+     * messages for the service
+     */
+    public void setConcurrentConsumers(int concurrentConsumers) {
+        this.concurrentConsumers = Math.max(1, concurrentConsumers);
+    }
+
+    /**
+     * Sets the number of messages a consumer processes before it acknowledges
+     * or commits them together. Only used with the CLIENT_ACKNOWLEDGE and
+     * SESSION_TRANSACTED acknowledge modes.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Sets the acknowledge mode of the consumer sessions, one of the Session constants
+     */
+    public void setAcknowledgeMode(int acknowledgeMode) {
+        this.acknowledgeMode = acknowledgeMode;
+    }
+
+    /**
+     * Sets the number of received messages that can wait for the work scheduler
+     * before the consumers stop receiving, 0 for no limit
+     */
+    public void setMaxPendingWork(int maxPendingWork) {
+        this.maxPendingWork = maxPendingWork;
+    }
+
+    /**
+     * Sets the number of times a message of a batch that fails is redelivered before
+     * it is moved to the dead letter destination, or discarded if there is none,
+     * 0 for no limit
+     */
+    public void setMaxRedeliveries(int maxRedeliveries) {
+        this.maxRedeliveries = maxRedeliveries;
+    }
+
+    /**
+     * Sets the name of the destination that receives the messages that failed
+     * more than the maximum number of redeliveries
+     */
+    public void setDeadLetterDestinationName(String deadLetterDestinationName) {
+        this.deadLetterDestinationName = deadLetterDestinationName;
+    }
+
     public void start() {
         this.running = true;
 
@@ -82,7 +151,10 @@ public class DefaultJMSServiceListener implements JMSServiceListener {
     public void stop() {
         this.running = false;
         try {
-            consumer.close();
+            for (Consumer consumer : consumers) {
+                consumer.close();
+            }
+            consumers.clear();
             jmsResourceFactory.closeConnection();
             jmsResourceFactory.closeResponseConnection();
         } catch (Exception e) {
@@ -97,55 +169,266 @@ public class DefaultJMSServiceListener implements JMSServiceListener {
 
     private void registerListener() throws NamingException, JMSException {
 
-        Session session = jmsResourceFactory.createSession();
+        pendingWork = maxPendingWork > 0 ? new Semaphore(maxPendingWork) : null;
+
         lookupActivationSpec();
         destination = lookupDestinationQueue();
-        if (destination == null) {
-            destination = session.createTemporaryQueue();
+        if (deadLetterDestinationName != null) {
+            deadLetterDestination = jmsResourceFactory.lookupDestination(deadLetterDestinationName);
+            if (deadLetterDestination == null) {
+                throw new JMSBindingException("JMS dead letter destination " + deadLetterDestinationName
+                    + " not found while registering service " + serviceName + " listener");
+            }
         }
 
-        if (jmsBinding.getJMSSelector() != null) {
-            consumer = session.createConsumer(destination, jmsBinding.getJMSSelector());
-        } else {
-            consumer = session.createConsumer(destination);
+        for (int i = 0; i < concurrentConsumers; i++) {
+            Session session = createConsumerSession();
+            if (destination == null) {
+                destination = session.createTemporaryQueue();
+            }
+            MessageConsumer consumer;
+            if (jmsBinding.getJMSSelector() != null) {
+                consumer = session.createConsumer(destination, jmsBinding.getJMSSelector());
+            } else {
+                consumer = session.createConsumer(destination);
+            }
+            consumers.add(new Consumer(session, consumer));
         }
 
-        try {
+        // Batches are acknowledged by the receive loop so the JMS provider can't deliver them
+        boolean useMessageListener = !isBatched();
+        if (useMessageListener) {
+            try {
+                for (Consumer consumer : consumers) {
+                    consumer.consumer.setMessageListener(consumer);
+                }
+            } catch (javax.jms.JMSException e) {
+                // setMessageListener not allowed in JEE container so use Tuscany threads
+                useMessageListener = false;
+            }
+        }
+
+        jmsResourceFactory.startConnection();
+        if (!useMessageListener) {
+            for (Consumer consumer : consumers) {
+                workScheduler.scheduleWork(consumer);
+            }
+        }
+
+        logger.log(Level.INFO, "JMS " + (isCallbackService ? "callback service" : "service")
+            + " '"
+            + serviceName
+            + "' listening on destination "
+            + ((destination instanceof Queue) ? ((Queue)destination).getQueueName() : ((Topic)destination).getTopicName())
+            + " with " + concurrentConsumers + " consumer(s)");
+    }
+
+    private boolean isBatched() {
+        return acknowledgeMode == Session.SESSION_TRANSACTED || acknowledgeMode == Session.CLIENT_ACKNOWLEDGE;
+    }
+
+    private Session createConsumerSession() throws NamingException, JMSException {
+        // The session stays with its consumer so it isn't taken from the pool of the resource factory
+        boolean transacted = acknowledgeMode == Session.SESSION_TRANSACTED;
+        return jmsResourceFactory.getConnection().createSession(transacted, acknowledgeMode);
+    }
 
-            consumer.setMessageListener(listener);
-            jmsResourceFactory.startConnection();
+    /**
+     * A consumer with its own session. It either has messages delivered by the JMS provider
+     * or receives them in a loop on a work scheduler thread. In the loop, messages are handed
+     * to the work scheduler unless they are acknowledged in batches, where they are processed
+     * on the loop thread so a batch is only acknowledged or committed once it has been processed.
+     * When a message of a batch fails the transaction is rolled back, or the session recovered,
+     * so the whole batch is redelivered. The messages that were processed before the failure
+     * are then acknowledged without being processed again.
+     */
+    private class Consumer implements MessageListener, Runnable {
+        private final Session session;
+        private final MessageConsumer consumer;
+        private int unacknowledged;
+        private Message lastMessage;
+        // The ids of the messages processed in the current batch
+        private final List<String> batch = new ArrayList<String>();
+        // The ids of the messages processed in a batch that was rolled back
+        private final Set<String> processed = new HashSet<String>();
+        // The number of times the messages that failed have been delivered
+        private final Map<String, Integer> deliveries = new HashMap<String, Integer>();
+
+        private Consumer(Session session, MessageConsumer consumer) {
+            this.session = session;
+            this.consumer = consumer;
+        }
 
-        } catch (javax.jms.JMSException e) {
+        public void onMessage(Message msg) {
+            process(msg);
+        }
 
-            // setMessageListener not allowed in JEE container so use Tuscany threads
+        public void run() {
+            try {
+                while (running) {
+                    if (pendingWork != null) {
+                        pendingWork.acquire();
+                    }
+                    boolean dispatched = false;
+                    try {
+                        Message msg = consumer.receive(RECEIVE_TIMEOUT);
+                        if (msg == null) {
+                            // Don't hold a partial batch while the destination is quiet
+                            completeBatch();
+                        } else if (isBatched()) {
+                            lastMessage = msg;
+                            unacknowledged++;
+                            if (!processBatched(msg)) {
+                                rollbackBatch();
+                            } else if (unacknowledged >= batchSize) {
+                                completeBatch();
+                            }
+                        } else {
+                            dispatch(msg);
+                            dispatched = true;
+                        }
+                    } finally {
+                        if (pendingWork != null && !dispatched) {
+                            pendingWork.release();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                if (running) {
+                    logger.log(Level.SEVERE, "JMS service '" + serviceName + "' stopped receiving messages", e);
+                }
+            }
+        }
 
-            jmsResourceFactory.startConnection();
+        private void dispatch(final Message msg) {
             workScheduler.scheduleWork(new Runnable() {
                 public void run() {
                     try {
-                        while (running) {
-                            final Message msg = consumer.receive();
-                            workScheduler.scheduleWork(new Runnable() {
-                                public void run() {
-                                    try {
-                                        listener.onMessage(msg);
-                                    } catch (Exception e) {
-                                        e.printStackTrace();
-                                    }
-                                }
-                            });
+                        process(msg);
+                    } finally {
+                        if (pendingWork != null) {
+                            pendingWork.release();
                         }
-                    } catch (Exception e) {
-                        e.printStackTrace();
                     }
                 }
             });
         }
-        logger.log(Level.INFO, "JMS " + (isCallbackService ? "callback service" : "service")
-            + " '"
-            + serviceName
-            + "' listening on destination "
-            + ((destination instanceof Queue) ? ((Queue)destination).getQueueName() : ((Topic)destination).getTopicName()));
+
+        /**
+         * Processes a message received by the loop
+         * @return false if the message failed
+         */
+        private boolean process(Message msg) {
+            try {
+                if (isBatched() && listener instanceof DefaultServiceInvoker) {
+                    // The invoker only logs a failure but the batch has to be redelivered
+                    ((DefaultServiceInvoker)listener).invokeService(msg);
+                } else {
+                    listener.onMessage(msg);
+                }
+                return true;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Exception processing a message for JMS service '" + serviceName + "'", e);
+                return false;
+            }
+        }
+
+        /**
+         * Processes a message of a batch unless it was processed before the batch was
+         * rolled back or it has been redelivered too many times
+         * @return false if the message failed
+         */
+        private boolean processBatched(Message msg) throws JMSException {
+            String id = msg.getJMSMessageID();
+            if (id != null && processed.remove(id)) {
+                batch.add(id);
+                return true;
+            }
+            int count = getDeliveryCount(msg, id);
+            if (maxRedeliveries > 0 && count > maxRedeliveries + 1) {
+                deadLetter(msg, count);
+            } else if (!process(msg)) {
+                if (id != null) {
+                    deliveries.put(id, count);
+                }
+                return false;
+            }
+            if (id != null) {
+                deliveries.remove(id);
+                batch.add(id);
+            }
+            return true;
+        }
+
+        private int getDeliveryCount(Message msg, String id) throws JMSException {
+            if (msg.propertyExists("JMSXDeliveryCount")) {
+                return msg.getIntProperty("JMSXDeliveryCount");
+            }
+            // The JMS provider doesn't count deliveries so count the ones that failed here
+            Integer failed = id != null ? deliveries.get(id) : null;
+            return failed != null ? failed + 1 : 1;
+        }
+
+        /**
+         * Sends a message that keeps failing to the dead letter destination, if there is one,
+         * so that the rest of the batch can be acknowledged
+         */
+        private void deadLetter(Message msg, int count) throws JMSException {
+            if (deadLetterDestination == null) {
+                logger.log(Level.SEVERE, "JMS service '" + serviceName + "' discarded message " + msg.getJMSMessageID()
+                    + " after " + count + " deliveries");
+                return;
+            }
+            MessageProducer producer = session.createProducer(deadLetterDestination);
+            try {
+                producer.send(msg);
+            } finally {
+                producer.close();
+            }
+            logger.log(Level.WARNING, "JMS service '" + serviceName + "' moved message " + msg.getJMSMessageID()
+                + " to " + deadLetterDestinationName + " after " + count + " deliveries");
+        }
+
+        private void completeBatch() throws JMSException {
+            if (unacknowledged == 0) {
+                return;
+            }
+            if (acknowledgeMode == Session.SESSION_TRANSACTED) {
+                session.commit();
+            } else {
+                lastMessage.acknowledge();
+            }
+            unacknowledged = 0;
+            lastMessage = null;
+            batch.clear();
+            // The messages of a rolled back batch are redelivered ahead of the others, any
+            // left over went to another consumer
+            processed.clear();
+        }
+
+        /**
+         * Rolls back the transaction or recovers the session so that the messages of the
+         * batch are redelivered. The ones already processed are remembered so that they
+         * are only acknowledged when they come back.
+         */
+        private void rollbackBatch() throws JMSException {
+            processed.addAll(batch);
+            batch.clear();
+            if (acknowledgeMode == Session.SESSION_TRANSACTED) {
+                session.rollback();
+            } else {
+                session.recover();
+            }
+            unacknowledged = 0;
+            lastMessage = null;
+        }
+
+        private void close() throws JMSException {
+            consumer.close();
+            session.close();
+        }
     }
 
     // Stub code for ActivationSpec support that throws appropriate errors
@@ -19,7 +19,10 @@
 
 package org.apache.tuscany.sca.binding.jms.host;
 
+import java.util.Map;
+
 import javax.jms.MessageListener;
+import javax.jms.Session;
 import javax.naming.NamingException;
 
 import org.apache.tuscany.sca.binding.jms.JMSBindingException;
@@ -31,11 +34,42 @@ import org.apache.tuscany.sca.work.WorkScheduler;
 public class DefaultJMSServiceListenerFactory implements JMSServiceListenerFactory {
 
     private WorkScheduler workScheduler;
+    private int concurrentConsumers = 1;
+    private int batchSize = 1;
+    private int acknowledgeMode = Session.AUTO_ACKNOWLEDGE;
+    private int maxPendingWork = 100;
+    private int maxRedeliveries = 10;
+    private String deadLetterDestination;
 
     public DefaultJMSServiceListenerFactory(WorkScheduler workScheduler) {
         this.workScheduler = workScheduler;
     }
 
+    public DefaultJMSServiceListenerFactory(WorkScheduler workScheduler, Map<String, String> attributes) {
+        this.workScheduler = workScheduler;
+        this.concurrentConsumers = getInt(attributes, "concurrentConsumers", concurrentConsumers);
+        this.batchSize = getInt(attributes, "batchSize", batchSize);
+        this.maxPendingWork = getInt(attributes, "maxPendingWork", maxPendingWork);
+        this.maxRedeliveries = getInt(attributes, "maxRedeliveries", maxRedeliveries);
+        String deadLetter = attributes != null ? attributes.get("deadLetterDestination") : null;
+        if (deadLetter != null && deadLetter.trim().length() > 0) {
+            deadLetterDestination = deadLetter.trim();
+        }
+        String mode = attributes != null ? attributes.get("acknowledgeMode") : null;
+        if (mode != null) {
+            mode = mode.trim();
+            if ("client".equalsIgnoreCase(mode)) {
+                acknowledgeMode = Session.CLIENT_ACKNOWLEDGE;
+            } else if ("dupsOk".equalsIgnoreCase(mode)) {
+                acknowledgeMode = Session.DUPS_OK_ACKNOWLEDGE;
+            } else if ("transacted".equalsIgnoreCase(mode)) {
+                acknowledgeMode = Session.SESSION_TRANSACTED;
+            } else if (!"auto".equalsIgnoreCase(mode)) {
+                throw new IllegalArgumentException("Unknown JMS acknowledge mode: " + mode);
+            }
+        }
+    }
+
     public JMSServiceListener createJMSServiceListener(JMSServiceListenerDetails jmsSLD) {
         try {
 
@@ -46,10 +80,25 @@ public class DefaultJMSServiceListenerFactory implements JMSServiceListenerFacto
 
 //            return new ASFListener(listener, service.getName(), service.isCallback(), jmsSLD.getJmsBinding(), workScheduler, rf);
 // TODO: 2.x migration, service.isCallback()             
-            return new DefaultJMSServiceListener(listener, service.getName(), false, jmsSLD.getJmsBinding(), workScheduler, rf);
+            DefaultJMSServiceListener serviceListener = new DefaultJMSServiceListener(listener, service.getName(), false, jmsSLD.getJmsBinding(), workScheduler, rf);
+            serviceListener.setConcurrentConsumers(concurrentConsumers);
+            serviceListener.setBatchSize(batchSize);
+            serviceListener.setAcknowledgeMode(acknowledgeMode);
+            serviceListener.setMaxPendingWork(maxPendingWork);
+            serviceListener.setMaxRedeliveries(maxRedeliveries);
+            serviceListener.setDeadLetterDestinationName(deadLetterDestination);
+            return serviceListener;
 
         } catch (NamingException e) {
             throw new JMSBindingException(e);
         }
     }
+
+    private static int getInt(Map<String, String> attributes, String name, int defaultValue) {
+        String value = attributes != null ? attributes.get(name) : null;
+        if (value != null) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
 }
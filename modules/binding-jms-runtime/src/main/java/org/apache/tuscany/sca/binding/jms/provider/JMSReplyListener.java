@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.jms.provider;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+/**
+ * A single long lived consumer on a temporary queue that receives the replies for all
+ * the requests sent through a resource factory and hands each one to the request
+ * waiting for its correlation ID. This avoids creating a consumer with a message
+ * selector for every request.
+ *
+ * @version $Rev$ $Date$
+ */
+public class JMSReplyListener implements MessageListener {
+    private static final Logger logger = Logger.getLogger(JMSReplyListener.class.getName());
+
+    // Replies that nobody collects, e.g. because the request timed out, are dropped after this time
+    private static final long UNCLAIMED_REPLY_TIMEOUT = 60000;
+    private static final int PURGE_INTERVAL = 100;
+
+    private final Session session;
+    private final TemporaryQueue destination;
+    private final MessageConsumer consumer;
+    private final ConcurrentHashMap<String, PendingReply> replies = new ConcurrentHashMap<String, PendingReply>();
+    private final AtomicInteger received = new AtomicInteger();
+    private volatile boolean closed;
+
+    public JMSReplyListener(Connection connection) throws JMSException {
+        this.session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        this.destination = session.createTemporaryQueue();
+        this.consumer = session.createConsumer(destination);
+        consumer.setMessageListener(this);
+    }
+
+    /**
+     * Returns the destination requests should name as their JMSReplyTo
+     */
+    public Destination getDestination() {
+        return destination;
+    }
+
+    /**
+     * Waits for the reply with the given correlation ID. The reply may have arrived
+     * before this is called.
+     *
+     * @param correlationID the JMSCorrelationID of the reply
+     * @param timeout the time to wait in milliseconds, 0 to wait indefinitely
+     * @return the reply or null if it didn't arrive in time
+     */
+    public Message receive(String correlationID, long timeout) throws InterruptedException {
+        PendingReply reply = getPendingReply(correlationID);
+        try {
+            if (timeout > 0) {
+                reply.latch.await(timeout, TimeUnit.MILLISECONDS);
+            } else {
+                reply.latch.await();
+            }
+            return reply.message;
+        } finally {
+            replies.remove(correlationID, reply);
+        }
+    }
+
+    public void onMessage(Message message) {
+        String correlationID;
+        try {
+            correlationID = message.getJMSCorrelationID();
+        } catch (JMSException e) {
+            logger.log(Level.WARNING, "Unable to read the correlation ID of a reply", e);
+            return;
+        }
+        if (correlationID == null) {
+            logger.warning("Dropped a reply without a correlation ID on " + destination);
+            return;
+        }
+        getPendingReply(correlationID).complete(message);
+
+        if (received.incrementAndGet() % PURGE_INTERVAL == 0) {
+            purgeUnclaimedReplies();
+        }
+    }
+
+    private PendingReply getPendingReply(String correlationID) {
+        PendingReply reply = replies.get(correlationID);
+        if (reply == null) {
+            PendingReply newReply = new PendingReply();
+            reply = replies.putIfAbsent(correlationID, newReply);
+            if (reply == null) {
+                reply = newReply;
+            }
+        }
+        return reply;
+    }
+
+    private void purgeUnclaimedReplies() {
+        long now = System.currentTimeMillis();
+        for (Iterator<PendingReply> i = replies.values().iterator(); i.hasNext();) {
+            PendingReply reply = i.next();
+            if (reply.message != null && now - reply.created > UNCLAIMED_REPLY_TIMEOUT) {
+                i.remove();
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops receiving replies and releases the requests still waiting for one
+     */
+    public void close() {
+        closed = true;
+        try {
+            consumer.close();
+            destination.delete();
+            session.close();
+        } catch (JMSException e) {
+            logger.log(Level.FINE, "Exception closing the reply listener on " + destination, e);
+        } finally {
+            for (PendingReply reply : replies.values()) {
+                reply.latch.countDown();
+            }
+            replies.clear();
+        }
+    }
+
+    private static class PendingReply {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final long created = System.currentTimeMillis();
+        private volatile Message message;
+
+        private void complete(Message message) {
+            this.message = message;
+            latch.countDown();
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.tuscany.sca.binding.jms.provider;
 import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSException;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.naming.NamingException;
 import javax.resource.spi.ActivationSpec;
@@ -96,4 +97,25 @@ public interface JMSResourceFactory {
 
 	public abstract ActivationSpec lookupActivationSpec(
 			String activationSpecName);
+
+    /*
+     * Returns a producer that sends messages from the session to the destination, or to
+     * the destination given at send time if the destination is null. Producers are cached
+     * with the sessions obtained from createSession() or createResponseSession() so they
+     * must not be closed by the caller.
+     */
+    public abstract MessageProducer getProducer(Session session, Destination destination) throws JMSException;
+
+    /*
+     * Closes a session obtained from createSession() or createResponseSession() that failed,
+     * instead of returning it to be reused.
+     */
+    public abstract void discardSession(Session session);
+
+    /*
+     * Returns the listener that receives the replies sent to a temporary destination shared
+     * by all the requests made through this factory, or null if connections can't be held
+     * between requests.
+     */
+    public abstract JMSReplyListener getReplyListener() throws JMSException, NamingException;
 }
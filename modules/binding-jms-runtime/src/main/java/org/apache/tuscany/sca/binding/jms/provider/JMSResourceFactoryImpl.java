@@ -18,12 +18,19 @@
  */
 package org.apache.tuscany.sca.binding.jms.provider;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.Destination;
 import javax.jms.JMSException;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.naming.Context;
 import javax.naming.InitialContext;
@@ -49,6 +56,16 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
     private Connection responseConnection;
     private String responseConnectionFactoryName;
 
+    // The number of idle sessions kept for reuse on each connection
+    protected int maxIdleSessions = 10;
+    private final SessionPool sessionPool = new SessionPool();
+    private final SessionPool responseSessionPool = new SessionPool();
+    // The generation of the pool that each session was created for
+    private final Map<Session, Integer> sessionGenerations = new ConcurrentHashMap<Session, Integer>();
+    private final Map<Session, Map<Destination, MessageProducer>> producers =
+        new ConcurrentHashMap<Session, Map<Destination, MessageProducer>>();
+    private JMSReplyListener replyListener;
+
     public JMSResourceFactoryImpl(String connectionFactoryName, String responseConnectionFactoryName, String initialContextFactoryName, String jndiURL) {
         if (connectionFactoryName != null && connectionFactoryName.trim().length() > 0) {
             this.connectionFactoryName = connectionFactoryName.trim();
@@ -71,7 +88,7 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
      * 
      * @see org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory#getConnection()
      */
-    public Connection getConnection() throws NamingException, JMSException {
+    public synchronized Connection getConnection() throws NamingException, JMSException {
         if (connection == null) {
             createConnection();
         }
@@ -84,7 +101,14 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
      * @see org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory#createSession()
      */
     public Session createSession() throws JMSException, NamingException {
-        return getConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session session = isConnectionClosedAfterUse() ? null : sessionPool.poll();
+        if (session == null) {
+            // Read the generation before the connection so a session of a closed connection is never current
+            int generation = sessionPool.generation.get();
+            session = getConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+            sessionGenerations.put(session, generation);
+        }
+        return session;
     }
 
     /*
@@ -93,7 +117,11 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
      * @see org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory#closeSession(javax.jms.Session)
      */
     public void closeSession(Session session) throws JMSException {
-        session.close();
+        if (isConnectionClosedAfterUse() || !sessionPool.offer(session)) {
+            sessionGenerations.remove(session);
+            producers.remove(session);
+            session.close();
+        }
     }
 
     /*
@@ -101,7 +129,7 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
      * 
      * @see org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory#startConnection()
      */
-    public void startConnection() throws JMSException, NamingException {
+    public synchronized void startConnection() throws JMSException, NamingException {
         if (!isConnectionStarted) {
             getConnection().start();
             isConnectionStarted = true;
@@ -114,6 +142,19 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
      * @see org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory#closeConnection()
      */
     public void closeConnection() throws JMSException {
+        closeReplyListener();
+        Connection connection;
+        synchronized (this) {
+            connection = this.connection;
+            this.connection = null;
+            isConnectionStarted = false;
+            if (responseConnection == connection) {
+                responseConnection = null;
+            }
+        }
+        // Clear the pools once the connection is gone so no session created on it is pooled again
+        sessionPool.clear();
+        responseSessionPool.clear();
         if (connection != null) {
             try {
                 connection.close();
@@ -243,14 +284,24 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
     }
 
     public Session createResponseSession() throws JMSException, NamingException {
-        return getResponseConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session session = isConnectionClosedAfterUse() ? null : responseSessionPool.poll();
+        if (session == null) {
+            int generation = responseSessionPool.generation.get();
+            session = getResponseConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+            sessionGenerations.put(session, generation);
+        }
+        return session;
     }
 
     public void closeResponseSession(Session session) throws JMSException {
-        session.close();
+        if (isConnectionClosedAfterUse() || !responseSessionPool.offer(session)) {
+            sessionGenerations.remove(session);
+            producers.remove(session);
+            session.close();
+        }
     }
 
-    public Connection getResponseConnection() throws NamingException, JMSException {
+    public synchronized Connection getResponseConnection() throws NamingException, JMSException {
         if (responseConnection == null) {
             if (responseConnectionFactoryName != null) {
                 ConnectionFactory connectionFactory = (ConnectionFactory)jndiLookUp(responseConnectionFactoryName);
@@ -267,16 +318,24 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
     }
 
     public void closeResponseConnection() throws JMSException {
-        if (responseConnection != null && !responseConnection.equals(connection)) {
-            try {
-                responseConnection.close();
-            } catch (JMSException e) {
-                // if using an embedded broker then when shutting down Tuscany the broker may get closed
-                // before this stop method is called. I can't see how to detect that so for now just
-                // ignore the exception if the message is that the transport is already disposed
-                if (!e.getMessage().contains("disposed")) {
-                    throw e;
-                }
+        Connection responseConnection;
+        synchronized (this) {
+            responseConnection = this.responseConnection;
+            if (responseConnection == null || responseConnection.equals(connection)) {
+                return;
+            }
+            this.responseConnection = null;
+        }
+        closeReplyListener();
+        responseSessionPool.clear();
+        try {
+            responseConnection.close();
+        } catch (JMSException e) {
+            // if using an embedded broker then when shutting down Tuscany the broker may get closed
+            // before this stop method is called. I can't see how to detect that so for now just
+            // ignore the exception if the message is that the transport is already disposed
+            if (!e.getMessage().contains("disposed")) {
+                throw e;
             }
         }
     }
@@ -297,4 +356,99 @@ public class JMSResourceFactoryImpl implements JMSResourceFactory {
 		throw new JMSBindingException("Incorrect resource type for ActivationSpec: " + o.getClass().getName());
 	}
 
+    public MessageProducer getProducer(Session session, Destination destination) throws JMSException {
+        // A session is only used by one thread at a time so its producers need no locking
+        Map<Destination, MessageProducer> sessionProducers = producers.get(session);
+        if (sessionProducers == null) {
+            sessionProducers = new HashMap<Destination, MessageProducer>();
+            producers.put(session, sessionProducers);
+        }
+        MessageProducer producer = sessionProducers.get(destination);
+        if (producer == null) {
+            producer = session.createProducer(destination);
+            sessionProducers.put(destination, producer);
+        }
+        return producer;
+    }
+
+    public synchronized JMSReplyListener getReplyListener() throws JMSException, NamingException {
+        if (isConnectionClosedAfterUse()) {
+            return null;
+        }
+        if (replyListener == null || replyListener.isClosed()) {
+            Connection replyConnection = getResponseConnection();
+            replyListener = new JMSReplyListener(replyConnection);
+            replyConnection.start();
+            if (replyConnection == connection) {
+                isConnectionStarted = true;
+            }
+        }
+        return replyListener;
+    }
+
+    private synchronized void closeReplyListener() {
+        if (replyListener != null) {
+            replyListener.close();
+            replyListener = null;
+        }
+    }
+
+    public void discardSession(Session session) {
+        sessionGenerations.remove(session);
+        producers.remove(session);
+        try {
+            session.close();
+        } catch (JMSException e) {
+            // ignore, the connection may already be closed
+        }
+    }
+
+    /**
+     * The idle sessions of a connection, the producers cached for a session stay open with it.
+     * The generation moves on each time the connection is closed, sessions created for an
+     * earlier generation are closed rather than pooled.
+     */
+    private class SessionPool {
+        private final Queue<Session> idle = new ConcurrentLinkedQueue<Session>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger generation = new AtomicInteger();
+
+        private Session poll() {
+            Session session;
+            while ((session = idle.poll()) != null) {
+                size.decrementAndGet();
+                if (isCurrent(session)) {
+                    return session;
+                }
+                discardSession(session);
+            }
+            return null;
+        }
+
+        private boolean offer(Session session) {
+            if (!isCurrent(session)) {
+                return false;
+            }
+            if (size.incrementAndGet() > maxIdleSessions) {
+                size.decrementAndGet();
+                return false;
+            }
+            idle.offer(session);
+            return true;
+        }
+
+        private boolean isCurrent(Session session) {
+            Integer created = sessionGenerations.get(session);
+            return created != null && created.intValue() == generation.get();
+        }
+
+        private void clear() {
+            generation.incrementAndGet();
+            Session session;
+            while ((session = idle.poll()) != null) {
+                size.decrementAndGet();
+                discardSession(session);
+            }
+        }
+    }
 }
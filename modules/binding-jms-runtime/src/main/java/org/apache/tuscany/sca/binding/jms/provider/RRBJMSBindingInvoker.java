@@ -200,6 +200,10 @@ public class RRBJMSBindingInvoker implements Invoker {
 
             context.setRequestDestination(getRequestDestination(tuscanyMsg, session));
             context.setReplyToDestination(getReplyToDestination(session));
+            JMSReplyListener replyListener = getReplyListener();
+            if (replyListener != null && context.getReplyToDestination() == replyListener.getDestination()) {
+                context.setReplyListener(replyListener);
+            }
             
             try {
                 tuscanyMsg = endpointReference.getBindingInvocationChain().getHeadInvoker().invoke(tuscanyMsg);
@@ -220,6 +224,10 @@ public class RRBJMSBindingInvoker implements Invoker {
             } catch (Throwable e) {
                 tuscanyMsg.setFaultBody(e);
             } finally {
+                Object body = tuscanyMsg.getBody();
+                if (tuscanyMsg.isFault() && body instanceof Throwable && JMSBindingContext.isJMSFailure((Throwable)body)) {
+                    context.discardJmsSession();
+                }
                 context.closeJmsSession();
                 if (jmsResourceFactory.isConnectionClosedAfterUse()) {
                     jmsResourceFactory.closeConnection();
@@ -260,10 +268,30 @@ public class RRBJMSBindingInvoker implements Invoker {
             if (bindingReplyDest != null) {
                 replyToDest = bindingReplyDest;
             } else {
-                replyToDest = session.createTemporaryQueue();
+                JMSReplyListener replyListener = getReplyListener();
+                if (replyListener != null) {
+                    replyToDest = replyListener.getDestination();
+                } else {
+                    replyToDest = session.createTemporaryQueue();
+                }
             }
         }
         return replyToDest;
     }  
     
+    /**
+     * Returns the listener shared by requests that don't name a response destination,
+     * or null if replies can't be told apart because there is no correlation scheme
+     */
+    protected JMSReplyListener getReplyListener() throws JMSException, NamingException {
+        String correlationScheme = jmsBinding.getCorrelationScheme();
+        if (bindingReplyDest != null || 
+            (correlationScheme != null &&
+             !JMSBindingConstants.CORRELATE_MSG_ID.equalsIgnoreCase(correlationScheme) &&
+             !JMSBindingConstants.CORRELATE_CORRELATION_ID.equalsIgnoreCase(correlationScheme))) {
+            return null;
+        }
+        return jmsResourceFactory.getReplyListener();
+    }
+    
 }
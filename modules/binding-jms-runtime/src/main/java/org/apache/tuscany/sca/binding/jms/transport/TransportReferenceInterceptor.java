@@ -75,30 +75,28 @@ public class TransportReferenceInterceptor implements Interceptor {
             JMSBindingContext context = msg.getBindingContext();
             Session session = context.getJmsSession();
             
-            MessageProducer producer = session.createProducer(context.getRequestDestination());
+            // The producer is cached with the session so the JMS header attributes
+            // are passed on the send rather than set on the producer
+            MessageProducer producer = context.getJmsResourceFactory().getProducer(session, context.getRequestDestination());
     
-            // Set JMS header attributes in producer, not message.
             String opName = msg.getOperation().getName();
+            long timeToLive = javax.jms.Message.DEFAULT_TIME_TO_LIVE;
             if (jmsBinding.getEffectiveJMSTimeToLive(opName) != null) {
-                producer.setTimeToLive(jmsBinding.getEffectiveJMSTimeToLive(msg.getOperation().getName()).longValue());
+                timeToLive = jmsBinding.getEffectiveJMSTimeToLive(opName).longValue();
             } 
             
-            Integer priority = jmsBinding.getEffectiveJMSPriority(opName);
-            if (priority != null) {
-            	producer.setPriority(priority.intValue());
+            int priority = javax.jms.Message.DEFAULT_PRIORITY;
+            if (jmsBinding.getEffectiveJMSPriority(opName) != null) {
+            	priority = jmsBinding.getEffectiveJMSPriority(opName).intValue();
             }  
             
+            int deliveryMode = javax.jms.Message.DEFAULT_DELIVERY_MODE;
             Boolean deliveryModePersistent = jmsBinding.getEffectiveJMSDeliveryMode(opName);
             if (deliveryModePersistent != null) {
-            	producer.setDeliveryMode( deliveryModePersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);               
+            	deliveryMode = deliveryModePersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT;               
             } 
                        
-            
-            try {
-                producer.send((javax.jms.Message)msg.getBody());
-            } finally {
-                producer.close();
-            }
+            producer.send((javax.jms.Message)msg.getBody(), deliveryMode, priority, timeToLive);
             return msg;
         } catch (JMSException e) {
             throw new JMSBindingException(e);
@@ -107,6 +105,9 @@ public class TransportReferenceInterceptor implements Interceptor {
     
     public Message invokeResponse(Message msg) {
         JMSBindingContext context = msg.getBindingContext();
+        if (context.getReplyListener() != null) {
+            return invokeSharedResponse(msg);
+        }
         try {
             Session session = context.getJmsResponseSession();
             
@@ -145,6 +146,7 @@ public class TransportReferenceInterceptor implements Interceptor {
             msg.setBody(replyMsg);
             return msg;
         } catch (JMSException e) {
+            context.discardJmsResponseSession();
             throw new JMSBindingException(e);
         } catch (NamingException e) {
             throw new JMSBindingException(e);
@@ -158,6 +160,41 @@ public class TransportReferenceInterceptor implements Interceptor {
         }
     } 
     
+    /**
+     * Wait for the reply on the destination shared by all the requests, where the
+     * reply listener hands it over by correlation ID
+     */
+    protected Message invokeSharedResponse(Message msg) {
+        JMSBindingContext context = msg.getBindingContext();
+        try {
+            javax.jms.Message requestMessage = (javax.jms.Message)msg.getBody();
+
+            String correlationID;
+            String correlationScheme = jmsBinding.getCorrelationScheme();
+            if (JMSBindingConstants.CORRELATE_CORRELATION_ID.equalsIgnoreCase(correlationScheme)) {
+                correlationID = requestMessage.getJMSCorrelationID();
+            } else {
+                correlationID = requestMessage.getJMSMessageID();
+            }
+
+            javax.jms.Message replyMsg = context.getReplyListener().receive(correlationID, context.getTimeToLive());
+            if (replyMsg == null) {
+                throw new JMSBindingException("No reply message received on " + 
+                                              context.getReplyToDestination() + 
+                                              " for message id " + 
+                                              requestMessage.getJMSMessageID());
+            }
+
+            msg.setBody(replyMsg);
+            return msg;
+        } catch (JMSException e) {
+            throw new JMSBindingException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSBindingException(e);
+        }
+    }
+    
     public Invoker getNext() {
         return next;
     }
@@ -80,6 +80,9 @@ public class TransportServiceInterceptor implements Interceptor {
         } catch (Throwable e) {
             logger.log(Level.SEVERE, "Exception invoking service '" + service.getName(), e);
             JMSBindingContext context = msg.getBindingContext();
+            if (JMSBindingContext.isJMSFailure(e)) {
+                context.discardJmsResponseSession();
+            }
             javax.jms.Message replyJMSMsg = responseMessageProcessor.createFaultMessage(context.getJmsResponseSession(), 
                                                                                         (Throwable)e);
             msg.setBody(replyJMSMsg);
@@ -173,23 +176,20 @@ public class TransportServiceInterceptor implements Interceptor {
                 responseJMSMsg.setJMSCorrelationID(requestJMSMsg.getJMSCorrelationID());
             }                
                        
-            MessageProducer producer = session.createProducer(replyDest);
+            // Reply destinations differ between requests so use the session's unidentified
+            // producer, with the jms header attributes passed on the send
+            MessageProducer producer = jmsResourceFactory.getProducer(session, null);
             
-            // Set jms header attributes in producer, not message.
             int deliveryMode = requestJMSMsg.getJMSDeliveryMode();
-            producer.setDeliveryMode(deliveryMode);
             int deliveryPriority = requestJMSMsg.getJMSPriority();
-            producer.setPriority(deliveryPriority);
             long timeToLive = requestJMSMsg.getJMSExpiration();
-            producer.setTimeToLive(timeToLive);
-    
-            producer.send((javax.jms.Message)msg.getBody());
     
-            producer.close();
+            producer.send(replyDest, (javax.jms.Message)msg.getBody(), deliveryMode, deliveryPriority, timeToLive);
             
             return msg;
     
         } catch (JMSException e) {
+            context.discardJmsResponseSession();
             throw new JMSBindingException(e);
         } finally {
             context.closeJmsResponseSession();
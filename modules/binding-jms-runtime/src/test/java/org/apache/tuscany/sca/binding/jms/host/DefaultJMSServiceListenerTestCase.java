@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.jms.host;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import javax.jms.Connection;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.tuscany.sca.binding.jms.JMSBinding;
+import org.apache.tuscany.sca.binding.jms.provider.JMSResourceFactory;
+import org.apache.tuscany.sca.work.NotificationListener;
+import org.apache.tuscany.sca.work.WorkScheduler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the acknowledgement of the messages received by the DefaultJMSServiceListener
+ * against an in-memory queue
+ *
+ * @version $Rev$ $Date$
+ */
+public class DefaultJMSServiceListenerTestCase {
+    private final LinkedList<TestMessage> queue = new LinkedList<TestMessage>();
+    private final List<TestSession> sessions = Collections.synchronizedList(new ArrayList<TestSession>());
+    // ids of the messages processed by the service, in order
+    private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+    // ids of the messages the service fails the first time they are processed
+    private final Set<String> failures = Collections.synchronizedSet(new HashSet<String>());
+    // ids of the messages the service fails every time they are processed
+    private final Set<String> poisoned = Collections.synchronizedSet(new HashSet<String>());
+    // ids of the messages sent to the dead letter destination
+    private final List<String> deadLetters = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Boolean> redelivered = Collections.synchronizedList(new ArrayList<Boolean>());
+    private DefaultJMSServiceListener serviceListener;
+
+    @Before
+    public void setUp() {
+        MessageListener service = new MessageListener() {
+            public void onMessage(Message msg) {
+                TestMessage message = ((TestMessage.Handle)msg).getTestMessage();
+                processed.add(message.id);
+                redelivered.add(message.redelivered);
+                if (failures.remove(message.id) || poisoned.contains(message.id)) {
+                    throw new RuntimeException("Failed " + message.id);
+                }
+            }
+        };
+        JMSBinding jmsBinding = new JMSBinding();
+        jmsBinding.setDestinationName("RequestQueue");
+        serviceListener =
+            new DefaultJMSServiceListener(service, "HelloWorldService", false, jmsBinding, new ThreadWorkScheduler(),
+                                          proxy(JMSResourceFactory.class, new ResourceFactoryHandler()));
+    }
+
+    @After
+    public void tearDown() {
+        serviceListener.stop();
+    }
+
+    @Test
+    public void testTransactedBatches() throws Exception {
+        send("m1", "m2", "m3", "m4", "m5", "m6");
+        start(Session.SESSION_TRANSACTED, 3);
+
+        waitFor(6);
+        Assert.assertEquals(list("m1", "m2", "m3", "m4", "m5", "m6"), processed);
+        TestSession session = sessions.get(0);
+        Assert.assertEquals(2, session.commits);
+        Assert.assertEquals(0, session.rollbacks);
+        Assert.assertTrue(session.delivered.isEmpty());
+    }
+
+    @Test
+    public void testClientAcknowledgeBatches() throws Exception {
+        send("m1", "m2", "m3");
+        start(Session.CLIENT_ACKNOWLEDGE, 2);
+
+        waitFor(3);
+        TestSession session = sessions.get(0);
+        // The partial batch is acknowledged once the queue is empty
+        waitForEmpty(session);
+        Assert.assertEquals(2, session.acknowledgements);
+        Assert.assertEquals(0, session.recoveries);
+    }
+
+    @Test
+    public void testTransactedRollback() throws Exception {
+        failures.add("m2");
+        send("m1", "m2", "m3");
+        start(Session.SESSION_TRANSACTED, 3);
+
+        waitFor(4);
+        // m1 is redelivered with the failed message but it isn't processed again
+        Assert.assertEquals(list("m1", "m2", "m2", "m3"), processed);
+        Assert.assertEquals(list(false, false, true, false), redelivered);
+        TestSession session = sessions.get(0);
+        waitForEmpty(session);
+        Assert.assertEquals(1, session.rollbacks);
+        Assert.assertEquals(1, session.commits);
+    }
+
+    @Test
+    public void testTransactedRollbackTwice() throws Exception {
+        failures.add("m2");
+        failures.add("m3");
+        send("m1", "m2", "m3");
+        start(Session.SESSION_TRANSACTED, 3);
+
+        waitFor(5);
+        Assert.assertEquals(list("m1", "m2", "m2", "m3", "m3"), processed);
+        TestSession session = sessions.get(0);
+        waitForEmpty(session);
+        Assert.assertEquals(2, session.rollbacks);
+        Assert.assertEquals(1, session.commits);
+    }
+
+    @Test
+    public void testRedeliveryCap() throws Exception {
+        poisoned.add("m1");
+        send("m1", "m2");
+        serviceListener.setMaxRedeliveries(2);
+        start(Session.SESSION_TRANSACTED, 1);
+
+        waitFor(4);
+        // m1 is discarded after it is redelivered twice
+        Assert.assertEquals(list("m1", "m1", "m1", "m2"), processed);
+        TestSession session = sessions.get(0);
+        waitForEmpty(session);
+        Assert.assertEquals(3, session.rollbacks);
+        Assert.assertEquals(2, session.commits);
+        Assert.assertTrue(deadLetters.isEmpty());
+    }
+
+    @Test
+    public void testDeadLetter() throws Exception {
+        poisoned.add("m1");
+        send("m1", "m2");
+        serviceListener.setMaxRedeliveries(1);
+        serviceListener.setDeadLetterDestinationName("DeadLetterQueue");
+        start(Session.CLIENT_ACKNOWLEDGE, 2);
+
+        waitFor(3);
+        Assert.assertEquals(list("m1", "m1", "m2"), processed);
+        TestSession session = sessions.get(0);
+        waitForEmpty(session);
+        Assert.assertEquals(list("m1"), deadLetters);
+        Assert.assertEquals(2, session.recoveries);
+        Assert.assertEquals(1, session.acknowledgements);
+    }
+
+    @Test
+    public void testClientAcknowledgeRecover() throws Exception {
+        failures.add("m1");
+        send("m1", "m2");
+        start(Session.CLIENT_ACKNOWLEDGE, 2);
+
+        waitFor(3);
+        Assert.assertEquals(list("m1", "m1", "m2"), processed);
+        TestSession session = sessions.get(0);
+        waitForEmpty(session);
+        Assert.assertEquals(1, session.recoveries);
+        Assert.assertEquals(1, session.acknowledgements);
+    }
+
+    @Test
+    public void testAutoAcknowledgeFailureLogged() throws Exception {
+        start(Session.AUTO_ACKNOWLEDGE, 1);
+
+        TestSession session = sessions.get(0);
+        Assert.assertNotNull(session.messageListener);
+        failures.add("m1");
+        // The failure is logged, not passed to the JMS provider
+        session.messageListener.onMessage(new TestMessage("m1").getMessage());
+        session.messageListener.onMessage(new TestMessage("m2").getMessage());
+        Assert.assertEquals(list("m1", "m2"), processed);
+    }
+
+    private void start(int acknowledgeMode, int batchSize) {
+        serviceListener.setAcknowledgeMode(acknowledgeMode);
+        serviceListener.setBatchSize(batchSize);
+        serviceListener.start();
+    }
+
+    private void send(String... ids) {
+        synchronized (queue) {
+            for (String id : ids) {
+                queue.add(new TestMessage(id));
+            }
+        }
+    }
+
+    private void waitFor(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && processed.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        // Leave time for unexpected redeliveries
+        Thread.sleep(100);
+        Assert.assertEquals(count, processed.size());
+    }
+
+    private void waitForEmpty(TestSession session) throws InterruptedException {
+        for (int i = 0; i < 500 && !session.delivered.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(session.delivered.isEmpty());
+    }
+
+    private static <T> List<T> list(T... items) {
+        List<T> list = new ArrayList<T>();
+        Collections.addAll(list, items);
+        return list;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(DefaultJMSServiceListenerTestCase.class.getClassLoader(),
+                                                new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * Returns the value of the methods returning a primitive for the methods not handled by a proxy
+     */
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (method.getName().equals("equals")) {
+            return proxy == args[0];
+        } else if (method.getReturnType() == boolean.class) {
+            return false;
+        }
+        return null;
+    }
+
+    private class ResourceFactoryHandler implements InvocationHandler {
+        private final Queue destination = proxy(Queue.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getQueueName")) {
+                    return "RequestQueue";
+                }
+                return defaultValue(proxy, method, args);
+            }
+        });
+
+        private final Connection connection = proxy(Connection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("createSession")) {
+                    TestSession session = new TestSession((Integer)args[1]);
+                    sessions.add(session);
+                    return session.session;
+                }
+                return defaultValue(proxy, method, args);
+            }
+        });
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("getConnection")) {
+                return connection;
+            } else if (method.getName().equals("lookupDestination")) {
+                return destination;
+            }
+            return defaultValue(proxy, method, args);
+        }
+    }
+
+    /**
+     * A session receiving from the queue. The messages it has received and not acknowledged
+     * or committed go back to the head of the queue when it is rolled back or recovered.
+     */
+    private class TestSession implements InvocationHandler {
+        private final int acknowledgeMode;
+        private final List<TestMessage> delivered = Collections.synchronizedList(new ArrayList<TestMessage>());
+        private final Session session = proxy(Session.class, this);
+        private volatile MessageListener messageListener;
+        private volatile int commits;
+        private volatile int rollbacks;
+        private volatile int acknowledgements;
+        private volatile int recoveries;
+
+        private TestSession(int acknowledgeMode) {
+            this.acknowledgeMode = acknowledgeMode;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("createConsumer")) {
+                return proxy(MessageConsumer.class, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("receive")) {
+                            return receive((Long)args[0]);
+                        } else if (method.getName().equals("setMessageListener")) {
+                            messageListener = (MessageListener)args[0];
+                            return null;
+                        }
+                        return defaultValue(proxy, method, args);
+                    }
+                });
+            } else if (name.equals("createProducer")) {
+                return proxy(MessageProducer.class, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("send")) {
+                            deadLetters.add(((TestMessage.Handle)args[0]).getTestMessage().id);
+                            return null;
+                        }
+                        return defaultValue(proxy, method, args);
+                    }
+                });
+            } else if (name.equals("commit")) {
+                delivered.clear();
+                commits++;
+            } else if (name.equals("rollback")) {
+                redeliver();
+                rollbacks++;
+            } else if (name.equals("recover")) {
+                redeliver();
+                recoveries++;
+            } else if (name.equals("getAcknowledgeMode")) {
+                return acknowledgeMode;
+            }
+            return defaultValue(proxy, method, args);
+        }
+
+        private Message receive(long timeout) throws InterruptedException {
+            TestMessage message;
+            synchronized (queue) {
+                message = queue.poll();
+                if (message != null) {
+                    message.session = this;
+                    delivered.add(message);
+                    return message.getMessage();
+                }
+            }
+            Thread.sleep(Math.min(timeout, 10));
+            return null;
+        }
+
+        private void acknowledge() {
+            delivered.clear();
+            acknowledgements++;
+        }
+
+        private void redeliver() {
+            synchronized (queue) {
+                for (int i = delivered.size() - 1; i >= 0; i--) {
+                    TestMessage message = delivered.get(i);
+                    message.redelivered = true;
+                    queue.addFirst(message);
+                }
+                delivered.clear();
+            }
+        }
+    }
+
+    private static class TestMessage implements InvocationHandler {
+        private interface Handle {
+            TestMessage getTestMessage();
+        }
+
+        private final String id;
+        private volatile boolean redelivered;
+        private volatile TestSession session;
+
+        private TestMessage(String id) {
+            this.id = id;
+        }
+
+        private Message getMessage() {
+            return (Message)Proxy.newProxyInstance(DefaultJMSServiceListenerTestCase.class.getClassLoader(),
+                                                   new Class<?>[] {Message.class, Handle.class}, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getTestMessage")) {
+                return this;
+            } else if (name.equals("acknowledge")) {
+                // Acknowledges all the messages received by the session
+                session.acknowledge();
+                return null;
+            } else if (name.equals("getJMSMessageID")) {
+                return id;
+            } else if (name.equals("getJMSRedelivered")) {
+                return redelivered;
+            }
+            return defaultValue(proxy, method, args);
+        }
+    }
+
+    private static class ThreadWorkScheduler implements WorkScheduler {
+        public <T extends Runnable> void scheduleWork(T work) {
+            Thread thread = new Thread(work);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public <T extends Runnable> void scheduleWork(T work, NotificationListener<T> listener) {
+            scheduleWork(work);
+        }
+
+        public ExecutorService getExecutorService() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.jms.provider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.jms.Connection;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the demultiplexing of replies by the JMSReplyListener
+ *
+ * @version $Rev$ $Date$
+ */
+public class JMSReplyListenerTestCase {
+    private JMSReplyListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        listener = new JMSReplyListener(proxy(Connection.class, null));
+    }
+
+    @Test
+    public void testReplyBeforeReceive() throws Exception {
+        Message reply = proxy(Message.class, "id-1");
+        listener.onMessage(reply);
+        Assert.assertSame(reply, listener.receive("id-1", 1000));
+    }
+
+    @Test
+    public void testConcurrentReplies() throws Exception {
+        final Message reply1 = proxy(Message.class, "id-1");
+        final Message reply2 = proxy(Message.class, "id-2");
+        Thread sender = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                listener.onMessage(reply2);
+                listener.onMessage(reply1);
+            }
+        };
+        sender.start();
+        Assert.assertSame(reply1, listener.receive("id-1", 5000));
+        Assert.assertSame(reply2, listener.receive("id-2", 5000));
+        sender.join();
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        listener.onMessage(proxy(Message.class, "id-1"));
+        Assert.assertNull(listener.receive("id-2", 100));
+    }
+
+    /**
+     * Creates a JMS object where every method returns another JMS object
+     * or, for messages, the correlation ID
+     */
+    private static <T> T proxy(final Class<T> type, final String correlationID) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Class<?> returnType = method.getReturnType();
+                if (returnType == Session.class || returnType == TemporaryQueue.class
+                    || returnType == MessageConsumer.class) {
+                    return proxy(returnType, null);
+                } else if (method.getName().equals("getJMSCorrelationID")) {
+                    return correlationID;
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                return null;
+            }
+        }));
+    }
+}
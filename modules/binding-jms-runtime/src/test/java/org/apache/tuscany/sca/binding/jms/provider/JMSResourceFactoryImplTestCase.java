@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.jms.provider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import javax.naming.NamingException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the reuse of sessions by the JMSResourceFactoryImpl
+ *
+ * @version $Rev$ $Date$
+ */
+public class JMSResourceFactoryImplTestCase {
+    private final Set<Object> closed = new HashSet<Object>();
+    private JMSResourceFactoryImpl factory;
+
+    @Before
+    public void setUp() throws Exception {
+        factory = new JMSResourceFactoryImpl(null, null, null, null) {
+            @Override
+            protected void createConnection() throws NamingException, JMSException {
+                connection = proxy(Connection.class);
+            }
+        };
+    }
+
+    @Test
+    public void testSessionReused() throws Exception {
+        Session session = factory.createSession();
+        factory.closeSession(session);
+        Assert.assertSame(session, factory.createSession());
+        Assert.assertFalse(closed.contains(session));
+    }
+
+    @Test
+    public void testSessionOfClosedConnectionNotReused() throws Exception {
+        Connection connection = factory.getConnection();
+        Session session = factory.createSession();
+        factory.closeConnection();
+        Assert.assertTrue(closed.contains(connection));
+
+        factory.closeSession(session);
+        Assert.assertTrue(closed.contains(session));
+        Session next = factory.createSession();
+        Assert.assertNotSame(session, next);
+        Assert.assertNotSame(connection, factory.getConnection());
+    }
+
+    @Test
+    public void testFailedSessionNotReused() throws Exception {
+        Session session = factory.createSession();
+        factory.discardSession(session);
+        Assert.assertTrue(closed.contains(session));
+        factory.closeSession(session);
+        Assert.assertNotSame(session, factory.createSession());
+    }
+
+    @Test
+    public void testResponseSessionOfClosedConnectionNotReused() throws Exception {
+        Session session = factory.createResponseSession();
+        factory.closeConnection();
+        factory.closeResponseSession(session);
+        Assert.assertTrue(closed.contains(session));
+        Assert.assertNotSame(session, factory.createResponseSession());
+    }
+
+    /**
+     * Creates a JMS object where creating a session returns a new session
+     * and closing the object records it as closed
+     */
+    private <T> T proxy(final Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("createSession")) {
+                    return proxy(Session.class);
+                } else if (method.getName().equals("close")) {
+                    closed.add(proxy);
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                return null;
+            }
+        }));
+    }
+}
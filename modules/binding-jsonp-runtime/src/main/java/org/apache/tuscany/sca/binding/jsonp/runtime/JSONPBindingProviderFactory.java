@@ -20,7 +20,9 @@
 package org.apache.tuscany.sca.binding.jsonp.runtime;
 
 import org.apache.tuscany.sca.binding.jsonp.JSONPBinding;
+import org.apache.tuscany.sca.common.http.HTTPClientFactory;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
 import org.apache.tuscany.sca.host.http.ServletHost;
 import org.apache.tuscany.sca.host.http.ServletHostHelper;
 import org.apache.tuscany.sca.provider.BindingProviderFactory;
@@ -32,9 +34,12 @@ import org.apache.tuscany.sca.runtime.RuntimeEndpointReference;
 public class JSONPBindingProviderFactory implements BindingProviderFactory<JSONPBinding> {
 
     private ServletHost servletHost;
+    private HTTPClientFactory httpClientFactory;
 
     public JSONPBindingProviderFactory(ExtensionPointRegistry extensionPoints) {
         this.servletHost = ServletHostHelper.getServletHost(extensionPoints);
+        UtilityExtensionPoint utilities = extensionPoints.getExtensionPoint(UtilityExtensionPoint.class);
+        this.httpClientFactory = utilities.getUtility(HTTPClientFactory.class);
     }
 
     public Class<JSONPBinding> getModelType() {
@@ -42,7 +47,7 @@ public class JSONPBindingProviderFactory implements BindingProviderFactory<JSONP
     }
 
     public ReferenceBindingProvider createReferenceBindingProvider(RuntimeEndpointReference endpoint) {
-        return new JSONPReferenceBindingProvider(endpoint);
+        return new JSONPReferenceBindingProvider(endpoint, httpClientFactory.getHttpClient());
     }
 
     public ServiceBindingProvider createServiceBindingProvider(RuntimeEndpoint endpoint) {
@@ -31,7 +31,6 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.tuscany.sca.assembly.EndpointReference;
 import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.invocation.Invoker;
@@ -45,12 +44,14 @@ public class JSONPInvoker implements Invoker {
     
     protected Operation operation;
     protected EndpointReference endpoint;
+    protected HttpClient httpClient;
 
     protected ObjectMapper mapper; // TODO: share mapper btw invoker and servlet or move to databinding
 
-    public JSONPInvoker(Operation operation, EndpointReference endpoint) {
+    public JSONPInvoker(Operation operation, EndpointReference endpoint, HttpClient httpClient) {
         this.operation = operation;
         this.endpoint = endpoint;
+        this.httpClient = httpClient;
         this.mapper = new ObjectMapper();
     }
 
@@ -79,9 +80,6 @@ public class JSONPInvoker implements Invoker {
 
     protected String invokeHTTPRequest(String url, String[] jsonArgs) throws IOException, EncoderException {
         
-         HttpClient httpclient = new DefaultHttpClient();
-         
-         
          URLCodec uc = new URLCodec();
          for (int i=0 ; i<jsonArgs.length; i++) {
              if (i == 0) {
@@ -95,7 +93,7 @@ public class JSONPInvoker implements Invoker {
 
          HttpGet httpget = new HttpGet(url); 
 
-         HttpResponse response = httpclient.execute(httpget);
+         HttpResponse response = httpClient.execute(httpget);
          
          StringBuffer responseJSON = new StringBuffer(); 
 
@@ -133,11 +131,6 @@ public class JSONPInvoker implements Invoker {
                  instream.close();
                  
              }
-             
-             // When HttpClient instance is no longer needed, 
-             // shut down the connection manager to ensure
-             // immediate deallocation of all system resources
-             httpclient.getConnectionManager().shutdown();        
          }
          
          return responseJSON.toString();
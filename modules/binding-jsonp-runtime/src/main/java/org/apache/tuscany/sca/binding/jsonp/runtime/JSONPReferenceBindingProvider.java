@@ -19,6 +19,7 @@
 
 package org.apache.tuscany.sca.binding.jsonp.runtime;
 
+import org.apache.http.client.HttpClient;
 import org.apache.tuscany.sca.assembly.EndpointReference;
 import org.apache.tuscany.sca.interfacedef.InterfaceContract;
 import org.apache.tuscany.sca.interfacedef.Operation;
@@ -29,9 +30,11 @@ public class JSONPReferenceBindingProvider implements ReferenceBindingProvider {
 
     private EndpointReference endpoint;
     private InterfaceContract contract;
+    private HttpClient httpClient;
 
-    public JSONPReferenceBindingProvider(EndpointReference endpoint) {
+    public JSONPReferenceBindingProvider(EndpointReference endpoint, HttpClient httpClient) {
         this.endpoint = endpoint;
+        this.httpClient = httpClient;
         
         try {
             contract = (InterfaceContract)endpoint.getComponentReferenceInterfaceContract().clone();
@@ -41,7 +44,7 @@ public class JSONPReferenceBindingProvider implements ReferenceBindingProvider {
         contract.getInterface().resetDataBinding("JSON");
     }
     public Invoker createInvoker(Operation operation) {
-        return new JSONPInvoker(operation, endpoint);
+        return new JSONPInvoker(operation, endpoint, httpClient);
     }
 
     public void start() {
@@ -19,20 +19,16 @@
 
 package org.apache.tuscany.sca.binding.jsonrpc.provider;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
+import java.lang.reflect.Type;
+
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.util.EntityUtils;
 import org.apache.tuscany.sca.assembly.EndpointReference;
 import org.apache.tuscany.sca.binding.jsonrpc.JSONRPCBinding;
 import org.apache.tuscany.sca.databinding.json.JSONDataBinding;
+import org.apache.tuscany.sca.interfacedef.DataType;
 import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.invocation.Invoker;
 import org.apache.tuscany.sca.invocation.Message;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 /**
  * Invoker for the JSONRPC Binding
@@ -42,114 +38,53 @@ import org.json.JSONObject;
 public class JSONRPCBindingInvoker implements Invoker {
     private EndpointReference endpointReference;
     private Operation operation;
-    private String uri;
-    
-    private HttpClient httpClient;
+    private JSONRPCClient client;
 
     public JSONRPCBindingInvoker(EndpointReference endpointReference, Operation operation, HttpClient httpClient) {
+        this(endpointReference, operation, new JSONRPCClient(httpClient, ((JSONRPCBinding)endpointReference
+            .getBinding()).getURI(), 1));
+    }
+
+    public JSONRPCBindingInvoker(EndpointReference endpointReference, Operation operation, JSONRPCClient client) {
         this.endpointReference = endpointReference;
         this.operation = operation;
-        this.uri = ((JSONRPCBinding) endpointReference.getBinding()).getURI();
-        
-        this.httpClient = httpClient;
+        this.client = client;
     }
 
     public Message invoke(Message msg) {
-        HttpPost post = null;
-        HttpResponse response = null;
+        final String db = msg.getOperation().getWrapper().getDataBinding();
         try {
-            String requestId = "1";
-            post = new HttpPost(uri);
-
-            final String db = msg.getOperation().getWrapper().getDataBinding();
-            String req;
             if (!db.equals(JSONDataBinding.NAME)) {
-            	
-
-                JSONObject jsonRequest = null;;
-                Object[] args = null;
-                try {
-                    // Extract the method
-                    jsonRequest = new JSONObject();
-                    jsonRequest.putOpt("method", "Service" + "." + msg.getOperation().getName());
-
-                    // Extract the arguments
-                    args = msg.getBody();
-                    JSONArray array = new JSONArray();
-                    for (int i = 0; i < args.length; i++) {
-                        array.put(args[i]);
-                    }
-                    jsonRequest.putOpt("params", array);
-                    jsonRequest.put("id", requestId);
-
-                } catch (Exception e) {
-                    throw new RuntimeException("Unable to parse JSON parameter", e);
-                }
-                req = jsonRequest.toString();
+                // Arguments are streamed into the request and the result is bound straight
+                // from the response to the operation's output type
+                Object result =
+                    client.invoke("Service" + "." + msg.getOperation().getName(), (Object[])msg.getBody(),
+                                  getResultType(msg.getOperation()));
+                msg.setBody(result);
             } else {
-            	req = (String)((Object[])msg.getBody())[0];
-            }
-            StringEntity entity = new StringEntity(req, "UTF-8");
-            post.setEntity(entity);
-
-            response = httpClient.execute(post);
-
-            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-                //success 
-                try {
-                	String entityResponse = EntityUtils.toString(response.getEntity());                	
-                    if (!db.equals(JSONDataBinding.NAME)) {
-                        JSONObject jsonResponse = new JSONObject(entityResponse);
-
-	                    //check requestId
-	                    if (! jsonResponse.getString("id").equalsIgnoreCase(requestId)) {
-	                        throw new RuntimeException("Invalid response id:" + requestId );
-	                    }
-
-	                    msg.setBody(jsonResponse.get("result"));
-                    } else {
-	                    msg.setBody(entityResponse);
-                    }
-                    
-                } catch (Exception e) {
-                    //FIXME Exceptions are not handled correctly here
-                    // They should be reported to the client JavaScript as proper
-                    // JavaScript exceptions.
-                    throw new RuntimeException("Unable to parse response", e);
-                }
+                // The request is already a complete JSON-RPC message, and so is the response
+                msg.setBody(client.invoke((String)((Object[])msg.getBody())[0]));
             }
         } catch (Exception e) {
-            e.printStackTrace();
             msg.setFaultBody(e);
         }
 
         return msg;
     }
-    
-    private static JSONObject getJSONRequest(Message msg) {
-        
-        JSONObject jsonRequest = null;;
-        Object[] args = null;
-        Object id = null;
-        try {
-            // Extract the method
-            jsonRequest = new JSONObject();
-            jsonRequest.putOpt("method", "Service" + "." + msg.getOperation().getName());
-            
-            // Extract the arguments
-            args = msg.getBody();
-            JSONArray array = new JSONArray();
-            for (int i = 0; i < args.length; i++) {
-                array.put(args[i]);
-            }
-            jsonRequest.putOpt("params", array);
-            id = jsonRequest.put("id", "1");
 
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to parse JSON parameter", e);
+    private static Type getResultType(Operation operation) {
+        DataType outputType = operation.getOutputType();
+        if (outputType == null) {
+            return null;
         }
-
-        return jsonRequest;
+        Type type = outputType.getGenericType();
+        if (type == null) {
+            type = outputType.getPhysical();
+        }
+        if (type == void.class || type == Void.class) {
+            return null;
+        }
+        return type;
     }
     
 }
@@ -20,8 +20,10 @@
 package org.apache.tuscany.sca.binding.jsonrpc.provider;
 
 import org.apache.tuscany.sca.binding.jsonrpc.JSONRPCBinding;
+import org.apache.tuscany.sca.common.http.HTTPClientFactory;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
 import org.apache.tuscany.sca.host.http.ServletHost;
 import org.apache.tuscany.sca.host.http.ServletHostHelper;
 import org.apache.tuscany.sca.invocation.MessageFactory;
@@ -40,16 +42,28 @@ public class JSONRPCBindingProviderFactory implements BindingProviderFactory<JSO
 
     private MessageFactory messageFactory;
     private ServletHost servletHost;
+    private HTTPClientFactory httpClientFactory;
+    private int maxBatchSize = 1;
 
     public JSONRPCBindingProviderFactory(ExtensionPointRegistry extensionPoints) {
         this.servletHost = ServletHostHelper.getServletHost(extensionPoints);
         FactoryExtensionPoint modelFactories = extensionPoints.getExtensionPoint(FactoryExtensionPoint.class);
         messageFactory = modelFactories.getFactory(MessageFactory.class);
+        UtilityExtensionPoint utilities = extensionPoints.getExtensionPoint(UtilityExtensionPoint.class);
+        httpClientFactory = utilities.getUtility(HTTPClientFactory.class);
+
+        // Batching of concurrent calls is off by default as not every JSON-RPC service accepts batch requests
+        String batchSize = System.getProperty("org.apache.tuscany.sca.binding.jsonrpc.provider.JSONRPCClient.maxBatchSize");
+        if (batchSize != null) {
+            maxBatchSize = Integer.parseInt(batchSize.trim());
+        }
     }
     
     public ReferenceBindingProvider createReferenceBindingProvider(RuntimeEndpointReference endpointReference) {
         
-        return new JSONRPCReferenceBindingProvider(endpointReference);
+        // Batches overlap as long as the shared HTTP client has connections to the endpoint for them
+        return new JSONRPCReferenceBindingProvider(endpointReference, httpClientFactory.getHttpClient(), maxBatchSize,
+                                                   httpClientFactory.getMaxConnectionsPerRoute());
     }
 
     public ServiceBindingProvider createServiceBindingProvider(RuntimeEndpoint endpoint) {
@@ -0,0 +1,454 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.jsonrpc.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.tuscany.sca.databinding.json.jackson.JacksonHelper;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.type.TypeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+import org.oasisopen.sca.ServiceRuntimeException;
+
+/**
+ * A streaming JSON-RPC client for one endpoint. Requests are written by Jackson straight
+ * into the HTTP request body and results are parsed from the response stream into the
+ * expected Java type, without building intermediate JSON strings.
+ * <p>
+ * When maxBatchSize is greater than one, up to maxConcurrentRequests HTTP requests are
+ * sent to the endpoint at the same time. Calls that arrive while all of them are in
+ * flight are queued and sent together as a single JSON-RPC batch (a JSON array of
+ * requests) as soon as one of the requests completes.
+ *
+ * @version $Rev$ $Date$
+ */
+public class JSONRPCClient {
+    private final HttpClient httpClient;
+    private final String uri;
+    private final int maxBatchSize;
+    private final int maxConcurrentRequests;
+    private final ObjectMapper mapper = JacksonHelper.createObjectMapper();
+    private final AtomicLong requestIds = new AtomicLong();
+
+    // Calls waiting to be sent, and the number of requests in flight for the queue
+    private final LinkedList<Call> pending = new LinkedList<Call>();
+    private int sending;
+
+    public JSONRPCClient(HttpClient httpClient, String uri, int maxBatchSize) {
+        // Two is the number of connections HttpClient keeps to a host unless told otherwise
+        this(httpClient, uri, maxBatchSize, 2);
+    }
+
+    public JSONRPCClient(HttpClient httpClient, String uri, int maxBatchSize, int maxConcurrentRequests) {
+        this.httpClient = httpClient;
+        this.uri = uri;
+        this.maxBatchSize = maxBatchSize;
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    /**
+     * Invoke a JSON-RPC method on the endpoint
+     * 
+     * @param method The JSON-RPC method name
+     * @param args The arguments
+     * @param resultType The expected type of the result, or null if the result should be ignored
+     * @return The result converted to resultType
+     * @throws Exception if the request fails or the endpoint returns an error
+     */
+    public Object invoke(String method, Object[] args, Type resultType) throws Exception {
+        Call call = new Call(requestIds.incrementAndGet(), method, args, resultType);
+        execute(call);
+        return call.getResult();
+    }
+
+    /**
+     * Invoke the endpoint with a complete JSON-RPC request, as produced by the JSON databinding.
+     * The request goes out like any other call, with a unique id and possibly as part of a
+     * batch, and the response is handed back with the id the caller used.
+     * 
+     * @param request The JSON-RPC request
+     * @return The JSON-RPC response
+     * @throws Exception if the request cannot be sent or its response cannot be read
+     */
+    public String invoke(String request) throws Exception {
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(request);
+        JsonNode node = mapper.readTree(parser);
+        parser.close();
+        JsonNode method = node == null ? null : node.get("method");
+        if (method == null) {
+            throw new ServiceRuntimeException("Invalid JSON-RPC request: " + request);
+        }
+
+        Call call = new Call(requestIds.incrementAndGet(), method.getTextValue(), node.get("params"), node.get("id"));
+        execute(call);
+        return (String)call.getResult();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    private void execute(Call call) {
+        if (maxBatchSize > 1) {
+            coalesce(call);
+        } else {
+            List<Call> calls = new ArrayList<Call>(1);
+            calls.add(call);
+            send(calls);
+        }
+    }
+
+    /**
+     * Queue the call and wait until either another thread has sent it or a request can
+     * be started, in which case the calls at the head of the queue are sent together.
+     * The wait is not interruptible, as nobody else may be left to send the queue.
+     */
+    private void coalesce(Call call) {
+        boolean interrupted = false;
+        synchronized (pending) {
+            pending.add(call);
+            call.queued = true;
+        }
+        while (true) {
+            List<Call> batch;
+            synchronized (pending) {
+                while (call.queued && sending >= maxConcurrentRequests) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (!call.queued) {
+                    // Sent as part of another thread's batch
+                    break;
+                }
+                sending++;
+                int size = Math.min(pending.size(), maxBatchSize);
+                batch = new ArrayList<Call>(size);
+                for (int i = 0; i < size; i++) {
+                    Call next = pending.removeFirst();
+                    next.queued = false;
+                    batch.add(next);
+                }
+            }
+            try {
+                send(batch);
+            } finally {
+                synchronized (pending) {
+                    sending--;
+                    pending.notifyAll();
+                }
+            }
+        }
+        call.awaitDone();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send the calls in one HTTP request and complete each of them with its response.
+     */
+    private void send(final List<Call> calls) {
+        final boolean batch = calls.size() > 1;
+        Map<String, Call> callsById = new HashMap<String, Call>();
+        for (Call call : calls) {
+            callsById.put(String.valueOf(call.id), call);
+        }
+
+        HttpPost post = new HttpPost(uri);
+        EntityTemplate entity = new EntityTemplate(new ContentProducer() {
+            public void writeTo(OutputStream out) throws IOException {
+                JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+                if (batch) {
+                    generator.writeStartArray();
+                }
+                for (Call call : calls) {
+                    writeRequest(generator, call);
+                }
+                if (batch) {
+                    generator.writeEndArray();
+                }
+                generator.flush();
+            }
+        });
+        entity.setContentType("application/json;charset=UTF-8");
+        post.setEntity(entity);
+
+        try {
+            HttpResponse response = httpClient.execute(post);
+            HttpEntity responseEntity = response.getEntity();
+            try {
+                if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                    throw new ServiceRuntimeException("JSON-RPC request to " + uri + " failed: " + response.getStatusLine());
+                }
+                InputStream in = responseEntity.getContent();
+                JsonParser parser = mapper.getJsonFactory().createJsonParser(in);
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readResponse(parser.readValueAsTree(), callsById, null);
+                    }
+                } else if (token == JsonToken.START_OBJECT) {
+                    Call call = batch ? null : calls.get(0);
+                    if (call != null && !call.raw) {
+                        readResponse(parser, call);
+                    } else {
+                        readResponse(parser.readValueAsTree(), callsById, call);
+                    }
+                }
+                parser.close();
+            } finally {
+                if (responseEntity != null) {
+                    responseEntity.consumeContent();
+                }
+            }
+        } catch (Throwable e) {
+            for (Call call : calls) {
+                call.fail(e);
+            }
+        }
+
+        // Fail whatever the endpoint did not answer
+        for (Call call : calls) {
+            call.fail(new ServiceRuntimeException("No JSON-RPC response received for request id " + call.id));
+        }
+    }
+
+    private void writeRequest(JsonGenerator generator, Call call) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("method", call.method);
+        if (call.raw) {
+            if (call.params != null) {
+                generator.writeFieldName("params");
+                mapper.writeValue(generator, call.params);
+            }
+        } else {
+            generator.writeFieldName("params");
+            generator.writeStartArray();
+            if (call.args != null) {
+                for (Object arg : call.args) {
+                    mapper.writeValue(generator, arg);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeNumberField("id", call.id);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read the response to a single request, binding the result directly from the stream.
+     */
+    private void readResponse(JsonParser parser, Call call) throws IOException {
+        String id = null;
+        Object result = null;
+        boolean hasResult = false;
+        JsonNode error = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("id".equals(name)) {
+                id = token == JsonToken.VALUE_NULL ? null : parser.getText();
+            } else if ("result".equals(name)) {
+                hasResult = true;
+                result = readValue(parser, call.resultType);
+            } else if ("error".equals(name)) {
+                if (token != JsonToken.VALUE_NULL) {
+                    error = parser.readValueAsTree();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (id != null && !id.equals(String.valueOf(call.id))) {
+            call.fail(new ServiceRuntimeException("Invalid response id: " + id));
+        } else if (error != null) {
+            call.fail(new ServiceRuntimeException(getErrorMessage(error)));
+        } else if (hasResult) {
+            call.complete(result);
+        }
+    }
+
+    /**
+     * Complete a call from a response that has been read as a tree, either because it is
+     * part of a batch and has to be matched by id, or because the caller wants the JSON.
+     */
+    private void readResponse(JsonNode response, Map<String, Call> callsById, Call call) throws IOException {
+        if (call == null) {
+            JsonNode id = response.get("id");
+            call = id == null ? null : callsById.get(id.getValueAsText());
+            if (call == null) {
+                // Not one of ours, for example an error for a request that could not be parsed
+                return;
+            }
+        }
+
+        if (call.raw) {
+            ObjectNode copy = (ObjectNode)response;
+            if (call.requestId != null) {
+                copy.put("id", call.requestId);
+            } else {
+                copy.remove("id");
+            }
+            call.complete(copy.toString());
+            return;
+        }
+
+        JsonNode error = response.get("error");
+        JsonNode result = response.get("result");
+        if (error != null && !error.isNull()) {
+            call.fail(new ServiceRuntimeException(getErrorMessage(error)));
+        } else if (result != null) {
+            call.complete(call.resultType == null ? null : mapper.readValue(result, TypeFactory.type(call.resultType)));
+        }
+    }
+
+    private Object readValue(JsonParser parser, Type type) throws IOException {
+        if (type == null) {
+            parser.skipChildren();
+            return null;
+        }
+        return mapper.readValue(parser, TypeFactory.type(type));
+    }
+
+    private static String getErrorMessage(JsonNode error) {
+        // JSON-RPC 2.0 uses "message", jabsorb uses "msg"
+        JsonNode message = error.get("message");
+        if (message == null) {
+            message = error.get("msg");
+        }
+        return message != null ? message.getValueAsText() : error.toString();
+    }
+
+    /**
+     * An outstanding call. Once completed or failed its outcome no longer changes.
+     */
+    private static class Call {
+        private final long id;
+        private final String method;
+        private final Object[] args;
+        private final Type resultType;
+
+        // A call made with a complete JSON-RPC request, answered with the JSON response
+        private final boolean raw;
+        private final JsonNode params;
+        private final JsonNode requestId;
+
+        // Guarded by the queue of pending calls
+        private boolean queued;
+
+        private boolean done;
+        private Object result;
+        private Throwable fault;
+
+        private Call(long id, String method, Object[] args, Type resultType) {
+            this.id = id;
+            this.method = method;
+            this.args = args;
+            this.resultType = resultType;
+            this.raw = false;
+            this.params = null;
+            this.requestId = null;
+        }
+
+        private Call(long id, String method, JsonNode params, JsonNode requestId) {
+            this.id = id;
+            this.method = method;
+            this.args = null;
+            this.resultType = null;
+            this.raw = true;
+            this.params = params;
+            this.requestId = requestId;
+        }
+
+        private synchronized void complete(Object result) {
+            if (!done) {
+                this.result = result;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        private synchronized void fail(Throwable fault) {
+            if (!done) {
+                this.fault = fault;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait for the request that carries the call to complete. The request completes
+         * or fails every call it carries before the sending thread lets go of it.
+         */
+        private synchronized void awaitDone() {
+            boolean interrupted = false;
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized Object getResult() throws Exception {
+            if (fault instanceof Exception) {
+                throw (Exception)fault;
+            } else if (fault instanceof Error) {
+                throw (Error)fault;
+            } else if (fault != null) {
+                throw new ServiceRuntimeException(fault);
+            }
+            return result;
+        }
+    }
+}
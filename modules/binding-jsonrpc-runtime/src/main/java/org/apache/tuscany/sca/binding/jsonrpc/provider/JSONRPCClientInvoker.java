@@ -20,6 +20,7 @@
 package org.apache.tuscany.sca.binding.jsonrpc.provider;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 
 import org.apache.http.client.HttpClient;
 import org.apache.tuscany.sca.assembly.EndpointReference;
@@ -28,9 +29,6 @@ import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.interfacedef.java.JavaOperation;
 import org.apache.tuscany.sca.invocation.Invoker;
 import org.apache.tuscany.sca.invocation.Message;
-import org.jabsorb.client.Client;
-import org.jabsorb.client.Session;
-import org.jabsorb.client.TransportRegistry;
 
 /**
  * Invoker for the JSONRPC Binding
@@ -41,28 +39,30 @@ public class JSONRPCClientInvoker implements Invoker {
     private EndpointReference endpointReference;
     private Operation operation;
     private Method method;
-    private String uri;
+    private JSONRPCClient client;
 
     public JSONRPCClientInvoker(EndpointReference endpointReference, Operation operation, HttpClient httpClient) {
+        this(endpointReference, operation, new JSONRPCClient(httpClient, ((JSONRPCBinding)endpointReference
+            .getBinding()).getURI(), 1));
+    }
+
+    public JSONRPCClientInvoker(EndpointReference endpointReference, Operation operation, JSONRPCClient client) {
         this.endpointReference = endpointReference;
         this.operation = operation;
         this.method = ((JavaOperation)operation).getJavaMethod();
-        this.uri = ((JSONRPCBinding)endpointReference.getBinding()).getURI();
+        this.client = client;
     }
 
     public Message invoke(Message msg) {
-        Session session = TransportRegistry.i().createSession(uri);
-        Client client = new Client(session);
-        Object proxy = client.openProxy("", method.getDeclaringClass());
-
         try {
-            Object result = client.invoke(proxy, method, (Object[])msg.getBody());
+            Type resultType = method.getGenericReturnType();
+            if (resultType == void.class) {
+                resultType = null;
+            }
+            Object result = client.invoke("Service" + "." + method.getName(), (Object[])msg.getBody(), resultType);
             msg.setBody(result);
         } catch (Exception e) {
             msg.setFaultBody(e);
-        } finally {
-            client.closeProxy(proxy);
-            session.close();
         }
         return msg;
     }
@@ -19,20 +19,9 @@
 
 package org.apache.tuscany.sca.binding.jsonrpc.provider;
 
-import org.apache.http.HttpHost;
 import org.apache.http.client.HttpClient;
-import org.apache.http.conn.ClientConnectionManager;
-import org.apache.http.conn.scheme.PlainSocketFactory;
-import org.apache.http.conn.scheme.Scheme;
-import org.apache.http.conn.scheme.SchemeRegistry;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
-import org.apache.http.params.HttpProtocolParams;
-import org.apache.http.protocol.HTTP;
 import org.apache.tuscany.sca.assembly.EndpointReference;
+import org.apache.tuscany.sca.binding.jsonrpc.JSONRPCBinding;
 import org.apache.tuscany.sca.interfacedef.Interface;
 import org.apache.tuscany.sca.interfacedef.InterfaceContract;
 import org.apache.tuscany.sca.interfacedef.Operation;
@@ -52,8 +41,18 @@ public class JSONRPCReferenceBindingProvider implements ReferenceBindingProvider
     private InterfaceContract referenceContract;
 
     private HttpClient httpClient;
+    private int maxBatchSize;
+    private int maxConcurrentRequests;
+    private JSONRPCClient client;
 
-    public JSONRPCReferenceBindingProvider(EndpointReference endpointReference) {
+    public JSONRPCReferenceBindingProvider(EndpointReference endpointReference, HttpClient httpClient) {
+        this(endpointReference, httpClient, 1, 2);
+    }
+
+    public JSONRPCReferenceBindingProvider(EndpointReference endpointReference,
+                                           HttpClient httpClient,
+                                           int maxBatchSize,
+                                           int maxConcurrentRequests) {
 
         this.endpointReference = endpointReference;
         this.reference = (RuntimeComponentReference) endpointReference.getReference();
@@ -69,19 +68,10 @@ public class JSONRPCReferenceBindingProvider implements ReferenceBindingProvider
         JSONRPCDatabindingHelper.setDataBinding(referenceContract.getInterface());
         */
 
-        // Create an HTTP client
-        HttpParams defaultParameters = new BasicHttpParams();
-        //defaultParameters.setIntParameter(HttpConnectionManagerParams.MAX_TOTAL_CONNECTIONS, 10);
-        HttpProtocolParams.setContentCharset(defaultParameters, HTTP.UTF_8);
-        HttpConnectionParams.setConnectionTimeout(defaultParameters, 60000);
-        HttpConnectionParams.setSoTimeout(defaultParameters, 60000);
-
-        SchemeRegistry supportedSchemes = new SchemeRegistry();
-        supportedSchemes.register(new Scheme(HttpHost.DEFAULT_SCHEME_NAME, PlainSocketFactory.getSocketFactory(), 80));
-
-        ClientConnectionManager connectionManager = new ThreadSafeClientConnManager(defaultParameters, supportedSchemes);
-
-        httpClient = new DefaultHttpClient(connectionManager, defaultParameters);
+        // The HTTP client and its connections are shared with the other HTTP references
+        this.httpClient = httpClient;
+        this.maxBatchSize = maxBatchSize;
+        this.maxConcurrentRequests = maxConcurrentRequests;
     }
 
     public InterfaceContract getBindingInterfaceContract() {
@@ -92,9 +82,21 @@ public class JSONRPCReferenceBindingProvider implements ReferenceBindingProvider
     public Invoker createInvoker(Operation operation) {
     	final Interface intf = reference.getInterfaceContract().getInterface();
     	if (intf.isDynamic()) {
-    		return new JSONRPCBindingInvoker(endpointReference, operation, httpClient);
+    		return new JSONRPCBindingInvoker(endpointReference, operation, getClient());
     	}
-        return new JSONRPCClientInvoker(endpointReference, operation, httpClient);
+        return new JSONRPCClientInvoker(endpointReference, operation, getClient());
+    }
+
+    /**
+     * One client is shared by the invokers of this reference binding so that concurrent
+     * calls to the endpoint can be batched
+     */
+    private synchronized JSONRPCClient getClient() {
+        if (client == null) {
+            String uri = ((JSONRPCBinding)endpointReference.getBinding()).getURI();
+            client = new JSONRPCClient(httpClient, uri, maxBatchSize, maxConcurrentRequests);
+        }
+        return client;
     }
 
     public void start() {
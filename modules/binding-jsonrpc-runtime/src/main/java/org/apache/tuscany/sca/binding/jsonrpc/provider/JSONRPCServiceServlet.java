@@ -19,6 +19,7 @@
 package org.apache.tuscany.sca.binding.jsonrpc.provider;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -157,30 +158,13 @@ public class JSONRPCServiceServlet extends JSONRPCServlet {
             }
         }
         
-        JSONObject jsonReq = null;
-        String method = null;
-        //parse the JSON payload
-        try {
-            jsonReq = new JSONObject(data.toString());
-            method = jsonReq.getString("method");
-        } catch (Exception e) {
-            //FIXME Exceptions are not handled correctly here
-            // They should be reported to the client JavaScript as proper
-            // JavaScript exceptions.
-            throw new RuntimeException("Unable to parse request", e);
-        }
-
-        // check if it's a system request 
-        // or a method invocation
+        // A JSON array is a batch of requests, answered with an array of responses
         byte[] bout;
-        try {
-            if (method.startsWith("system.")) {
-                bout = handleJSONRPCSystemInvocation(request, response, data.toString());
-            } else {
-                bout = handleJSONRPCMethodInvocation(request, response, jsonReq);
-            }
-        } catch (JSONException e) {
-            throw new RuntimeException(e);
+        String payload = data.toString().trim();
+        if (payload.startsWith("[")) {
+            bout = handleJSONRPCBatch(request, response, payload);
+        } else {
+            bout = handleJSONRPCRequest(request, response, payload);
         }
 
         // Send response to client
@@ -224,6 +208,76 @@ public class JSONRPCServiceServlet extends JSONRPCServlet {
         out.close();
     }
 
+    private byte[] handleJSONRPCRequest(HttpServletRequest request, HttpServletResponse response, String requestData) throws IOException {
+        JSONObject jsonReq = null;
+        String method = null;
+        //parse the JSON payload
+        try {
+            jsonReq = new JSONObject(requestData);
+            method = jsonReq.getString("method");
+        } catch (Exception e) {
+            //FIXME Exceptions are not handled correctly here
+            // They should be reported to the client JavaScript as proper
+            // JavaScript exceptions.
+            throw new RuntimeException("Unable to parse request", e);
+        }
+
+        // check if it's a system request 
+        // or a method invocation
+        try {
+            if (method.startsWith("system.")) {
+                return handleJSONRPCSystemInvocation(request, response, requestData);
+            } else {
+                return handleJSONRPCMethodInvocation(request, response, jsonReq);
+            }
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private byte[] handleJSONRPCBatch(HttpServletRequest request, HttpServletResponse response, String requestData) throws IOException {
+        JSONArray batch = null;
+        try {
+            batch = new JSONArray(requestData);
+        } catch (JSONException e) {
+            throw new RuntimeException("Unable to parse request", e);
+        }
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        bout.write('[');
+        for (int i = 0; i < batch.length(); i++) {
+            if (i > 0) {
+                bout.write(',');
+            }
+            bout.write(handleJSONRPCBatchElement(request, response, batch.opt(i)));
+        }
+        bout.write(']');
+        return bout.toByteArray();
+    }
+
+    /**
+     * Handle one request of a batch. A request that is malformed or fails is answered with
+     * its own error response so that the rest of the batch still gets its results.
+     */
+    private byte[] handleJSONRPCBatchElement(HttpServletRequest request, HttpServletResponse response, Object element) throws IOException {
+        if (!(element instanceof JSONObject) || !((JSONObject)element).has("method")) {
+            Object id = element instanceof JSONObject ? ((JSONObject)element).opt("id") : null;
+            JSONRPCResult errorResult = new JSONRPCResult(JSONRPCResult.CODE_ERR_PARSE, id, "Invalid JSON-RPC request: " + element);
+            return errorResult.toString().getBytes("UTF-8");
+        }
+
+        JSONObject jsonReq = (JSONObject)element;
+        try {
+            return handleJSONRPCRequest(request, response, jsonReq.toString());
+        } catch (RuntimeException re) {
+            if (re.getCause() instanceof javax.security.auth.login.LoginException) {
+                throw re;
+            }
+            JSONRPCResult errorResult = new JSONRPCResult(JSONRPCResult.CODE_REMOTE_EXCEPTION, jsonReq.opt("id"), re);
+            return errorResult.toString().getBytes("UTF-8");
+        }
+    }
+
     /**
      * handles requests for the SMD descriptor for a service
      */
@@ -333,6 +387,7 @@ public class JSONRPCServiceServlet extends JSONRPCServlet {
                     try {
                         JSONObject jsonResponse = new JSONObject();
                         jsonResponse.put("result", "");
+                        jsonResponse.putOpt("id", id);
                         //get response to send to client
                         return jsonResponse.toString().getBytes("UTF-8");
                     } catch (Exception e) {
@@ -28,6 +28,7 @@ import org.apache.tuscany.sca.node.Contribution;
 import org.apache.tuscany.sca.node.ContributionLocationHelper;
 import org.apache.tuscany.sca.node.Node;
 import org.apache.tuscany.sca.node.NodeFactory;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -108,4 +109,49 @@ public class JSONRPCServiceTestCase {
         JSONObject jsonResp = new JSONObject(response.getText());
         Assert.assertEquals(0, jsonResp.getString("result").length());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatchWithJSONRPCBinding() throws Exception {
+        JSONArray jsonRequest = new JSONArray("[{ \"method\": \"echo\", \"params\": [\"one\"], \"id\": 1},"
+            + " { \"method\": \"echo\", \"params\": [\"two\"], \"id\": 2}]");
+
+        WebConversation wc = new WebConversation();
+        WebRequest request   = new PostMethodWebRequest( SERVICE_URL, new ByteArrayInputStream(jsonRequest.toString().getBytes("UTF-8")),"application/json");
+        WebResponse response = wc.getResource(request);
+
+        Assert.assertEquals(200, response.getResponseCode());
+
+        JSONArray jsonResp = new JSONArray(response.getText());
+        Assert.assertEquals(2, jsonResp.length());
+        Assert.assertEquals(1, jsonResp.getJSONObject(0).getInt("id"));
+        Assert.assertEquals("echo: one", jsonResp.getJSONObject(0).getString("result"));
+        Assert.assertEquals(2, jsonResp.getJSONObject(1).getInt("id"));
+        Assert.assertEquals("echo: two", jsonResp.getJSONObject(1).getString("result"));
+    }
+
+    @Test
+    public void testBatchWithBadElementsWithJSONRPCBinding() throws Exception {
+        JSONArray jsonRequest = new JSONArray("[{ \"method\": \"echo\", \"params\": [\"one\"], \"id\": 1},"
+            + " 42,"
+            + " { \"params\": [\"three\"], \"id\": 3},"
+            + " { \"method\": \"noSuchMethod\", \"params\": [], \"id\": 4},"
+            + " { \"method\": \"echo\", \"params\": [\"five\"], \"id\": 5}]");
+
+        WebConversation wc = new WebConversation();
+        WebRequest request   = new PostMethodWebRequest( SERVICE_URL, new ByteArrayInputStream(jsonRequest.toString().getBytes("UTF-8")),"application/json");
+        WebResponse response = wc.getResource(request);
+
+        Assert.assertEquals(200, response.getResponseCode());
+
+        JSONArray jsonResp = new JSONArray(response.getText());
+        Assert.assertEquals(5, jsonResp.length());
+        Assert.assertEquals("echo: one", jsonResp.getJSONObject(0).getString("result"));
+        Assert.assertTrue(jsonResp.getJSONObject(1).has("error"));
+        Assert.assertTrue(jsonResp.getJSONObject(2).has("error"));
+        Assert.assertEquals(3, jsonResp.getJSONObject(2).getInt("id"));
+        Assert.assertTrue(jsonResp.getJSONObject(3).has("error"));
+        Assert.assertEquals(4, jsonResp.getJSONObject(3).getInt("id"));
+        Assert.assertEquals(5, jsonResp.getJSONObject(4).getInt("id"));
+        Assert.assertEquals("echo: five", jsonResp.getJSONObject(4).getString("result"));
+    }
+}
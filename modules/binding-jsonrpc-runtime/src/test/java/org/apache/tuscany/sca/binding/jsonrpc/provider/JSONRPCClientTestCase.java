@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.jsonrpc.provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpClient;
+import org.apache.tuscany.sca.common.http.HTTPClientFactory;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test the streaming JSON-RPC client against a local echo server
+ *
+ * @version $Rev$ $Date$
+ */
+public class JSONRPCClientTestCase {
+    private HttpServer server;
+    private ExecutorService executor;
+    private String url;
+    private HTTPClientFactory httpClientFactory;
+    private HttpClient httpClient;
+
+    // What the server has received: the transfer encoding and request ids of each HTTP request
+    private final List<String> encodings = Collections.synchronizedList(new ArrayList<String>());
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<List<String>>());
+    // The number of requests the server holds until it is released
+    private volatile int hold;
+    private volatile CountDownLatch held;
+    private volatile CountDownLatch release;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/echo", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                JsonNode request = new ObjectMapper().readTree(exchange.getRequestBody());
+                encodings.add(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+                List<String> ids = new ArrayList<String>();
+                int index;
+                synchronized (requests) {
+                    index = requests.size();
+                    requests.add(ids);
+                }
+                if (index < hold) {
+                    held.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e.toString());
+                    }
+                }
+
+                StringBuilder response = new StringBuilder();
+                if (request.isArray()) {
+                    // Answer in reverse order, the client has to match the responses by id
+                    response.append('[');
+                    for (int i = request.size() - 1; i >= 0; i--) {
+                        ids.add(0, request.get(i).get("id").toString());
+                        response.append(respond(request.get(i)));
+                        response.append(i > 0 ? "," : "");
+                    }
+                    response.append(']');
+                } else {
+                    ids.add(request.get("id").toString());
+                    response.append(respond(request));
+                }
+
+                byte[] body = response.toString().getBytes("UTF-8");
+                // Chunked, so that the client reads the response as a stream
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/echo";
+        httpClientFactory = new HTTPClientFactory(null, null);
+        httpClient = httpClientFactory.getHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        httpClientFactory.stop();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static String respond(JsonNode request) {
+        String id = request.get("id").toString();
+        String method = request.get("method").getTextValue();
+        if ("Service.fail".equals(method)) {
+            return "{\"id\":" + id + ",\"error\":{\"code\":490,\"message\":\"Failed\"}}";
+        } else if ("Service.list".equals(method)) {
+            return "{\"id\":" + id + ",\"result\":[\"a\",\"b\"]}";
+        }
+        return "{\"id\":" + id + ",\"result\":\"echo: " + request.get("params").get(0).getTextValue() + "\"}";
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        JSONRPCClient client = new JSONRPCClient(httpClient, url, 1);
+        Assert.assertEquals("echo: Hello", client.invoke("Service.echo", new Object[] {"Hello"}, String.class));
+        Assert.assertEquals(1, requests.size());
+        // The request is streamed rather than buffered to compute its length
+        Assert.assertEquals("chunked", encodings.get(0));
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("a");
+        expected.add("b");
+        Object result = client.invoke("Service.list", new Object[0], JSONRPCClientTestCase.class.getDeclaredMethod("list").getGenericReturnType());
+        Assert.assertEquals(expected, result);
+
+        Assert.assertNull(client.invoke("Service.echo", new Object[] {"Hello"}, null));
+    }
+
+    @Test
+    public void testError() throws Exception {
+        JSONRPCClient client = new JSONRPCClient(httpClient, url, 1);
+        try {
+            client.invoke("Service.fail", new Object[0], String.class);
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertEquals("Failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUniqueIds() throws Exception {
+        JSONRPCClient client = new JSONRPCClient(httpClient, url, 1);
+        for (int i = 0; i < 3; i++) {
+            client.invoke("Service.echo", new Object[] {"Hello"}, String.class);
+        }
+        Set<String> ids = new HashSet<String>();
+        for (List<String> request : requests) {
+            ids.addAll(request);
+        }
+        Assert.assertEquals(3, ids.size());
+    }
+
+    @Test
+    public void testJSONRequest() throws Exception {
+        JSONRPCClient client = new JSONRPCClient(httpClient, url, 1);
+        String response = client.invoke("{\"method\":\"Service.echo\",\"params\":[\"Hello\"],\"id\":\"abc\"}");
+
+        JsonNode node = new ObjectMapper().readTree(response);
+        Assert.assertEquals("echo: Hello", node.get("result").getTextValue());
+        // The caller gets its own id back while the request used a unique one
+        Assert.assertEquals("abc", node.get("id").getTextValue());
+        Assert.assertFalse("\"abc\"".equals(requests.get(0).get(0)));
+    }
+
+    @Test
+    public void testBatchCoalescing() throws Exception {
+        JSONRPCClient client = new JSONRPCClient(httpClient, url, 10, 1);
+        hold(1);
+
+        List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+        List<Thread> threads = new ArrayList<Thread>();
+        threads.add(call(client, 0, results));
+        // Hold the first request so that the other calls queue up behind it
+        Assert.assertTrue(held.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 4; i++) {
+            threads.add(call(client, i, results));
+        }
+        // Give the queued calls time to arrive before the endpoint is free again
+        Thread.sleep(500);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        Assert.assertEquals(2, requests.size());
+        Assert.assertEquals(1, requests.get(0).size());
+        Assert.assertEquals(3, requests.get(1).size());
+        Assert.assertEquals(4, results.size());
+        Assert.assertTrue(results.contains("echo: 0"));
+        Assert.assertTrue(results.contains("echo: 1"));
+        Assert.assertTrue(results.contains("echo: 2"));
+        Assert.assertTrue(results.contains("{\"id\":3,\"result\":\"echo: 3\"}"));
+    }
+
+    @Test
+    public void testConcurrentBatches() throws Exception {
+        JSONRPCClient client = new JSONRPCClient(httpClient, url, 10, 2);
+        hold(2);
+
+        List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+        List<Thread> threads = new ArrayList<Thread>();
+        // The second call doesn't wait for the first request to complete
+        threads.add(call(client, 0, results));
+        threads.add(call(client, 1, results));
+        Assert.assertTrue(held.await(10, TimeUnit.SECONDS));
+        // Both requests are in flight so the next calls are batched
+        for (int i = 2; i < 5; i++) {
+            threads.add(call(client, i, results));
+        }
+        Thread.sleep(500);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(1, requests.get(0).size());
+        Assert.assertEquals(1, requests.get(1).size());
+        Assert.assertEquals(3, requests.get(2).size());
+        Assert.assertEquals(5, results.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(results.contains(i == 3 ? "{\"id\":3,\"result\":\"echo: 3\"}" : "echo: " + i));
+        }
+    }
+
+    private void hold(int requests) {
+        hold = requests;
+        held = new CountDownLatch(requests);
+        release = new CountDownLatch(1);
+    }
+
+    /**
+     * Start a thread making call n, call 3 is made with a JSON request
+     */
+    private static Thread call(final JSONRPCClient client, final int n, final List<Object> results) {
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    if (n == 3) {
+                        results.add(client.invoke("{\"method\":\"Service.echo\",\"params\":[\"3\"],\"id\":3}"));
+                    } else {
+                        results.add(client.invoke("Service.echo", new Object[] {String.valueOf(n)}, String.class));
+                    }
+                } catch (Exception e) {
+                    results.add(e);
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    // Only declared for its generic return type
+    private static List<String> list() {
+        return null;
+    }
+}
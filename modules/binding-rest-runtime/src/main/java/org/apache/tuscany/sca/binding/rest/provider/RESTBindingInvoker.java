@@ -57,12 +57,15 @@ import org.apache.tuscany.sca.binding.rest.RESTBinding;
 import org.apache.tuscany.sca.binding.rest.wireformat.json.JSONWireFormat;
 import org.apache.tuscany.sca.binding.rest.wireformat.xml.XMLWireFormat;
 import org.apache.tuscany.sca.common.http.HTTPCacheContext;
+import org.apache.tuscany.sca.common.http.HTTPClientFactory;
 import org.apache.tuscany.sca.common.http.HTTPHeader;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
 import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.interfacedef.java.JavaOperation;
 import org.apache.tuscany.sca.invocation.Invoker;
 import org.apache.tuscany.sca.invocation.Message;
+import org.apache.wink.client.ApacheHttpClientConfig;
 import org.apache.wink.client.ClientConfig;
 import org.apache.wink.client.Resource;
 import org.apache.wink.client.RestClient;
@@ -107,7 +110,10 @@ public class RESTBindingInvoker implements Invoker {
     }
 
     private RestClient createRestClient() {
-        ClientConfig config = new ClientConfig();
+        // Send the requests through the HTTP client shared by the HTTP references
+        UtilityExtensionPoint utilities = registry.getExtensionPoint(UtilityExtensionPoint.class);
+        HTTPClientFactory httpClientFactory = utilities.getUtility(HTTPClientFactory.class);
+        ClientConfig config = new ApacheHttpClientConfig(httpClientFactory.getHttpClient());
 
         // configureBasicAuth(config, userName, password);
 
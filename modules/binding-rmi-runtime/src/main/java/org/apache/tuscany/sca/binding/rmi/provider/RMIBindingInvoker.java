@@ -20,9 +20,9 @@ package org.apache.tuscany.sca.binding.rmi.provider;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.rmi.Remote;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.rmi.ConnectException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
 
 import org.apache.tuscany.sca.host.rmi.RMIHost;
 import org.apache.tuscany.sca.invocation.Invoker;
@@ -35,15 +35,16 @@ import org.apache.tuscany.sca.invocation.Message;
  */
 public class RMIBindingInvoker implements Invoker {
 
-    private RMIHost rmiHost;
-    private String uri;
+    private RMIStubCache stubCache;
     private Method remoteMethod;
-    // private Remote proxy;
 
     public RMIBindingInvoker(RMIHost rmiHost, String uri, Method remoteMethod) {
-        this.rmiHost = rmiHost;
+        this(new RMIStubCache(rmiHost, uri, remoteMethod.getDeclaringClass().getClassLoader()), remoteMethod);
+    }
+
+    public RMIBindingInvoker(RMIStubCache stubCache, Method remoteMethod) {
+        this.stubCache = stubCache;
         this.remoteMethod = remoteMethod;
-        this.uri = uri;
     }
 
     public Message invoke(Message msg) {
@@ -64,36 +65,36 @@ public class RMIBindingInvoker implements Invoker {
 
     public Object invokeTarget(final Object payload) throws InvocationTargetException, SecurityException,
         NoSuchMethodException, IllegalArgumentException, IllegalAccessException {
-        Remote proxy = null;
-        final Class<?> remote = remoteMethod.getDeclaringClass();
-        final ClassLoader stubClassLoader = remote.getClassLoader();
-        // The generated remote interface is not available for the service lookup
-        final ClassLoader tccl = AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
-            public ClassLoader run() {
-                ClassLoader tccl = Thread.currentThread().getContextClassLoader();
-                Thread.currentThread().setContextClassLoader(stubClassLoader);
-                return tccl;
-            }
-        });
-        try {
-            // The proxy cannot be cached as the remote services can be rebound
-            proxy = rmiHost.findService(uri);
-        } finally {
-            AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
-                public ClassLoader run() {
-                    ClassLoader current = Thread.currentThread().getContextClassLoader();
-                    Thread.currentThread().setContextClassLoader(tccl);
-                    return current;
-                }
-            });
+        Object[] args;
+        if (payload != null && !payload.getClass().isArray()) {
+            args = new Object[] {payload};
+        } else {
+            args = (Object[])payload;
         }
 
-        remoteMethod = proxy.getClass().getMethod(remoteMethod.getName(), remoteMethod.getParameterTypes());
+        RMIStubCache.Stub stub = stubCache.getStub();
+        try {
+            return stub.getMethod(remoteMethod).invoke(stub.getProxy(), args);
+        } catch (InvocationTargetException e) {
+            if (!(e.getCause() instanceof RemoteException)) {
+                throw e;
+            }
+            // The remote service may have been rebound so look it up again next time
+            stubCache.invalidate(stub);
+            if (!(e.getCause() instanceof NoSuchObjectException || e.getCause() instanceof ConnectException)) {
+                throw e;
+            }
+        }
 
-        if (payload != null && !payload.getClass().isArray()) {
-            return remoteMethod.invoke(proxy, payload);
-        } else {
-            return remoteMethod.invoke(proxy, (Object[])payload);
+        // The call didn't reach the remote object so it is safe to retry it with a fresh stub
+        stub = stubCache.getStub();
+        try {
+            return stub.getMethod(remoteMethod).invoke(stub.getProxy(), args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RemoteException) {
+                stubCache.invalidate(stub);
+            }
+            throw e;
         }
     }
 
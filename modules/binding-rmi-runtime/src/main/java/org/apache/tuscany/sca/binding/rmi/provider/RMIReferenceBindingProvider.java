@@ -42,6 +42,7 @@ public class RMIReferenceBindingProvider implements ReferenceBindingProvider {
     private RuntimeComponentReference reference;
     private RMIBinding binding;
     private RMIHost rmiHost;
+    private RMIStubCache stubCache;
     
     public RMIReferenceBindingProvider(EndpointReference endpointReference,
                                        RMIHost rmiHost) {
@@ -63,7 +64,17 @@ public class RMIReferenceBindingProvider implements ReferenceBindingProvider {
             throw new IllegalArgumentException(e);
         }
 
-        return new RMIBindingInvoker(rmiHost, binding.getURI(), remoteMethod);
+        return new RMIBindingInvoker(getStubCache(iface), remoteMethod);
+    }
+
+    /**
+     * The invokers of all the operations share the stub of the service
+     */
+    private synchronized RMIStubCache getStubCache(Class<?> iface) {
+        if (stubCache == null) {
+            stubCache = new RMIStubCache(rmiHost, binding.getURI(), iface.getClassLoader());
+        }
+        return stubCache;
     }
 
     public void start() {
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.rmi.provider;
+
+import java.lang.reflect.Method;
+import java.rmi.Remote;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tuscany.sca.host.rmi.RMIHost;
+
+/**
+ * Holds the stub looked up for the RMI service at a URI, together with the remote
+ * methods resolved on it, so the registry is only consulted again once the stub
+ * has been invalidated after a RemoteException, e.g. because the service was rebound.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RMIStubCache {
+    private final RMIHost rmiHost;
+    private final String uri;
+    private final ClassLoader stubClassLoader;
+    private volatile Stub stub;
+
+    /**
+     * @param rmiHost
+     * @param uri The URI of the RMI service
+     * @param stubClassLoader The class loader that can see the remote interface of the service
+     */
+    public RMIStubCache(RMIHost rmiHost, String uri, ClassLoader stubClassLoader) {
+        this.rmiHost = rmiHost;
+        this.uri = uri;
+        this.stubClassLoader = stubClassLoader;
+    }
+
+    /**
+     * Returns the cached stub, looking the service up if there is none
+     */
+    public Stub getStub() {
+        Stub current = stub;
+        if (current == null) {
+            synchronized (this) {
+                current = stub;
+                if (current == null) {
+                    current = new Stub(lookup());
+                    stub = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Drops the stub so the next invocation looks the service up again. A stub
+     * that has already been replaced is left alone.
+     */
+    public synchronized void invalidate(Stub failed) {
+        if (stub == failed) {
+            stub = null;
+        }
+    }
+
+    private Remote lookup() {
+        // The generated remote interface is not available for the service lookup
+        final ClassLoader tccl = AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
+            public ClassLoader run() {
+                ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+                Thread.currentThread().setContextClassLoader(stubClassLoader);
+                return tccl;
+            }
+        });
+        try {
+            return rmiHost.findService(uri);
+        } finally {
+            AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
+                public ClassLoader run() {
+                    ClassLoader current = Thread.currentThread().getContextClassLoader();
+                    Thread.currentThread().setContextClassLoader(tccl);
+                    return current;
+                }
+            });
+        }
+    }
+
+    /**
+     * A looked up stub and the methods of its class matching the interface methods
+     */
+    public static class Stub {
+        private final Remote proxy;
+        private final ConcurrentHashMap<Method, Method> methods = new ConcurrentHashMap<Method, Method>();
+
+        private Stub(Remote proxy) {
+            this.proxy = proxy;
+        }
+
+        public Remote getProxy() {
+            return proxy;
+        }
+
+        /**
+         * Returns the method of the stub with the name and parameter types of the given method
+         */
+        public Method getMethod(Method method) throws NoSuchMethodException {
+            Method remoteMethod = methods.get(method);
+            if (remoteMethod == null) {
+                remoteMethod = proxy.getClass().getMethod(method.getName(), method.getParameterTypes());
+                methods.put(method, remoteMethod);
+            }
+            return remoteMethod;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.rmi.provider;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.rmi.ConnectException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.LinkedList;
+
+import org.apache.tuscany.sca.host.rmi.RMIHost;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the stub caching and the retries of the RMIBindingInvoker
+ *
+ * @version $Rev$ $Date$
+ */
+public class RMIStubCacheTestCase {
+    private TestRMIHost rmiHost;
+    private RMIStubCache stubCache;
+    private RMIBindingInvoker invoker;
+
+    @Before
+    public void setUp() throws Exception {
+        rmiHost = new TestRMIHost();
+        stubCache = new RMIStubCache(rmiHost, "rmi://localhost:8099/HelloWorld", Hello.class.getClassLoader());
+        invoker = new RMIBindingInvoker(stubCache, Hello.class.getMethod("sayHello", String.class));
+    }
+
+    @Test
+    public void testStubCached() throws Exception {
+        HelloImpl service = rmiHost.bind(new HelloImpl("1"));
+        Assert.assertEquals("Hello 1 World", invoker.invokeTarget(new Object[] {"World"}));
+        Assert.assertEquals("Hello 1 Tuscany", invoker.invokeTarget("Tuscany"));
+        Assert.assertEquals(1, rmiHost.lookups);
+        Assert.assertEquals(2, service.calls);
+
+        RMIStubCache.Stub stub = stubCache.getStub();
+        Assert.assertSame(service, stub.getProxy());
+        Method method = Hello.class.getMethod("sayHello", String.class);
+        Assert.assertSame(stub.getMethod(method), stub.getMethod(method));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        rmiHost.bind(new HelloImpl("1"));
+        RMIStubCache.Stub stub = stubCache.getStub();
+
+        HelloImpl rebound = rmiHost.bind(new HelloImpl("2"));
+        Assert.assertSame(stub, stubCache.getStub());
+        stubCache.invalidate(stub);
+        RMIStubCache.Stub newStub = stubCache.getStub();
+        Assert.assertSame(rebound, newStub.getProxy());
+        Assert.assertEquals(2, rmiHost.lookups);
+
+        // A stub which has already been replaced doesn't drop the new one
+        stubCache.invalidate(stub);
+        Assert.assertSame(newStub, stubCache.getStub());
+        Assert.assertEquals(2, rmiHost.lookups);
+    }
+
+    @Test
+    public void testRetryOnNoSuchObject() throws Exception {
+        HelloImpl unexported = rmiHost.bind(new HelloImpl("1"));
+        invoker.invokeTarget("World");
+
+        // The service has been rebound, the old stub refers to an unexported object
+        unexported.failure = new NoSuchObjectException("unexported");
+        HelloImpl rebound = rmiHost.bind(new HelloImpl("2"));
+        Assert.assertEquals("Hello 2 World", invoker.invokeTarget("World"));
+        Assert.assertEquals(2, rmiHost.lookups);
+        Assert.assertEquals(1, rebound.calls);
+
+        Assert.assertEquals("Hello 2 World", invoker.invokeTarget("World"));
+        Assert.assertEquals(2, rmiHost.lookups);
+    }
+
+    @Test
+    public void testRetryOnConnect() throws Exception {
+        HelloImpl stopped = rmiHost.bind(new HelloImpl("1"));
+        stopped.failure = new ConnectException("refused");
+        rmiHost.next.add(stopped);
+        rmiHost.next.add(new HelloImpl("2"));
+
+        // The cached stub can't connect, the call is retried once with a new stub
+        Assert.assertEquals("Hello 2 World", invoker.invokeTarget("World"));
+        Assert.assertEquals(2, rmiHost.lookups);
+    }
+
+    @Test
+    public void testNoRetryAfterRemoteException() throws Exception {
+        HelloImpl service = rmiHost.bind(new HelloImpl("1"));
+        invoker.invokeTarget("World");
+        service.failure = new RemoteException("failed in the call");
+        rmiHost.bind(new HelloImpl("2"));
+
+        // The call may have reached the remote object so it isn't retried but the stub is dropped
+        try {
+            invoker.invokeTarget("World");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertSame(service.failure, e.getCause());
+        }
+        Assert.assertEquals(2, service.calls);
+        Assert.assertEquals("Hello 2 World", invoker.invokeTarget("World"));
+        Assert.assertEquals(2, rmiHost.lookups);
+    }
+
+    @Test
+    public void testRetryFails() throws Exception {
+        HelloImpl service = rmiHost.bind(new HelloImpl("1"));
+        service.failure = new NoSuchObjectException("unexported");
+
+        // The retry gets the same unexported object, the failure is reported and the stub dropped
+        try {
+            invoker.invokeTarget("World");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertSame(service.failure, e.getCause());
+        }
+        Assert.assertEquals(2, service.calls);
+        Assert.assertEquals(2, rmiHost.lookups);
+
+        service.failure = null;
+        Assert.assertEquals("Hello 1 World", invoker.invokeTarget("World"));
+        Assert.assertEquals(3, rmiHost.lookups);
+    }
+
+    @Test
+    public void testApplicationException() throws Exception {
+        HelloImpl service = rmiHost.bind(new HelloImpl("1"));
+        service.failure = new IllegalStateException("business failure");
+        try {
+            invoker.invokeTarget("World");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertSame(service.failure, e.getCause());
+        }
+        // Not a remote failure so the stub is kept
+        service.failure = null;
+        invoker.invokeTarget("World");
+        Assert.assertEquals(1, rmiHost.lookups);
+    }
+
+    public static interface Hello extends Remote {
+        String sayHello(String name) throws RemoteException;
+    }
+
+    public static class HelloImpl implements Hello {
+        private final String id;
+        private Exception failure;
+        private int calls;
+
+        public HelloImpl(String id) {
+            this.id = id;
+        }
+
+        public String sayHello(String name) throws RemoteException {
+            calls++;
+            if (failure instanceof RemoteException) {
+                throw (RemoteException)failure;
+            } else if (failure != null) {
+                throw (RuntimeException)failure;
+            }
+            return "Hello " + id + " " + name;
+        }
+    }
+
+    /**
+     * An RMI host returning the service last bound, or the services queued for the next lookups
+     */
+    private static class TestRMIHost implements RMIHost {
+        private final LinkedList<Remote> next = new LinkedList<Remote>();
+        private Remote service;
+        private int lookups;
+
+        private HelloImpl bind(HelloImpl service) {
+            this.service = service;
+            return service;
+        }
+
+        public Remote findService(String uri) {
+            lookups++;
+            return next.isEmpty() ? service : next.removeFirst();
+        }
+
+        public String registerService(String uri, Remote serviceObject) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void unregisterService(String uri) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -19,6 +19,8 @@
 
 package org.apache.tuscany.sca.binding.sca.provider;
 
+import java.util.concurrent.Executor;
+
 import org.apache.tuscany.sca.assembly.Endpoint;
 import org.apache.tuscany.sca.assembly.SCABinding;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
@@ -37,6 +39,7 @@ import org.apache.tuscany.sca.runtime.RuntimeComponentReference;
 import org.apache.tuscany.sca.runtime.RuntimeComponentService;
 import org.apache.tuscany.sca.runtime.RuntimeEndpoint;
 import org.apache.tuscany.sca.runtime.RuntimeEndpointReference;
+import org.apache.tuscany.sca.work.WorkScheduler;
 import org.oasisopen.sca.ServiceRuntimeException;
 import org.oasisopen.sca.ServiceUnavailableException;
 
@@ -62,6 +65,7 @@ public class RuntimeSCAReferenceBindingProvider implements EndpointReferenceProv
     private Mediator mediator;
     private InterfaceContractMapper interfaceContractMapper;
     private SCABindingMapper scaBindingMapper;
+    private Executor executor;
 
     public RuntimeSCAReferenceBindingProvider(ExtensionPointRegistry extensionPoints,
                                               RuntimeEndpointReference endpointReference) {
@@ -74,6 +78,10 @@ public class RuntimeSCAReferenceBindingProvider implements EndpointReferenceProv
         this.mediator = utilities.getUtility(Mediator.class);
         this.interfaceContractMapper = utilities.getUtility(InterfaceContractMapper.class);
         this.scaBindingMapper = utilities.getUtility(SCABindingMapper.class);
+        WorkScheduler workScheduler = utilities.getUtility(WorkScheduler.class);
+        if (workScheduler != null) {
+            this.executor = workScheduler.getExecutorService();
+        }
         remotable = isTargetRemote();
         getDistributedProvider();
     }
@@ -154,7 +162,7 @@ public class RuntimeSCAReferenceBindingProvider implements EndpointReferenceProv
                 // it turns out that the chain source and target operations are the same, and are the operation 
                 // from the target, not sure if thats by design or a bug. The SCA binding invoker needs to know 
                 // the source and target class loaders so pass in the real source operation in the constructor 
-                return chain == null ? null : new SCABindingInvoker(chain, operation, mediator, passByValue, epr);
+                return chain == null ? null : new SCABindingInvoker(chain, operation, mediator, passByValue, epr, executor);
             }
         }
         return null;
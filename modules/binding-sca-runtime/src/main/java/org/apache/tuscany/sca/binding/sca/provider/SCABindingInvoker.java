@@ -19,9 +19,17 @@
 
 package org.apache.tuscany.sca.binding.sca.provider;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.tuscany.sca.context.ThreadMessageContext;
 import org.apache.tuscany.sca.databinding.Mediator;
+import org.apache.tuscany.sca.interfacedef.DataType;
 import org.apache.tuscany.sca.interfacedef.Operation;
-import org.apache.tuscany.sca.invocation.Interceptor;
+import org.apache.tuscany.sca.invocation.AsyncInvoker;
+import org.apache.tuscany.sca.invocation.AsyncInvokers;
+import org.apache.tuscany.sca.invocation.InvocationCallback;
 import org.apache.tuscany.sca.invocation.InvocationChain;
 import org.apache.tuscany.sca.invocation.Invoker;
 import org.apache.tuscany.sca.invocation.Message;
@@ -30,41 +38,59 @@ import org.apache.tuscany.sca.runtime.RuntimeEndpoint;
 import org.apache.tuscany.sca.runtime.RuntimeEndpointReference;
 
 /**
+ * Invoker for the local SCA binding which delegates to the service invocation chain.
+ * <p>
+ * When the invocation is asynchronous and an executor is available, the request is handed to
+ * the executor which runs the service chain and delivers the response to the callback. The
+ * calling thread is released as soon as the request is queued, so no thread waits for the
+ * response. The invoker ends the reference chain, it is not an interceptor so that the
+ * reference chain is seen as asynchronous regardless of the service chain behind it.
+ *
  * @version $Rev$ $Date$
  */
-public class SCABindingInvoker implements Interceptor {
+public class SCABindingInvoker implements AsyncInvoker {
     private InvocationChain chain;
     private Mediator mediator;
     private Operation sourceOperation;
     private Operation targetOperation;
     private boolean passByValue;
+    // The input and output data are immutable and don't need to be copied, faults are still copied
+    private boolean immutable;
     private RuntimeEndpointReference epr;
     private RuntimeEndpoint ep;
+    private Executor executor;
 
     /**
      * Construct a SCABindingInvoker that delegates to the service invocaiton chain
      */
     public SCABindingInvoker(InvocationChain chain, Operation sourceOperation, Mediator mediator, boolean passByValue, RuntimeEndpointReference epr) {
+        this(chain, sourceOperation, mediator, passByValue, epr, null);
+    }
+
+    /**
+     * Construct a SCABindingInvoker that delegates to the service invocaiton chain and runs the
+     * asynchronous invocations on the given executor
+     */
+    public SCABindingInvoker(InvocationChain chain, Operation sourceOperation, Mediator mediator, boolean passByValue, RuntimeEndpointReference epr, Executor executor) {
         super();
         this.chain = chain;
         this.mediator = mediator;
         this.sourceOperation = sourceOperation;
         this.targetOperation = chain.getTargetOperation();
         this.passByValue = passByValue;
+        this.immutable = passByValue && isImmutable(mediator, sourceOperation, targetOperation);
         this.epr = epr;
         this.ep = (RuntimeEndpoint)epr.getTargetEndpoint();
+        this.executor = executor;
     }
 
     /**
-     * @see org.apache.tuscany.sca.invocation.Interceptor#getNext()
+     * Returns the head of the service invocation chain
      */
     public Invoker getNext() {
         return chain.getHeadInvoker(Phase.SERVICE_POLICY);
     }
 
-    /**
-     * @see org.apache.tuscany.sca.invocation.Interceptor#setNext(org.apache.tuscany.sca.invocation.Invoker)
-     */
     public void setNext(Invoker next) {
         // NOOP
     }
@@ -73,8 +99,57 @@ public class SCABindingInvoker implements Interceptor {
      * @see org.apache.tuscany.sca.invocation.Invoker#invoke(org.apache.tuscany.sca.invocation.Message)
      */
     public Message invoke(Message msg) {
+        prepareRequest(msg);
+        return processResponse(getNext().invoke(msg));
+    }
 
-        if (passByValue) {
+    /**
+     * @see org.apache.tuscany.sca.invocation.AsyncInvoker#invokeAsync(org.apache.tuscany.sca.invocation.Message, org.apache.tuscany.sca.invocation.InvocationCallback)
+     */
+    public void invokeAsync(final Message msg, final InvocationCallback callback) {
+        prepareRequest(msg);
+        if (executor == null || AsyncInvokers.isAsync(getNext())) {
+            AsyncInvokers.invokeAsync(getNext(), msg, new InvocationCallback() {
+                public void onResponse(Message response) {
+                    try {
+                        response = processResponse(response);
+                    } catch (RuntimeException e) {
+                        response.setFaultBody(e);
+                    }
+                    callback.onResponse(response);
+                }
+            });
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    Message msgContext = ThreadMessageContext.getMessageContext();
+                    ThreadMessageContext.setMessageContext(msg);
+                    try {
+                        callback.onResponse(invokeService(msg));
+                    } finally {
+                        ThreadMessageContext.setMessageContext(msgContext);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Run the service on the calling thread
+            callback.onResponse(invokeService(msg));
+        }
+    }
+
+    private Message invokeService(Message msg) {
+        try {
+            return processResponse(getNext().invoke(msg));
+        } catch (Throwable e) {
+            msg.setFaultBody(e);
+            return msg;
+        }
+    }
+
+    private void prepareRequest(Message msg) {
+        if (passByValue && !immutable) {
             msg.setBody(mediator.copyInput(msg.getBody(), sourceOperation, targetOperation));
         }
         
@@ -84,15 +159,15 @@ public class SCABindingInvoker implements Interceptor {
             // Place a link to the callback EPR into the message headers...
             msg.getHeaders().put("ASYNC_CALLBACK", asyncEPR );
         } 
+    }
 
-        Message resultMsg = getNext().invoke(msg);
-
+    private Message processResponse(Message resultMsg) {
         if (passByValue) {
             // Note source and target operation swapped so result is in source class loader
             if (resultMsg.isFault()) {
                 resultMsg.setFaultBody(mediator.copyFault(resultMsg.getBody(), sourceOperation, targetOperation));
             } else {
-                if (sourceOperation.getOutputType() != null) {
+                if (!immutable && sourceOperation.getOutputType() != null) {
                     resultMsg.setBody(mediator.copyOutput(resultMsg.getBody(), sourceOperation, targetOperation));
                 }
             }
@@ -101,4 +176,34 @@ public class SCABindingInvoker implements Interceptor {
         return resultMsg;
     }
 
+    /**
+     * Check if the data passed between the two operations can be shared instead of copied. All the
+     * types must be immutable, and the service must see the classes of the reference as its own. A
+     * class loaded by another classloader still has to be copied by the databinding.
+     */
+    static boolean isImmutable(Mediator mediator, Operation sourceOperation, Operation targetOperation) {
+        if (mediator == null || sourceOperation == null || targetOperation == null) {
+            return false;
+        }
+        if (!mediator.isImmutable(sourceOperation) || !mediator.isImmutable(targetOperation)) {
+            return false;
+        }
+        List<DataType> sourceInputs = sourceOperation.getInputType().getLogical();
+        List<DataType> targetInputs = targetOperation.getInputType().getLogical();
+        if (sourceInputs.size() != targetInputs.size()) {
+            return false;
+        }
+        for (int i = 0, n = sourceInputs.size(); i < n; i++) {
+            if (!targetInputs.get(i).getPhysical().isAssignableFrom(sourceInputs.get(i).getPhysical())) {
+                return false;
+            }
+        }
+        DataType sourceOutput = sourceOperation.getOutputType();
+        DataType targetOutput = targetOperation.getOutputType();
+        if (sourceOutput == null) {
+            return true;
+        }
+        return targetOutput != null && sourceOutput.getPhysical().isAssignableFrom(targetOutput.getPhysical());
+    }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.sca.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.core.invocation.impl.MessageFactoryImpl;
+import org.apache.tuscany.sca.databinding.impl.MediatorImpl;
+import org.apache.tuscany.sca.interfacedef.Operation;
+import org.apache.tuscany.sca.interfacedef.java.JavaInterface;
+import org.apache.tuscany.sca.interfacedef.java.JavaInterfaceFactory;
+import org.apache.tuscany.sca.invocation.InvocationChain;
+import org.apache.tuscany.sca.invocation.Invoker;
+import org.apache.tuscany.sca.invocation.Message;
+import org.apache.tuscany.sca.runtime.RuntimeEndpoint;
+import org.apache.tuscany.sca.runtime.RuntimeEndpointReference;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks which invocations through the SCA binding invoker copy their data to enforce pass-by-value
+ *
+ * @version $Rev$ $Date$
+ */
+public class SCABindingInvokerTestCase {
+    private static ExtensionPointRegistry registry;
+    private static JavaInterfaceFactory javaInterfaceFactory;
+    private static MessageFactoryImpl messageFactory = new MessageFactoryImpl();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        registry = new DefaultExtensionPointRegistry();
+        javaInterfaceFactory =
+            registry.getExtensionPoint(FactoryExtensionPoint.class).getFactory(JavaInterfaceFactory.class);
+    }
+
+    @Test
+    public void testImmutableNotCopied() throws Exception {
+        CountingMediator mediator = new CountingMediator(registry);
+        Operation operation = getOperation(PointService.class, "echo");
+        Message msg = invoke(mediator, operation, operation, new Object[] {"Hello", 1});
+        assertEquals("Hello", msg.getBody());
+        assertEquals(0, mediator.copies);
+
+        operation = getOperation(PointService.class, "move");
+        invoke(mediator, operation, operation, new Object[] {new Point(1, 2)});
+        assertEquals(0, mediator.copies);
+    }
+
+    @Test
+    public void testMutableCopied() throws Exception {
+        CountingMediator mediator = new CountingMediator(registry);
+        Operation operation = getOperation(PointService.class, "append");
+        invoke(mediator, operation, operation, new Object[] {new StringBuilder("Hello")});
+        assertEquals(2, mediator.copies);
+    }
+
+    @Test
+    public void testOtherClassLoaderCopied() throws Exception {
+        // The same immutable class loaded by another classloader is not an instance of the service's class
+        URL location = Point.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader other = new URLClassLoader(new URL[] {location}, null);
+        Class<?> otherService = other.loadClass(PointService.class.getName());
+        assertNotSame(PointService.class, otherService);
+
+        CountingMediator mediator = new CountingMediator(registry);
+        Operation source = getOperation(PointService.class, "move");
+        Operation target = getOperation(otherService, "move");
+        invoke(mediator, source, target, new Object[] {new Point(1, 2)});
+        assertEquals(2, mediator.copies);
+    }
+
+    private static Operation getOperation(Class<?> interfaze, String name) throws Exception {
+        JavaInterface javaInterface = javaInterfaceFactory.createJavaInterface(interfaze);
+        for (Operation operation : javaInterface.getOperations()) {
+            if (operation.getName().equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static Message invoke(CountingMediator mediator, Operation source, Operation target, Object[] args) {
+        InvocationChain chain = (InvocationChain)mock(InvocationChain.class, target, new EchoInvoker());
+        RuntimeEndpoint endpoint = (RuntimeEndpoint)mock(RuntimeEndpoint.class, null, null);
+        RuntimeEndpointReference epr = (RuntimeEndpointReference)mock(RuntimeEndpointReference.class, null, endpoint);
+        SCABindingInvoker invoker = new SCABindingInvoker(chain, source, mediator, true, epr);
+        Message msg = messageFactory.createMessage();
+        msg.setOperation(source);
+        msg.setBody(args);
+        return invoker.invoke(msg);
+    }
+
+    /**
+     * Mocks the few methods of the chain and the endpoints used by the invoker
+     */
+    private static Object mock(Class<?> type, final Operation operation, final Object next) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("getTargetOperation".equals(name)) {
+                    return operation;
+                } else if ("getHeadInvoker".equals(name) || "getTargetEndpoint".equals(name)) {
+                    return next;
+                } else if (method.getReturnType() == java.util.List.class) {
+                    return Collections.emptyList();
+                } else if (method.getReturnType() == boolean.class) {
+                    return false;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static class EchoInvoker implements Invoker {
+        public Message invoke(Message msg) {
+            msg.setBody(((Object[])msg.getBody())[0]);
+            return msg;
+        }
+    }
+
+    /**
+     * Counts the copies and returns the data as is, the classes loaded by the other
+     * classloader can't be copied here
+     */
+    private static class CountingMediator extends MediatorImpl {
+        private int copies;
+
+        CountingMediator(ExtensionPointRegistry registry) {
+            super(registry);
+        }
+
+        public Object copyInput(Object input, Operation sourceOperation, Operation targetOperation) {
+            copies++;
+            return input;
+        }
+
+        public Object copyOutput(Object data, Operation sourceOperation, Operation targetOperation) {
+            copies++;
+            return data;
+        }
+    }
+
+    public static interface PointService {
+        String echo(String message, int count);
+
+        Point move(Point point);
+
+        StringBuilder append(StringBuilder builder);
+    }
+
+    public static final class Point {
+        private final int x;
+        private final int y;
+
+        public Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+    }
+}
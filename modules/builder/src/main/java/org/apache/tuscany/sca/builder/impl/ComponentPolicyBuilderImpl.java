@@ -541,13 +541,18 @@ public class ComponentPolicyBuilderImpl {
             		if ( type == null ) {
             			error(context.getMonitor(), "IntentNotSatisfiedAtBuild", subject, intent.getName(), subject.toString());
             		} else {
-            			// The ExtensionType on the subject only has the binding name. The one in the system
-            			// definitions will have the mayProvide/alwaysProvides values
+            			// The ExtensionType on the subject only has the binding or implementation name. The one
+            			// in the system definitions will have the mayProvide/alwaysProvides values
             			for ( ExtensionType et : context.getDefinitions().getBindingTypes() ) {
             				if ( type.getType().equals(et.getType()) ) {
             					type = et;
             				}
             			}
+            			for ( ExtensionType et : context.getDefinitions().getImplementationTypes() ) {
+            				if ( type.getType().equals(et.getType()) ) {
+            					type = et;
+            				}
+            			}
             		
             			if ( !type.getAlwaysProvidedIntents().contains(intent) && !type.getMayProvidedIntents().contains(intent)) {            			            	
             				error(context.getMonitor(), "IntentNotSatisfiedAtBuild", subject, intent.getName(), subject.toString());
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.common.http;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.LifeCycleListener;
+
+/**
+ * A utility that provides the HTTP client shared by the HTTP based reference bindings.
+ * Connections are pooled across all the references of the node, kept alive between
+ * requests and closed by a background task once they have been idle for a while.
+ * 
+ * @version $Rev$ $Date$
+ */
+public class HTTPClientFactory implements LifeCycleListener {
+    private int maxConnectionsPerRoute;
+    private int maxTotalConnections;
+    private int connectionTimeout;
+    private int socketTimeout;
+    private long keepAliveTime;
+    private long idleTimeout;
+
+    private ThreadSafeClientConnManager connectionManager;
+    private DefaultHttpClient httpClient;
+    private Timer evictor;
+
+    /**
+     * @param registry
+     * @param attributes The maxConnectionsPerRoute, maxTotalConnections, connectionTimeout,
+     * socketTimeout, keepAliveTime and idleTimeout attributes configure the connection pool,
+     * the times are in milliseconds
+     */
+    public HTTPClientFactory(ExtensionPointRegistry registry, Map<String, String> attributes) {
+        this.maxConnectionsPerRoute = getInt(attributes, "maxConnectionsPerRoute", 20);
+        this.maxTotalConnections = getInt(attributes, "maxTotalConnections", 200);
+        this.connectionTimeout = getInt(attributes, "connectionTimeout", 60000);
+        this.socketTimeout = getInt(attributes, "socketTimeout", 60000);
+        this.keepAliveTime = getInt(attributes, "keepAliveTime", 30000);
+        this.idleTimeout = getInt(attributes, "idleTimeout", 60000);
+    }
+
+    private static int getInt(Map<String, String> attributes, String name, int defaultValue) {
+        String value = attributes != null ? attributes.get(name) : null;
+        if (value != null) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the shared HTTP client, creating it on first use
+     */
+    public synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            HttpParams params = new BasicHttpParams();
+            HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+            HttpConnectionParams.setConnectionTimeout(params, connectionTimeout);
+            HttpConnectionParams.setSoTimeout(params, socketTimeout);
+            ConnManagerParams.setMaxTotalConnections(params, maxTotalConnections);
+            ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(maxConnectionsPerRoute));
+
+            SchemeRegistry schemes = new SchemeRegistry();
+            schemes.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+            schemes.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+            connectionManager = new ThreadSafeClientConnManager(params, schemes);
+            httpClient = new DefaultHttpClient(connectionManager, params);
+            httpClient.setKeepAliveStrategy(new KeepAliveStrategy());
+
+            startEvictor();
+        }
+        return httpClient;
+    }
+
+    /**
+     * Returns the number of open connections, both leased and idle
+     */
+    public synchronized int getConnectionsInPool() {
+        return connectionManager == null ? 0 : connectionManager.getConnectionsInPool();
+    }
+
+    /**
+     * Returns the number of open connections to the target of the route
+     */
+    public synchronized int getConnectionsInPool(HttpRoute route) {
+        return connectionManager == null ? 0 : connectionManager.getConnectionsInPool(route);
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public synchronized void start() {
+        if (httpClient != null) {
+            startEvictor();
+        }
+    }
+
+    /**
+     * Closes the pooled connections. The client is not shut down as the reference bindings
+     * keep it for the lifetime of their providers, it opens new connections if it is used
+     * again.
+     */
+    public synchronized void stop() {
+        if (evictor != null) {
+            evictor.cancel();
+            evictor = null;
+        }
+        if (connectionManager != null) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void startEvictor() {
+        if (idleTimeout > 0 && evictor == null) {
+            evictor = new Timer("Tuscany HTTP connection evictor", true);
+            long interval = Math.max(1000, idleTimeout / 2);
+            evictor.schedule(new TimerTask() {
+                public void run() {
+                    connectionManager.closeExpiredConnections();
+                    connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+                }
+            }, interval, interval);
+        }
+    }
+
+    /**
+     * Keeps connections alive for the time the server asks for in the Keep-Alive
+     * header, or for the configured time if it doesn't say
+     */
+    private class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            HeaderElementIterator i = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (i.hasNext()) {
+                HeaderElement element = i.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Long.parseLong(element.getValue()) * 1000;
+                    } catch (NumberFormatException e) {
+                        // use the configured time
+                    }
+                }
+            }
+            return keepAliveTime;
+        }
+    }
+}
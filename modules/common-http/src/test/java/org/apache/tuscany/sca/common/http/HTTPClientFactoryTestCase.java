@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.common.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test the HTTP client shared by the reference bindings against a local HTTP server
+ *
+ * @version $Rev$ $Date$
+ */
+public class HTTPClientFactoryTestCase {
+    private HttpServer server;
+    private String url;
+    private final AtomicInteger requests = new AtomicInteger();
+    private HTTPClientFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hello", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                byte[] body = "Hello".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/hello";
+        factory = new HTTPClientFactory(null, null);
+    }
+
+    @After
+    public void tearDown() {
+        factory.stop();
+        server.stop(0);
+    }
+
+    @Test
+    public void testAttributes() {
+        Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put("maxConnectionsPerRoute", " 5");
+        attributes.put("maxTotalConnections", "50");
+        HTTPClientFactory configured = new HTTPClientFactory(null, attributes);
+        Assert.assertEquals(5, configured.getMaxConnectionsPerRoute());
+        Assert.assertEquals(50, configured.getMaxTotalConnections());
+        Assert.assertEquals(20, factory.getMaxConnectionsPerRoute());
+        Assert.assertEquals(200, factory.getMaxTotalConnections());
+    }
+
+    @Test
+    public void testConnectionReused() throws Exception {
+        HttpClient client = factory.getHttpClient();
+        Assert.assertSame(client, factory.getHttpClient());
+        Assert.assertEquals(0, factory.getConnectionsInPool());
+
+        Assert.assertEquals("Hello", get(client));
+        Assert.assertEquals("Hello", get(client));
+        Assert.assertEquals(2, requests.get());
+        // The connection has been kept alive and used for both requests
+        Assert.assertEquals(1, factory.getConnectionsInPool());
+    }
+
+    @Test
+    public void testClientUsableAfterStop() throws Exception {
+        HttpClient client = factory.getHttpClient();
+        Assert.assertEquals("Hello", get(client));
+        Assert.assertEquals(1, factory.getConnectionsInPool());
+
+        factory.stop();
+        Assert.assertEquals(0, factory.getConnectionsInPool());
+
+        // The reference bindings keep the client they were given
+        Assert.assertEquals("Hello", get(client));
+        Assert.assertSame(client, factory.getHttpClient());
+
+        factory.start();
+        Assert.assertEquals("Hello", get(factory.getHttpClient()));
+        Assert.assertEquals(3, requests.get());
+    }
+
+    private String get(HttpClient client) throws IOException {
+        HttpResponse response = client.execute(new HttpGet(url));
+        Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+        return EntityUtils.toString(response.getEntity());
+    }
+}
@@ -152,7 +152,7 @@ public class DefaultStAXArtifactProcessorExtensionPoint extends
         private String modelTypeName;
         private String factoryName;
         private ServiceDeclaration processorDeclaration;
-        private StAXArtifactProcessor<?> processor;
+        private volatile StAXArtifactProcessor<?> processor;
         private Class<?> modelType;
         private StAXArtifactProcessor<Object> extensionProcessor;
         private StAXAttributeProcessor<Object> extensionAttributeProcessor;
@@ -192,8 +192,13 @@ public class DefaultStAXArtifactProcessorExtensionPoint extends
             }
         }
 
-        @SuppressWarnings("unchecked")
         private StAXArtifactProcessor getProcessor() {
+            StAXArtifactProcessor<?> current = processor;
+            return current != null ? current : loadProcessor();
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized StAXArtifactProcessor loadProcessor() {
             if (processor == null) {
 
                 if (processorDeclaration.getClassName()
@@ -174,7 +174,7 @@ public class DefaultStAXAttributeProcessorExtensionPoint extends
         private String modelTypeName;
         private String factoryName;
         private ServiceDeclaration processorDeclaration;
-        private StAXAttributeProcessor<?> processor;
+        private volatile StAXAttributeProcessor<?> processor;
         private Class<?> modelType;
         private StAXAttributeProcessor<Object> extensionProcessor;
 
@@ -198,8 +198,13 @@ public class DefaultStAXAttributeProcessorExtensionPoint extends
             return artifactType;
         }
 
-        @SuppressWarnings("unchecked")
         private StAXAttributeProcessor getProcessor() {
+            StAXAttributeProcessor<?> current = processor;
+            return current != null ? current : loadProcessor();
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized StAXAttributeProcessor loadProcessor() {
             if (processor == null) {
                 FactoryExtensionPoint modelFactories = extensionPoints.getExtensionPoint(FactoryExtensionPoint.class);
 
@@ -230,7 +230,7 @@ public class DefaultURLArtifactProcessorExtensionPoint extends
         private String artifactType;
         private String modelTypeName;
         private ServiceDeclaration processorDeclaration;
-        private URLArtifactProcessor<?> processor;
+        private volatile URLArtifactProcessor<?> processor;
         private Class<?> modelType;
         private StAXArtifactProcessor<?> staxProcessor;
 
@@ -250,8 +250,13 @@ public class DefaultURLArtifactProcessorExtensionPoint extends
             return artifactType;
         }
 
-        @SuppressWarnings("unchecked")
         private URLArtifactProcessor getProcessor() {
+            URLArtifactProcessor<?> current = processor;
+            return current != null ? current : loadProcessor();
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized URLArtifactProcessor loadProcessor() {
             if (processor == null) {
                 try {
                     FactoryExtensionPoint modelFactories =
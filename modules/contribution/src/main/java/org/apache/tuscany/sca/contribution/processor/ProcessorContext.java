@@ -64,6 +64,18 @@ public class ProcessorContext {
         this.monitor = new DefaultMonitorFactory().createMonitor();
     }
 
+    /**
+     * Create a copy of the given context, so that it can be changed without affecting the original
+     * @param context
+     */
+    public ProcessorContext(ProcessorContext context) {
+        super();
+        this.contribution = context.contribution;
+        this.artifact = context.artifact;
+        this.monitor = context.monitor;
+        this.parentModel = context.parentModel;
+    }
+
     /**
      * Get the current contribution
      * @return The current contribution
@@ -32,7 +32,10 @@ import java.net.URL;
 public interface URLArtifactProcessor<M> extends ArtifactProcessor<M> {
 
     /**
-     * Reads a model from a URL.
+     * Reads a model from a URL. The artifacts of a contribution may be read concurrently and
+     * their models are only added to the contribution's model resolver once all of them have
+     * been read, so this method must not expect to resolve other artifacts of the contribution.
+     * Such lookups belong in resolve().
      * 
      * @param contributionURL Contribution location URL
      * @param artifactURI Artifact URI
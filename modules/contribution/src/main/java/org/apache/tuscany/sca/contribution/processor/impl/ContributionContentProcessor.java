@@ -23,8 +23,20 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.tuscany.sca.assembly.Composite;
 import org.apache.tuscany.sca.contribution.Artifact;
@@ -54,7 +66,9 @@ import org.apache.tuscany.sca.contribution.scanner.impl.DirectoryContributionSca
 import org.apache.tuscany.sca.contribution.scanner.impl.JarContributionScanner;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
 import org.apache.tuscany.sca.monitor.Monitor;
+import org.apache.tuscany.sca.monitor.MonitorFactory;
 
 /**
  * URLArtifactProcessor that handles contribution files and the artifacts they contain
@@ -69,8 +83,16 @@ public class ContributionContentProcessor implements ExtendedURLArtifactProcesso
     private URLArtifactProcessor<Object> artifactProcessor;
     private StAXArtifactProcessor<Object> extensionProcessor;
     private ContributionScannerExtensionPoint scanners;
+    private MonitorFactory monitorFactory;
     // Marks pre-resolve phase completed
     private boolean preResolved = false;
+    // Number of threads used to read the artifacts of a contribution, 1 reads them on the calling thread
+    private int parallelism;
+
+    private static final String PARALLELISM_PROPERTY = ContributionContentProcessor.class.getName() + ".parallelism";
+    // Below this number of artifacts the reads are not worth handing to other threads
+    private static final int PARALLEL_THRESHOLD = 4;
+    private static final Map<Integer, ExecutorService> readExecutors = new HashMap<Integer, ExecutorService>();
 
     public ContributionContentProcessor(ExtensionPointRegistry extensionPoints, StAXArtifactProcessor<Object> extensionProcessor) {
         this.modelFactories = extensionPoints.getExtensionPoint(FactoryExtensionPoint.class);
@@ -80,6 +102,8 @@ public class ContributionContentProcessor implements ExtendedURLArtifactProcesso
         this.extensionProcessor = extensionProcessor;
         this.contributionFactory = modelFactories.getFactory(ContributionFactory.class);
         this.scanners = extensionPoints.getExtensionPoint(ContributionScannerExtensionPoint.class);
+        this.monitorFactory = extensionPoints.getExtensionPoint(UtilityExtensionPoint.class).getUtility(MonitorFactory.class);
+        this.parallelism = getParallelism();
     }
 
     public String getArtifactType() {
@@ -134,44 +158,27 @@ public class ContributionContentProcessor implements ExtendedURLArtifactProcesso
             // Scan the contribution and list the artifacts contained in it
             boolean contributionMetadata = false;
             List<Artifact> artifacts = scanner.scan(contribution);
+            readArtifacts(contributionURL, artifacts, context);
             for (Artifact artifact : artifacts) {
                 // Add the deployed artifact model to the contribution
                 modelResolver.addModel(artifact, context);
-                
-                monitor.pushContext("Artifact: " + artifact.getURI());
-    
-                Artifact oldArtifact = context.setArtifact(artifact);
-                try {
-                    // Read each artifact
-                    URL artifactLocationURL = null;
-                    try {
-                        artifactLocationURL = new URL(artifact.getLocation());
-                    } catch(MalformedURLException e) {
-                        //ignore
-                    }
-                    
-                    Object model = artifactProcessor.read(contributionURL, URI.create(artifact.getURI()), artifactLocationURL, context);
-                    if (model != null) {
-                        artifact.setModel(model);
-        
-                        // Add the loaded model to the model resolver
-                        modelResolver.addModel(model, context);
-        
-                        // Merge contribution metadata into the contribution model
-                        if (model instanceof ContributionMetadata) {
-                            contributionMetadata = true;
-                            ContributionMetadata c = (ContributionMetadata)model;
-                            contribution.getImports().addAll(c.getImports());
-                            contribution.getExports().addAll(c.getExports());
-                            contribution.getDeployables().addAll(c.getDeployables());
-                            contribution.getExtensions().addAll(c.getExtensions());
-                            contribution.getAttributeExtensions().addAll(c.getAttributeExtensions());
-                        }
+
+                Object model = artifact.getModel();
+                if (model != null) {
+                    // Add the loaded model to the model resolver
+                    modelResolver.addModel(model, context);
+
+                    // Merge contribution metadata into the contribution model
+                    if (model instanceof ContributionMetadata) {
+                        contributionMetadata = true;
+                        ContributionMetadata c = (ContributionMetadata)model;
+                        contribution.getImports().addAll(c.getImports());
+                        contribution.getExports().addAll(c.getExports());
+                        contribution.getDeployables().addAll(c.getDeployables());
+                        contribution.getExtensions().addAll(c.getExtensions());
+                        contribution.getAttributeExtensions().addAll(c.getAttributeExtensions());
                     }
-                } finally {
-                    monitor.popContext();
-                    context.setArtifact(oldArtifact);
-                }                    
+                }
             }
             
             List<Artifact> contributionArtifacts = contribution.getArtifacts();
@@ -214,6 +221,157 @@ public class ContributionContentProcessor implements ExtendedURLArtifactProcesso
         return contribution;
     }
 
+    /**
+     * Reads the given artifacts and sets their models. The artifacts are independent of
+     * each other at this point so they are parsed on the shared reader threads, each with
+     * a copy of the caller's ProcessorContext that has its own Monitor. The problems reported
+     * by each read are replayed into the caller's monitor in artifact order once the reads
+     * complete. The models are added to the model resolver by the caller after all the reads,
+     * whatever the parallelism, as URLArtifactProcessor.read doesn't resolve other artifacts.
+     */
+    private void readArtifacts(final URL contributionURL, List<Artifact> artifacts, ProcessorContext context)
+        throws ContributionReadException {
+        if (parallelism <= 1 || artifacts.size() < PARALLEL_THRESHOLD || Thread.currentThread() instanceof ReaderThread) {
+            for (Artifact artifact : artifacts) {
+                readArtifact(contributionURL, artifact, context);
+            }
+            return;
+        }
+
+        final ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = getReadExecutor(parallelism);
+        List<DeferredMonitor> monitors = new ArrayList<DeferredMonitor>(artifacts.size());
+        List<Future<?>> futures = new ArrayList<Future<?>>(artifacts.size());
+        for (final Artifact artifact : artifacts) {
+            final DeferredMonitor artifactMonitor = new DeferredMonitor();
+            monitors.add(artifactMonitor);
+            final ProcessorContext artifactContext = new ProcessorContext(context);
+            artifactContext.setMonitor(artifactMonitor);
+            futures.add(executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    Thread thread = Thread.currentThread();
+                    ClassLoader oldTCCL = thread.getContextClassLoader();
+                    thread.setContextClassLoader(tccl);
+                    // Code that looks up the thread context monitor reports to this artifact too
+                    Monitor oldMonitor = monitorFactory.setContextMonitor(artifactMonitor);
+                    try {
+                        readArtifact(contributionURL, artifact, artifactContext);
+                    } finally {
+                        monitorFactory.setContextMonitor(oldMonitor);
+                        thread.setContextClassLoader(oldTCCL);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        Monitor monitor = context.getMonitor();
+        for (int i = 0, n = futures.size(); i < n; i++) {
+            Throwable failure = null;
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            }
+
+            monitor.pushContext("Artifact: " + artifacts.get(i).getURI());
+            try {
+                monitors.get(i).replay(monitor);
+            } finally {
+                monitor.popContext();
+            }
+
+            if (failure != null) {
+                for (int j = i + 1; j < n; j++) {
+                    futures.get(j).cancel(false);
+                }
+                if (failure instanceof ContributionReadException) {
+                    throw (ContributionReadException)failure;
+                } else if (failure instanceof RuntimeException) {
+                    throw (RuntimeException)failure;
+                } else if (failure instanceof Error) {
+                    throw (Error)failure;
+                }
+                throw new ContributionReadException(failure);
+            }
+        }
+    }
+
+    private void readArtifact(URL contributionURL, Artifact artifact, ProcessorContext context)
+        throws ContributionReadException {
+        Monitor monitor = context.getMonitor();
+        monitor.pushContext("Artifact: " + artifact.getURI());
+
+        Artifact oldArtifact = context.setArtifact(artifact);
+        try {
+            // Read each artifact
+            URL artifactLocationURL = null;
+            try {
+                artifactLocationURL = new URL(artifact.getLocation());
+            } catch(MalformedURLException e) {
+                //ignore
+            }
+            
+            Object model = artifactProcessor.read(contributionURL, URI.create(artifact.getURI()), artifactLocationURL, context);
+            if (model != null) {
+                artifact.setModel(model);
+            }
+        } finally {
+            monitor.popContext();
+            context.setArtifact(oldArtifact);
+        }
+    }
+
+    private static int getParallelism() {
+        String value = System.getProperty(PARALLELISM_PROPERTY);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                // Use the default
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the executor shared by the contribution content processors with the given parallelism.
+     * Its threads are created on demand and time out when idle so nothing is left running between deployments.
+     */
+    private static synchronized ExecutorService getReadExecutor(int parallelism) {
+        ExecutorService readExecutor = readExecutors.get(parallelism);
+        if (readExecutor == null) {
+            ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS,
+                                       new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                                           private final AtomicInteger count = new AtomicInteger();
+
+                                           public Thread newThread(Runnable runnable) {
+                                               return new ReaderThread(runnable, "Tuscany-ContributionReader-"
+                                                   + count.incrementAndGet());
+                                           }
+                                       });
+            executor.allowCoreThreadTimeOut(true);
+            readExecutor = executor;
+            readExecutors.put(parallelism, executor);
+        }
+        return readExecutor;
+    }
+
+    /**
+     * Marks the threads of the shared executor, a contribution nested in an artifact
+     * is read on the current thread rather than waiting on the executor it occupies.
+     */
+    private static class ReaderThread extends Thread {
+        ReaderThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+
     /**
      * A pre-resolution step, which is required for Contributions to handle the resolution of imports and exports so that
      * at resolve time, imports can be followed to exports and anything exported that is required can be resolved on demand
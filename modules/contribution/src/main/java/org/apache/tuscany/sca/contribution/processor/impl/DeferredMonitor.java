@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.contribution.processor.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+import org.apache.tuscany.sca.monitor.Monitor;
+import org.apache.tuscany.sca.monitor.Problem;
+import org.apache.tuscany.sca.monitor.Problem.Severity;
+
+/**
+ * A Monitor used by a single artifact read task. Problems are only recorded
+ * and are replayed later into the contribution's monitor, in artifact order,
+ * by the thread that owns that monitor.
+ *
+ * @version $Rev$ $Date$
+ */
+class DeferredMonitor extends Monitor {
+    private Stack<Object> contextStack = new Stack<Object>();
+    private List<Problem> problems = new ArrayList<Problem>();
+    private String artifactName;
+
+    public Problem createProblem(String sourceClassName,
+                                 String bundleName,
+                                 Severity severity,
+                                 Object problemObject,
+                                 String messageId,
+                                 Object... messageParams) {
+        return new DeferredProblem(sourceClassName, bundleName, severity, contextStack.toString(), problemObject,
+                                   messageId, null, messageParams);
+    }
+
+    public Problem createProblem(String sourceClassName,
+                                 String bundleName,
+                                 Severity severity,
+                                 Object problemObject,
+                                 String messageId,
+                                 Throwable cause) {
+        return new DeferredProblem(sourceClassName, bundleName, severity, contextStack.toString(), problemObject,
+                                   messageId, cause);
+    }
+
+    public void problem(Problem problem) {
+        problems.add(problem);
+    }
+
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    public Problem getLastProblem() {
+        return problems.isEmpty() ? null : problems.get(problems.size() - 1);
+    }
+
+    public void pushContext(Object context) {
+        contextStack.push(context);
+    }
+
+    public Object popContext() {
+        return contextStack.pop();
+    }
+
+    public void reset() {
+        contextStack.clear();
+        problems.clear();
+    }
+
+    public String getArtifactName() {
+        return artifactName;
+    }
+
+    public void setArtifactName(String artifactName) {
+        this.artifactName = artifactName;
+    }
+
+    /**
+     * Report the recorded problems to the given monitor. The problems are recreated
+     * by the target monitor so that they carry its context stack.
+     *
+     * @param target the monitor to report to
+     */
+    void replay(Monitor target) {
+        for (Problem problem : problems) {
+            Problem replayed;
+            if (problem.getCause() != null) {
+                replayed =
+                    target.createProblem(problem.getSourceClassName(),
+                                         problem.getResourceBundleName(),
+                                         problem.getSeverity(),
+                                         problem.getProblemObject(),
+                                         problem.getMessageId(),
+                                         problem.getCause());
+            } else {
+                replayed =
+                    target.createProblem(problem.getSourceClassName(),
+                                         problem.getResourceBundleName(),
+                                         problem.getSeverity(),
+                                         problem.getProblemObject(),
+                                         problem.getMessageId(),
+                                         problem.getMessageParams());
+            }
+            target.problem(replayed);
+        }
+        problems.clear();
+    }
+
+    private static class DeferredProblem implements Problem {
+        private final String sourceClassName;
+        private final String bundleName;
+        private final Severity severity;
+        private final String context;
+        private final Object problemObject;
+        private final String messageId;
+        private final Throwable cause;
+        private final Object[] messageParams;
+
+        DeferredProblem(String sourceClassName,
+                        String bundleName,
+                        Severity severity,
+                        String context,
+                        Object problemObject,
+                        String messageId,
+                        Throwable cause,
+                        Object... messageParams) {
+            this.sourceClassName = sourceClassName;
+            this.bundleName = bundleName;
+            this.severity = severity;
+            this.context = context;
+            this.problemObject = problemObject;
+            this.messageId = messageId;
+            this.cause = cause;
+            this.messageParams = messageParams;
+        }
+
+        public String getSourceClassName() {
+            return sourceClassName;
+        }
+
+        public String getResourceBundleName() {
+            return bundleName;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        public String getContext() {
+            return context;
+        }
+
+        public Object getProblemObject() {
+            return problemObject;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+
+        public Object[] getMessageParams() {
+            return messageParams;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.contribution.processor.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tuscany.sca.contribution.Artifact;
+import org.apache.tuscany.sca.contribution.Contribution;
+import org.apache.tuscany.sca.contribution.ContributionFactory;
+import org.apache.tuscany.sca.contribution.processor.ContributionReadException;
+import org.apache.tuscany.sca.contribution.processor.ContributionResolveException;
+import org.apache.tuscany.sca.contribution.processor.ProcessorContext;
+import org.apache.tuscany.sca.contribution.processor.URLArtifactProcessor;
+import org.apache.tuscany.sca.contribution.processor.URLArtifactProcessorExtensionPoint;
+import org.apache.tuscany.sca.contribution.resolver.ModelResolver;
+import org.apache.tuscany.sca.contribution.scanner.ContributionScanner;
+import org.apache.tuscany.sca.contribution.scanner.ContributionScannerExtensionPoint;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
+import org.apache.tuscany.sca.monitor.Monitor;
+import org.apache.tuscany.sca.monitor.MonitorFactory;
+import org.apache.tuscany.sca.monitor.Problem;
+import org.apache.tuscany.sca.monitor.Problem.Severity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks how the contribution content processor reads artifacts on the reader threads
+ *
+ * @version $Rev$ $Date$
+ */
+public class ContributionContentProcessorTestCase {
+    private static final String PARALLELISM = ContributionContentProcessor.class.getName() + ".parallelism";
+    private static final int ARTIFACTS = 8;
+
+    private ExtensionPointRegistry extensionPoints;
+    private MonitorFactory monitorFactory;
+    private TestArtifactProcessor artifactProcessor;
+    private String oldParallelism;
+
+    @Before
+    public void setUp() throws Exception {
+        extensionPoints = new DefaultExtensionPointRegistry();
+        monitorFactory = extensionPoints.getExtensionPoint(UtilityExtensionPoint.class).getUtility(MonitorFactory.class);
+        ContributionFactory contributionFactory =
+            extensionPoints.getExtensionPoint(FactoryExtensionPoint.class).getFactory(ContributionFactory.class);
+        extensionPoints.getExtensionPoint(ContributionScannerExtensionPoint.class)
+            .addContributionScanner(new TestContributionScanner(contributionFactory));
+        artifactProcessor = new TestArtifactProcessor();
+        extensionPoints.getExtensionPoint(URLArtifactProcessorExtensionPoint.class)
+            .addArtifactProcessor(artifactProcessor);
+        oldParallelism = System.getProperty(PARALLELISM);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (oldParallelism == null) {
+            System.clearProperty(PARALLELISM);
+        } else {
+            System.setProperty(PARALLELISM, oldParallelism);
+        }
+        monitorFactory.removeContextMonitor();
+    }
+
+    @Test
+    public void testProblemsInArtifactOrder() throws Exception {
+        Monitor monitor = monitorFactory.createMonitor();
+        monitorFactory.setContextMonitor(monitor);
+        read("4", monitor);
+
+        // the later artifacts are read first, the problems still come in artifact order
+        List<Problem> problems = monitor.getProblems();
+        assertEquals(2 * ARTIFACTS, problems.size());
+        for (int i = 0; i < ARTIFACTS; i++) {
+            Problem warning = problems.get(2 * i);
+            assertEquals(Severity.WARNING, warning.getSeverity());
+            assertEquals("artifact" + i + ".m3", warning.getMessageId());
+
+            // reported to the thread context monitor, the cause is kept on the way back
+            Problem error = problems.get(2 * i + 1);
+            assertEquals(Severity.ERROR, error.getSeverity());
+            assertEquals("artifact" + i + ".m3", error.getMessageId());
+            assertEquals("artifact" + i + ".m3", error.getCause().getMessage());
+        }
+        assertSame(monitor, monitorFactory.getContextMonitor());
+    }
+
+    @Test
+    public void testFailedReadCancelsOthers() throws Exception {
+        artifactProcessor.failing = "artifact0.m3";
+        Monitor monitor = monitorFactory.createMonitor();
+        try {
+            read("2", monitor);
+            fail("ContributionReadException expected");
+        } catch (ContributionReadException e) {
+            assertEquals("artifact0.m3", e.getMessage());
+        }
+
+        // the problems reported before the failure are not lost
+        assertEquals(1, monitor.getProblems().size());
+        assertEquals("artifact0.m3", monitor.getProblems().get(0).getMessageId());
+
+        // the reads still queued behind the failed one do not run
+        Thread.sleep(ARTIFACTS * 50);
+        assertTrue(artifactProcessor.reads.size() < ARTIFACTS);
+        assertFalse(artifactProcessor.reads.contains("artifact" + (ARTIFACTS - 1) + ".m3"));
+    }
+
+    @Test
+    public void testCallerContextCopied() throws Exception {
+        Monitor monitor = monitorFactory.createMonitor();
+        ProcessorContext context = new ProcessorContext(monitor);
+        Object parentModel = new Object();
+        context.setParentModel(parentModel);
+        Contribution contribution = read("4", context);
+
+        // each read sees the state of the caller's context, with a monitor of its own
+        assertEquals(ARTIFACTS, artifactProcessor.contexts.size());
+        for (ProcessorContext artifactContext : artifactProcessor.contexts) {
+            assertNotSame(context, artifactContext);
+            assertSame(parentModel, artifactContext.getParentModel());
+            assertSame(contribution, artifactContext.getContribution());
+            assertNotSame(monitor, artifactContext.getMonitor());
+        }
+        assertSame(monitor, context.getMonitor());
+        assertNull(context.getContribution());
+    }
+
+    private Contribution read(String parallelism, Monitor monitor) throws Exception {
+        return read(parallelism, new ProcessorContext(monitor));
+    }
+
+    private Contribution read(String parallelism, ProcessorContext context) throws Exception {
+        System.setProperty(PARALLELISM, parallelism);
+        ContributionContentProcessor processor = new ContributionContentProcessor(extensionPoints, null);
+        return processor.read(null, URI.create("test"), new URL("file:/test/"), context);
+    }
+
+    /**
+     * Lists the artifacts in a fixed order without looking at the contribution location
+     */
+    private static class TestContributionScanner implements ContributionScanner {
+        private ContributionFactory contributionFactory;
+
+        TestContributionScanner(ContributionFactory contributionFactory) {
+            this.contributionFactory = contributionFactory;
+        }
+
+        public String getContributionType() {
+            return "file";
+        }
+
+        public List<Artifact> scan(Contribution contribution) throws ContributionReadException {
+            List<Artifact> artifacts = new ArrayList<Artifact>();
+            for (int i = 0; i < ARTIFACTS; i++) {
+                Artifact artifact = contributionFactory.createArtifact();
+                artifact.setURI("artifact" + i + ".m3");
+                artifact.setLocation("file:/test/artifact" + i + ".m3");
+                artifacts.add(artifact);
+            }
+            return artifacts;
+        }
+    }
+
+    /**
+     * Reports a problem to the monitor of the context and another one to the thread context
+     * monitor, the later artifacts take less time to read
+     */
+    private class TestArtifactProcessor implements URLArtifactProcessor<Object> {
+        private List<String> reads = Collections.synchronizedList(new ArrayList<String>());
+        private List<ProcessorContext> contexts = Collections.synchronizedList(new ArrayList<ProcessorContext>());
+        private volatile String failing;
+
+        public Object read(URL contributionURL, URI uri, URL url, ProcessorContext context)
+            throws ContributionReadException {
+            String name = uri.toString();
+            reads.add(name);
+            contexts.add(context);
+            Monitor monitor = context.getMonitor();
+            monitor.problem(monitor.createProblem(getClass().getName(), null, Severity.WARNING, null, name));
+            if (name.equals(failing)) {
+                throw new ContributionReadException(name);
+            }
+            try {
+                int index = Integer.parseInt(name.substring("artifact".length(), name.indexOf('.')));
+                Thread.sleep((ARTIFACTS - index) * 20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Monitor contextMonitor = monitorFactory.getContextMonitor();
+            contextMonitor.problem(contextMonitor.createProblem(getClass().getName(), null, Severity.ERROR, null, name,
+                                                                new Exception(name)));
+            return null;
+        }
+
+        public void resolve(Object model, ModelResolver resolver, ProcessorContext context)
+            throws ContributionResolveException {
+        }
+
+        public String getArtifactType() {
+            return ".m3";
+        }
+
+        public Class<Object> getModelType() {
+            return Object.class;
+        }
+    }
+}
@@ -26,10 +26,14 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.tuscany.sca.databinding.Mediator;
+import org.apache.tuscany.sca.databinding.TransformationPipeline;
 import org.apache.tuscany.sca.interfacedef.DataType;
 import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.interfacedef.java.JavaOperation;
+import org.apache.tuscany.sca.invocation.AsyncInvoker;
+import org.apache.tuscany.sca.invocation.AsyncInvokers;
 import org.apache.tuscany.sca.invocation.Interceptor;
+import org.apache.tuscany.sca.invocation.InvocationCallback;
 import org.apache.tuscany.sca.invocation.Invoker;
 import org.apache.tuscany.sca.invocation.Message;
 import org.apache.tuscany.sca.runtime.Invocable;
@@ -39,7 +43,7 @@ import org.apache.tuscany.sca.runtime.Invocable;
  * 
  * @version $Rev$ $Date$
  */
-public class DataTransformationInterceptor implements Interceptor {
+public class DataTransformationInterceptor implements Interceptor, AsyncInvoker {
     private Invoker next;
 
     private Operation sourceOperation;
@@ -47,6 +51,7 @@ public class DataTransformationInterceptor implements Interceptor {
     private Operation targetOperation;
     private Invocable invocable;
     private Mediator mediator;
+    private TransformationPipeline pipeline;
 
     public DataTransformationInterceptor(Invocable invocable,
                                          Operation sourceOperation,
@@ -72,6 +77,11 @@ public class DataTransformationInterceptor implements Interceptor {
         	        
         this.mediator = mediator;
         this.invocable = invocable;
+
+        // Resolve the transformations once for the chain
+        Map<String, Object> metadata = new HashMap<String, Object>();
+        metadata.put(Invocable.class.getName(), invocable);
+        this.pipeline = mediator.createTransformationPipeline(this.sourceOperation, this.targetOperation, metadata);
     }
 
     public Invoker getNext() {
@@ -79,12 +89,27 @@ public class DataTransformationInterceptor implements Interceptor {
     }
 
     public Message invoke(Message msg) {
-        Map<String, Object> metadata = new HashMap<String, Object>();
-        metadata.put(Invocable.class.getName(), invocable);
-        Object input = mediator.mediateInput(msg.getBody(), sourceOperation, targetOperation, metadata);
+        Object input = pipeline.transformInput(msg.getBody());
+        msg.setBody(input);
+        return transformResult(next.invoke(msg));
+    }
+
+    public void invokeAsync(Message msg, final InvocationCallback callback) {
+        Object input = pipeline.transformInput(msg.getBody());
         msg.setBody(input);
-        Message resultMsg = next.invoke(msg);
-       
+        AsyncInvokers.invokeAsync(next, msg, new InvocationCallback() {
+            public void onResponse(Message response) {
+                try {
+                    response = transformResult(response);
+                } catch (RuntimeException e) {
+                    response.setFaultBody(e);
+                }
+                callback.onResponse(response);
+            }
+        });
+    }
+
+    private Message transformResult(Message resultMsg) {
         if (sourceOperation.isNonBlocking()) {
             // Not to reset the message body
             return resultMsg;
@@ -95,7 +120,7 @@ public class DataTransformationInterceptor implements Interceptor {
         if (resultMsg.isFault()) {
             Object transformedFault = null;
             if ((result instanceof Exception) && !(result instanceof RuntimeException)) {
-                transformedFault = mediator.mediateFault(result, sourceOperation, targetOperation, metadata);
+                transformedFault = pipeline.transformFault(result);
                 if (transformedFault != result) {
                     resultMsg.setFaultBody(transformedFault);
                 }
@@ -106,7 +131,7 @@ public class DataTransformationInterceptor implements Interceptor {
             //
         } else {
             assert !(result instanceof Throwable) : "Expected messages that are not throwable " + result;
-            Object newResult = mediator.mediateOutput(result, sourceOperation, targetOperation, metadata);
+            Object newResult = pipeline.transformOutput(result);
             resultMsg.setBody(newResult);
         }
 
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.invocation;
+
+/**
+ * An invoker that can process a request without holding the calling thread until the
+ * response is available. Binding invokers that receive their responses through a transport
+ * callback implement it so that in-flight asynchronous invocations do not need a waiting
+ * thread each. Interceptors implement it to take part in the response path.
+ *
+ * @version $Rev$ $Date$
+ * @tuscany.spi.extension.inheritfrom
+ */
+public interface AsyncInvoker extends Invoker {
+
+    /**
+     * Process the request and return without waiting for the response. The callback is called
+     * exactly once, possibly from another thread, with the response message. A failure is
+     * reported as a fault message.
+     *
+     * @param msg The request Message for the wire
+     * @param callback The callback receiving the response Message
+     */
+    void invokeAsync(Message msg, InvocationCallback callback);
+
+}
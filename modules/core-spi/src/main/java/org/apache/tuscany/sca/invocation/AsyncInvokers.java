@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.invocation;
+
+/**
+ * Helper methods to drive invocations through invokers that may or may not be asynchronous.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class AsyncInvokers {
+
+    private AsyncInvokers() {
+    }
+
+    /**
+     * Passes a request to the next invoker. If the invoker is not asynchronous, it is called on
+     * the current thread and its response, or the exception it throws, is passed to the callback.
+     *
+     * @param next The next invoker
+     * @param msg The request Message
+     * @param callback The callback receiving the response Message
+     */
+    public static void invokeAsync(Invoker next, Message msg, InvocationCallback callback) {
+        if (next instanceof AsyncInvoker) {
+            ((AsyncInvoker)next).invokeAsync(msg, callback);
+            return;
+        }
+        Message response;
+        try {
+            response = next.invoke(msg);
+        } catch (Throwable e) {
+            msg.setFaultBody(e);
+            response = msg;
+        }
+        callback.onResponse(response);
+    }
+
+    /**
+     * Tells if a chain of invokers reaches an asynchronous invoker through asynchronous interceptors
+     * only, that is without a synchronous call in between.
+     *
+     * @param invoker The head of the chain
+     * @return true if the invocation can complete without holding a thread
+     */
+    public static boolean isAsync(Invoker invoker) {
+        while (invoker instanceof AsyncInvoker) {
+            if (!(invoker instanceof Interceptor)) {
+                return true;
+            }
+            Invoker next = ((Interceptor)invoker).getNext();
+            if (next == null) {
+                return true;
+            }
+            invoker = next;
+        }
+        return false;
+    }
+
+}
@@ -33,4 +33,18 @@ public interface EndpointSerializer {
     Endpoint readEndpoint(String xml);
 
     String write(Endpoint endpoint);
+
+    /**
+     * Serialize the endpoint into the wire format used for Java serialization
+     * @param endpoint
+     * @return
+     */
+    byte[] writeBytes(Endpoint endpoint);
+
+    /**
+     * Deserialize an endpoint written by {@link #writeBytes(Endpoint)}
+     * @param bytes
+     * @return
+     */
+    Endpoint readEndpoint(byte[] bytes);
 }
@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.assembly.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.tuscany.sca.assembly.AssemblyFactory;
+import org.apache.tuscany.sca.assembly.Base;
+import org.apache.tuscany.sca.assembly.Binding;
+import org.apache.tuscany.sca.assembly.Component;
+import org.apache.tuscany.sca.assembly.ComponentService;
+import org.apache.tuscany.sca.assembly.Composite;
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.common.java.collection.LRUCache;
+import org.apache.tuscany.sca.contribution.processor.ExtensibleStAXArtifactProcessor;
+import org.apache.tuscany.sca.contribution.processor.ProcessorContext;
+import org.apache.tuscany.sca.contribution.processor.StAXArtifactProcessor;
+import org.apache.tuscany.sca.contribution.processor.StAXArtifactProcessorExtensionPoint;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.interfacedef.Interface;
+import org.apache.tuscany.sca.interfacedef.InterfaceContract;
+import org.oasisopen.sca.ServiceRuntimeException;
+
+/**
+ * An EndpointSerializer with a compact, versioned binary form for {@link #writeBytes(Endpoint)}.
+ * <p>
+ * The binary form is made of a header, the service interface contract and the rest of the
+ * endpoint (component, service and binding). Both parts are deflated SCA XML, as bindings and
+ * interfaces are extensions that can only be written by their StAX processors. The interface
+ * contract is identified by the SHA-1 hash of its XML. It is only parsed the first time a given
+ * hash is read, later endpoints get a copy of the contract already parsed, and it can be left
+ * out entirely when the receiver is known to hold it already. The hash is computed once per
+ * contract and kept with its interface, so a contract must not be changed once its endpoint
+ * has been serialized.
+ * <p>
+ * The String methods keep using the XML form.
+ */
+public class CompactEndpointSerializerImpl extends EndpointSerializerImpl {
+    private static final byte[] MAGIC = {0, 'T', 'E'};
+    private static final int VERSION = 1;
+
+    private static final int NO_CONTRACT = 0;
+    private static final int INLINE_CONTRACT = 1;
+    private static final int CONTRACT_REFERENCE = 2;
+
+    // The number of interface contracts kept by hash
+    private static final int MAX_CONTRACTS = 256;
+
+    private static final QName ENDPOINT_QNAME = new QName(Base.SCA11_TUSCANY_NS, "endpoint");
+    private static final String CONTRACT = "contract";
+
+    private AssemblyFactory assemblyFactory;
+    private StAXArtifactProcessor<Object> compositeProcessor;
+
+    // The interface contracts seen most recently, deflated and parsed, keyed by hash
+    private final Map<String, byte[]> contractData =
+        Collections.synchronizedMap(new LRUCache<String, byte[]>(MAX_CONTRACTS));
+    private final Map<String, InterfaceContract> contracts =
+        Collections.synchronizedMap(new LRUCache<String, InterfaceContract>(MAX_CONTRACTS));
+
+    public CompactEndpointSerializerImpl(ExtensionPointRegistry registry) {
+        super(registry);
+        FactoryExtensionPoint factories = registry.getExtensionPoint(FactoryExtensionPoint.class);
+        assemblyFactory = factories.getFactory(AssemblyFactory.class);
+        StAXArtifactProcessorExtensionPoint processors =
+            registry.getExtensionPoint(StAXArtifactProcessorExtensionPoint.class);
+        compositeProcessor = new ExtensibleStAXArtifactProcessor(processors, inputFactory, outputFactory);
+    }
+
+    /**
+     * Test if the bytes are in the compact form
+     * @param bytes
+     * @return
+     */
+    public static boolean isCompact(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] writeBytes(Endpoint endpoint) {
+        return writeBytes(endpoint, Collections.<String> emptySet());
+    }
+
+    /**
+     * Serialize the endpoint, leaving out the interface contract if its hash is one of the
+     * given contracts the receiver already holds. The receiver only keeps the contracts it
+     * has seen most recently, it fails to read an endpoint whose contract it no longer holds.
+     * @param endpoint
+     * @param knownContracts The hashes of the contracts the receiver holds
+     * @return
+     */
+    public byte[] writeBytes(Endpoint endpoint, Set<String> knownContracts) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+
+            InterfaceContract contract = endpoint.getComponentServiceInterfaceContract();
+            if (contract == null) {
+                out.writeByte(NO_CONTRACT);
+            } else {
+                String hash = getContractHash(contract);
+                if (knownContracts.contains(hash)) {
+                    out.writeByte(CONTRACT_REFERENCE);
+                    out.writeUTF(hash);
+                } else {
+                    byte[] data = contractData.get(hash);
+                    if (data == null) {
+                        // Evicted since the hash was computed
+                        data = deflate(writeXML(wrap(contract)));
+                        contractData.put(hash, data);
+                    }
+                    out.writeByte(INLINE_CONTRACT);
+                    out.writeUTF(hash);
+                    writeData(out, data);
+                }
+            }
+
+            writeData(out, deflate(writeXML(wrap(endpoint))));
+            out.flush();
+            return bytes.toByteArray();
+        } catch (Exception e) {
+            throw new ServiceRuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the hash identifying the interface contract of the endpoint in the compact form
+     * @param endpoint
+     * @return The hash, or null if the endpoint has no interface contract
+     */
+    public String getContractHash(Endpoint endpoint) {
+        InterfaceContract contract = endpoint.getComponentServiceInterfaceContract();
+        if (contract == null) {
+            return null;
+        }
+        try {
+            return getContractHash(contract);
+        } catch (Exception e) {
+            throw new ServiceRuntimeException(e);
+        }
+    }
+
+    @Override
+    public Endpoint readEndpoint(byte[] bytes) {
+        if (!isCompact(bytes)) {
+            return super.readEndpoint(bytes);
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            in.skipBytes(MAGIC.length);
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new ServiceRuntimeException("Unsupported endpoint format version: " + version);
+            }
+
+            InterfaceContract contract = null;
+            int kind = in.readUnsignedByte();
+            if (kind == INLINE_CONTRACT) {
+                String hash = in.readUTF();
+                contract = getContract(hash, readData(in));
+            } else if (kind == CONTRACT_REFERENCE) {
+                contract = getContract(in.readUTF(), null);
+            } else if (kind != NO_CONTRACT) {
+                throw new ServiceRuntimeException("Unsupported interface contract encoding: " + kind);
+            }
+
+            Composite composite = (Composite)readXML(inflate(readData(in)));
+            Endpoint endpoint = assemblyFactory.createEndpoint();
+            if (!composite.getComponents().isEmpty()) {
+                Component component = composite.getComponents().get(0);
+                endpoint.setComponent(component);
+                if (!component.getServices().isEmpty()) {
+                    ComponentService service = component.getServices().get(0);
+                    service.setInterfaceContract(contract);
+                    endpoint.setService(service);
+                    if (!service.getBindings().isEmpty()) {
+                        endpoint.setBinding(service.getBindings().get(0));
+                    }
+                }
+            }
+            endpoint.setRemote(true);
+            return endpoint;
+        } catch (ServiceRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServiceRuntimeException(e);
+        }
+    }
+
+    /**
+     * Get a copy of the contract with the given hash, parsing it if it has not been seen before
+     * @param data The deflated contract, or null if only the hash was sent
+     */
+    private InterfaceContract getContract(String hash, byte[] data) throws Exception {
+        InterfaceContract contract = contracts.get(hash);
+        if (contract == null) {
+            if (data == null) {
+                data = contractData.get(hash);
+                if (data == null) {
+                    throw new ServiceRuntimeException("Unknown interface contract: " + hash);
+                }
+            }
+            Composite composite = (Composite)readXML(inflate(data));
+            contract = composite.getComponents().get(0).getServices().get(0).getInterfaceContract();
+            contractData.put(hash, data);
+            contracts.put(hash, contract);
+        }
+        InterfaceContract copy = (InterfaceContract)contract.clone();
+        // So that writing the endpoint out again doesn't serialize the contract
+        setCachedHash(copy, hash);
+        return copy;
+    }
+
+    /**
+     * Get the hash of the contract, serializing it only the first time
+     */
+    private String getContractHash(InterfaceContract contract) throws Exception {
+        String hash = getCachedHash(contract);
+        if (hash == null) {
+            byte[] xml = writeXML(wrap(contract));
+            hash = getHash(xml);
+            if (!contractData.containsKey(hash)) {
+                contractData.put(hash, deflate(xml));
+            }
+            setCachedHash(contract, hash);
+        }
+        return hash;
+    }
+
+    private static String getCachedHash(InterfaceContract contract) {
+        Interface callInterface = contract.getInterface();
+        Object cached = callInterface != null ? callInterface.getAttributes().get(ContractHash.class) : null;
+        // The interface is copied with its attributes when the contract is cloned
+        if (cached instanceof ContractHash && ((ContractHash)cached).contract == contract) {
+            return ((ContractHash)cached).hash;
+        }
+        return null;
+    }
+
+    private static void setCachedHash(InterfaceContract contract, String hash) {
+        Interface callInterface = contract.getInterface();
+        if (callInterface != null) {
+            callInterface.getAttributes().put(ContractHash.class, new ContractHash(contract, hash));
+        }
+    }
+
+    /**
+     * Wrap the endpoint into a composite, as the endpoint processor does, without the interface contract
+     */
+    private Composite wrap(Endpoint endpoint) throws CloneNotSupportedException {
+        Composite composite = createComposite();
+        if (endpoint.getComponent() != null) {
+            Component component = (Component)endpoint.getComponent().clone();
+            component.setImplementation(null);
+            composite.getComponents().add(component);
+            component.getReferences().clear();
+            component.getServices().clear();
+            if (endpoint.getService() != null) {
+                ComponentService service = (ComponentService)endpoint.getService().clone();
+                component.getServices().add(service);
+                service.getBindings().clear();
+                service.setInterfaceContract(null);
+                if (endpoint.getBinding() != null) {
+                    Binding binding = (Binding)endpoint.getBinding().clone();
+                    service.getBindings().add(binding);
+                }
+            }
+        }
+        return composite;
+    }
+
+    /**
+     * Wrap the interface contract into a composite, with fixed names so that equal contracts
+     * produce the same XML
+     */
+    private Composite wrap(InterfaceContract contract) {
+        Composite composite = createComposite();
+        Component component = assemblyFactory.createComponent();
+        component.setName(CONTRACT);
+        ComponentService service = assemblyFactory.createComponentService();
+        service.setName(CONTRACT);
+        service.setInterfaceContract(contract);
+        component.getServices().add(service);
+        composite.getComponents().add(component);
+        return composite;
+    }
+
+    private Composite createComposite() {
+        Composite composite = assemblyFactory.createComposite();
+        composite.setName(ENDPOINT_QNAME);
+        composite.setLocal(false);
+        return composite;
+    }
+
+    private byte[] writeXML(Object model) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(bytes, "UTF-8");
+        compositeProcessor.write(model, writer, new ProcessorContext(registry));
+        writer.flush();
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private Object readXML(byte[] xml) throws Exception {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(xml), "UTF-8");
+        Object model = compositeProcessor.read(reader, new ProcessorContext(registry));
+        reader.close();
+        return model;
+    }
+
+    private static void writeData(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readData(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        Deflater deflater = new Deflater();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 16);
+            DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater);
+            out.write(data);
+            out.finish();
+            return bytes.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            InputStream in = new InflaterInputStream(new ByteArrayInputStream(data), inflater);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, n);
+            }
+            return bytes.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * The hash of a contract, kept in the attributes of its interface
+     */
+    private static class ContractHash {
+        private final InterfaceContract contract;
+        private final String hash;
+
+        private ContractHash(InterfaceContract contract, String hash) {
+            this.contract = contract;
+            this.hash = hash;
+        }
+    }
+
+    private static String getHash(byte[] data) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+        StringBuilder hash = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hash.toString();
+    }
+}
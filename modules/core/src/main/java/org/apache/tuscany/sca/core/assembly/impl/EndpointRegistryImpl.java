@@ -20,11 +20,18 @@
 package org.apache.tuscany.sca.core.assembly.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.assembly.impl.EndpointURIHelper;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.LifeCycleListener;
 import org.apache.tuscany.sca.runtime.BaseEndpointRegistry;
@@ -32,19 +39,40 @@ import org.apache.tuscany.sca.runtime.EndpointListener;
 import org.apache.tuscany.sca.runtime.EndpointRegistry;
 
 /**
- * A EndpointRegistry implementation that sees registrations from the same JVM
+ * A EndpointRegistry implementation that sees registrations from the same JVM.
+ * <p>
+ * The endpoints are indexed by component URI, by component#service and by the names accepted by
+ * {@link #getEndpoint(String)}. Lookups do not lock, updates are serialized and the listeners are
+ * notified after the indexes have been updated, outside of the lock.
  */
 public class EndpointRegistryImpl extends BaseEndpointRegistry implements EndpointRegistry, LifeCycleListener {
     private final Logger logger = Logger.getLogger(EndpointRegistryImpl.class.getName());
 
-    private List<Endpoint> endpoints = new ArrayList<Endpoint>();
+    // All the endpoints in registration order, guarded by this
+    private final Set<Endpoint> endpoints = new LinkedHashSet<Endpoint>();
+    // Immutable copy of the endpoints, rebuilt on demand after a change
+    private volatile List<Endpoint> snapshot = Collections.emptyList();
+
+    // Endpoints by component URI
+    private final Map<String, List<Endpoint>> componentIndex = new ConcurrentHashMap<String, List<Endpoint>>();
+    // Endpoints by componentURI#serviceName
+    private final Map<String, List<Endpoint>> serviceIndex = new ConcurrentHashMap<String, List<Endpoint>>();
+    // Endpoints by componentURI#serviceName/bindingName and componentURI#serviceName for the default binding
+    private final Map<String, List<Endpoint>> nameIndex = new ConcurrentHashMap<String, List<Endpoint>>();
+    // Endpoints whose URI cannot be parsed, they are checked by every lookup
+    private final List<Endpoint> unindexed = new CopyOnWriteArrayList<Endpoint>();
 
     public EndpointRegistryImpl(ExtensionPointRegistry extensionPoints, String endpointRegistryURI, String domainURI) {
         super(extensionPoints, null, endpointRegistryURI, domainURI);
     }
 
-    public synchronized void addEndpoint(Endpoint endpoint) {
-        endpoints.add(endpoint);
+    public void addEndpoint(Endpoint endpoint) {
+        synchronized (this) {
+            if (endpoints.add(endpoint)) {
+                index(endpoint);
+                snapshot = null;
+            }
+        }
         for (EndpointListener listener : listeners) {
             listener.endpointAdded(endpoint);
         }
@@ -52,8 +80,30 @@ public class EndpointRegistryImpl extends BaseEndpointRegistry implements Endpoi
     }
 
     public List<Endpoint> findEndpoint(String uri) {
+        List<Endpoint> candidates;
+        String[] names;
+        try {
+            names = EndpointURIHelper.parseServiceURI(uri);
+        } catch (IllegalArgumentException e) {
+            names = null;
+        }
+        if (names == null || names[0] == null) {
+            candidates = getEndpoints();
+        } else {
+            List<Endpoint> bucket =
+                names[1] != null ? serviceIndex.get(names[0] + "#" + names[1]) : componentIndex.get(names[0]);
+            if (unindexed.isEmpty()) {
+                candidates = bucket != null ? bucket : Collections.<Endpoint> emptyList();
+            } else {
+                candidates = new ArrayList<Endpoint>(unindexed);
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+        }
+
         List<Endpoint> foundEndpoints = new ArrayList<Endpoint>();
-        for (Endpoint endpoint : endpoints) {
+        for (Endpoint endpoint : candidates) {
             if (endpoint.matches(uri)) {
                 foundEndpoints.add(endpoint);
                 logger.fine("Found endpoint with matching service  - " + endpoint);
@@ -63,41 +113,67 @@ public class EndpointRegistryImpl extends BaseEndpointRegistry implements Endpoi
         return foundEndpoints;
     }
     
-    public synchronized void removeEndpoint(Endpoint endpoint) {
-        endpoints.remove(endpoint);
+    public void removeEndpoint(Endpoint endpoint) {
+        synchronized (this) {
+            if (!endpoints.remove(endpoint)) {
+                return;
+            }
+            unindex(endpoint);
+            snapshot = null;
+        }
         endpointRemoved(endpoint);
         logger.info("Remove endpoint - " + endpoint.toString());
     }
 
-    public synchronized List<Endpoint> getEndpoints() {
-        return endpoints;
+    public List<Endpoint> getEndpoints() {
+        List<Endpoint> list = snapshot;
+        if (list == null) {
+            synchronized (this) {
+                list = snapshot;
+                if (list == null) {
+                    list = Collections.unmodifiableList(new ArrayList<Endpoint>(endpoints));
+                    snapshot = list;
+                }
+            }
+        }
+        return list;
     }
 
-    public synchronized Endpoint getEndpoint(String uri) {
-        for (Endpoint ep : endpoints) {
-            String epURI =
-                ep.getComponent().getURI() + "#" + ep.getService().getName() + "/" + ep.getBinding().getName();
-            if (epURI.equals(uri)) {
-                return ep;
+    public Endpoint getEndpoint(String uri) {
+        List<Endpoint> bucket = nameIndex.get(uri);
+        if (bucket != null) {
+            // The first registered endpoint wins, as with a scan in registration order
+            Iterator<Endpoint> i = bucket.iterator();
+            if (i.hasNext()) {
+                return i.next();
             }
-            if (ep.getBinding().getName() == null || ep.getBinding().getName().equals(ep.getService().getName())) {
-                epURI = ep.getComponent().getURI() + "#" + ep.getService().getName();
-                if (epURI.equals(uri)) {
+        }
+        if (unindexed.isEmpty()) {
+            return null;
+        }
+        for (Endpoint ep : unindexed) {
+            for (String name : getNames(ep)) {
+                if (name.equals(uri)) {
                     return ep;
                 }
             }
         }
         return null;
-
     }
 
-    public synchronized void updateEndpoint(String uri, Endpoint endpoint) {
-        Endpoint oldEndpoint = getEndpoint(uri);
-        if (oldEndpoint == null) {
-            throw new IllegalArgumentException("Endpoint is not found: " + uri);
+    public void updateEndpoint(String uri, Endpoint endpoint) {
+        Endpoint oldEndpoint;
+        synchronized (this) {
+            oldEndpoint = getEndpoint(uri);
+            if (oldEndpoint == null) {
+                throw new IllegalArgumentException("Endpoint is not found: " + uri);
+            }
+            endpoints.remove(oldEndpoint);
+            unindex(oldEndpoint);
+            endpoints.add(endpoint);
+            index(endpoint);
+            snapshot = null;
         }
-        endpoints.remove(oldEndpoint);
-        endpoints.add(endpoint);
         for (EndpointListener listener : listeners) {
             listener.endpointUpdated(oldEndpoint, endpoint);
         }
@@ -106,14 +182,108 @@ public class EndpointRegistryImpl extends BaseEndpointRegistry implements Endpoi
     public synchronized void start() {
     }
 
-    public synchronized void stop() {
-        for (Iterator<Endpoint> i = endpoints.iterator(); i.hasNext();) {
-            Endpoint ep = i.next();
-            i.remove();
+    public void stop() {
+        List<Endpoint> removed;
+        synchronized (this) {
+            removed = new ArrayList<Endpoint>(endpoints);
+            endpoints.clear();
+            componentIndex.clear();
+            serviceIndex.clear();
+            nameIndex.clear();
+            unindexed.clear();
+            snapshot = null;
+        }
+        for (Endpoint ep : removed) {
             endpointRemoved(ep);
         }
         endpointreferences.clear();
         listeners.clear();
     }
 
+    /**
+     * Adds the endpoint to the indexes, called while holding the lock
+     */
+    private void index(Endpoint endpoint) {
+        String[] names = getIndexNames(endpoint);
+        if (names == null) {
+            unindexed.add(endpoint);
+        } else {
+            addToBucket(componentIndex, names[0], endpoint);
+            if (names[1] != null) {
+                addToBucket(serviceIndex, names[0] + "#" + names[1], endpoint);
+            }
+        }
+        for (String name : getNames(endpoint)) {
+            addToBucket(nameIndex, name, endpoint);
+        }
+    }
+
+    /**
+     * Removes the endpoint from the indexes, called while holding the lock
+     */
+    private void unindex(Endpoint endpoint) {
+        String[] names = getIndexNames(endpoint);
+        if (names == null) {
+            unindexed.remove(endpoint);
+        } else {
+            removeFromBucket(componentIndex, names[0], endpoint);
+            if (names[1] != null) {
+                removeFromBucket(serviceIndex, names[0] + "#" + names[1], endpoint);
+            }
+        }
+        for (String name : getNames(endpoint)) {
+            removeFromBucket(nameIndex, name, endpoint);
+        }
+    }
+
+    private static void addToBucket(Map<String, List<Endpoint>> index, String key, Endpoint endpoint) {
+        List<Endpoint> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new CopyOnWriteArrayList<Endpoint>();
+            index.put(key, bucket);
+        }
+        bucket.add(endpoint);
+    }
+
+    private static void removeFromBucket(Map<String, List<Endpoint>> index, String key, Endpoint endpoint) {
+        List<Endpoint> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(endpoint);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the names under which getEndpoint() finds the endpoint
+     */
+    private static List<String> getNames(Endpoint ep) {
+        List<String> names = new ArrayList<String>(2);
+        if (ep.getComponent() == null || ep.getService() == null || ep.getBinding() == null) {
+            return names;
+        }
+        String serviceURI = ep.getComponent().getURI() + "#" + ep.getService().getName();
+        names.add(serviceURI + "/" + ep.getBinding().getName());
+        if (ep.getBinding().getName() == null || ep.getBinding().getName().equals(ep.getService().getName())) {
+            names.add(serviceURI);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the component URI and service name of the endpoint, or null if its URI cannot be parsed
+     */
+    private static String[] getIndexNames(Endpoint endpoint) {
+        String uri = endpoint.getURI();
+        if (uri == null) {
+            return null;
+        }
+        try {
+            return EndpointURIHelper.parseStructuralURI(uri);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
 }
@@ -20,6 +20,7 @@
 package org.apache.tuscany.sca.core.assembly.impl;
 
 import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
 import java.io.StringWriter;
 
 import javax.xml.stream.XMLInputFactory;
@@ -38,11 +39,12 @@ import org.apache.tuscany.sca.runtime.EndpointSerializer;
 import org.oasisopen.sca.ServiceRuntimeException;
 
 public class EndpointSerializerImpl implements EndpointSerializer {
-    private ExtensionPointRegistry registry;
-    private XMLInputFactory inputFactory;
-    private XMLOutputFactory outputFactory;
+    protected ExtensionPointRegistry registry;
+    protected XMLInputFactory inputFactory;
+    protected XMLOutputFactory outputFactory;
     private StAXArtifactProcessor<Endpoint> processor;
     private StAXArtifactProcessor<EndpointReference> refProcessor;
+    private CompactEndpointSerializerImpl compactSerializer;
 
     public EndpointSerializerImpl(ExtensionPointRegistry registry) {
         this.registry = registry;
@@ -80,6 +82,33 @@ public class EndpointSerializerImpl implements EndpointSerializer {
         }
     }
 
+    public byte[] writeBytes(Endpoint endpoint) {
+        try {
+            return write(endpoint).getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new ServiceRuntimeException(e);
+        }
+    }
+
+    public Endpoint readEndpoint(byte[] bytes) {
+        if (CompactEndpointSerializerImpl.isCompact(bytes)) {
+            // Written by a peer configured with the compact serializer
+            return getCompactSerializer().readEndpoint(bytes);
+        }
+        try {
+            return readEndpoint(new String(bytes, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new ServiceRuntimeException(e);
+        }
+    }
+
+    private synchronized CompactEndpointSerializerImpl getCompactSerializer() {
+        if (compactSerializer == null) {
+            compactSerializer = new CompactEndpointSerializerImpl(registry);
+        }
+        return compactSerializer;
+    }
+
     public EndpointReference readEndpointReference(String xml) {
         try {
             XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
@@ -19,8 +19,11 @@
 
 package org.apache.tuscany.sca.core.assembly.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.StringReader;
@@ -101,6 +104,13 @@ import org.oasisopen.sca.ServiceRuntimeException;
  */
 public class RuntimeEndpointImpl extends EndpointImpl implements RuntimeEndpoint, Externalizable {
     private static final long serialVersionUID = 1L;
+    // Starts the versioned external form. Earlier streams start with the writeUTF length of the
+    // URI instead, which cannot be 0xFFFF for any real endpoint URI.
+    private static final int FORMAT_MARKER = 0xFFFF;
+    private static final int FORMAT_VERSION = 1;
+    // Older runtimes only read the unversioned form, so the versioned one is opt-in
+    private static final String VERSIONED_EXTERNAL_FORM = RuntimeEndpointImpl.class.getName() + ".versionedExternalForm";
+    private static final int MAX_UTF_LENGTH = 0xFFFF;
     private transient CompositeContext compositeContext;
     private transient RuntimeWireProcessor wireProcessor;
     private transient ProviderFactoryExtensionPoint providerFactories;
@@ -118,7 +128,8 @@ public class RuntimeEndpointImpl extends EndpointImpl implements RuntimeEndpoint
 
     private transient ServiceBindingProvider bindingProvider;
     private transient List<PolicyProvider> policyProviders;
-    private String xml;
+    // The serialized form received through Java serialization, deserialized on first use
+    private byte[] serializedForm;
 
     protected InterfaceContract bindingInterfaceContract;
     protected InterfaceContract serviceInterfaceContract;
@@ -135,7 +146,7 @@ public class RuntimeEndpointImpl extends EndpointImpl implements RuntimeEndpoint
     }
 
     protected void copyFrom(RuntimeEndpointImpl copy) {
-        this.xml = copy.xml;
+        this.serializedForm = copy.serializedForm;
 
         this.component = copy.component;
         this.service = copy.service;
@@ -749,12 +760,12 @@ public class RuntimeEndpointImpl extends EndpointImpl implements RuntimeEndpoint
     @Override
     protected void reset() {
         super.reset();
-        this.xml = null;
+        this.serializedForm = null;
     }
 
     @Override
     protected synchronized void resolve() {
-        if (xml != null && component == null) {
+        if (serializedForm != null && component == null) {
             if (compositeContext == null) {
                 compositeContext = CompositeContext.getCurrentCompositeContext();
                 if (compositeContext != null) {
@@ -762,7 +773,7 @@ public class RuntimeEndpointImpl extends EndpointImpl implements RuntimeEndpoint
                 }
             }
             if (serializer != null) {
-                RuntimeEndpointImpl ep = (RuntimeEndpointImpl)serializer.readEndpoint(xml);
+                RuntimeEndpointImpl ep = (RuntimeEndpointImpl)serializer.readEndpoint(serializedForm);
                 copyFrom(ep);
             } else {
                 // FIXME: [rfeng] What should we do here?
@@ -802,21 +813,82 @@ public class RuntimeEndpointImpl extends EndpointImpl implements RuntimeEndpoint
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int marker = in.readUnsignedShort();
+        if (marker != FORMAT_MARKER) {
+            // Unversioned form: the URI and the XML written with writeUTF
+            this.uri = readUTF(in, marker);
+            this.serializedForm = in.readUTF().getBytes("UTF-8");
+            return;
+        }
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new InvalidObjectException("Unsupported endpoint format version: " + version);
+        }
         this.uri = in.readUTF();
-        this.xml = in.readUTF();
+        // Length prefixed so that large endpoints are not limited to 64KB as with readUTF
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        this.serializedForm = bytes;
+    }
+
+    /**
+     * Read the rest of a writeUTF string whose length has already been read
+     */
+    private static String readUTF(ObjectInput in, int length) throws IOException {
+        byte[] bytes = new byte[length + 2];
+        bytes[0] = (byte)(length >>> 8);
+        bytes[1] = (byte)length;
+        in.readFully(bytes, 2, length);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
     }
 
+    /**
+     * Writes the unversioned form that every runtime reads, unless the versioned form is enabled
+     * with the org.apache.tuscany.sca.core.assembly.impl.RuntimeEndpointImpl.versionedExternalForm
+     * system property or the endpoint can't be written in the unversioned form, i.e. it was
+     * received in the compact form or its XML is too long for writeUTF.
+     */
     public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeUTF(getURI());
-        if (serializer == null && xml != null) {
-            out.writeUTF(xml);
-        } else {
+        if (serializer == null && serializedForm == null) {
+            throw new IllegalStateException("No serializer is configured");
+        }
+        if (!Boolean.getBoolean(VERSIONED_EXTERNAL_FORM)) {
+            String xml = null;
             if (serializer != null) {
-                out.writeUTF(serializer.write(this));
+                xml = serializer.write(this);
+            } else if (!CompactEndpointSerializerImpl.isCompact(serializedForm)) {
+                xml = new String(serializedForm, "UTF-8");
+            }
+            if (xml != null && getUTFLength(xml) <= MAX_UTF_LENGTH) {
+                out.writeUTF(getURI());
+                out.writeUTF(xml);
+                return;
+            }
+        }
+        out.writeShort(FORMAT_MARKER);
+        out.writeByte(FORMAT_VERSION);
+        out.writeUTF(getURI());
+        byte[] bytes = serializer != null ? serializer.writeBytes(this) : serializedForm;
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * The number of bytes writeUTF would write for the string, without the length
+     */
+    private static int getUTFLength(String str) {
+        int length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c > 0x07FF) {
+                length += 3;
             } else {
-                throw new IllegalStateException("No serializer is configured");
+                length += 2;
             }
         }
+        return length;
     }
     public InterfaceContract getGeneratedWSDLContract(InterfaceContract interfaceContract) {
 
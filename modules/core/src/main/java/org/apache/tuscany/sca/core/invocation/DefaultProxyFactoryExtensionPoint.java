@@ -19,10 +19,13 @@
 
 package org.apache.tuscany.sca.core.invocation;
 
+import java.util.Map;
+
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.FactoryExtensionPoint;
 import org.apache.tuscany.sca.core.LifeCycleListener;
 import org.apache.tuscany.sca.core.UtilityExtensionPoint;
+import org.apache.tuscany.sca.core.invocation.impl.GeneratedProxyFactory;
 import org.apache.tuscany.sca.core.invocation.impl.JDKProxyFactory;
 import org.apache.tuscany.sca.interfacedef.InterfaceContractMapper;
 import org.apache.tuscany.sca.invocation.MessageFactory;
@@ -40,13 +43,27 @@ public class DefaultProxyFactoryExtensionPoint implements ProxyFactoryExtensionP
     private ProxyFactory classFactory;
 
     public DefaultProxyFactoryExtensionPoint(ExtensionPointRegistry registry) {
+        this(registry, null);
+    }
+
+    /**
+     * @param registry
+     * @param attributes The "interfaceProxyFactory" attribute selects the interface proxy factory:
+     * "jdk" (the default) for java.lang.reflect.Proxy or "generated" for generated proxy classes  
+     */
+    public DefaultProxyFactoryExtensionPoint(ExtensionPointRegistry registry, Map<String, String> attributes) {
         UtilityExtensionPoint utilities = registry.getExtensionPoint(UtilityExtensionPoint.class);
         this.interfaceContractMapper = utilities.getUtility(InterfaceContractMapper.class);
 
         FactoryExtensionPoint modelFactories = registry.getExtensionPoint(FactoryExtensionPoint.class);
         this.messageFactory = modelFactories.getFactory(MessageFactory.class);
 
-        interfaceFactory = new JDKProxyFactory(registry, messageFactory, interfaceContractMapper);
+        String type = attributes != null ? attributes.get("interfaceProxyFactory") : null;
+        if (type != null && "generated".equals(type.trim())) {
+            interfaceFactory = new GeneratedProxyFactory(registry, messageFactory, interfaceContractMapper);
+        } else {
+            interfaceFactory = new JDKProxyFactory(registry, messageFactory, interfaceContractMapper);
+        }
     }
 
     //    public DefaultProxyFactoryExtensionPoint(MessageFactory messageFactory, InterfaceContractMapper mapper) {
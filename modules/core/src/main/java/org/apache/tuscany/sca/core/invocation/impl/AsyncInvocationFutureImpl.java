@@ -19,15 +19,15 @@
 
 package org.apache.tuscany.sca.core.invocation.impl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import javax.xml.ws.Response;
 
@@ -41,19 +41,24 @@ import org.apache.tuscany.sca.core.invocation.AsyncResponseHandler;
  * This implementation class provides the interfaces for use by the client code, but also provides methods for the
  * Tuscany system code to set the result of the asynchronous service invocation, both Regular and Fault responses. 
  * 
- * This class is constructed to be fully thread-safe
+ * This class is constructed to be fully thread-safe. Completion listeners can be registered so that the
+ * code interested in the result is called back by the thread which completes the Future instead of
+ * waiting for it.
  *
  * @param <V> - this is the type of the response message from the invoked service.
  */
 public class AsyncInvocationFutureImpl<V> implements Future<V>, Response<V>, AsyncResponseHandler<V> {
 	
-	// Lock for handling the completion of this Future
-	private final Lock lock = new ReentrantLock();
-    private final Condition isDone  = lock.newCondition(); 
+	// Latch released on the completion of this Future
+	private final CountDownLatch isDone = new CountDownLatch(1);
     
 	// The result
 	private volatile V response = null;
 	private volatile Throwable fault = null; 
+	private boolean completed = false;
+	
+	// Listeners to call on completion, null once completed
+	private List<Runnable> listeners = new ArrayList<Runnable>(1);
 	
 	private String uniqueID = UUID.randomUUID().toString();
 	
@@ -110,16 +115,12 @@ public class AsyncInvocationFutureImpl<V> implements Future<V>, Response<V>, Asy
 	 */
 	public V get(long timeout, TimeUnit unit) throws InterruptedException,
 			ExecutionException, TimeoutException {
-		lock.lock();
-		try {
-			// wait for result to be available
-			if( notSetYet() ) isDone.await( timeout, unit);
-			if( response != null ) return response;
-			if( fault != null ) throw new ExecutionException( fault );
+		// wait for result to be available
+		if( !isDone.await( timeout, unit ) ) {
 			throw new TimeoutException("get on this Future timed out");
-		} finally {
-			lock.unlock();
-		} // end try
+		} // end if
+		if( fault != null ) throw new ExecutionException( fault );
+		return response;
 
 	} // end method get(long timeout, TimeUnit unit)
 
@@ -136,14 +137,24 @@ public class AsyncInvocationFutureImpl<V> implements Future<V>, Response<V>, Asy
 	 * @return - true if the process is completed, false otherwise
 	 */
 	public boolean isDone() {
-		lock.lock();
-		try {
-			return !notSetYet();
-		} finally {
-			lock.unlock();
-		} // end try
+		return isDone.getCount() == 0;
 	} // end method isDone
 	
+	/**
+	 * Registers a listener that is called once this Future is completed, by the thread that completes it.
+	 * If the Future is already completed the listener is called immediately
+	 * @param listener - the listener
+	 */
+	public void addListener(Runnable listener) {
+		synchronized( this ) {
+			if( !completed ) {
+				listeners.add(listener);
+				return;
+			} // end if
+		} // end synchronized
+		listener.run();
+	} // end method addListener
+	
 	/**
 	 * Async process completed with a Fault.  Must only be invoked once
 	 * @param e - the Fault to send
@@ -162,17 +173,7 @@ public class AsyncInvocationFutureImpl<V> implements Future<V>, Response<V>, Asy
 		} // end try
 		
 		if( e == null ) throw new IllegalArgumentException("AsyncFaultWrapper did not return an Exception");
-		lock.lock();
-		try {
-			if( notSetYet() ) {
-				fault = e;
-				isDone.signalAll();
-			} else {
-				throw new IllegalStateException("setResponse() or setFault() has been called previously");
-			} // end if 
-		} finally {
-			lock.unlock();
-		} // end try
+		complete( null, e );
 
 	} // end method setFault
 
@@ -183,33 +184,38 @@ public class AsyncInvocationFutureImpl<V> implements Future<V>, Response<V>, Asy
 	 */
 	public void setResponse(V res) {
 		
-		lock.lock();
-		try {
-			if( notSetYet() ) {
-				response = res;
-				isDone.signalAll();
-			} else {
-				throw new IllegalStateException("setResponse() or setFault() has been called previously");
-			}
-		} finally {
-			lock.unlock();
-		} // end try
+		complete( res, null );
 			
 	} // end method setResponse
 	
+	/**
+	 * Completes this Future, releases the waiting threads and calls the listeners
+	 * @param res - the response message
+	 * @param e - the fault
+	 */
+	private void complete(V res, Throwable e) {
+		List<Runnable> toNotify;
+		synchronized( this ) {
+			if( completed ) {
+				throw new IllegalStateException("setResponse() or setFault() has been called previously");
+			} // end if
+			response = res;
+			fault = e;
+			completed = true;
+			toNotify = listeners;
+			listeners = null;
+		} // end synchronized
+		isDone.countDown();
+		for( Runnable listener : toNotify ) {
+			listener.run();
+		} // end for
+	} // end method complete
+	
 	/**
 	 * Gets the unique ID of this future as a String
 	 */
 	public String getUniqueID() { return uniqueID; }
 
-	/**
-	 * Indicates that setting a response value is OK - can only set the response value or fault once
-	 * @return - true if it is OK to set the response, false otherwise
-	 */
-	private boolean notSetYet() {
-		return ( response == null && fault == null );
-	}
-	
 	/**
 	 * Returns the JAXWS context for the response
 	 * @return - a Map containing the context
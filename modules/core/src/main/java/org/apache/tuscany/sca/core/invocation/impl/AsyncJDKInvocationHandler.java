@@ -29,11 +29,12 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
@@ -52,6 +53,7 @@ import org.apache.tuscany.sca.assembly.builder.BuilderContext;
 import org.apache.tuscany.sca.assembly.builder.BuilderExtensionPoint;
 import org.apache.tuscany.sca.assembly.xml.Constants;
 import org.apache.tuscany.sca.context.CompositeContext;
+import org.apache.tuscany.sca.context.ThreadMessageContext;
 import org.apache.tuscany.sca.contribution.processor.ContributionReadException;
 import org.apache.tuscany.sca.contribution.processor.ProcessorContext;
 import org.apache.tuscany.sca.contribution.processor.StAXArtifactProcessor;
@@ -69,7 +71,10 @@ import org.apache.tuscany.sca.interfacedef.java.JavaInterfaceContract;
 import org.apache.tuscany.sca.interfacedef.java.JavaInterfaceFactory;
 import org.apache.tuscany.sca.interfacedef.util.FaultException;
 import org.apache.tuscany.sca.interfacedef.util.WrapperInfo;
+import org.apache.tuscany.sca.invocation.AsyncInvokers;
+import org.apache.tuscany.sca.invocation.InvocationCallback;
 import org.apache.tuscany.sca.invocation.InvocationChain;
+import org.apache.tuscany.sca.invocation.Message;
 import org.apache.tuscany.sca.invocation.MessageFactory;
 import org.apache.tuscany.sca.policy.Intent;
 import org.apache.tuscany.sca.provider.PolicyProvider;
@@ -101,6 +106,8 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger logger = Logger.getLogger(AsyncJDKInvocationHandler.class.getName());
+
     private static int invocationCount = 10; // # of threads to use
     private static long maxWaitTime = 30; // Max wait time for completion = 30sec
 
@@ -251,20 +258,22 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
     @SuppressWarnings("unchecked")
     private Object doInvokeAsyncCallback(final Object proxy, final Method asyncMethod, final Object[] args)
         throws Exception {
-        Future<Response> future = theExecutor.submit(new Callable<Response>() {
-
-            @Override
-            public Response call() {
-                AsyncHandler handler = (AsyncHandler)args[args.length - 1];
-                Response response = doInvokeAsyncPoll(proxy, asyncMethod, Arrays.copyOf(args, args.length - 1));
-                // Invoke the callback handler, if present
-                if (handler != null) {
-                    handler.handleResponse(response);
-                } // end if
-                return response;
-            }
-        });
-        return future.get();
+        final AsyncHandler handler = (AsyncHandler)args[args.length - 1];
+        final Response response = doInvokeAsyncPoll(proxy, asyncMethod, Arrays.copyOf(args, args.length - 1));
+        // Invoke the callback handler, if present, from the thread which completes the response
+        // rather than holding a thread to wait for it
+        if (handler != null) {
+            ((AsyncInvocationFutureImpl<?>)response).addListener(new Runnable() {
+                public void run() {
+                    try {
+                        handler.handleResponse(response);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "AsyncHandler failed: " + e.toString(), e);
+                    } // end try
+                }
+            });
+        } // end if
+        return response;
 
     } // end method doInvokeAsyncCallback
 
@@ -287,13 +296,7 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
             throw new ServiceRuntimeException("No runtime source is available");
         }
 
-        if (source instanceof RuntimeEndpointReference) {
-            RuntimeEndpointReference epr = (RuntimeEndpointReference)source;
-            if (epr.isOutOfDate()) {
-                epr.rebuild();
-                chains.clear();
-            }
-        } // end if
+        rebuildIfOutOfDate(source);
 
         InvocationChain chain = getInvocationChain(method, source);
 
@@ -308,6 +311,11 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
             // ... the service is asynchronous ...
             attachFuture(theEndpoint, future);
             isAsyncService = true;
+        } else if (AsyncInvokers.isAsync(chain.getHeadInvoker())) {
+            // ... the binding completes the future from its own response callback, so the request is
+            // sent from this thread and no thread is held while waiting for the response ...
+            invokeNonBlocking(chain, args, source, future, asyncMethod);
+            return;
         } else {
             // ... the service is synchronous ...
         } // end if
@@ -358,40 +366,7 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
                 } else {
                     // ... the service is synchronous ...
                     result = invoke(chain, args, invocable);
-                    Type type = null;
-                    if (asyncMethod.getReturnType() == Future.class) {
-                        // For callback async menthod
-                        Type[] types = asyncMethod.getGenericParameterTypes();
-                        if (types.length > 0 && asyncMethod.getParameterTypes()[types.length - 1] == AsyncHandler.class) {
-                            // Last paremeter, AsyncHandler<T>
-                            type = types[types.length - 1];
-                        }
-                    } else if (asyncMethod.getReturnType() == Response.class) {
-                        // For the polling method, Response<T>
-                        type = asyncMethod.getGenericReturnType();
-                    }
-                    if (type instanceof ParameterizedType) {
-                        // Check if the parameterized type of Response<T> is a doc-lit-wrapper class
-                        Class<?> wrapperClass = (Class<?>)((ParameterizedType)type).getActualTypeArguments()[0];
-                        WrapperInfo wrapperInfo = chain.getSourceOperation().getWrapper();
-                        if (wrapperInfo != null && wrapperInfo.getOutputWrapperClass() == wrapperClass) {
-                            Object wrapper = wrapperClass.newInstance();
-                            // Find the 1st matching property
-                            for (PropertyDescriptor p : Introspector.getBeanInfo(wrapperClass).getPropertyDescriptors()) {
-                                if (p.getWriteMethod() == null) {
-                                    // There is a "class" property ...
-                                    continue;
-                                }
-                                if (p.getWriteMethod().getParameterTypes()[0].isInstance(result)) {
-                                    p.getWriteMethod().invoke(wrapper, result);
-                                    result = wrapper;
-                                    break;
-                                }
-                            }
-
-                        }
-                    }
-                    future.setResponse(result);
+                    future.setResponse(wrapResponse(chain, asyncMethod, result));
                 } // end if
             } catch (ServiceRuntimeException s) {
                 Throwable e = s.getCause();
@@ -413,6 +388,90 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
 
     } // end class separateThreadInvoker
 
+    /**
+     * Sends the request through a chain of asynchronous invokers - the thread is released as soon as the
+     * request is sent and the future is completed by the thread which receives the response
+     * @param chain - the invocation chain
+     * @param args - arguments for the call
+     * @param invocable - the source of the invocation
+     * @param future - Future for handling the response
+     * @param asyncMethod - the async method invoked by the client
+     */
+    @SuppressWarnings("unchecked")
+    private void invokeNonBlocking(final InvocationChain chain,
+                                   Object[] args,
+                                   Invocable invocable,
+                                   final AsyncInvocationFutureImpl future,
+                                   final Method asyncMethod) {
+        Message msgContext = ThreadMessageContext.getMessageContext();
+        Message msg = createMessage(chain, args, invocable, msgContext);
+        ThreadMessageContext.setMessageContext(msg);
+        try {
+            AsyncInvokers.invokeAsync(chain.getHeadInvoker(), msg, new InvocationCallback() {
+                public void onResponse(Message response) {
+                    try {
+                        if (response.isFault()) {
+                            future.setFault(new AsyncFaultWrapper((Throwable)response.getBody()));
+                        } else {
+                            future.setResponse(wrapResponse(chain, asyncMethod, response.getBody()));
+                        } // end if
+                    } catch (IllegalStateException e) {
+                        // The future has already been completed
+                    } catch (Throwable t) {
+                        future.setFault(new AsyncFaultWrapper(t));
+                    } // end try
+                }
+            });
+        } finally {
+            ThreadMessageContext.setMessageContext(msgContext);
+        } // end try
+    } // end method invokeNonBlocking
+
+    /**
+     * Wraps the result of a synchronous operation into the doc-lit-wrapper class expected by the async
+     * client method, if any
+     * @param chain - the invocation chain
+     * @param asyncMethod - the async method invoked by the client
+     * @param result - the result of the synchronous operation
+     * @return - the response for the future
+     */
+    private Object wrapResponse(InvocationChain chain, Method asyncMethod, Object result) throws Exception {
+        Type type = null;
+        if (asyncMethod.getReturnType() == Future.class) {
+            // For callback async menthod
+            Type[] types = asyncMethod.getGenericParameterTypes();
+            if (types.length > 0 && asyncMethod.getParameterTypes()[types.length - 1] == AsyncHandler.class) {
+                // Last paremeter, AsyncHandler<T>
+                type = types[types.length - 1];
+            }
+        } else if (asyncMethod.getReturnType() == Response.class) {
+            // For the polling method, Response<T>
+            type = asyncMethod.getGenericReturnType();
+        }
+        if (type instanceof ParameterizedType) {
+            // Check if the parameterized type of Response<T> is a doc-lit-wrapper class
+            Class<?> wrapperClass = (Class<?>)((ParameterizedType)type).getActualTypeArguments()[0];
+            WrapperInfo wrapperInfo = chain.getSourceOperation().getWrapper();
+            if (wrapperInfo != null && wrapperInfo.getOutputWrapperClass() == wrapperClass) {
+                Object wrapper = wrapperClass.newInstance();
+                // Find the 1st matching property
+                for (PropertyDescriptor p : Introspector.getBeanInfo(wrapperClass).getPropertyDescriptors()) {
+                    if (p.getWriteMethod() == null) {
+                        // There is a "class" property ...
+                        continue;
+                    }
+                    if (p.getWriteMethod().getParameterTypes()[0].isInstance(result)) {
+                        p.getWriteMethod().invoke(wrapper, result);
+                        result = wrapper;
+                        break;
+                    }
+                }
+
+            }
+        }
+        return result;
+    } // end method wrapResponse
+
     /**
      * Attaches a future to the callback endpoint - so that the Future is triggered when a response is
      * received from the asynchronous service invocation associated with the Future
@@ -620,7 +679,7 @@ public class AsyncJDKInvocationHandler extends JDKInvocationHandler {
      * @param source - the EPR involved in the invocation
      * @return - true if the invocation is async
      */
-    private boolean isAsyncInvocation(Invocable source) {
+    protected boolean isAsyncInvocation(Invocable source) {
         if (!(source instanceof RuntimeEndpointReference))
             return false;
         RuntimeEndpointReference epr = (RuntimeEndpointReference)source;
@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.tuscany.sca.common.java.collection.LRUCache;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
+import org.apache.tuscany.sca.core.context.ServiceReferenceExt;
+import org.apache.tuscany.sca.core.invocation.ProxyCreationException;
+import org.apache.tuscany.sca.interfacedef.InterfaceContractMapper;
+import org.apache.tuscany.sca.invocation.MessageFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.oasisopen.sca.ServiceReference;
+
+/**
+ * A proxy factory that generates one concrete class per business interface instead of using
+ * java.lang.reflect.Proxy. Each generated method calls the {@link GeneratedProxyInvocationHandler}
+ * with the index of the method so that the dispatch doesn't need to look up the method. Interfaces
+ * that cannot be implemented by a generated class (for example, non-public ones) and callback proxies
+ * are still handled by the JDK proxies.
+ * 
+ * @version $Rev$ $Date$
+ */
+public class GeneratedProxyFactory extends JDKProxyFactory {
+    private static final Logger logger = Logger.getLogger(GeneratedProxyFactory.class.getName());
+
+    private static final String PROXY_CLASS_SUFFIX = "$$TuscanyProxy";
+    private static final String HANDLER = Type.getInternalName(GeneratedProxyInvocationHandler.class);
+    private static final String HANDLER_DESC = Type.getDescriptor(GeneratedProxyInvocationHandler.class);
+    private static final String INVOKE_DESC = "(Ljava/lang/Object;I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    // The generated proxy class for each business interface. A null value records an interface
+    // that cannot be proxied by a generated class.
+    private final LRUCache<Class<?>, ProxyClass> cache = new LRUCache<Class<?>, ProxyClass>(512);
+
+    public GeneratedProxyFactory(ExtensionPointRegistry registry) {
+        this(registry,
+             registry.getExtensionPoint(FactoryExtensionPoint.class).getFactory(MessageFactory.class),
+             registry.getExtensionPoint(UtilityExtensionPoint.class).getUtility(InterfaceContractMapper.class));
+    }
+
+    public GeneratedProxyFactory(ExtensionPointRegistry registry,
+                                 MessageFactory messageFactory,
+                                 InterfaceContractMapper mapper) {
+        super(registry, messageFactory, mapper);
+    }
+
+    @Override
+    public <T> T createProxy(ServiceReference<T> callableReference) throws ProxyCreationException {
+        assert callableReference != null;
+        Class<T> interfaze = callableReference.getBusinessInterface();
+        ProxyClass proxyClass = getProxyClass(interfaze);
+        if (proxyClass == null) {
+            return super.createProxy(callableReference);
+        }
+        GeneratedProxyInvocationHandler handler =
+            new GeneratedProxyInvocationHandler(registry, messageFactory, callableReference, proxyClass.methodTable);
+        T proxy = interfaze.cast(proxyClass.newInstance(handler));
+        ((ServiceReferenceExt<T>)callableReference).setProxy(proxy);
+        return proxy;
+    }
+
+    @Override
+    public <B, R extends ServiceReference<B>> R cast(B target) throws IllegalArgumentException {
+        if (target instanceof GeneratedProxy) {
+            return (R)((GeneratedProxy)target).getProxyInvocationHandler().getCallableReference();
+        }
+        return (R)super.cast(target);
+    }
+
+    @Override
+    public boolean isProxyClass(Class<?> clazz) {
+        return GeneratedProxy.class.isAssignableFrom(clazz) || super.isProxyClass(clazz);
+    }
+
+    /**
+     * Get the generated proxy class for the business interface
+     * @param interfaze The business interface
+     * @return The proxy class, or null if the interface cannot be implemented by a generated class
+     */
+    ProxyClass getProxyClass(final Class<?> interfaze) {
+        synchronized (cache) {
+            if (cache.containsKey(interfaze)) {
+                return cache.get(interfaze);
+            }
+        }
+        ProxyClass proxyClass = null;
+        if (interfaze.isInterface() && Modifier.isPublic(interfaze.getModifiers())) {
+            try {
+                proxyClass = AccessController.doPrivileged(new PrivilegedAction<ProxyClass>() {
+                    public ProxyClass run() {
+                        return generateProxyClass(interfaze);
+                    }
+                });
+            } catch (Throwable e) {
+                logger.log(Level.WARNING, "Unable to generate the proxy class for " + interfaze.getName()
+                    + ", falling back to JDK proxies", e);
+            }
+        }
+        synchronized (cache) {
+            // Another thread may have generated it first, make sure there's only one class per interface
+            if (cache.containsKey(interfaze)) {
+                return cache.get(interfaze);
+            }
+            cache.put(interfaze, proxyClass);
+        }
+        return proxyClass;
+    }
+
+    private ProxyClass generateProxyClass(Class<?> interfaze) {
+        List<Method> methods = new ArrayList<Method>();
+        Set<String> signatures = new HashSet<String>();
+        // GeneratedProxy.getProxyInvocationHandler() is not dispatched to the handler
+        signatures.add("getProxyInvocationHandler()" + HANDLER_DESC);
+        try {
+            for (String name : new String[] {"toString", "hashCode", "equals"}) {
+                Method method =
+                    "equals".equals(name) ? Object.class.getMethod(name, Object.class) : Object.class.getMethod(name);
+                methods.add(method);
+                signatures.add(name + Type.getMethodDescriptor(method));
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Method method : interfaze.getMethods()) {
+            // The same method can be inherited from more than one super interface
+            if (signatures.add(method.getName() + Type.getMethodDescriptor(method))) {
+                methods.add(method);
+            }
+        }
+
+        String className = interfaze.getName() + PROXY_CLASS_SUFFIX;
+        byte[] byteCode = generateProxyClass(className, interfaze, methods);
+        ProxyClassLoader classLoader = new ProxyClassLoader(interfaze.getClassLoader());
+        Class<?> cls = classLoader.defineClass(className, byteCode);
+        try {
+            Constructor<?> constructor = cls.getConstructor(GeneratedProxyInvocationHandler.class);
+            Method[] methodArray = methods.toArray(new Method[methods.size()]);
+            return new ProxyClass(constructor, new GeneratedProxyInvocationHandler.MethodTable(methodArray));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generate a final class that implements the business interface and {@link GeneratedProxy}.
+     * The method at index i of the methods passes its arguments to 
+     * GeneratedProxyInvocationHandler.invoke(this, i, args).
+     */
+    private static byte[] generateProxyClass(String className, Class<?> interfaze, List<Method> methods) {
+        String internalName = className.replace('.', '/');
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_5,
+                 Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SUPER,
+                 internalName,
+                 null,
+                 "java/lang/Object",
+                 new String[] {Type.getInternalName(interfaze), Type.getInternalName(GeneratedProxy.class)});
+        cw.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_FINAL, "handler", HANDLER_DESC, null, null).visitEnd();
+
+        // public <init>(GeneratedProxyInvocationHandler handler)
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(" + HANDLER_DESC + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, internalName, "handler", HANDLER_DESC);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // public GeneratedProxyInvocationHandler getProxyInvocationHandler()
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "getProxyInvocationHandler", "()" + HANDLER_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "handler", HANDLER_DESC);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (int index = 0; index < methods.size(); index++) {
+            generateMethod(cw, internalName, methods.get(index), index);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateMethod(ClassWriter cw, String internalName, Method method, int index) {
+        Class<?>[] exceptionTypes = method.getExceptionTypes();
+        String[] exceptions = new String[exceptionTypes.length];
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+        }
+        MethodVisitor mv =
+            cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, exceptions);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "handler", HANDLER_DESC);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        pushInt(mv, index);
+
+        Type[] argumentTypes = Type.getArgumentTypes(method);
+        if (argumentTypes.length == 0) {
+            // Same as java.lang.reflect.Proxy, which passes null for methods without parameters
+            mv.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            pushInt(mv, argumentTypes.length);
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+            int slot = 1;
+            for (int i = 0; i < argumentTypes.length; i++) {
+                Type argumentType = argumentTypes[i];
+                mv.visitInsn(Opcodes.DUP);
+                pushInt(mv, i);
+                mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+                box(mv, argumentType);
+                mv.visitInsn(Opcodes.AASTORE);
+                slot += argumentType.getSize();
+            }
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER, "invoke", INVOKE_DESC);
+
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInsn(Opcodes.RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(Integer.valueOf(value));
+        }
+    }
+
+    private static String getWrapperName(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return "java/lang/Boolean";
+            case Type.CHAR:
+                return "java/lang/Character";
+            case Type.BYTE:
+                return "java/lang/Byte";
+            case Type.SHORT:
+                return "java/lang/Short";
+            case Type.INT:
+                return "java/lang/Integer";
+            case Type.FLOAT:
+                return "java/lang/Float";
+            case Type.LONG:
+                return "java/lang/Long";
+            case Type.DOUBLE:
+                return "java/lang/Double";
+            default:
+                return null;
+        }
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        String wrapper = getWrapperName(type);
+        if (wrapper != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L"
+                + wrapper
+                + ";");
+        }
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        String wrapper = getWrapperName(type);
+        if (wrapper != null) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()"
+                + type.getDescriptor());
+        } else if (type.getSort() == Type.ARRAY) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getDescriptor());
+        } else if (!"java/lang/Object".equals(type.getInternalName())) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        super.stop();
+    }
+
+    /**
+     * A generated proxy class and its method table
+     */
+    static class ProxyClass {
+        private final Constructor<?> constructor;
+        final GeneratedProxyInvocationHandler.MethodTable methodTable;
+
+        private ProxyClass(Constructor<?> constructor, GeneratedProxyInvocationHandler.MethodTable methodTable) {
+            this.constructor = constructor;
+            this.methodTable = methodTable;
+        }
+
+        Object newInstance(GeneratedProxyInvocationHandler handler) throws ProxyCreationException {
+            try {
+                return constructor.newInstance(handler);
+            } catch (Exception e) {
+                throw new ProxyCreationException(e);
+            }
+        }
+    }
+
+    /**
+     * The generated class is defined as a child of the classloader of the business interface. The
+     * Tuscany classes it refers to may not be visible from there (for example, in OSGi), so they are
+     * loaded from the classloader of this factory.
+     */
+    private static class ProxyClassLoader extends ClassLoader {
+        private ProxyClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            return GeneratedProxyFactory.class.getClassLoader().loadClass(name);
+        }
+
+        private Class<?> defineClass(String name, byte[] byteCode) {
+            return defineClass(name, byteCode, 0, byteCode.length);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import javax.xml.ws.Holder;
+import javax.xml.ws.Response;
+
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.invocation.InvocationChain;
+import org.apache.tuscany.sca.invocation.MessageFactory;
+import org.apache.tuscany.sca.runtime.Invocable;
+import org.apache.tuscany.sca.runtime.RuntimeEndpointReference;
+import org.oasisopen.sca.ServiceReference;
+
+/**
+ * The invocation handler for the proxies generated by {@link GeneratedProxyFactory}. The generated
+ * methods dispatch by the index of the method in the proxy class, so the invocation chain, the
+ * Holder parameters and the declared exceptions are looked up from arrays instead of being
+ * computed for each call.
+ * 
+ * @version $Rev$ $Date$
+ */
+public class GeneratedProxyInvocationHandler extends AsyncJDKInvocationHandler {
+    private static final long serialVersionUID = 2479406384209366715L;
+
+    private transient MethodTable methodTable;
+    private transient volatile ChainSlots slots;
+
+    public GeneratedProxyInvocationHandler(ExtensionPointRegistry registry,
+                                           MessageFactory messageFactory,
+                                           ServiceReference<?> callableReference,
+                                           MethodTable methodTable) {
+        super(registry, messageFactory, callableReference);
+        this.methodTable = methodTable;
+    }
+
+    public GeneratedProxyInvocationHandler(ExtensionPointRegistry registry,
+                                           MessageFactory messageFactory,
+                                           Class<?> businessInterface,
+                                           Invocable source,
+                                           MethodTable methodTable) {
+        super(registry, messageFactory, businessInterface, source);
+        this.methodTable = methodTable;
+    }
+
+    /**
+     * Invoke the method at the given index of the proxy class. This is called by the generated proxy
+     * @param proxy The generated proxy
+     * @param index The index of the method in the method table of the proxy class
+     * @param args The arguments, or null if the method has no parameters
+     * @return The result of the invocation
+     * @throws Throwable
+     */
+    public Object invoke(Object proxy, int index, Object[] args) throws Throwable {
+        Method method = methodTable.methods[index];
+        if (Object.class == method.getDeclaringClass()) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        if (methodTable.asyncMethods[index] || !(source instanceof RuntimeEndpointReference)) {
+            return invoke(proxy, method, args);
+        }
+
+        rebuildIfOutOfDate(source);
+        InvocationChain chain = getInvocationChain(index);
+        if (chain == null) {
+            throw new IllegalArgumentException("No matching operation is found: " + method);
+        }
+        if (isAsyncInvocation(source)) {
+            // Let the async handler wait for the response of the async service 
+            return doInvokeSync(proxy, method, args);
+        }
+
+        try {
+            int[] holders = methodTable.holderIndexes[index];
+            if (holders.length == 0) {
+                return invoke(chain, args, source);
+            }
+            // Holder pattern. Items stored in a Holder<T> are promoted to T.
+            // After the invoke, the returned data <T> are placed back in Holder<T>.
+            Object[] resultArray = (Object[])invoke(chain, promoteHolderArgs(args), source);
+            for (int i = 0; i < holders.length; i++) {
+                ((Holder)args[holders[i]]).value = resultArray[i + 1];
+            }
+            return resultArray[0];
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Match the behavior of java.lang.reflect.Proxy for checked exceptions not declared by the method
+            for (Class<?> exceptionType : methodTable.exceptionTypes[index]) {
+                if (exceptionType.isInstance(e)) {
+                    throw e;
+                }
+            }
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private InvocationChain getInvocationChain(int index) {
+        ChainSlots current = slots;
+        Map<Method, InvocationChain> table = chains;
+        if (table == null) {
+            table = publishDispatchTable(null, createDispatchTable(source));
+        }
+        if (current == null || current.table != table) {
+            // The slots are checked against the dispatch table on each call, so slots derived
+            // from a table that a rebuild has since replaced are not used beyond this call
+            current = new ChainSlots(table, methodTable.methods);
+            slots = current;
+        }
+        InvocationChain chain = current.chains[index];
+        if (chain == null) {
+            // Not precomputed, for example a dynamic operation
+            chain = getInvocationChain(methodTable.methods[index], source);
+        }
+        return chain;
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("equals".equals(method.getName())) {
+            Object obj = args[0];
+            if (!(obj instanceof GeneratedProxy)) {
+                return false;
+            }
+            return equals(((GeneratedProxy)obj).getProxyInvocationHandler());
+        }
+        return invokeObjectMethod(method, args);
+    }
+
+    /**
+     * The methods of a generated proxy class together with what is known about them ahead of any
+     * invocation. It is computed once for each business interface and shared by all the proxies of it.
+     */
+    public static class MethodTable {
+        final Method[] methods;
+        final boolean[] asyncMethods;
+        final int[][] holderIndexes;
+        final Class<?>[][] exceptionTypes;
+
+        public MethodTable(Method[] methods) {
+            this.methods = methods;
+            this.asyncMethods = new boolean[methods.length];
+            this.holderIndexes = new int[methods.length][];
+            this.exceptionTypes = new Class<?>[methods.length][];
+            for (int i = 0; i < methods.length; i++) {
+                Method method = methods[i];
+                Class<?> returnType = method.getReturnType();
+                asyncMethods[i] =
+                    method.getName().endsWith("Async") && (returnType == Future.class || returnType == Response.class);
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                int count = 0;
+                for (Class<?> parameterType : parameterTypes) {
+                    if (isHolder(parameterType)) {
+                        count++;
+                    }
+                }
+                int[] holders = new int[count];
+                for (int j = 0, k = 0; j < parameterTypes.length; j++) {
+                    if (isHolder(parameterTypes[j])) {
+                        holders[k++] = j;
+                    }
+                }
+                holderIndexes[i] = holders;
+                exceptionTypes[i] = method.getExceptionTypes();
+            }
+        }
+
+        public Method[] getMethods() {
+            return methods;
+        }
+    }
+
+    /**
+     * The invocation chains indexed in the same order as the methods of the proxy class, derived
+     * from a snapshot of the dispatch table
+     */
+    private static class ChainSlots {
+        private final Map<Method, InvocationChain> table;
+        private final InvocationChain[] chains;
+
+        private ChainSlots(Map<Method, InvocationChain> table, Method[] methods) {
+            this.table = table;
+            this.chains = new InvocationChain[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                chains[i] = table.get(methods[i]);
+            }
+        }
+    }
+
+}
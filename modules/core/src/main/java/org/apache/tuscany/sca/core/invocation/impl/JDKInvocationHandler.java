@@ -23,9 +23,11 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import javax.xml.ws.Holder;
 
@@ -59,7 +61,16 @@ public class JDKInvocationHandler implements InvocationHandler, Serializable {
 
     protected boolean fixedWire = true;
 
-    protected transient Map<Method, InvocationChain> chains = new IdentityHashMap<Method, InvocationChain>();
+    /**
+     * The dispatch table from business methods to invocation chains. It is an immutable
+     * snapshot which is replaced as a whole (never mutated in place) so that the invocation
+     * path can read it without locking.
+     */
+    protected transient volatile Map<Method, InvocationChain> chains;
+
+    @SuppressWarnings("unchecked")
+    private static final AtomicReferenceFieldUpdater<JDKInvocationHandler, Map> CHAINS =
+        AtomicReferenceFieldUpdater.newUpdater(JDKInvocationHandler.class, Map.class, "chains");
 
     public JDKInvocationHandler(MessageFactory messageFactory, Class<?> businessInterface, Invocable source) {
         this.messageFactory = messageFactory;
@@ -93,13 +104,7 @@ public class JDKInvocationHandler implements InvocationHandler, Serializable {
             throw new ServiceRuntimeException("No runtime source is available");
         }
         
-        if (source instanceof RuntimeEndpointReference) {
-            RuntimeEndpointReference epr = (RuntimeEndpointReference)source;
-            if (epr.isOutOfDate()) {
-                epr.rebuild();
-                chains.clear();
-            }
-        }
+        rebuildIfOutOfDate(source);
         
         InvocationChain chain = getInvocationChain(method, source);
         
@@ -213,36 +218,124 @@ public class JDKInvocationHandler implements InvocationHandler, Serializable {
 
     }
 
-    protected synchronized InvocationChain getInvocationChain(Method method, Invocable source) {
+    protected InvocationChain getInvocationChain(Method method, Invocable source) {
         if (source instanceof RuntimeEndpoint) {
-            InvocationChain invocationChain = source.getBindingInvocationChain();
-            for (InvocationChain chain : source.getInvocationChains()) {
-                Operation operation = chain.getTargetOperation();
-                if (method.getName().equals(operation.getName())) {
-                    invocationChain.setTargetOperation(operation);
+            synchronized (this) {
+                InvocationChain invocationChain = source.getBindingInvocationChain();
+                for (InvocationChain chain : source.getInvocationChains()) {
+                    Operation operation = chain.getTargetOperation();
+                    if (method.getName().equals(operation.getName())) {
+                        invocationChain.setTargetOperation(operation);
+                    }
                 }
+                return source.getBindingInvocationChain();
             }
-            return source.getBindingInvocationChain();
         }
-        if (fixedWire && chains.containsKey(method)) {
-            return chains.get(method);
+        if (!fixedWire) {
+            return findInvocationChain(method, source);
+        }
+        Map<Method, InvocationChain> table = chains;
+        if (table == null) {
+            table = publishDispatchTable(null, createDispatchTable(source));
+        }
+        InvocationChain found = table.get(method);
+        if (found != null) {
+            return found;
+        }
+        // Not in the precomputed table (for example, a dynamic operation), resolve it and
+        // publish a new snapshot which includes it
+        found = findInvocationChain(method, source);
+        if (found != null) {
+            Map<Method, InvocationChain> newTable = new IdentityHashMap<Method, InvocationChain>(table);
+            newTable.put(method, found);
+            publishDispatchTable(table, Collections.unmodifiableMap(newTable));
         }
-        InvocationChain found = null;
+        return found;
+    }
+
+    /**
+     * Publish a dispatch table derived from the given one. A table read before the wire was
+     * rebuilt is out of date, so it is only replaced if it is still the current one.
+     * @param expected The table the new one was derived from, null if there was none
+     * @param table The new table
+     * @return The current table after the update
+     */
+    protected Map<Method, InvocationChain> publishDispatchTable(Map<Method, InvocationChain> expected,
+                                                                Map<Method, InvocationChain> table) {
+        if (CHAINS.compareAndSet(this, expected, table)) {
+            return table;
+        }
+        Map<Method, InvocationChain> current = chains;
+        return current != null ? current : table;
+    }
+
+    /**
+     * Find the invocation chain for the given method by scanning the chains of the source
+     * @param method
+     * @param source
+     * @return The matching invocation chain or null if there is no match
+     */
+    private static InvocationChain findInvocationChain(Method method, Invocable source) {
         for (InvocationChain chain : source.getInvocationChains()) {
             Operation operation = chain.getSourceOperation();
             if (operation.isDynamic()) {
                 operation.setName(method.getName());
-                found = chain;
-                break;
+                return chain;
             } else if (match(operation, method)) {
-                found = chain;
-                break;
+                return chain;
             }
         }
-        if (fixedWire) {
-            chains.put(method, found);
+        return null;
+    }
+
+    /**
+     * Build the dispatch table for all the methods of the business interface in one pass
+     * over the invocation chains of the source. Dynamic operations are not precomputed as
+     * they are bound to the method name at invocation time.
+     * @param source
+     * @return An immutable map from method to invocation chain
+     */
+    protected Map<Method, InvocationChain> createDispatchTable(Invocable source) {
+        Map<Method, InvocationChain> table = new IdentityHashMap<Method, InvocationChain>();
+        if (businessInterface != null) {
+            List<InvocationChain> invocationChains = source.getInvocationChains();
+            for (Method method : businessInterface.getMethods()) {
+                if (Object.class == method.getDeclaringClass()) {
+                    continue;
+                }
+                for (InvocationChain chain : invocationChains) {
+                    Operation operation = chain.getSourceOperation();
+                    if (operation.isDynamic()) {
+                        continue;
+                    }
+                    if (match(operation, method)) {
+                        table.put(method, chain);
+                        break;
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Rebuild the source if it is an out of date endpoint reference. The dispatch table
+     * for the rebuilt wire is swapped in as a single write so that concurrent invocations
+     * see either the old or the new table, never a partially populated one.
+     * @param source
+     */
+    protected void rebuildIfOutOfDate(Invocable source) {
+        if (source instanceof RuntimeEndpointReference) {
+            RuntimeEndpointReference epr = (RuntimeEndpointReference)source;
+            if (epr.isOutOfDate()) {
+                synchronized (epr) {
+                    if (epr.isOutOfDate()) {
+                        epr.rebuild();
+                        chains = fixedWire ? createDispatchTable(epr) : null;
+                    }
+                }
+            }
         }
-        return found;
     }
 
     protected void setEndpoint(Endpoint endpoint) {
@@ -265,26 +358,9 @@ public class JDKInvocationHandler implements InvocationHandler, Serializable {
      */
     protected Object invoke(InvocationChain chain, Object[] args, Invocable source, String msgID)
                          throws Throwable {
-        Message msg = messageFactory.createMessage();
-        if (source instanceof RuntimeEndpointReference) {
-            msg.setFrom((RuntimeEndpointReference)source);
-        }
-        if (target != null) {
-            msg.setTo(target);
-        } else {
-            if (source instanceof RuntimeEndpointReference) {
-                msg.setTo(((RuntimeEndpointReference)source).getTargetEndpoint());
-            }
-        }
-        Invoker headInvoker = chain.getHeadInvoker();
-        Operation operation = chain.getTargetOperation();
-        msg.setOperation(operation);
-        msg.setBody(args);
-
         Message msgContext = ThreadMessageContext.getMessageContext();
-        
-        // Deal with header information that needs to be copied from the message context to the new message...
-        transferMessageHeaders( msg, msgContext);
+        Message msg = createMessage(chain, args, source, msgContext);
+        Invoker headInvoker = chain.getHeadInvoker();
         
         ThreadMessageContext.setMessageContext(msg);
         
@@ -303,6 +379,57 @@ public class JDKInvocationHandler implements InvocationHandler, Serializable {
             return body;
         } finally {
             ThreadMessageContext.setMessageContext(msgContext);
+            if (msgID == null && !isNonBlocking(chain)) {
+                recycleMessage(msg);
+            }
+        }
+    }
+
+    /**
+     * Create the request message for an invocation through the chain
+     * @param chain - the invocation chain
+     * @param args - the arguments of the invocation
+     * @param source - the invocable the invocation comes from
+     * @param msgContext - the message context of the current thread, can be null
+     * @return - the request message
+     */
+    protected Message createMessage(InvocationChain chain, Object[] args, Invocable source, Message msgContext) {
+        Message msg = messageFactory.createMessage();
+        if (source instanceof RuntimeEndpointReference) {
+            msg.setFrom((RuntimeEndpointReference)source);
+        }
+        if (target != null) {
+            msg.setTo(target);
+        } else {
+            if (source instanceof RuntimeEndpointReference) {
+                msg.setTo(((RuntimeEndpointReference)source).getTargetEndpoint());
+            }
+        }
+        Operation operation = chain.getTargetOperation();
+        msg.setOperation(operation);
+        msg.setBody(args);
+
+        // Deal with header information that needs to be copied from the message context to the new message...
+        transferMessageHeaders( msg, msgContext);
+        return msg;
+    }
+
+    private static boolean isNonBlocking(InvocationChain chain) {
+        Operation operation = chain.getTargetOperation();
+        if (operation.isNonBlocking() || operation.isAsyncServer()) {
+            return true;
+        }
+        operation = chain.getSourceOperation();
+        return operation != null && operation.isNonBlocking();
+    }
+
+    /**
+     * Hand the request message back to the message factory once the synchronous invocation is complete
+     * @param msg
+     */
+    private void recycleMessage(Message msg) {
+        if (messageFactory instanceof MessageFactoryImpl) {
+            ((MessageFactoryImpl)messageFactory).recycleMessage(msg);
         }
     }
     
@@ -313,6 +440,11 @@ public class JDKInvocationHandler implements InvocationHandler, Serializable {
      */
     private void transferMessageHeaders( Message newMsg, Message oldMsg ) {
     	if( oldMsg == null ) return;
+    	if( newMsg instanceof MessageImpl && oldMsg instanceof MessageImpl ) {
+    		// Share the headers until either message changes them
+    		((MessageImpl)newMsg).inheritHeaders( (MessageImpl)oldMsg );
+    		return;
+    	}
     	// For the present, simply copy all the headers 
     	if( !oldMsg.getHeaders().isEmpty() ) newMsg.getHeaders().putAll( oldMsg.getHeaders() );
     } // end transferMessageHeaders
@@ -53,7 +53,7 @@ import org.oasisopen.sca.ServiceRuntimeException;
 public class JDKProxyFactory implements ProxyFactory, LifeCycleListener {
     protected ExtensionPointRegistry registry;
     protected InterfaceContractMapper contractMapper;
-    private MessageFactory messageFactory;
+    protected MessageFactory messageFactory;
 
     public JDKProxyFactory(ExtensionPointRegistry registry,
                            MessageFactory messageFactory,
@@ -19,6 +19,9 @@
 
 package org.apache.tuscany.sca.core.invocation.impl;
 
+import java.util.Map;
+
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.invocation.Message;
 import org.apache.tuscany.sca.invocation.MessageFactory;
 
@@ -28,9 +31,55 @@ import org.apache.tuscany.sca.invocation.MessageFactory;
  * @version $Rev$ $Date$
  */
 public class MessageFactoryImpl implements MessageFactory {
+    private final boolean recycleMessages;
+
+    // One spare message per thread is enough as the invocations on a thread are nested 
+    private final ThreadLocal<MessageImpl> recycled = new ThreadLocal<MessageImpl>();
+
+    public MessageFactoryImpl() {
+        this.recycleMessages = false;
+    }
+
+    /**
+     * @param registry
+     * @param attributes The "recycleMessages" attribute enables the reuse of request messages for
+     * runtimes whose invocation chains don't keep a reference to the message after the invocation
+     */
+    public MessageFactoryImpl(ExtensionPointRegistry registry, Map<String, String> attributes) {
+        String value = attributes != null ? attributes.get("recycleMessages") : null;
+        this.recycleMessages = value != null && Boolean.parseBoolean(value.trim());
+    }
 
     public Message createMessage() {
+        if (recycleMessages) {
+            MessageImpl msg = recycled.get();
+            if (msg != null) {
+                recycled.set(null);
+                return msg;
+            }
+        }
         return new MessageImpl();
     }
 
+    /**
+     * Check if the messages are recycled
+     * @return true if recycleMessage() keeps the messages for reuse
+     */
+    public boolean isRecycleMessages() {
+        return recycleMessages;
+    }
+
+    /**
+     * Return a message which will not be referenced any more so that it can be handed out by 
+     * createMessage() again on the same thread. This does nothing unless recycling is enabled.
+     * @param msg The message
+     */
+    public void recycleMessage(Message msg) {
+        if (recycleMessages && msg instanceof MessageImpl) {
+            MessageImpl message = (MessageImpl)msg;
+            message.reset();
+            recycled.set(message);
+        }
+    }
+
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The headers of a {@link MessageImpl}. No map is allocated until the first header is set, and
+ * the headers inherited from another message are shared with it until either side changes them
+ * (copy-on-write).
+ *
+ * @version $Rev$ $Date$
+ */
+class MessageHeaders extends AbstractMap<String, Object> {
+    private Map<String, Object> map;
+    private boolean shared;
+
+    MessageHeaders() {
+        super();
+    }
+
+    private MessageHeaders(Map<String, Object> map) {
+        this.map = map;
+        this.shared = true;
+    }
+
+    /**
+     * Create headers which share the current content of these headers
+     * @return The new headers
+     */
+    MessageHeaders share() {
+        shared = true;
+        return new MessageHeaders(map);
+    }
+
+    private Map<String, Object> getWritableMap() {
+        if (map == null) {
+            map = new HashMap<String, Object>();
+        } else if (shared) {
+            map = new HashMap<String, Object>(map);
+        }
+        shared = false;
+        return map;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return map == null ? null : map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map != null && map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map == null ? 0 : map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map == null || map.isEmpty();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return getWritableMap().put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        if (!m.isEmpty()) {
+            getWritableMap().putAll(m);
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (isEmpty()) {
+            return null;
+        }
+        return getWritableMap().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        map = null;
+        shared = false;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * A view of the entries which reads the current map, shared or not, and only takes a
+     * private copy when an entry is removed or changed through it.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public int size() {
+            return MessageHeaders.this.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            if (map == null) {
+                return Collections.<String, Object> emptyMap().entrySet().iterator();
+            }
+            final Map<String, Object> iterated = map;
+            final Iterator<Map.Entry<String, Object>> i = iterated.entrySet().iterator();
+            return new Iterator<Map.Entry<String, Object>>() {
+                private Map.Entry<String, Object> last;
+
+                public boolean hasNext() {
+                    return i.hasNext();
+                }
+
+                public Map.Entry<String, Object> next() {
+                    last = i.next();
+                    return new HeaderEntry(last.getKey(), last.getValue());
+                }
+
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    if (map == iterated && !shared) {
+                        i.remove();
+                    } else {
+                        // The map being iterated is shared or has already been replaced by a copy
+                        getWritableMap().remove(last.getKey());
+                    }
+                    last = null;
+                }
+            };
+        }
+    }
+
+    private class HeaderEntry extends AbstractMap.SimpleEntry<String, Object> {
+        private static final long serialVersionUID = 1L;
+
+        HeaderEntry(String key, Object value) {
+            super(key, value);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+
+}
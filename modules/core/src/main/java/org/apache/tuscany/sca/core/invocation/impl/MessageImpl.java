@@ -18,7 +18,6 @@
  */
 package org.apache.tuscany.sca.core.invocation.impl;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.tuscany.sca.assembly.Endpoint;
@@ -32,7 +31,7 @@ import org.apache.tuscany.sca.invocation.Message;
  * @version $Rev $Date$
  */
 public class MessageImpl implements Message { 
-    private Map<String, Object> headers = new HashMap<String, Object>();
+    private MessageHeaders headers;
     private Object body;
     private Object messageID;
     private boolean isFault;
@@ -100,9 +99,42 @@ public class MessageImpl implements Message {
     }
     
     public Map<String, Object> getHeaders() {
+        if (headers == null) {
+            headers = new MessageHeaders();
+        }
         return headers;
     }    
 
+    /**
+     * Inherit the headers of the given message. The headers are shared until one of the messages
+     * changes them, instead of being copied for each message.
+     * @param parent The message to inherit the headers from
+     */
+    void inheritHeaders(MessageImpl parent) {
+        if (parent.headers == null || parent.headers.isEmpty()) {
+            return;
+        }
+        if (headers == null || headers.isEmpty()) {
+            headers = parent.headers.share();
+        } else {
+            headers.putAll(parent.headers);
+        }
+    }
+
+    /**
+     * Reset the message so that it can be reused for another invocation
+     */
+    void reset() {
+        headers = null;
+        body = null;
+        messageID = null;
+        isFault = false;
+        operation = null;
+        from = null;
+        to = null;
+        bindingContext = null;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T getBindingContext() {
         return (T)bindingContext;
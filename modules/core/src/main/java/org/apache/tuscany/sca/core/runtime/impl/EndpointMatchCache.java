@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.runtime.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import org.apache.tuscany.sca.assembly.Binding;
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.assembly.EndpointReference;
+import org.apache.tuscany.sca.interfacedef.InterfaceContract;
+import org.apache.tuscany.sca.policy.Intent;
+import org.apache.tuscany.sca.policy.PolicySet;
+import org.apache.tuscany.sca.runtime.EndpointListener;
+import org.apache.tuscany.sca.runtime.EndpointRegistry;
+
+/**
+ * Caches the outcome of matching endpoint references to endpoints. The entries are
+ * grouped by endpoint registry and by endpoint instance, and keyed by the reference
+ * interface contract, or by the required intents, policy sets and binding type. The
+ * registries, endpoints and contracts are only weakly referenced. The entries for an
+ * endpoint URI are dropped when the registry reports that an endpoint with the URI is
+ * added, removed or updated, so only endpoints found in a registry can be cached.
+ *
+ * @version $Rev$ $Date$
+ */
+public class EndpointMatchCache {
+    // Limit on the entries kept for a single endpoint, reached when references come and go
+    private static final int MAX_ENTRIES_PER_ENDPOINT = 256;
+
+    private final Map<EndpointRegistry, RegistryMatches> registries =
+        Collections.synchronizedMap(new WeakHashMap<EndpointRegistry, RegistryMatches>());
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Starts listening to the changes of an endpoint registry if not already done
+     * @param endpointRegistry
+     */
+    public void register(EndpointRegistry endpointRegistry) {
+        if (endpointRegistry == null || registries.containsKey(endpointRegistry)) {
+            return;
+        }
+        synchronized (registries) {
+            if (!registries.containsKey(endpointRegistry)) {
+                // The listener must not reference the registry, it is the value of a weak map keyed by it
+                RegistryMatches registryMatches = new RegistryMatches();
+                registries.put(endpointRegistry, registryMatches);
+                endpointRegistry.addListener(registryMatches);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached result of the interface contract check or null if there is none
+     */
+    public Boolean getInterfaceMatch(EndpointRegistry endpointRegistry,
+                                     EndpointReference endpointReference,
+                                     Endpoint endpoint) {
+        return get(endpointRegistry, MatchKey.forInterface(endpointReference), endpoint);
+    }
+
+    /**
+     * Records the result of the interface contract check. A match against an interface
+     * contract that is not resolved yet, i.e. without operations, is not recorded as the
+     * contract is checked again once it has been resolved.
+     */
+    public void putInterfaceMatch(EndpointRegistry endpointRegistry,
+                                  EndpointReference endpointReference,
+                                  Endpoint endpoint,
+                                  boolean match) {
+        if (match && (!isResolved(endpointReference.getReference().getInterfaceContract()) ||
+            !isResolved(endpoint.getComponentServiceInterfaceContract()))) {
+            return;
+        }
+        put(endpointRegistry, MatchKey.forInterface(endpointReference), endpoint, match);
+    }
+
+    /**
+     * Returns the cached result of the policy check or null if there is none
+     */
+    public Boolean getPolicyMatch(EndpointRegistry endpointRegistry,
+                                  EndpointReference endpointReference,
+                                  Endpoint endpoint) {
+        return get(endpointRegistry, MatchKey.forPolicy(endpointReference), endpoint);
+    }
+
+    /**
+     * Records the result of the policy check
+     */
+    public void putPolicyMatch(EndpointRegistry endpointRegistry,
+                               EndpointReference endpointReference,
+                               Endpoint endpoint,
+                               boolean match) {
+        put(endpointRegistry, MatchKey.forPolicy(endpointReference), endpoint, match);
+    }
+
+    private static boolean isResolved(InterfaceContract contract) {
+        return contract != null && contract.getInterface() != null
+            && !contract.getInterface().getOperations().isEmpty();
+    }
+
+    private Boolean get(EndpointRegistry endpointRegistry, MatchKey key, Endpoint endpoint) {
+        RegistryMatches registryMatches = endpointRegistry == null ? null : registries.get(endpointRegistry);
+        if (registryMatches == null) {
+            return null;
+        }
+        Map<MatchKey, Boolean> results = registryMatches.matches.get(endpoint);
+        Boolean match = results == null ? null : results.get(key);
+        if (match == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return match;
+    }
+
+    private void put(EndpointRegistry endpointRegistry, MatchKey key, Endpoint endpoint, boolean match) {
+        RegistryMatches registryMatches = endpointRegistry == null ? null : registries.get(endpointRegistry);
+        if (registryMatches == null || endpoint.getURI() == null) {
+            return;
+        }
+        Map<MatchKey, Boolean> results;
+        synchronized (registryMatches.matches) {
+            results = registryMatches.matches.get(endpoint);
+            if (results == null) {
+                results = new ConcurrentHashMap<MatchKey, Boolean>();
+                registryMatches.matches.put(endpoint, results);
+            }
+        }
+        if (results.size() >= MAX_ENTRIES_PER_ENDPOINT) {
+            // Drop the entries of the contracts which have been garbage collected first
+            for (Iterator<MatchKey> i = results.keySet().iterator(); i.hasNext();) {
+                if (i.next().isCleared()) {
+                    i.remove();
+                }
+            }
+            if (results.size() >= MAX_ENTRIES_PER_ENDPOINT) {
+                results.clear();
+            }
+        }
+        results.put(key, match);
+    }
+
+    public void clear() {
+        synchronized (registries) {
+            for (RegistryMatches registryMatches : registries.values()) {
+                registryMatches.matches.clear();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the ratio of lookups answered from the cache
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double)h / total;
+    }
+
+    /**
+     * The match results of the endpoints of one registry. It listens to the registry and
+     * drops the results of all the endpoints with the URI of an endpoint which is added,
+     * removed or updated.
+     */
+    private static class RegistryMatches implements EndpointListener {
+        // Endpoints don't override equals() so they are held by identity
+        private final Map<Endpoint, Map<MatchKey, Boolean>> matches =
+            Collections.synchronizedMap(new WeakHashMap<Endpoint, Map<MatchKey, Boolean>>());
+
+        public void endpointAdded(Endpoint endpoint) {
+            invalidate(endpoint);
+        }
+
+        public void endpointRemoved(Endpoint endpoint) {
+            invalidate(endpoint);
+        }
+
+        public void endpointUpdated(Endpoint oldEndpoint, Endpoint newEndpoint) {
+            invalidate(oldEndpoint);
+            invalidate(newEndpoint);
+        }
+
+        private void invalidate(Endpoint endpoint) {
+            if (endpoint == null) {
+                return;
+            }
+            String uri = endpoint.getURI();
+            synchronized (matches) {
+                matches.remove(endpoint);
+                if (uri != null) {
+                    for (Iterator<Endpoint> i = matches.keySet().iterator(); i.hasNext();) {
+                        if (uri.equals(i.next().getURI())) {
+                            i.remove();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The reference side of a match: the interface contract by identity for the
+     * interface check, the required intents, policy sets and binding type for the
+     * policy check. The contract is weakly referenced so that the cache doesn't keep
+     * the contracts of references which are gone.
+     */
+    private static class MatchKey {
+        private final WeakReference<InterfaceContract> contract;
+        private final List<Intent> intents;
+        private final List<PolicySet> policySets;
+        private final QName bindingType;
+        private final int hashCode;
+
+        private MatchKey(InterfaceContract contract, List<Intent> intents, List<PolicySet> policySets, QName bindingType) {
+            this.contract = contract == null ? null : new WeakReference<InterfaceContract>(contract);
+            this.intents = intents;
+            this.policySets = policySets;
+            this.bindingType = bindingType;
+            int h = System.identityHashCode(contract);
+            h = h * 31 + intents.hashCode();
+            h = h * 31 + policySets.hashCode();
+            h = h * 31 + (bindingType == null ? 0 : bindingType.hashCode());
+            this.hashCode = h;
+        }
+
+        private static MatchKey forInterface(EndpointReference endpointReference) {
+            return new MatchKey(endpointReference.getReference().getInterfaceContract(), Collections.<Intent> emptyList(),
+                                Collections.<PolicySet> emptyList(), null);
+        }
+
+        private static MatchKey forPolicy(EndpointReference endpointReference) {
+            Binding binding = endpointReference.getBinding();
+            return new MatchKey(null, new ArrayList<Intent>(endpointReference.getRequiredIntents()),
+                                new ArrayList<PolicySet>(endpointReference.getPolicySets()),
+                                binding == null ? null : binding.getType());
+        }
+
+        private InterfaceContract getContract() {
+            return contract == null ? null : contract.get();
+        }
+
+        /**
+         * Returns true if the contract of the key has been garbage collected
+         */
+        private boolean isCleared() {
+            return contract != null && contract.get() == null;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MatchKey)) {
+                return false;
+            }
+            MatchKey other = (MatchKey)obj;
+            if (isCleared() || other.isCleared()) {
+                return false;
+            }
+            return getContract() == other.getContract() && intents.equals(other.intents)
+                && policySets.equals(other.policySets)
+                && (bindingType == null ? other.bindingType == null : bindingType.equals(other.bindingType));
+        }
+    }
+}
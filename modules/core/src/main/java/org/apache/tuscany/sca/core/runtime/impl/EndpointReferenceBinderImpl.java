@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
@@ -81,7 +82,10 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
     protected BuilderExtensionPoint builders;
     protected CompositeActivator compositeActivator;
     protected Monitor monitor;
+    protected EndpointMatchCache matchCache = new EndpointMatchCache();
 
+    private final AtomicLong resolutionCount = new AtomicLong();
+    private final AtomicLong resolutionTime = new AtomicLong();
 
     public EndpointReferenceBinderImpl(ExtensionPointRegistry extensionPoints) {
         this.extensionPoints = extensionPoints;
@@ -133,6 +137,19 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
     public void bind(EndpointRegistry endpointRegistry,  
                      EndpointReference endpointReference,
                      boolean runtime){
+        long start = System.nanoTime();
+        matchCache.register(endpointRegistry);
+        try {
+            doBind(endpointRegistry, endpointReference, runtime);
+        } finally {
+            resolutionCount.incrementAndGet();
+            resolutionTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void doBind(EndpointRegistry endpointRegistry,
+                        EndpointReference endpointReference,
+                        boolean runtime){
         
         logger.fine("Binding " + endpointReference.toString());
         
@@ -159,8 +176,7 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
                         continue;
                     }
                     
-                    if (haveMatchingPolicy(endpointReference, endpoint, matchAudit) &&
-                        haveMatchingInterfaceContracts(endpointReference, endpoint, matchAudit)){
+                    if (haveMatchingEndpoint(endpointRegistry, endpointReference, endpoint, matchAudit)){
                         // matching service so find if this reference already has 
                         // an endpoint reference for this endpoint
                         Endpoint autowireEndpoint = null;
@@ -224,7 +240,8 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
             // target URL and/or the policies have yet to be matched.
             // TODO - is this really required now
             
-            selectForwardEndpoint(endpointReference,
+            selectForwardEndpoint(null,
+                                  endpointReference,
                                   endpointReference.getTargetEndpoint().getService().getEndpoints(),
                                   matchAudit);
 
@@ -262,7 +279,8 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
                 }
             }            
 
-            selectForwardEndpoint(endpointReference,
+            selectForwardEndpoint(endpointRegistry,
+                                  endpointReference,
                                   endpoints,
                                   matchAudit);
 
@@ -323,7 +341,7 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
      * @param endpointReference
      * @param endpoints
      */
-    private void selectForwardEndpoint(EndpointReference endpointReference, List<Endpoint> endpoints, Audit matchAudit) {    
+    private void selectForwardEndpoint(EndpointRegistry endpointRegistry, EndpointReference endpointReference, List<Endpoint> endpoints, Audit matchAudit) {    
              
         Endpoint matchedEndpoint = null;
         
@@ -337,8 +355,7 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
         } else {
             // find the first endpoint that matches this endpoint reference
             for (Endpoint endpoint : endpoints){
-                if (haveMatchingPolicy(endpointReference, endpoint, matchAudit) &&
-                    haveMatchingInterfaceContracts(endpointReference, endpoint, matchAudit)){
+                if (haveMatchingEndpoint(endpointRegistry, endpointReference, endpoint, matchAudit)){
                     matchedEndpoint = endpoint;
                     break;
                 }
@@ -382,8 +399,7 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
         match:
         for ( EndpointReference callbackEndpointReference : endpointReference.getTargetEndpoint().getCallbackEndpointReferences()){
             for (Endpoint endpoint : callbackService.getEndpoints()){
-                if (haveMatchingPolicy(callbackEndpointReference, endpoint, matchAudit) &&
-                    haveMatchingInterfaceContracts(callbackEndpointReference, endpoint, matchAudit)){
+                if (haveMatchingEndpoint(null, callbackEndpointReference, endpoint, matchAudit)){
                     callbackEndpoint = (RuntimeEndpoint)endpoint;
                     break match;
                 }
@@ -459,6 +475,46 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
         }
     }    
 
+    /**
+     * Determine if the endpoint reference can be bound to the endpoint, using the
+     * match cache where the result doesn't depend on side effects of the checks. The
+     * cache is only used for endpoints found in the endpoint registry, pass a null
+     * registry for the others.
+     */
+    private boolean haveMatchingEndpoint(EndpointRegistry endpointRegistry, EndpointReference endpointReference, Endpoint endpoint, Audit matchAudit){
+        // The policy match removes constrained intents from the reference and runs the
+        // policy language builders against it so only cache it when there is nothing to
+        // update on the reference side
+        boolean cachePolicy = endpointReference.getRequiredIntents().isEmpty() &&
+                              endpointReference.getPolicySets().isEmpty();
+        
+        Boolean policyMatch = cachePolicy ? matchCache.getPolicyMatch(endpointRegistry, endpointReference, endpoint) : null;
+        if (policyMatch == null){
+            policyMatch = haveMatchingPolicy(endpointReference, endpoint, matchAudit);
+            if (cachePolicy){
+                matchCache.putPolicyMatch(endpointRegistry, endpointReference, endpoint, policyMatch);
+            }
+        } else {
+            matchAudit.append("Cached policy match of " + endpointReference.toString() + " to " + endpoint.toString() + " is " + policyMatch + " ");
+            matchAudit.appendSeperator();
+        }
+        
+        if (!policyMatch){
+            return false;
+        }
+        
+        Boolean interfaceMatch = matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint);
+        if (interfaceMatch == null){
+            interfaceMatch = haveMatchingInterfaceContracts(endpointReference, endpoint, matchAudit);
+            matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, interfaceMatch);
+        } else {
+            matchAudit.append("Cached interface match of " + endpointReference.toString() + " to " + endpoint.toString() + " is " + interfaceMatch + " ");
+            matchAudit.appendSeperator();
+        }
+        
+        return interfaceMatch;
+    }
+
     /**
      * Determine if endpoint reference and endpoint policies match. We know by this stage
      * that 
@@ -874,4 +930,39 @@ public class EndpointReferenceBinderImpl implements EndpointReferenceBinder {
     }
     
      
+    /**
+     * Returns the number of match results served from the cache
+     */
+    public long getCacheHits() {
+        return matchCache.getHits();
+    }
+
+    /**
+     * Returns the number of match results that had to be computed
+     */
+    public long getCacheMisses() {
+        return matchCache.getMisses();
+    }
+
+    /**
+     * Returns the fraction of match results served from the cache
+     */
+    public double getCacheHitRate() {
+        return matchCache.getHitRate();
+    }
+
+    /**
+     * Returns the number of endpoint references bound so far
+     */
+    public long getResolutionCount() {
+        return resolutionCount.get();
+    }
+
+    /**
+     * Returns the average time taken to bind an endpoint reference in nanoseconds
+     */
+    public long getAverageResolutionTime() {
+        long count = resolutionCount.get();
+        return count == 0 ? 0 : resolutionTime.get() / count;
+    }
 }
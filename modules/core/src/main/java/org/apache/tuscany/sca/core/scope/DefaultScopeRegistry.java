@@ -19,6 +19,9 @@
 
 package org.apache.tuscany.sca.core.scope;
 
+import java.util.Map;
+
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.scope.impl.CompositeScopeContainerFactory;
 import org.apache.tuscany.sca.core.scope.impl.ScopeRegistryImpl;
 import org.apache.tuscany.sca.core.scope.impl.StatelessScopeContainerFactory;
@@ -31,10 +34,33 @@ import org.apache.tuscany.sca.core.scope.impl.StatelessScopeContainerFactory;
 public class DefaultScopeRegistry extends ScopeRegistryImpl implements ScopeRegistry {
 
     public DefaultScopeRegistry() {
+        this(new StatelessScopeContainerFactory());
+    }
+
+    /**
+     * @param registry
+     * @param attributes The instancePoolMinSize, instancePoolMaxSize and instancePoolIdleTimeout attributes
+     * configure the pools of the stateless components which require the tuscany:instancePool intent
+     */
+    public DefaultScopeRegistry(ExtensionPointRegistry registry, Map<String, String> attributes) {
+        this(new StatelessScopeContainerFactory(getInt(attributes, "instancePoolMinSize", 0),
+                                                getInt(attributes, "instancePoolMaxSize", 16),
+                                                getInt(attributes, "instancePoolIdleTimeout", 60000)));
+    }
+
+    private DefaultScopeRegistry(StatelessScopeContainerFactory statelessFactory) {
         ScopeContainerFactory[] factories =
-            new ScopeContainerFactory[] {new CompositeScopeContainerFactory(), new StatelessScopeContainerFactory()};
+            new ScopeContainerFactory[] {new CompositeScopeContainerFactory(), statelessFactory};
         for (ScopeContainerFactory f : factories) {
             register(f);
         }
     }
+
+    private static int getInt(Map<String, String> attributes, String name, int defaultValue) {
+        String value = attributes != null ? attributes.get(name) : null;
+        if (value != null) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
 }
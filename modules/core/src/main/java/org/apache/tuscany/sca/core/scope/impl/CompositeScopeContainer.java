@@ -33,7 +33,11 @@ import org.oasisopen.sca.ServiceUnavailableException;
  * @version $Rev$ $Date$
  */
 public class CompositeScopeContainer<KEY> extends AbstractScopeContainer<KEY> {
-    private InstanceWrapper<?> wrapper;
+    // Published once started so that the invocations don't need to take the lock
+    private volatile InstanceWrapper<?> wrapper;
+    // The instance being started, only seen by the thread holding the lock. An @Init method which
+    // resolves the component itself re-enters on that thread and gets the instance being started
+    private InstanceWrapper<?> creating;
 
     public CompositeScopeContainer(RuntimeComponent component) {
         super(Scope.COMPOSITE, component);
@@ -42,24 +46,40 @@ public class CompositeScopeContainer<KEY> extends AbstractScopeContainer<KEY> {
     @Override
     public synchronized void stop() {
         super.stop();
-        if (wrapper != null) {
+        InstanceWrapper<?> current = wrapper;
+        wrapper = null;
+        if (current != null) {
             try {
-                wrapper.stop();
+                current.stop();
             } catch (TargetDestructionException e) {
                 throw new IllegalStateException(e);
             }
         }
-        wrapper = null;
     }
 
     @Override
-    public synchronized InstanceWrapper getWrapper(KEY contextId) throws TargetResolutionException {
+    public InstanceWrapper getWrapper(KEY contextId) throws TargetResolutionException {
+        InstanceWrapper<?> current = wrapper;
+        if (current != null) {
+            return current;
+        }
+        return createWrapper();
+    }
+
+    private synchronized InstanceWrapper createWrapper() {
         if (wrapper == null) {
+            if (creating != null) {
+                return creating;
+            }
             try {
-                wrapper = createInstanceWrapper();
-                wrapper.start();
+                creating = createInstanceWrapper();
+                creating.start();
+                // Only publish the instance to the other threads once it has been started
+                wrapper = creating;
             } catch (Exception e) {
                 throw new ServiceUnavailableException(e);
+            } finally {
+                creating = null;
             }
         }
         return wrapper;
@@ -67,10 +87,11 @@ public class CompositeScopeContainer<KEY> extends AbstractScopeContainer<KEY> {
 
     @Override
     public InstanceWrapper getAssociatedWrapper(KEY contextId) throws TargetResolutionException {
-        if (wrapper == null) {
+        InstanceWrapper<?> current = wrapper;
+        if (current == null) {
             throw new TargetNotFoundException(component.getURI());
         }
-        return wrapper;
+        return current;
     }
 
     @Override
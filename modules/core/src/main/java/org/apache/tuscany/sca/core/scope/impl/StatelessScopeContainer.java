@@ -16,24 +16,116 @@
  * specific language governing permissions and limitations
  * under the License.    
  */
+
 package org.apache.tuscany.sca.core.scope.impl;
 
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.apache.tuscany.sca.assembly.Base;
+import org.apache.tuscany.sca.assembly.Implementation;
 import org.apache.tuscany.sca.core.factory.InstanceWrapper;
 import org.apache.tuscany.sca.core.scope.AbstractScopeContainer;
 import org.apache.tuscany.sca.core.scope.Scope;
 import org.apache.tuscany.sca.core.scope.TargetDestructionException;
 import org.apache.tuscany.sca.core.scope.TargetResolutionException;
+import org.apache.tuscany.sca.policy.Intent;
 import org.apache.tuscany.sca.runtime.RuntimeComponent;
 
 /**
- * A scope context which manages stateless atomic component instances in a non-pooled fashion.
+ * A scope context which manages stateless atomic component instances. The instances are created
+ * for each invocation unless the component requires the tuscany:instancePool intent, in which case
+ * started instances are kept in a bounded pool and reused by later invocations.
  *
  * @version $Rev$ $Date$
  */
 public class StatelessScopeContainer<KEY> extends AbstractScopeContainer<KEY> {
+    private static final Logger logger = Logger.getLogger(StatelessScopeContainer.class.getName());
+
+    public static final QName INSTANCE_POOL_INTENT = new QName(Base.SCA11_TUSCANY_NS, "instancePool");
+
+    private final boolean pooled;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final long idleTimeout;
+
+    // Used as a stack: the most recently returned instance is reused first so that the
+    // instances at the tail stay idle and can be evicted
+    private final BlockingDeque<PooledInstance> pool = new LinkedBlockingDeque<PooledInstance>();
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong poolHits = new AtomicLong();
+    private final AtomicLong poolMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
 
     public StatelessScopeContainer(RuntimeComponent component) {
+        this(component, 0, 0, 0);
+    }
+
+    /**
+     * @param component The component
+     * @param minPoolSize The number of idle instances that are kept regardless of the idle timeout
+     * @param maxPoolSize The maximum number of idle instances kept for reuse
+     * @param idleTimeout The time in milliseconds after which an idle instance above the minimum is destroyed
+     */
+    public StatelessScopeContainer(RuntimeComponent component, int minPoolSize, int maxPoolSize, long idleTimeout) {
         super(Scope.STATELESS, component);
+        this.pooled = maxPoolSize > 0 && requiresInstancePool(component);
+        this.minPoolSize = Math.min(minPoolSize, maxPoolSize);
+        this.maxPoolSize = maxPoolSize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    private static boolean requiresInstancePool(RuntimeComponent component) {
+        if (component == null) {
+            return false;
+        }
+        for (Intent intent : component.getRequiredIntents()) {
+            if (INSTANCE_POOL_INTENT.equals(intent.getName())) {
+                return true;
+            }
+        }
+        Implementation implementation = component.getImplementation();
+        if (implementation != null) {
+            for (Intent intent : implementation.getRequiredIntents()) {
+                if (INSTANCE_POOL_INTENT.equals(intent.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        if (pooled) {
+            try {
+                for (int i = poolSize.get(); i < minPoolSize; i++) {
+                    InstanceWrapper ctx = createInstanceWrapper();
+                    ctx.start();
+                    release(ctx);
+                }
+            } catch (TargetResolutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        for (PooledInstance instance = pool.pollFirst(); instance != null; instance = pool.pollFirst()) {
+            poolSize.decrementAndGet();
+            destroy(instance.wrapper);
+        }
     }
 
     @Override
@@ -41,6 +133,15 @@ public class StatelessScopeContainer<KEY> extends AbstractScopeContainer<KEY> {
         if (lifecycleState != RUNNING) {
             throw new TargetResolutionException("scope container not running, lifecycleState=" + lifecycleState);
         }
+        if (pooled) {
+            PooledInstance instance = pool.pollFirst();
+            if (instance != null) {
+                poolSize.decrementAndGet();
+                poolHits.incrementAndGet();
+                return instance.wrapper;
+            }
+            poolMisses.incrementAndGet();
+        }
         InstanceWrapper ctx = createInstanceWrapper();
         ctx.start();
         return ctx;
@@ -55,7 +156,100 @@ public class StatelessScopeContainer<KEY> extends AbstractScopeContainer<KEY> {
     @Override
     public  void returnWrapper(InstanceWrapper wrapper, KEY contextId)
         throws TargetDestructionException {
-        wrapper.stop();
+        if (pooled && lifecycleState == RUNNING) {
+            release(wrapper);
+            evictIdleInstances();
+        } else {
+            wrapper.stop();
+        }
     }
-    
+
+    private void release(InstanceWrapper wrapper) throws TargetDestructionException {
+        if (poolSize.incrementAndGet() > maxPoolSize) {
+            poolSize.decrementAndGet();
+            wrapper.stop();
+            return;
+        }
+        pool.offerFirst(new PooledInstance(wrapper));
+    }
+
+    /**
+     * Destroy the instances idle for longer than the idle timeout, keeping the minimum pool size. This
+     * is done by the invocation threads at most once per idle timeout instead of by a timer.
+     */
+    private void evictIdleInstances() {
+        if (idleTimeout <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last < idleTimeout || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        // The deque is ordered by the time the instances were returned, the longest idle at the tail
+        for (Iterator<PooledInstance> i = pool.descendingIterator(); i.hasNext();) {
+            PooledInstance instance = i.next();
+            if (now - instance.lastUsed < idleTimeout || poolSize.get() <= minPoolSize) {
+                break;
+            }
+            if (pool.remove(instance)) {
+                poolSize.decrementAndGet();
+                evictions.incrementAndGet();
+                destroy(instance.wrapper);
+            }
+        }
+    }
+
+    private void destroy(InstanceWrapper wrapper) {
+        try {
+            wrapper.stop();
+        } catch (TargetDestructionException e) {
+            logger.log(Level.WARNING, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true if the instances are pooled
+     */
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * @return The number of idle instances in the pool
+     */
+    public int getPoolSize() {
+        return poolSize.get();
+    }
+
+    /**
+     * @return The number of invocations served by a pooled instance
+     */
+    public long getPoolHits() {
+        return poolHits.get();
+    }
+
+    /**
+     * @return The number of invocations for which a new instance had to be created
+     */
+    public long getPoolMisses() {
+        return poolMisses.get();
+    }
+
+    /**
+     * @return The number of instances destroyed after being idle for longer than the idle timeout
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static class PooledInstance {
+        private final InstanceWrapper wrapper;
+        private final long lastUsed = System.currentTimeMillis();
+
+        private PooledInstance(InstanceWrapper wrapper) {
+            this.wrapper = wrapper;
+        }
+    }
+
 }
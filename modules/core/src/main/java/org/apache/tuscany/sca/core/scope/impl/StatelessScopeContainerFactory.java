@@ -28,9 +28,27 @@ import org.apache.tuscany.sca.runtime.RuntimeComponent;
  * @version $Rev$ $Date$
  */
 public class StatelessScopeContainerFactory implements ScopeContainerFactory {
+    private int minPoolSize;
+    private int maxPoolSize = 16;
+    private long idleTimeout = 60000L;
+
+    public StatelessScopeContainerFactory() {
+        super();
+    }
+
+    /**
+     * @param minPoolSize The minimum number of idle instances kept for components requiring an instance pool
+     * @param maxPoolSize The maximum number of idle instances kept for components requiring an instance pool 
+     * @param idleTimeout The time in milliseconds before an idle pooled instance is destroyed
+     */
+    public StatelessScopeContainerFactory(int minPoolSize, int maxPoolSize, long idleTimeout) {
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.idleTimeout = idleTimeout;
+    }
 
     public ScopeContainer createScopeContainer(RuntimeComponent component) {
-        return new StatelessScopeContainer(component);
+        return new StatelessScopeContainer(component, minPoolSize, maxPoolSize, idleTimeout);
     }
 
     public Scope getScope() {
@@ -18,10 +18,21 @@
  */
 package org.apache.tuscany.sca.core.work.impl;
 
+import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.LifeCycleListener;
@@ -37,16 +48,39 @@ import org.apache.tuscany.sca.work.WorkSchedulerException;
  * work manager implementation that is injected in. It is the responsibility of the runtime environment to make a work
  * manager implementation available. For example, if the managed environment supports work manager the runtime can use
  * the appropriate lookup mechanism to inject the work manager implementation. </p>
+ * <p/>
+ * The execution strategy is selected with the <code>executor</code> attribute of the service declaration:
+ * <ul>
+ * <li><code>cached</code>: unbounded cached thread pool (the default if <code>maxThreads</code> is not positive)
+ * <li><code>fixed</code>: <code>maxThreads</code> threads with an unbounded queue (the default otherwise)
+ * <li><code>bounded</code>: <code>coreThreads</code> to <code>maxThreads</code> threads with a queue of
+ * <code>queueSize</code> entries. Work that cannot be queued is handled by the <code>rejectionPolicy</code>
+ * (<code>abort</code>, <code>callerRuns</code>, <code>discard</code> or <code>discardOldest</code>). The work
+ * dropped by the discard policies is reported as rejected to its notification listener.
+ * <li><code>virtual</code>: one virtual thread per task if the JVM supports it
+ * <li><code>workStealing</code>: a work-stealing pool of <code>maxThreads</code> threads if the JVM supports it
+ * </ul>
  *
  * @version $Rev$ $Date$
  */
 public class DefaultWorkScheduler implements WorkScheduler, LifeCycleListener {
 
+    private static final Logger logger = Logger.getLogger(DefaultWorkScheduler.class.getName());
+
+    private static final int DEFAULT_BOUNDED_MAX_THREADS = 64;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final long DEFAULT_KEEP_ALIVE_TIME = 60;
+
     /**
      * Underlying JSR-237 work manager
      */
     private ThreadPoolWorkManager jsr237WorkManager;
+    private String executor;
     private int maxThreads = 0;
+    private int coreThreads = -1;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private long keepAliveTime = DEFAULT_KEEP_ALIVE_TIME;
+    private String rejectionPolicy = "abort";
 
     /**
      * Initializes the JSR 237 work manager.
@@ -59,7 +93,108 @@ public class DefaultWorkScheduler implements WorkScheduler, LifeCycleListener {
             if (value != null) {
                 maxThreads = Integer.parseInt(value.trim());
             }
+            value = attributes.get("coreThreads");
+            if (value != null) {
+                coreThreads = Integer.parseInt(value.trim());
+            }
+            value = attributes.get("queueSize");
+            if (value != null) {
+                queueSize = Integer.parseInt(value.trim());
+            }
+            value = attributes.get("keepAliveTime");
+            if (value != null) {
+                keepAliveTime = Long.parseLong(value.trim());
+            }
+            value = attributes.get("rejectionPolicy");
+            if (value != null) {
+                rejectionPolicy = value.trim();
+            }
+            value = attributes.get("executor");
+            if (value != null) {
+                executor = value.trim();
+            }
+        }
+    }
+
+    /**
+     * Creates the executor service for the configured execution strategy
+     */
+    private ExecutorService createExecutorService() {
+        String strategy = executor;
+        if (strategy == null || strategy.length() == 0) {
+            strategy = maxThreads <= 0 ? "cached" : "fixed";
+        }
+        if ("virtual".equalsIgnoreCase(strategy)) {
+            ExecutorService executorService = invokeExecutorsFactory("newVirtualThreadPerTaskExecutor");
+            if (executorService != null) {
+                return executorService;
+            }
+            strategy = "cached";
+        } else if ("workStealing".equalsIgnoreCase(strategy)) {
+            ExecutorService executorService =
+                invokeExecutorsFactory("newWorkStealingPool", maxThreads > 0 ? maxThreads : Runtime.getRuntime()
+                    .availableProcessors());
+            if (executorService != null) {
+                return executorService;
+            }
+            strategy = maxThreads <= 0 ? "cached" : "fixed";
+        }
+
+        if ("cached".equalsIgnoreCase(strategy)) {
+            return Executors.newCachedThreadPool(ThreadPoolWorkManager.DAEMON_THREAD_FACTORY);
+        } else if ("fixed".equalsIgnoreCase(strategy)) {
+            int threads = maxThreads > 0 ? maxThreads : Runtime.getRuntime().availableProcessors();
+            return Executors.newFixedThreadPool(threads, ThreadPoolWorkManager.DAEMON_THREAD_FACTORY);
+        } else if ("bounded".equalsIgnoreCase(strategy)) {
+            int max = maxThreads > 0 ? maxThreads : DEFAULT_BOUNDED_MAX_THREADS;
+            int core = coreThreads >= 0 ? Math.min(coreThreads, max) : max;
+            BlockingQueue<Runnable> queue;
+            if (queueSize <= 0) {
+                // Direct hand-off, the work is rejected once all the threads are busy
+                queue = new SynchronousQueue<Runnable>();
+            } else {
+                queue = new ArrayBlockingQueue<Runnable>(queueSize);
+            }
+            return new ThreadPoolExecutor(core, max, keepAliveTime, TimeUnit.SECONDS, queue,
+                                          ThreadPoolWorkManager.DAEMON_THREAD_FACTORY, createRejectionPolicy());
+        } else {
+            throw new IllegalArgumentException("Unknown executor: " + executor);
+        }
+    }
+
+    private RejectedExecutionHandler createRejectionPolicy() {
+        if ("abort".equalsIgnoreCase(rejectionPolicy)) {
+            return new ThreadPoolExecutor.AbortPolicy();
+        } else if ("callerRuns".equalsIgnoreCase(rejectionPolicy)) {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        } else if ("discard".equalsIgnoreCase(rejectionPolicy)) {
+            return new ThreadPoolExecutor.DiscardPolicy();
+        } else if ("discardOldest".equalsIgnoreCase(rejectionPolicy)) {
+            return new ThreadPoolExecutor.DiscardOldestPolicy();
+        } else {
+            throw new IllegalArgumentException("Unknown rejection policy: " + rejectionPolicy);
+        }
+    }
+
+    /**
+     * Looks up a factory method of java.util.concurrent.Executors that is not available on all the
+     * supported JVMs
+     */
+    private static ExecutorService invokeExecutorsFactory(String name, Object... args) {
+        try {
+            Class<?>[] types = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                // The factory methods only take int parameters
+                types[i] = int.class;
+            }
+            Method method = Executors.class.getMethod(name, types);
+            return (ExecutorService)method.invoke(null, args);
+        } catch (NoSuchMethodException e) {
+            logger.warning("Executors." + name + " is not supported by this JVM, falling back to a thread pool");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Executors." + name + " failed, falling back to a thread pool", e);
         }
+        return null;
     }
 
     private synchronized ThreadPoolWorkManager getWorkManager() {
@@ -73,7 +208,7 @@ public class DefaultWorkScheduler implements WorkScheduler, LifeCycleListener {
 //            // ignore
 //        }
         if (jsr237WorkManager == null) {
-            jsr237WorkManager = new ThreadPoolWorkManager(maxThreads);
+            jsr237WorkManager = new ThreadPoolWorkManager(createExecutorService());
         }
         return jsr237WorkManager;
     }
@@ -101,14 +236,8 @@ public class DefaultWorkScheduler implements WorkScheduler, LifeCycleListener {
             throw new IllegalArgumentException("Work cannot be null");
         }
 
-        Work<T> jsr237Work = new Work<T>(work);
         try {
-            if (listener == null) {
-                getWorkManager().schedule(jsr237Work);
-            } else {
-                Jsr237WorkListener<T> jsr237WorkListener = new Jsr237WorkListener<T>(listener, work);
-                getWorkManager().schedule(jsr237Work, jsr237WorkListener);
-            }
+            submit(work, listener);
         } catch (IllegalArgumentException ex) {
             if (listener != null) {
                 listener.workRejected(work);
@@ -121,6 +250,61 @@ public class DefaultWorkScheduler implements WorkScheduler, LifeCycleListener {
 
     }
 
+    /**
+     * Schedules a unit of work for future execution and returns the work item that can be passed to
+     * {@link #waitForAll(Collection, long)} and {@link #waitForAny(Collection, long)}.
+     *
+     * @param work     The unit of work that needs to be asynchronously executed.
+     * @param listener Notification listener for callbacks, can be null.
+     * @return The work item representing the scheduled work
+     * @throws WorkSchedulerException if the work is rejected
+     */
+    public <T extends Runnable> WorkItem schedule(T work, NotificationListener<T> listener) {
+
+        if (work == null) {
+            throw new IllegalArgumentException("Work cannot be null");
+        }
+
+        try {
+            return submit(work, listener);
+        } catch (Exception ex) {
+            throw new WorkSchedulerException(ex);
+        }
+    }
+
+    private <T extends Runnable> WorkItem submit(T work, NotificationListener<T> listener) {
+        Work<T> jsr237Work = new Work<T>(work);
+        if (listener == null) {
+            return getWorkManager().schedule(jsr237Work);
+        } else {
+            Jsr237WorkListener<T> jsr237WorkListener = new Jsr237WorkListener<T>(listener, work);
+            return getWorkManager().schedule(jsr237Work, jsr237WorkListener);
+        }
+    }
+
+    /**
+     * Wait for all the specified units of work to finish.
+     *
+     * @param workItems The work items returned by {@link #schedule(Runnable, NotificationListener)}.
+     * @param timeout   Timeout in milliseconds, or <code>WorkListener.INDEFINITE</code>.
+     * @return true if all the units of work finished before the timeout
+     */
+    public boolean waitForAll(Collection<WorkItem> workItems, long timeout) throws InterruptedException {
+        return getWorkManager().waitForAll(workItems, timeout);
+    }
+
+    /**
+     * Wait for any of the specified units of work to finish.
+     *
+     * @param workItems The work items returned by {@link #schedule(Runnable, NotificationListener)}.
+     * @param timeout   Timeout in milliseconds, or <code>WorkListener.INDEFINITE</code>.
+     * @return The work items that finished, empty if none finished before the timeout
+     */
+    @SuppressWarnings("unchecked")
+    public Collection<WorkItem> waitForAny(Collection<WorkItem> workItems, long timeout) throws InterruptedException {
+        return getWorkManager().waitForAny(workItems, timeout);
+    }
+
     public void start() {
     }
 
@@ -207,4 +391,39 @@ public class DefaultWorkScheduler implements WorkScheduler, LifeCycleListener {
     public ExecutorService getExecutorService() {
         return getWorkManager().getExecutorService();
     }
+
+    /**
+     * Returns the number of tasks waiting to be executed
+     */
+    public int getQueueSize() {
+        return getWorkManager().getQueueSize();
+    }
+
+    /**
+     * Returns the number of tasks being executed
+     */
+    public int getActiveCount() {
+        return getWorkManager().getActiveCount();
+    }
+
+    /**
+     * Returns the number of tasks rejected by the executor
+     */
+    public long getRejectedCount() {
+        return getWorkManager().getRejectedCount();
+    }
+
+    /**
+     * Returns the histogram of the time spent by the work between scheduling and start
+     */
+    public LatencyHistogram getQueueLatency() {
+        return getWorkManager().getQueueLatency();
+    }
+
+    /**
+     * Returns the histogram of the time spent by the work running
+     */
+    public LatencyHistogram getExecutionLatency() {
+        return getWorkManager().getExecutionLatency();
+    }
 }
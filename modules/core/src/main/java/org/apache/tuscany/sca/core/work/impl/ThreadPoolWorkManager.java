@@ -18,14 +18,19 @@
  */
 package org.apache.tuscany.sca.core.work.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.tuscany.sca.work.WorkSchedulerException;
 
@@ -33,40 +38,66 @@ import org.apache.tuscany.sca.work.WorkSchedulerException;
  * A thread-pool based implementation for the JSR-237 work manager.
  * <p/>
  * <p/>
- * This implementation supports only local work.
- * <p/>
- * TODO Elaborate the implementation. </p>
+ * This implementation supports only local work. The work items keep their listener and
+ * status, so no bookkeeping is required for work scheduled without a listener.</p>
  *
  * @version $Rev$ $Date$
  */
 public class ThreadPoolWorkManager {
 
-    // Map of work items currently handled by the work manager
-    private Map<WorkItem, WorkListener> workItems = new ConcurrentHashMap<WorkItem, WorkListener>();
-
     // Thread-pool
     protected ExecutorService executor;
 
+    /**
+     * Thread factory creating daemon threads so that the pool does not keep the VM alive
+     */
+    public static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    // Work scheduled through this work manager that has not started yet
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // Work scheduled through this work manager that is currently running
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    // Number of rejected executions
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // Time spent by the work between scheduling and start
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+
+    // Time spent by the work running
+    private final LatencyHistogram executionLatency = new LatencyHistogram();
+
     /**
      * Initializes the thread-pool.
      *
      * @param threadPoolSize Thread-pool size. If the size <1, then a cached pool is created
      */
     public ThreadPoolWorkManager(int threadPoolSize) {
-        ThreadFactory factory = new ThreadFactory() {
-            public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r);
-                thread.setDaemon(true);
-                return thread;
-            }
-        };
-        if (threadPoolSize <= 0) {
+        // Creates a new Executor, use a custom ThreadFactory that
+        // creates daemon threads.
+        this(threadPoolSize <= 0 ? Executors.newCachedThreadPool(DAEMON_THREAD_FACTORY) : Executors
+            .newFixedThreadPool(threadPoolSize, DAEMON_THREAD_FACTORY));
+    }
 
-            // Creates a new Executor, use a custom ThreadFactory that
-            // creates daemon threads.
-            executor = Executors.newCachedThreadPool(factory);
-        } else {
-            executor = Executors.newFixedThreadPool(threadPoolSize, factory);
+    /**
+     * Initializes the work manager with an executor created for the selected execution strategy.
+     * If the executor is a <code>ThreadPoolExecutor</code>, its rejection handler is decorated
+     * so that rejections from all users of the executor are counted.
+     *
+     * @param executor The executor service to run the work
+     */
+    public ThreadPoolWorkManager(ExecutorService executor) {
+        this.executor = executor;
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor)executor;
+            pool.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(pool.getRejectedExecutionHandler()));
         }
     }
 
@@ -89,18 +120,12 @@ public class ThreadPoolWorkManager {
      */
     public WorkItem schedule(Work work, WorkListener workListener) throws IllegalArgumentException {
 
-        WorkItem workItem = new WorkItem(UUID.randomUUID().toString(), work);
-        if (workListener != null) {
-            workItems.put(workItem, workListener);
-        }
+        WorkItem workItem = new WorkItem(work, workListener);
         workAccepted(workItem, work);
         if (scheduleWork(work, workItem)) {
             return workItem;
         } else {
-            workItem.setStatus(WorkEvent.WORK_REJECTED);
-            if (workListener != null) {
-                workListener.workRejected(new WorkEvent(workItem));
-            }
+            workRejected(workItem);
             throw new IllegalArgumentException("Unable to schedule work");
         }
     }
@@ -110,9 +135,24 @@ public class ThreadPoolWorkManager {
      *
      * @param works   Units of the work that need to finish.
      * @param timeout Timeout for waiting for the units of work to finish.
+     * @return true if all the units of work finished before the timeout
      */
-    public boolean waitForAll(Collection works, long timeout) {
-        throw new UnsupportedOperationException("waitForAll not supported");
+    public boolean waitForAll(Collection works, long timeout) throws InterruptedException {
+        long deadline = getDeadline(timeout);
+        for (Object work : works) {
+            WorkItem workItem = (WorkItem)work;
+            CountDownLatch latch = new CountDownLatch(1);
+            if (workItem.addWaiter(latch)) {
+                try {
+                    if (!await(latch, deadline)) {
+                        return false;
+                    }
+                } finally {
+                    workItem.removeWaiter(latch);
+                }
+            }
+        }
+        return true;
     }
 
     /**
@@ -120,9 +160,57 @@ public class ThreadPoolWorkManager {
      *
      * @param works   Units of the work that need to finish.
      * @param timeout Timeout for waiting for the units of work to finish.
+     * @return The units of work that finished, empty if none finished before the timeout
+     */
+    public Collection waitForAny(Collection works, long timeout) throws InterruptedException {
+        long deadline = getDeadline(timeout);
+        // A single latch is registered with all the work items, the first one to finish counts it down
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            boolean waiting = !works.isEmpty();
+            for (Object work : works) {
+                if (!((WorkItem)work).addWaiter(latch)) {
+                    waiting = false;
+                    break;
+                }
+            }
+            if (waiting) {
+                await(latch, deadline);
+            }
+        } finally {
+            for (Object work : works) {
+                ((WorkItem)work).removeWaiter(latch);
+            }
+        }
+        List<WorkItem> done = new ArrayList<WorkItem>();
+        for (Object work : works) {
+            WorkItem workItem = (WorkItem)work;
+            if (workItem.isDone()) {
+                done.add(workItem);
+            }
+        }
+        return done;
+    }
+
+    /*
+     * Computes the deadline of a wait, Long.MAX_VALUE stands for no deadline.
+     */
+    private static long getDeadline(long timeout) {
+        if (timeout == WorkListener.INDEFINITE) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(timeout, 0));
+    }
+
+    /*
+     * Waits until the latch is counted down or the deadline passes.
      */
-    public Collection waitForAny(Collection works, long timeout) {
-        throw new UnsupportedOperationException("waitForAny not supported");
+    private static boolean await(CountDownLatch latch, long deadline) throws InterruptedException {
+        if (deadline == Long.MAX_VALUE) {
+            latch.await();
+            return true;
+        }
+        return latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -132,21 +220,36 @@ public class ThreadPoolWorkManager {
      * @param work     Work that was accepted.
      */
     private void workAccepted(final WorkItem workItem, final Work work) {
-        WorkListener listener = workItems.get(workItem);
+        workItem.setStatus(WorkEvent.WORK_ACCEPTED);
+        WorkListener listener = workItem.getListener();
         if (listener != null) {
-            workItem.setStatus(WorkEvent.WORK_ACCEPTED);
             WorkEvent event = new WorkEvent(workItem);
             listener.workAccepted(event);
         }
     }
 
+    /*
+     * Method to indicate a work rejection, either by the executor or by a discarding rejection policy.
+     */
+    private void workRejected(final WorkItem workItem) {
+        workItem.setStatus(WorkEvent.WORK_REJECTED);
+        try {
+            WorkListener listener = workItem.getListener();
+            if (listener != null) {
+                listener.workRejected(new WorkEvent(workItem));
+            }
+        } finally {
+            workItem.notifyWaiters();
+        }
+    }
+
     /*
      * Method to indicate a work start.
      */
     private void workStarted(final WorkItem workItem, final Work work) {
-        WorkListener listener = workItems.get(workItem);
+        workItem.setStatus(WorkEvent.WORK_STARTED);
+        WorkListener listener = workItem.getListener();
         if (listener != null) {
-            workItem.setStatus(WorkEvent.WORK_STARTED);
             WorkEvent event = new WorkEvent(workItem);
             listener.workStarted(event);
         }
@@ -163,14 +266,17 @@ public class ThreadPoolWorkManager {
      * Method to indicate a work completion.
      */
     private void workCompleted(final WorkItem workItem, final Work work, final WorkSchedulerException exception) {
-        WorkListener listener = workItems.get(workItem);
-        if (listener != null) {
-            workItem.setStatus(WorkEvent.WORK_COMPLETED);
-            workItem.setResult(work);
-            workItem.setException(exception);
-            WorkEvent event = new WorkEvent(workItem);
-            listener.workCompleted(event);
-            workItems.remove(workItem);
+        workItem.setResult(work);
+        workItem.setException(exception);
+        workItem.setStatus(WorkEvent.WORK_COMPLETED);
+        try {
+            WorkListener listener = workItem.getListener();
+            if (listener != null) {
+                WorkEvent event = new WorkEvent(workItem);
+                listener.workCompleted(event);
+            }
+        } finally {
+            workItem.notifyWaiters();
         }
     }
 
@@ -178,10 +284,16 @@ public class ThreadPoolWorkManager {
      * Schedules the work using the ThreadPool.
      */
     private boolean scheduleWork(final Work work, final WorkItem workItem) {
+        pendingCount.incrementAndGet();
         try {
             executor.execute(new DecoratingWork(workItem, work));
             return true;
         } catch (RejectedExecutionException ex) {
+            pendingCount.decrementAndGet();
+            if (!(executor instanceof ThreadPoolExecutor)) {
+                // Rejections by a ThreadPoolExecutor are counted by its handler
+                rejectedCount.incrementAndGet();
+            }
             return false;
         }
     }
@@ -197,6 +309,9 @@ public class ThreadPoolWorkManager {
         // The original work.
         private Work decoratedWork;
 
+        // Time when the work was scheduled
+        private long scheduled = System.nanoTime();
+
         /*
          * Initializes the work item and underlying work.
          */
@@ -205,19 +320,74 @@ public class ThreadPoolWorkManager {
             this.decoratedWork = decoratedWork;
         }
 
+        /*
+         * Rejects the work, it has been dropped by the executor and will not run.
+         */
+        private void discard() {
+            pendingCount.decrementAndGet();
+            workRejected(workItem);
+        }
+
         /*
          * Overrides the run method.
          */
         public void run() {
-            workStarted(workItem, decoratedWork);
+            long started = System.nanoTime();
+            queueLatency.record(started - scheduled);
+            pendingCount.decrementAndGet();
+            activeCount.incrementAndGet();
             try {
-                decoratedWork.run();
-                workCompleted(workItem, decoratedWork);
-            } catch (Throwable th) {
-                workCompleted(workItem, decoratedWork, new WorkSchedulerException(th.getMessage(), th));
+                workStarted(workItem, decoratedWork);
+                WorkSchedulerException exception = null;
+                try {
+                    decoratedWork.run();
+                } catch (Throwable th) {
+                    exception = new WorkSchedulerException(th.getMessage(), th);
+                }
+                executionLatency.record(System.nanoTime() - started);
+                workCompleted(workItem, decoratedWork, exception);
+            } finally {
+                activeCount.decrementAndGet();
+            }
+        }
+
+    }
+
+    /*
+     * Rejection handler that counts the rejected executions before delegating to the configured policy.
+     * The discard policies of ThreadPoolExecutor are run here so that the work they drop is completed
+     * as rejected instead of staying pending forever.
+     */
+    private final class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+        // The configured rejection policy
+        private final RejectedExecutionHandler policy;
+
+        private CountingRejectedExecutionHandler(final RejectedExecutionHandler policy) {
+            this.policy = policy;
+        }
+
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejectedCount.incrementAndGet();
+            if (policy.getClass() == ThreadPoolExecutor.DiscardPolicy.class) {
+                discard(r);
+            } else if (policy.getClass() == ThreadPoolExecutor.DiscardOldestPolicy.class) {
+                if (executor.isShutdown()) {
+                    discard(r);
+                } else {
+                    discard(executor.getQueue().poll());
+                    executor.execute(r);
+                }
+            } else {
+                policy.rejectedExecution(r, executor);
             }
         }
 
+        private void discard(Runnable r) {
+            if (r instanceof DecoratingWork) {
+                ((DecoratingWork)r).discard();
+            }
+        }
     }
 
     public void destroy() {
@@ -228,5 +398,60 @@ public class ThreadPoolWorkManager {
         return executor;
     }
 
+    /**
+     * Returns the number of tasks waiting to be executed. For a <code>ThreadPoolExecutor</code>
+     * this is the depth of its queue, otherwise the work scheduled through this work manager
+     * that has not started yet.
+     *
+     * @return The queue depth
+     */
+    public int getQueueSize() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor)executor).getQueue().size();
+        }
+        return pendingCount.get();
+    }
+
+    /**
+     * Returns the number of tasks being executed. For a <code>ThreadPoolExecutor</code>
+     * this is the approximate number of busy threads, otherwise the work scheduled through
+     * this work manager that is running.
+     *
+     * @return The active count
+     */
+    public int getActiveCount() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor)executor).getActiveCount();
+        }
+        return activeCount.get();
+    }
+
+    /**
+     * Returns the number of tasks rejected by the executor.
+     *
+     * @return The rejection count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Returns the histogram of the time spent by the work between scheduling and start.
+     *
+     * @return The queue latency histogram
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Returns the histogram of the time spent by the work running.
+     *
+     * @return The execution latency histogram
+     */
+    public LatencyHistogram getExecutionLatency() {
+        return executionLatency;
+    }
+
 }
 
@@ -27,7 +27,7 @@ import org.apache.tuscany.sca.work.WorkSchedulerException;
  *
  * @version $Rev$ $Date$
  */
-class WorkEvent {
+public class WorkEvent {
     
     public static final int WORK_ACCEPTED = 1;
     public static final int WORK_REJECTED = 2;
@@ -18,24 +18,35 @@
  */
 package org.apache.tuscany.sca.core.work.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
 import org.apache.tuscany.sca.work.WorkSchedulerException;
 
 /**
  * An identity based immutable implementation of the <code>WorkItem</code>
- * interface.
+ * interface. The id is only generated when it is asked for.
+ * <p>
+ * The work item is the handle returned when the work is scheduled and can be passed to
+ * <code>waitForAll</code> and <code>waitForAny</code>.
  *
  * @version $Rev$ $Date$
  */
-class WorkItem {
+public class WorkItem {
     
     // Id scoped for the VM
     private String id;
 
     // Status
-    private int status = -1;
+    private volatile int status = -1;
 
     // Result
     private Work<?> result;
+
+    // Listener for the work callbacks
+    private WorkListener listener;
     
     // Original work
     private Work<?> originalWork;
@@ -43,6 +54,9 @@ class WorkItem {
     // Exception
     private WorkSchedulerException exception;
 
+    // Latches of the threads waiting for the work to finish
+    private List<CountDownLatch> waiters;
+
     /**
      * Instantiates an id for this item.
      *
@@ -53,15 +67,48 @@ class WorkItem {
         this.originalWork = orginalWork;
     }
 
+    /**
+     * Instantiates a work item without an id.
+     *
+     * @param orginalWork The work.
+     * @param listener The listener for the work callbacks, can be null.
+     */
+    protected WorkItem(final Work<?> orginalWork, final WorkListener listener) {
+        this.originalWork = orginalWork;
+        this.listener = listener;
+    }
+
     /**
      * Returns the id.
      *
      * @return Id of this item.
      */
-    public String getId() {
+    public synchronized String getId() {
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+        }
         return id;
     }
 
+    /**
+     * Returns the listener for the work callbacks.
+     *
+     * @return The listener or null.
+     */
+    WorkListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Returns true if the work has completed or has been rejected.
+     *
+     * @return true if the work is done.
+     */
+    public boolean isDone() {
+        int value = status;
+        return value == WorkEvent.WORK_COMPLETED || value == WorkEvent.WORK_REJECTED;
+    }
+
     /**
      * Returns the original work.
      *
@@ -127,12 +174,57 @@ class WorkItem {
         this.status = status;
     }
 
+    /**
+     * Registers a latch counted down when the work is done.
+     *
+     * @param latch The latch of the waiting thread.
+     * @return false if the work is already done.
+     */
+    synchronized boolean addWaiter(final CountDownLatch latch) {
+        if (isDone()) {
+            return false;
+        }
+        if (waiters == null) {
+            waiters = new ArrayList<CountDownLatch>(2);
+        }
+        waiters.add(latch);
+        return true;
+    }
+
+    /**
+     * Unregisters a latch that is no longer waited on.
+     *
+     * @param latch The latch of the waiting thread.
+     */
+    synchronized void removeWaiter(final CountDownLatch latch) {
+        if (waiters != null) {
+            waiters.remove(latch);
+        }
+    }
+
+    /**
+     * Wakes up the threads waiting for this work. The status is set before, so a thread
+     * either sees the work as done or has its latch counted down.
+     */
+    void notifyWaiters() {
+        List<CountDownLatch> latches;
+        synchronized (this) {
+            latches = waiters;
+            waiters = null;
+        }
+        if (latches != null) {
+            for (CountDownLatch latch : latches) {
+                latch.countDown();
+            }
+        }
+    }
+
     /**
      * @see Object#hashCode() 
      */
     @Override
     public int hashCode() {
-        return id.hashCode();
+        return System.identityHashCode(this);
     }
 
     /**
@@ -144,7 +236,7 @@ class WorkItem {
      */
     @Override
     public boolean equals(final Object obj) {
-        return (obj != null) && (obj.getClass() == WorkItem.class) && ((WorkItem) obj).id.equals(id);
+        return obj == this;
     }
 
     /**
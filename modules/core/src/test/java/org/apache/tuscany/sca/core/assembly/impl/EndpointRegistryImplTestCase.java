@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.assembly.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.tuscany.sca.assembly.AssemblyFactory;
+import org.apache.tuscany.sca.assembly.Binding;
+import org.apache.tuscany.sca.assembly.Component;
+import org.apache.tuscany.sca.assembly.ComponentService;
+import org.apache.tuscany.sca.assembly.DefaultAssemblyFactory;
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.assembly.impl.SCABindingFactoryImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class EndpointRegistryImplTestCase {
+    private AssemblyFactory assemblyFactory;
+    private EndpointRegistryImpl endpointRegistry;
+
+    @Before
+    public void setUp() {
+        assemblyFactory = new DefaultAssemblyFactory();
+        endpointRegistry = new EndpointRegistryImpl(null, "vm://test", "default");
+    }
+
+    @Test
+    public void testFindEndpoint() {
+        Endpoint ep1 = createEndpoint("C1", "S1", null);
+        Endpoint ep2 = createEndpoint("C1", "S2", "b2");
+        Endpoint ep3 = createEndpoint("C2", "S1", null);
+        endpointRegistry.addEndpoint(ep1);
+        endpointRegistry.addEndpoint(ep2);
+        endpointRegistry.addEndpoint(ep3);
+
+        assertEquals(2, endpointRegistry.findEndpoint("C1").size());
+        List<Endpoint> endpoints = endpointRegistry.findEndpoint("C1/S2");
+        assertEquals(1, endpoints.size());
+        assertSame(ep2, endpoints.get(0));
+        assertEquals(1, endpointRegistry.findEndpoint("C1/S2/b2").size());
+        assertEquals(0, endpointRegistry.findEndpoint("C1/S2/b1").size());
+        assertEquals(1, endpointRegistry.findEndpoint("C2#service(S1)").size());
+        assertEquals(0, endpointRegistry.findEndpoint("C3").size());
+        assertEquals(3, endpointRegistry.getEndpoints().size());
+    }
+
+    @Test
+    public void testGetEndpoint() {
+        Endpoint ep1 = createEndpoint("C1", "S1", null);
+        Endpoint ep2 = createEndpoint("C1", "S2", "b2");
+        endpointRegistry.addEndpoint(ep1);
+        endpointRegistry.addEndpoint(ep2);
+
+        assertSame(ep1, endpointRegistry.getEndpoint("C1#S1"));
+        assertSame(ep2, endpointRegistry.getEndpoint("C1#S2/b2"));
+        assertNull(endpointRegistry.getEndpoint("C1#S2"));
+
+        Endpoint ep3 = createEndpoint("C1", "S2", "b2");
+        endpointRegistry.updateEndpoint("C1#S2/b2", ep3);
+        assertSame(ep3, endpointRegistry.getEndpoint("C1#S2/b2"));
+        assertEquals(1, endpointRegistry.findEndpoint("C1/S2").size());
+        assertTrue(endpointRegistry.getEndpoints().contains(ep3));
+        assertEquals(2, endpointRegistry.getEndpoints().size());
+    }
+
+    private Endpoint createEndpoint(String componentName, String serviceName, String bindingName) {
+        Component component = assemblyFactory.createComponent();
+        component.setName(componentName);
+        component.setURI(componentName);
+        ComponentService service = assemblyFactory.createComponentService();
+        service.setName(serviceName);
+        Binding binding = new SCABindingFactoryImpl().createSCABinding();
+        binding.setName(bindingName);
+        Endpoint endpoint = assemblyFactory.createEndpoint();
+        endpoint.setComponent(component);
+        endpoint.setService(service);
+        endpoint.setBinding(binding);
+        return endpoint;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.tuscany.sca.invocation.AsyncInvoker;
+import org.apache.tuscany.sca.invocation.AsyncInvokers;
+import org.apache.tuscany.sca.invocation.InvocationCallback;
+import org.apache.tuscany.sca.invocation.Invoker;
+import org.apache.tuscany.sca.invocation.Message;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class AsyncInvocationFutureImplTestCase {
+
+    @Test
+    public void testListener() throws Exception {
+        AsyncInvocationFutureImpl<String> future = AsyncInvocationFutureImpl.newInstance(String.class, null);
+        final AtomicInteger calls = new AtomicInteger();
+        future.addListener(new Runnable() {
+            public void run() {
+                calls.incrementAndGet();
+            }
+        });
+        assertFalse(future.isDone());
+        assertEquals(0, calls.get());
+
+        future.setResponse("Hello");
+        assertTrue(future.isDone());
+        assertEquals(1, calls.get());
+        assertEquals("Hello", future.get(0, TimeUnit.SECONDS));
+
+        // A listener added after the completion is called immediately
+        future.addListener(new Runnable() {
+            public void run() {
+                calls.incrementAndGet();
+            }
+        });
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testNullResponse() throws Exception {
+        AsyncInvocationFutureImpl<Void> future = AsyncInvocationFutureImpl.newInstance(Void.class, null);
+        future.setResponse(null);
+        assertTrue(future.isDone());
+        assertNull(future.get(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncInvoker() {
+        final AtomicReference<InvocationCallback> pending = new AtomicReference<InvocationCallback>();
+        Invoker invoker = new AsyncInvoker() {
+            public Message invoke(Message msg) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void invokeAsync(Message msg, InvocationCallback callback) {
+                // Keep the callback for the "transport" to complete later
+                pending.set(callback);
+            }
+        };
+        assertTrue(AsyncInvokers.isAsync(invoker));
+
+        final AtomicReference<Message> response = new AtomicReference<Message>();
+        Message msg = new MessageImpl();
+        AsyncInvokers.invokeAsync(invoker, msg, new InvocationCallback() {
+            public void onResponse(Message resp) {
+                response.set(resp);
+            }
+        });
+        assertNull(response.get());
+        pending.get().onResponse(msg);
+        assertSame(msg, response.get());
+    }
+
+    @Test
+    public void testSyncInvoker() {
+        Invoker invoker = new Invoker() {
+            public Message invoke(Message msg) {
+                throw new IllegalStateException("Failed");
+            }
+        };
+        assertFalse(AsyncInvokers.isAsync(invoker));
+
+        final AtomicReference<Message> response = new AtomicReference<Message>();
+        AsyncInvokers.invokeAsync(invoker, new MessageImpl(), new InvocationCallback() {
+            public void onResponse(Message resp) {
+                response.set(resp);
+            }
+        });
+        assertTrue(response.get().isFault());
+    }
+
+}
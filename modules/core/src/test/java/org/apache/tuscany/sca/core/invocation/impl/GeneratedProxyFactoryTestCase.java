@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tuscany.sca.assembly.Binding;
+import org.apache.tuscany.sca.assembly.Component;
+import org.apache.tuscany.sca.assembly.Contract;
+import org.apache.tuscany.sca.context.CompositeContext;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.interfacedef.Operation;
+import org.apache.tuscany.sca.interfacedef.java.impl.JavaOperationImpl;
+import org.apache.tuscany.sca.invocation.InvocationChain;
+import org.apache.tuscany.sca.invocation.Invoker;
+import org.apache.tuscany.sca.invocation.Message;
+import org.apache.tuscany.sca.provider.PolicyProvider;
+import org.apache.tuscany.sca.runtime.EndpointRegistry;
+import org.apache.tuscany.sca.runtime.Invocable;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class GeneratedProxyFactoryTestCase {
+    private static ExtensionPointRegistry registry;
+    private static GeneratedProxyFactory factory;
+
+    @BeforeClass
+    public static void setUp() {
+        registry = new DefaultExtensionPointRegistry();
+        factory = new GeneratedProxyFactory(registry, new MessageFactoryImpl(), null);
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        Calculator calculator = createProxy(Calculator.class);
+        assertEquals(5, calculator.add(2, 3));
+        assertEquals(2.5d, calculator.divide(5d, 2d), 0d);
+        assertEquals("Hello", calculator.echo("Hello"));
+        assertEquals(3, calculator.sum(new int[] {1, 1, 1}));
+        calculator.reset();
+    }
+
+    @Test
+    public void testObjectMethods() throws Exception {
+        Calculator calculator = createProxy(Calculator.class);
+        assertTrue(calculator.equals(calculator));
+        assertFalse(calculator.equals(createProxy(Calculator.class)));
+        assertFalse(calculator.equals(null));
+        assertEquals(((GeneratedProxy)calculator).getProxyInvocationHandler().hashCode(), calculator.hashCode());
+        assertNotNull(calculator.toString());
+    }
+
+    @Test
+    public void testProxyClass() throws Exception {
+        Calculator calculator = createProxy(Calculator.class);
+        assertTrue(factory.isProxyClass(calculator.getClass()));
+        assertSame(factory.getProxyClass(Calculator.class), factory.getProxyClass(Calculator.class));
+        assertSame(null, factory.getProxyClass(HiddenService.class));
+    }
+
+    private <T> T createProxy(Class<T> interfaze) throws Exception {
+        GeneratedProxyFactory.ProxyClass proxyClass = factory.getProxyClass(interfaze);
+        assertNotNull(proxyClass);
+        GeneratedProxyInvocationHandler handler =
+            new GeneratedProxyInvocationHandler(registry, new MessageFactoryImpl(), interfaze,
+                                                new MockInvocable(interfaze), proxyClass.methodTable);
+        return interfaze.cast(proxyClass.newInstance(handler));
+    }
+
+    public static interface Calculator {
+        int add(int x, int y);
+
+        double divide(double x, double y);
+
+        String echo(String message);
+
+        int sum(int[] values);
+
+        void reset();
+    }
+
+    static interface HiddenService {
+        void hello();
+    }
+
+    private static class MockInvocable implements Invocable {
+        private List<InvocationChain> chains = new ArrayList<InvocationChain>();
+
+        private MockInvocable(Class<?> interfaze) {
+            for (Method method : interfaze.getMethods()) {
+                JavaOperationImpl operation = new JavaOperationImpl();
+                operation.setName(method.getName());
+                operation.setJavaMethod(method);
+                InvocationChain chain =
+                    new InvocationChainImpl(operation, operation, true, new PhaseManager(registry));
+                chain.addInvoker(new MockInvoker());
+                chains.add(chain);
+            }
+        }
+
+        public List<InvocationChain> getInvocationChains() {
+            return chains;
+        }
+
+        public void bind(CompositeContext context) {
+        }
+
+        public void bind(ExtensionPointRegistry registry, EndpointRegistry endpointRegistry) {
+        }
+
+        public CompositeContext getCompositeContext() {
+            return null;
+        }
+
+        public void unbind() {
+        }
+
+        public Component getComponent() {
+            return null;
+        }
+
+        public Contract getContract() {
+            return null;
+        }
+
+        public Binding getBinding() {
+            return null;
+        }
+
+        public InvocationChain getInvocationChain(Operation operation) {
+            return null;
+        }
+
+        public InvocationChain getBindingInvocationChain() {
+            return null;
+        }
+
+        public Message invoke(Message msg) {
+            return null;
+        }
+
+        public Message invoke(Operation operation, Message msg) {
+            return null;
+        }
+
+        public Object invoke(Operation operation, Object[] args) {
+            return null;
+        }
+
+        public List<PolicyProvider> getPolicyProviders() {
+            return null;
+        }
+    }
+
+    private static class MockInvoker implements Invoker {
+        public Message invoke(Message msg) {
+            Object[] args = msg.getBody();
+            String name = msg.getOperation().getName();
+            if ("add".equals(name)) {
+                msg.setBody((Integer)args[0] + (Integer)args[1]);
+            } else if ("divide".equals(name)) {
+                msg.setBody((Double)args[0] / (Double)args[1]);
+            } else if ("echo".equals(name)) {
+                msg.setBody(args[0]);
+            } else if ("sum".equals(name)) {
+                int sum = 0;
+                for (int value : (int[])args[0]) {
+                    sum += value;
+                }
+                msg.setBody(sum);
+            } else {
+                msg.setBody(null);
+            }
+            return msg;
+        }
+    }
+}
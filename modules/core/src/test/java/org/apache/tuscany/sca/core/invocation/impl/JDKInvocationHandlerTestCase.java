@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.tuscany.sca.invocation.InvocationChain;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class JDKInvocationHandlerTestCase {
+
+    @Test
+    public void testPublishDispatchTable() {
+        JDKInvocationHandler handler = new JDKInvocationHandler(new MessageFactoryImpl(), Runnable.class, null);
+        Map<Method, InvocationChain> first = new IdentityHashMap<Method, InvocationChain>();
+        Map<Method, InvocationChain> second = new IdentityHashMap<Method, InvocationChain>();
+        Map<Method, InvocationChain> rebuilt = new IdentityHashMap<Method, InvocationChain>();
+
+        assertSame(first, handler.publishDispatchTable(null, first));
+        assertSame(first, handler.chains);
+
+        // the wire is rebuilt while another thread derives a table from the first one
+        handler.chains = rebuilt;
+        assertSame(rebuilt, handler.publishDispatchTable(first, second));
+        assertSame(rebuilt, handler.chains);
+
+        assertSame(second, handler.publishDispatchTable(rebuilt, second));
+        assertSame(second, handler.chains);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.core.invocation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class MessageImplTestCase {
+
+    @Test
+    public void testInheritHeaders() {
+        MessageImpl parent = new MessageImpl();
+        parent.getHeaders().put("a", "1");
+
+        MessageImpl child = new MessageImpl();
+        child.inheritHeaders(parent);
+        assertEquals("1", child.getHeaders().get("a"));
+
+        // Changes are not visible to the other message
+        child.getHeaders().put("b", "2");
+        parent.getHeaders().put("a", "3");
+        assertEquals("1", child.getHeaders().get("a"));
+        assertEquals("2", child.getHeaders().get("b"));
+        assertNull(parent.getHeaders().get("b"));
+        assertEquals(1, parent.getHeaders().size());
+    }
+
+    @Test
+    public void testIterateSharedHeaders() {
+        MessageImpl parent = new MessageImpl();
+        parent.getHeaders().put("a", "1");
+        parent.getHeaders().put("b", "2");
+
+        MessageImpl child = new MessageImpl();
+        child.inheritHeaders(parent);
+        int count = 0;
+        for (Map.Entry<String, Object> e : child.getHeaders().entrySet()) {
+            assertEquals(parent.getHeaders().get(e.getKey()), e.getValue());
+            count++;
+        }
+        assertEquals(2, count);
+        assertEquals(2, child.getHeaders().keySet().size());
+
+        // Changes made through the entries are not visible to the other message
+        for (Iterator<Map.Entry<String, Object>> i = child.getHeaders().entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, Object> e = i.next();
+            if ("a".equals(e.getKey())) {
+                i.remove();
+            } else {
+                e.setValue("3");
+            }
+        }
+        assertEquals(1, child.getHeaders().size());
+        assertEquals("3", child.getHeaders().get("b"));
+        assertEquals("1", parent.getHeaders().get("a"));
+        assertEquals("2", parent.getHeaders().get("b"));
+    }
+
+    @Test
+    public void testNoHeaders() {
+        MessageImpl parent = new MessageImpl();
+        MessageImpl child = new MessageImpl();
+        child.inheritHeaders(parent);
+        assertTrue(child.getHeaders().isEmpty());
+        assertTrue(child.getHeaders().entrySet().isEmpty());
+        assertNull(child.getHeaders().remove("a"));
+    }
+
+    @Test
+    public void testRecycle() {
+        MessageFactoryImpl factory =
+            new MessageFactoryImpl(null, Collections.singletonMap("recycleMessages", "true"));
+        MessageImpl msg = (MessageImpl)factory.createMessage();
+        msg.setBody("body");
+        msg.getHeaders().put("a", "1");
+        factory.recycleMessage(msg);
+
+        assertSame(msg, factory.createMessage());
+        assertNull(msg.getBody());
+        assertTrue(msg.getHeaders().isEmpty());
+    }
+
+}
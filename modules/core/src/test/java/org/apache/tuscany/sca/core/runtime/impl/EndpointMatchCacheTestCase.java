@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.runtime.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tuscany.sca.assembly.AssemblyFactory;
+import org.apache.tuscany.sca.assembly.Binding;
+import org.apache.tuscany.sca.assembly.Component;
+import org.apache.tuscany.sca.assembly.ComponentReference;
+import org.apache.tuscany.sca.assembly.ComponentService;
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.assembly.EndpointReference;
+import org.apache.tuscany.sca.assembly.impl.SCABindingFactoryImpl;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.assembly.RuntimeAssemblyFactory;
+import org.apache.tuscany.sca.core.assembly.impl.EndpointRegistryImpl;
+import org.apache.tuscany.sca.interfacedef.Interface;
+import org.apache.tuscany.sca.interfacedef.InterfaceContract;
+import org.apache.tuscany.sca.interfacedef.impl.InterfaceImpl;
+import org.apache.tuscany.sca.interfacedef.impl.OperationImpl;
+import org.apache.tuscany.sca.interfacedef.java.DefaultJavaInterfaceFactory;
+import org.apache.tuscany.sca.interfacedef.java.JavaInterfaceFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class EndpointMatchCacheTestCase {
+    private ExtensionPointRegistry registry;
+    private AssemblyFactory assemblyFactory;
+    private EndpointRegistryImpl endpointRegistry;
+    private JavaInterfaceFactory javaInterfaceFactory;
+    private EndpointMatchCache matchCache;
+
+    @Before
+    public void setUp() {
+        registry = new DefaultExtensionPointRegistry();
+        assemblyFactory = new RuntimeAssemblyFactory(registry);
+        javaInterfaceFactory = new DefaultJavaInterfaceFactory(registry);
+        endpointRegistry = new EndpointRegistryImpl(registry, "vm://test", "default");
+        matchCache = new EndpointMatchCache();
+        matchCache.register(endpointRegistry);
+    }
+
+    @Test
+    public void testMatch() {
+        Endpoint endpoint = createEndpoint("C1", "S1", createContract(1));
+        EndpointReference endpointReference = createEndpointReference(createContract(1));
+        endpointRegistry.addEndpoint(endpoint);
+
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+        matchCache.putPolicyMatch(endpointRegistry, endpointReference, endpoint, false);
+        assertTrue(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+        assertFalse(matchCache.getPolicyMatch(endpointRegistry, endpointReference, endpoint));
+        assertEquals(2, matchCache.getHits());
+        assertEquals(1, matchCache.getMisses());
+
+        // The interface result is for the contract of the reference
+        EndpointReference other = createEndpointReference(createContract(1));
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, other, endpoint));
+    }
+
+    @Test
+    public void testKeyedByRegistry() {
+        Endpoint endpoint = createEndpoint("C1", "S1", createContract(1));
+        EndpointReference endpointReference = createEndpointReference(createContract(1));
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+
+        EndpointRegistryImpl otherRegistry = new EndpointRegistryImpl(registry, "vm://other", "default");
+        matchCache.register(otherRegistry);
+        assertNull(matchCache.getInterfaceMatch(otherRegistry, endpointReference, endpoint));
+        assertTrue(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+
+        // Nothing is cached without a registry or for a registry which isn't listened to
+        EndpointRegistryImpl unregistered = new EndpointRegistryImpl(registry, "vm://unregistered", "default");
+        matchCache.putInterfaceMatch(unregistered, endpointReference, endpoint, true);
+        matchCache.putInterfaceMatch(null, endpointReference, endpoint, true);
+        assertNull(matchCache.getInterfaceMatch(unregistered, endpointReference, endpoint));
+        assertNull(matchCache.getInterfaceMatch(null, endpointReference, endpoint));
+    }
+
+    @Test
+    public void testKeyedByEndpoint() {
+        Endpoint endpoint = createEndpoint("C1", "S1", createContract(1));
+        EndpointReference endpointReference = createEndpointReference(createContract(1));
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+
+        // Another endpoint with the same URI, e.g. a copy received from another member
+        Endpoint copy = createEndpoint("C1", "S1", createContract(2));
+        assertEquals(endpoint.getURI(), copy.getURI());
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, copy));
+    }
+
+    @Test
+    public void testInvalidation() {
+        Endpoint endpoint = createEndpoint("C1", "S1", createContract(1));
+        EndpointReference endpointReference = createEndpointReference(createContract(1));
+        endpointRegistry.addEndpoint(endpoint);
+
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+        endpointRegistry.removeEndpoint(endpoint);
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+
+        endpointRegistry.addEndpoint(endpoint);
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+        Endpoint updated = createEndpoint("C1", "S1", createContract(1));
+        endpointRegistry.updateEndpoint("C1#S1", updated);
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+
+        // An endpoint added with the same URI drops the results of the other instances
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+        Endpoint other = createEndpoint("C2", "S1", createContract(1));
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, other, false);
+        endpointRegistry.addEndpoint(createEndpoint("C1", "S1", createContract(1)));
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+        assertFalse(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, other));
+
+        matchCache.clear();
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, other));
+    }
+
+    @Test
+    public void testUnresolvedContract() {
+        // A remote endpoint whose interface contract hasn't been resolved has no operations
+        Endpoint endpoint = createEndpoint("C1", "S1", createContract(0));
+        EndpointReference endpointReference = createEndpointReference(createContract(1));
+
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, endpointReference, endpoint));
+
+        EndpointReference unresolved = createEndpointReference(createContract(0));
+        endpoint = createEndpoint("C1", "S1", createContract(1));
+        matchCache.putInterfaceMatch(endpointRegistry, unresolved, endpoint, true);
+        assertNull(matchCache.getInterfaceMatch(endpointRegistry, unresolved, endpoint));
+
+        // A mismatch is a mismatch whatever the contract becomes
+        matchCache.putInterfaceMatch(endpointRegistry, unresolved, endpoint, false);
+        assertFalse(matchCache.getInterfaceMatch(endpointRegistry, unresolved, endpoint));
+    }
+
+    @Test
+    public void testContractNotPinned() {
+        Endpoint endpoint = createEndpoint("C1", "S1", createContract(1));
+        InterfaceContract contract = createContract(1);
+        EndpointReference endpointReference = createEndpointReference(contract);
+        matchCache.putInterfaceMatch(endpointRegistry, endpointReference, endpoint, true);
+
+        WeakReference<InterfaceContract> ref = new WeakReference<InterfaceContract>(contract);
+        endpointReference.getReference().setInterfaceContract(null);
+        endpointReference = null;
+        contract = null;
+
+        List<byte[]> garbage = new ArrayList<byte[]>();
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            try {
+                garbage.add(new byte[1024 * 1024]);
+            } catch (OutOfMemoryError e) {
+                garbage.clear();
+            }
+        }
+        assertNull(ref.get());
+    }
+
+    private InterfaceContract createContract(int operations) {
+        Interface callInterface = new InterfaceImpl();
+        callInterface.setRemotable(true);
+        for (int i = 0; i < operations; i++) {
+            OperationImpl operation = new OperationImpl();
+            operation.setName("op" + i);
+            callInterface.getOperations().add(operation);
+        }
+        InterfaceContract contract = javaInterfaceFactory.createJavaInterfaceContract();
+        contract.setInterface(callInterface);
+        return contract;
+    }
+
+    private EndpointReference createEndpointReference(InterfaceContract contract) {
+        ComponentReference reference = assemblyFactory.createComponentReference();
+        reference.setName("ref");
+        reference.setInterfaceContract(contract);
+        EndpointReference endpointReference = assemblyFactory.createEndpointReference();
+        endpointReference.setReference(reference);
+        return endpointReference;
+    }
+
+    private Endpoint createEndpoint(String componentName, String serviceName, InterfaceContract contract) {
+        Component component = assemblyFactory.createComponent();
+        component.setName(componentName);
+        component.setURI(componentName);
+        ComponentService service = assemblyFactory.createComponentService();
+        service.setName(serviceName);
+        service.setInterfaceContract(contract);
+        Binding binding = new SCABindingFactoryImpl().createSCABinding();
+        Endpoint endpoint = assemblyFactory.createEndpoint();
+        endpoint.setComponent(component);
+        endpoint.setService(service);
+        endpoint.setBinding(binding);
+        return endpoint;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.scope.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tuscany.sca.core.assembly.impl.RuntimeComponentImpl;
+import org.apache.tuscany.sca.core.factory.InstanceWrapper;
+import org.apache.tuscany.sca.core.scope.Scope;
+import org.apache.tuscany.sca.core.scope.ScopedImplementationProvider;
+import org.apache.tuscany.sca.core.scope.TargetInitializationException;
+import org.apache.tuscany.sca.interfacedef.Operation;
+import org.apache.tuscany.sca.invocation.Invoker;
+import org.apache.tuscany.sca.runtime.RuntimeComponent;
+import org.apache.tuscany.sca.runtime.RuntimeComponentService;
+import org.junit.Before;
+import org.junit.Test;
+import org.oasisopen.sca.ServiceUnavailableException;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class CompositeScopeContainerTestCase {
+    private MockProvider provider;
+    private RuntimeComponent component;
+    private CompositeScopeContainer<Object> container;
+
+    @Before
+    public void setUp() {
+        provider = new MockProvider();
+        component = new RuntimeComponentImpl();
+        component.setImplementationProvider(provider);
+        container = new CompositeScopeContainer<Object>(component);
+    }
+
+    @Test
+    public void testReentrantInit() throws Exception {
+        container.start();
+        InstanceWrapper wrapper = container.getWrapper(null);
+        assertSame(wrapper, ((MockWrapper)wrapper).resolved);
+        assertSame(wrapper, container.getWrapper(null));
+        assertEquals(1, provider.created.get());
+        container.stop();
+    }
+
+    @Test
+    public void testEagerInit() throws Exception {
+        provider.eagerInit = true;
+        container.start();
+        assertEquals(1, provider.created.get());
+        InstanceWrapper wrapper = container.getAssociatedWrapper(null);
+        assertSame(wrapper, ((MockWrapper)wrapper).resolved);
+        assertSame(wrapper, container.getWrapper(null));
+        assertEquals(1, provider.created.get());
+        container.stop();
+    }
+
+    @Test
+    public void testFailedInit() throws Exception {
+        provider.failures.set(1);
+        container.start();
+        try {
+            container.getWrapper(null);
+            fail("ServiceUnavailableException expected");
+        } catch (ServiceUnavailableException e) {
+            assertTrue(e.getCause() instanceof TargetInitializationException);
+        }
+        InstanceWrapper wrapper = container.getWrapper(null);
+        assertSame(wrapper, ((MockWrapper)wrapper).resolved);
+        assertEquals(2, provider.created.get());
+        container.stop();
+    }
+
+    @Test
+    public void testOtherThreadsWaitForInit() throws Exception {
+        provider.waiter = true;
+        container.start();
+        MockWrapper wrapper = (MockWrapper)container.getWrapper(null);
+        wrapper.waiter.join();
+        assertNotNull(wrapper.waited);
+        assertSame(wrapper, wrapper.waited);
+        assertTrue(wrapper.startedWhenSeen);
+        assertEquals(1, provider.created.get());
+        container.stop();
+    }
+
+    private class MockProvider implements ScopedImplementationProvider {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private boolean eagerInit;
+        private boolean waiter;
+
+        public Scope getScope() {
+            return Scope.COMPOSITE;
+        }
+
+        public boolean isEagerInit() {
+            return eagerInit;
+        }
+
+        public InstanceWrapper createInstanceWrapper() {
+            created.incrementAndGet();
+            return new MockWrapper(failures.getAndDecrement() > 0, waiter);
+        }
+
+        public Invoker createInvoker(RuntimeComponentService service, Operation operation) {
+            return null;
+        }
+
+        public boolean supportsOneWayInvocation() {
+            return false;
+        }
+
+        public void start() {
+        }
+
+        public void stop() {
+        }
+    }
+
+    /**
+     * Resolves the component from its @Init method, like a component calling its own service
+     */
+    private class MockWrapper implements InstanceWrapper<Object> {
+        private final Object instance = new Object();
+        private final boolean fail;
+        private final boolean wait;
+        private volatile boolean started;
+        private InstanceWrapper resolved;
+        private Thread waiter;
+        private volatile InstanceWrapper waited;
+        private volatile boolean startedWhenSeen;
+
+        private MockWrapper(boolean fail, boolean wait) {
+            this.fail = fail;
+            this.wait = wait;
+        }
+
+        public Object getInstance() {
+            return instance;
+        }
+
+        public void start() throws TargetInitializationException {
+            if (fail) {
+                throw new TargetInitializationException("Init failed");
+            }
+            if (wait) {
+                waiter = new Thread() {
+                    public void run() {
+                        try {
+                            waited = container.getWrapper(null);
+                            startedWhenSeen = ((MockWrapper)waited).started;
+                        } catch (Exception e) {
+                            // Checked by the test
+                        }
+                    }
+                };
+                waiter.start();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                resolved = container.getWrapper(null);
+            } catch (Exception e) {
+                throw new TargetInitializationException(e);
+            }
+            started = true;
+        }
+
+        public void stop() {
+            started = false;
+        }
+    }
+}
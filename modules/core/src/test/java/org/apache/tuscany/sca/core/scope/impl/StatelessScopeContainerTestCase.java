@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.core.scope.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tuscany.sca.core.assembly.impl.RuntimeComponentImpl;
+import org.apache.tuscany.sca.core.factory.InstanceWrapper;
+import org.apache.tuscany.sca.core.scope.Scope;
+import org.apache.tuscany.sca.core.scope.ScopedImplementationProvider;
+import org.apache.tuscany.sca.interfacedef.Operation;
+import org.apache.tuscany.sca.invocation.Invoker;
+import org.apache.tuscany.sca.policy.DefaultPolicyFactory;
+import org.apache.tuscany.sca.policy.Intent;
+import org.apache.tuscany.sca.runtime.RuntimeComponent;
+import org.apache.tuscany.sca.runtime.RuntimeComponentService;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class StatelessScopeContainerTestCase {
+    private MockProvider provider;
+    private RuntimeComponent component;
+
+    @Before
+    public void setUp() {
+        provider = new MockProvider();
+        component = new RuntimeComponentImpl();
+        component.setImplementationProvider(provider);
+        Intent intent = new DefaultPolicyFactory().createIntent();
+        intent.setName(StatelessScopeContainer.INSTANCE_POOL_INTENT);
+        component.getRequiredIntents().add(intent);
+    }
+
+    @Test
+    public void testNotPooledWithoutIntent() throws Exception {
+        component.getRequiredIntents().clear();
+        StatelessScopeContainer<Object> container = new StatelessScopeContainer<Object>(component, 1, 4, 0);
+        container.start();
+        assertFalse(container.isPooled());
+
+        InstanceWrapper wrapper = container.getWrapper(null);
+        container.returnWrapper(wrapper, null);
+        assertFalse(((MockWrapper)wrapper).started);
+        assertNotSame(wrapper, container.getWrapper(null));
+        container.stop();
+    }
+
+    @Test
+    public void testMinPoolSize() throws Exception {
+        StatelessScopeContainer<Object> container = new StatelessScopeContainer<Object>(component, 2, 4, 0);
+        container.start();
+        assertTrue(container.isPooled());
+        assertEquals(2, container.getPoolSize());
+        assertEquals(2, provider.created.get());
+
+        container.getWrapper(null);
+        assertEquals(1, container.getPoolHits());
+        assertEquals(1, container.getPoolSize());
+
+        container.stop();
+        assertEquals(0, container.getPoolSize());
+        assertEquals(1, provider.stopped.get());
+    }
+
+    @Test
+    public void testMaxPoolSize() throws Exception {
+        StatelessScopeContainer<Object> container = new StatelessScopeContainer<Object>(component, 0, 2, 0);
+        container.start();
+        InstanceWrapper[] wrappers = new InstanceWrapper[3];
+        for (int i = 0; i < wrappers.length; i++) {
+            wrappers[i] = container.getWrapper(null);
+        }
+        assertEquals(3, container.getPoolMisses());
+        for (InstanceWrapper wrapper : wrappers) {
+            container.returnWrapper(wrapper, null);
+        }
+        // The instance returned when the pool is full is destroyed
+        assertEquals(2, container.getPoolSize());
+        assertEquals(1, provider.stopped.get());
+        assertFalse(((MockWrapper)wrappers[2]).started);
+        container.stop();
+    }
+
+    @Test
+    public void testLastReturnedIsReusedFirst() throws Exception {
+        StatelessScopeContainer<Object> container = new StatelessScopeContainer<Object>(component, 0, 4, 0);
+        container.start();
+        InstanceWrapper first = container.getWrapper(null);
+        InstanceWrapper second = container.getWrapper(null);
+        container.returnWrapper(first, null);
+        container.returnWrapper(second, null);
+        assertSame(second, container.getWrapper(null));
+        container.stop();
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        StatelessScopeContainer<Object> container = new StatelessScopeContainer<Object>(component, 1, 4, 100);
+        container.start();
+        InstanceWrapper[] wrappers = new InstanceWrapper[3];
+        for (int i = 0; i < wrappers.length; i++) {
+            wrappers[i] = container.getWrapper(null);
+        }
+        for (InstanceWrapper wrapper : wrappers) {
+            container.returnWrapper(wrapper, null);
+        }
+        assertEquals(3, container.getPoolSize());
+
+        Thread.sleep(150);
+
+        // Keep one instance busy: it is the most recently returned one that is reused,
+        // so the others stay idle and are evicted down to the minimum pool size
+        InstanceWrapper busy = container.getWrapper(null);
+        assertSame(wrappers[2], busy);
+        container.returnWrapper(busy, null);
+        assertEquals(2, container.getEvictions());
+        assertEquals(1, container.getPoolSize());
+        assertSame(busy, container.getWrapper(null));
+        container.stop();
+    }
+
+    private static class MockProvider implements ScopedImplementationProvider {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger stopped = new AtomicInteger();
+
+        public Scope getScope() {
+            return Scope.STATELESS;
+        }
+
+        public boolean isEagerInit() {
+            return false;
+        }
+
+        public InstanceWrapper createInstanceWrapper() {
+            created.incrementAndGet();
+            return new MockWrapper(stopped);
+        }
+
+        public Invoker createInvoker(RuntimeComponentService service, Operation operation) {
+            return null;
+        }
+
+        public boolean supportsOneWayInvocation() {
+            return false;
+        }
+
+        public void start() {
+        }
+
+        public void stop() {
+        }
+    }
+
+    private static class MockWrapper implements InstanceWrapper<Object> {
+        private final AtomicInteger stopped;
+        private final Object instance = new Object();
+        private boolean started;
+
+        private MockWrapper(AtomicInteger stopped) {
+            this.stopped = stopped;
+        }
+
+        public Object getInstance() {
+            return instance;
+        }
+
+        public void start() {
+            started = true;
+        }
+
+        public void stop() {
+            started = false;
+            stopped.incrementAndGet();
+        }
+    }
+}
@@ -18,6 +18,10 @@
  */
 package org.apache.tuscany.sca.core.work.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -210,6 +214,30 @@ public class Jsr237WorkSchedulerTestCase {
         }
     }
 
+    /**
+     * Tests waiting for the work items returned when scheduling the work
+     */
+    @Test
+    public void testWaitForWorkItems() throws Exception {
+        JSR237MyRunnable fast = new JSR237MyRunnable(10);
+        JSR237MyRunnable slow = new JSR237MyRunnable(500);
+        JSR237MyRunnerListener listener = new JSR237MyRunnerListener();
+        WorkItem fastItem = workSchedular.schedule(fast, listener);
+        WorkItem slowItem = workSchedular.schedule(slow, null);
+        List<WorkItem> workItems = new ArrayList<WorkItem>();
+        workItems.add(slowItem);
+        workItems.add(fastItem);
+
+        Collection<WorkItem> done = workSchedular.waitForAny(workItems, WAIT_TIMEOUT);
+        Assert.assertTrue(done.contains(fastItem));
+        Assert.assertFalse(done.contains(slowItem));
+        Assert.assertTrue(fastItem.isDone());
+
+        Assert.assertTrue(workSchedular.waitForAll(workItems, WAIT_TIMEOUT));
+        Assert.assertEquals(WorkEvent.WORK_COMPLETED, slowItem.getStatus());
+        Assert.assertEquals(1, listener.getWorkCompletedCallCount());
+    }
+
     /**
      * Waits for the specified number of jobs to complete or the timeout to fire.
      *
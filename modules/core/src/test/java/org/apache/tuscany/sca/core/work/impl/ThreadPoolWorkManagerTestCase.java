@@ -18,6 +18,13 @@
  */
 package org.apache.tuscany.sca.core.work.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -197,6 +204,138 @@ public class ThreadPoolWorkManagerTestCase {
         Assert.assertEquals(1, fast.getRunCompletedCount());
     }
 
+    /**
+     * Tests waiting for all the jobs to complete
+     */
+    @Test
+    public void testWaitForAll() throws Exception {
+        List<WorkItem> workItems = new ArrayList<WorkItem>();
+        TimeDelayWork slow = new TimeDelayWork(200);
+        workItems.add(workManager.schedule(new TimeDelayWork(10)));
+        workItems.add(workManager.schedule(slow));
+        workItems.add(workManager.schedule(new FailingWork()));
+
+        Assert.assertTrue(workManager.waitForAll(workItems, WAIT_TIMEOUT));
+        Assert.assertEquals(1, slow.getRunCompletedCount());
+        for (WorkItem workItem : workItems) {
+            Assert.assertTrue(workItem.isDone());
+        }
+        Assert.assertNotNull(workItems.get(2).getException());
+        Assert.assertTrue(workManager.getExecutionLatency().getCount() >= 3);
+    }
+
+    /**
+     * Tests waiting for any of the jobs to complete
+     */
+    @Test
+    public void testWaitForAny() throws Exception {
+        List<WorkItem> workItems = new ArrayList<WorkItem>();
+        WorkItem fast = workManager.schedule(new TimeDelayWork(10));
+        workItems.add(workManager.schedule(new TimeDelayWork(2000)));
+        workItems.add(fast);
+
+        Collection<?> done = workManager.waitForAny(workItems, WAIT_TIMEOUT);
+        Assert.assertTrue(done.contains(fast));
+        Assert.assertFalse(workManager.waitForAll(workItems, WorkListener.IMMEDIATE));
+    }
+
+    /**
+     * Tests that a bounded pool rejects the work it cannot queue and reports it in its metrics
+     */
+    @Test
+    public void testBoundedPoolRejection() {
+        ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1),
+                                   ThreadPoolWorkManager.DAEMON_THREAD_FACTORY);
+        ThreadPoolWorkManager boundedManager = new ThreadPoolWorkManager(pool);
+        try {
+            TestWorkListener listener = new TestWorkListener();
+            boundedManager.schedule(new TimeDelayWork(500), listener);
+            boundedManager.schedule(new TimeDelayWork(10), listener);
+            try {
+                boundedManager.schedule(new TimeDelayWork(10), listener);
+                Assert.fail("IllegalArgumentException expected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            Assert.assertEquals(1, listener.getWorkRejectedCallCount());
+            Assert.assertEquals(1, boundedManager.getRejectedCount());
+            Assert.assertEquals(1, boundedManager.getQueueSize());
+
+            waitForWorkToComplete(listener, 2);
+            Assert.assertEquals(0, boundedManager.getQueueSize());
+        } finally {
+            boundedManager.destroy();
+        }
+    }
+
+    /**
+     * Tests that the work dropped by the discard policy is completed as rejected
+     */
+    @Test
+    public void testDiscardPolicy() throws Exception {
+        ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1),
+                                   ThreadPoolWorkManager.DAEMON_THREAD_FACTORY, new ThreadPoolExecutor.DiscardPolicy());
+        ThreadPoolWorkManager boundedManager = new ThreadPoolWorkManager(pool);
+        try {
+            TestWorkListener listener = new TestWorkListener();
+            List<WorkItem> workItems = new ArrayList<WorkItem>();
+            workItems.add(boundedManager.schedule(new TimeDelayWork(500), listener));
+            workItems.add(boundedManager.schedule(new TimeDelayWork(10), listener));
+            TimeDelayWork discarded = new TimeDelayWork(10);
+            WorkItem discardedItem = boundedManager.schedule(discarded, listener);
+            workItems.add(discardedItem);
+
+            Assert.assertTrue(discardedItem.isDone());
+            Assert.assertEquals(WorkEvent.WORK_REJECTED, discardedItem.getStatus());
+            Assert.assertEquals(1, listener.getWorkRejectedCallCount());
+            Assert.assertEquals(1, boundedManager.getRejectedCount());
+
+            Assert.assertTrue(boundedManager.waitForAll(workItems, WAIT_TIMEOUT));
+            Assert.assertEquals(0, discarded.getRunCompletedCount());
+            waitForWorkToComplete(listener, 2);
+        } finally {
+            boundedManager.destroy();
+        }
+    }
+
+    /**
+     * Tests that the queued work dropped by the discard oldest policy is completed as rejected
+     */
+    @Test
+    public void testDiscardOldestPolicy() throws Exception {
+        ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1),
+                                   ThreadPoolWorkManager.DAEMON_THREAD_FACTORY,
+                                   new ThreadPoolExecutor.DiscardOldestPolicy());
+        ThreadPoolWorkManager boundedManager = new ThreadPoolWorkManager(pool);
+        try {
+            TestWorkListener listener = new TestWorkListener();
+            List<WorkItem> workItems = new ArrayList<WorkItem>();
+            workItems.add(boundedManager.schedule(new TimeDelayWork(500), listener));
+            TimeDelayWork oldest = new TimeDelayWork(10);
+            WorkItem oldestItem = boundedManager.schedule(oldest, listener);
+            workItems.add(oldestItem);
+            TimeDelayWork newest = new TimeDelayWork(10);
+            WorkItem newestItem = boundedManager.schedule(newest, listener);
+            workItems.add(newestItem);
+
+            Assert.assertTrue(oldestItem.isDone());
+            Assert.assertEquals(WorkEvent.WORK_REJECTED, oldestItem.getStatus());
+            Assert.assertEquals(1, listener.getWorkRejectedCallCount());
+            Assert.assertEquals(1, boundedManager.getRejectedCount());
+            Assert.assertEquals(1, boundedManager.getQueueSize());
+
+            Assert.assertTrue(boundedManager.waitForAll(workItems, WAIT_TIMEOUT));
+            Assert.assertEquals(0, oldest.getRunCompletedCount());
+            Assert.assertEquals(1, newest.getRunCompletedCount());
+            Assert.assertEquals(WorkEvent.WORK_COMPLETED, newestItem.getStatus());
+        } finally {
+            boundedManager.destroy();
+        }
+    }
+
     /**
      * Waits for the specified number of jobs to complete or the timeout to fire.
      *
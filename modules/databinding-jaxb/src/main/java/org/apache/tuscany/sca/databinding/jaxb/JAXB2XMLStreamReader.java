@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.databinding.jaxb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBIntrospector;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.tuscany.sca.common.xml.stax.StAXHelper;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.databinding.BaseTransformer;
+import org.apache.tuscany.sca.databinding.PullTransformer;
+import org.apache.tuscany.sca.databinding.TransformationContext;
+import org.apache.tuscany.sca.databinding.TransformationException;
+import org.apache.tuscany.sca.interfacedef.DataType;
+import org.apache.tuscany.sca.interfacedef.util.XMLType;
+
+/**
+ * Transforms JAXB objects into an XMLStreamReader. The object is marshalled into an in-memory
+ * UTF-8 buffer which is then read by the StAX parser, so no intermediate DOM is built.
+ * <p>
+ * This is not a streaming transformation: JAXB only pushes events, so the whole marshalled
+ * document is held in the buffer until the reader is created. The memory used is the size of the
+ * serialized XML, which is still far less than the DOM tree JAXB2Node and Node2XMLStreamReader
+ * would build. The weight reflects that, it is below the JAXB2Node weight and above the weights
+ * of the transformers which really stream.
+ *
+ * @version $Rev$ $Date$
+ */
+public class JAXB2XMLStreamReader extends BaseTransformer<Object, XMLStreamReader> implements
+    PullTransformer<Object, XMLStreamReader> {
+    private JAXBContextHelper contextHelper;
+    private StAXHelper staxHelper;
+
+    public JAXB2XMLStreamReader(ExtensionPointRegistry registry) {
+        contextHelper = JAXBContextHelper.getInstance(registry);
+        staxHelper = StAXHelper.getInstance(registry);
+    }
+
+    public XMLStreamReader transform(Object source, TransformationContext tContext) {
+        try {
+            JAXBContext context = contextHelper.createJAXBContext(tContext, true);
+            Marshaller marshaller = context.createMarshaller();
+            Object jaxbElement = JAXBContextHelper.createJAXBElement(context, tContext.getSourceDataType(), source);
+            jaxbElement = adjustElementName(context, tContext, jaxbElement);
+            Buffer buffer = new Buffer();
+            marshaller.marshal(jaxbElement, buffer);
+            return staxHelper.createXMLStreamReader(buffer.getInputStream());
+        } catch (Exception e) {
+            throw new TransformationException(e);
+        }
+    }
+
+    /**
+     * Rename the root element if the target data type expects a different element, as
+     * JAXB2Node does for the DOM element
+     */
+    @SuppressWarnings("unchecked")
+    private static Object adjustElementName(JAXBContext context, TransformationContext tContext, Object jaxbElement) {
+        DataType dataType = tContext.getTargetDataType();
+        Object logical = dataType == null ? null : dataType.getLogical();
+        if (!(logical instanceof XMLType) || !((XMLType)logical).isElement()) {
+            return jaxbElement;
+        }
+        QName elementName = ((XMLType)logical).getElementName();
+        JAXBIntrospector introspector = context.createJAXBIntrospector();
+        if (elementName.equals(introspector.getElementName(jaxbElement))) {
+            return jaxbElement;
+        }
+        if (jaxbElement instanceof JAXBElement) {
+            JAXBElement<Object> element = (JAXBElement<Object>)jaxbElement;
+            return new JAXBElement<Object>(elementName, element.getDeclaredType(), element.getValue());
+        }
+        return new JAXBElement<Object>(elementName, (Class<Object>)jaxbElement.getClass(), jaxbElement);
+    }
+
+    /**
+     * A byte buffer which can be read back without copying
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        private Buffer() {
+            super(4096);
+        }
+
+        private ByteArrayInputStream getInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    @Override
+    protected Class<Object> getSourceType() {
+        return Object.class;
+    }
+
+    @Override
+    protected Class<XMLStreamReader> getTargetType() {
+        return XMLStreamReader.class;
+    }
+
+    /**
+     * The same weight as the javax.xml.bind.JAXBElement declaration in
+     * META-INF/services/org.apache.tuscany.sca.databinding.PullTransformer
+     */
+    @Override
+    public int getWeight() {
+        return 480;
+    }
+
+    @Override
+    public String getSourceDataBinding() {
+        return JAXBDataBinding.NAME;
+    }
+}
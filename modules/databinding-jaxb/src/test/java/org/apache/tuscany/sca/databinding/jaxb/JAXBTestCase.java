@@ -21,6 +21,7 @@ package org.apache.tuscany.sca.databinding.jaxb;
 import java.io.StringReader;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
@@ -100,6 +101,29 @@ public class JAXBTestCase {
 
     }
 
+    @Test
+    public void testStreamingTransform() throws Exception {
+        Reader2JAXB t0 = new Reader2JAXB(registry);
+
+        QName root = new QName("http://www.example.com/IPO", "purchaseOrder");
+        DataType dataType = new DataTypeImpl<XMLType>(PurchaseOrderType.class, new XMLType(root, null));
+
+        TransformationContext tContext = new TransformationContextImpl();
+        tContext.setTargetDataType(dataType);
+        Object object1 = t0.transform(new StringReader(IPO_XML), tContext);
+
+        TransformationContext tContext1 = new TransformationContextImpl();
+        tContext1.setSourceDataType(dataType);
+        JAXB2XMLStreamReader t1 = new JAXB2XMLStreamReader(registry);
+        XMLStreamReader reader = t1.transform(object1, tContext1);
+        Assert.assertNotNull(reader);
+
+        XMLStreamReader2JAXB t2 = new XMLStreamReader2JAXB(registry);
+        Object object2 = t2.transform(reader, tContext);
+        Assert.assertTrue(object2 instanceof PurchaseOrderType);
+        Assert.assertEquals("Cambridge", ((PurchaseOrderType)object2).getShipTo().getCity());
+    }
+
     @Test
     public void testTransform2() throws Exception {
         Reader2JAXB t0 = new Reader2JAXB(registry);
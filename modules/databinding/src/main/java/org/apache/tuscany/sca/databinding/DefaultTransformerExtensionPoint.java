@@ -24,26 +24,76 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.LifeCycleListener;
 import org.apache.tuscany.sca.databinding.impl.DirectedGraph;
+import org.apache.tuscany.sca.databinding.xml.DOMDataBinding;
 import org.apache.tuscany.sca.extensibility.ServiceDeclaration;
 import org.apache.tuscany.sca.extensibility.ServiceDiscovery;
 
 /**
  * @version $Rev$ $Date$
  */
-public class DefaultTransformerExtensionPoint implements TransformerExtensionPoint {
+public class DefaultTransformerExtensionPoint implements TransformerExtensionPoint, LifeCycleListener {
     private static final Logger logger = Logger.getLogger(DefaultTransformerExtensionPoint.class.getName());
-    private boolean loadedTransformers;
+
+    /**
+     * Additional weight for transformers producing a DOM. Building a DOM tree costs far more
+     * memory and time than the streaming transformers, so paths going through an intermediate
+     * DOM are only chosen if there is no streaming alternative of similar weight.
+     */
+    public static final int DOM_WEIGHT = 100;
+
+    private volatile boolean loadedTransformers;
 
     private ExtensionPointRegistry registry;
     private final DirectedGraph<Object, Transformer> graph = new DirectedGraph<Object, Transformer>();
 
+    /**
+     * Compute the transformer chains between all the databindings in the background on start
+     */
+    private boolean precomputeChains;
+
     public DefaultTransformerExtensionPoint(ExtensionPointRegistry registry) {
+        this(registry, null);
+    }
+
+    public DefaultTransformerExtensionPoint(ExtensionPointRegistry registry, Map<String, String> attributes) {
         this.registry = registry;
+        if (attributes != null) {
+            precomputeChains = Boolean.parseBoolean(attributes.get("precomputeChains"));
+        }
+    }
+
+    public void start() {
+        if (!precomputeChains) {
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                                                      new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Tuscany-TransformerChains");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.execute(new Runnable() {
+            public void run() {
+                loadTransformers();
+                graph.computeShortestPaths(executor);
+                // The submitted tasks still run
+                executor.shutdown();
+            }
+        });
+    }
+
+    public void stop() {
     }
 
     public void addTransformer(String sourceType, String resultType, int weight, Transformer transformer, boolean publicTransformer) {
@@ -72,6 +122,9 @@ public class DefaultTransformerExtensionPoint implements TransformerExtensionPoi
                 + ",lazy="
                 + lazy);
         }
+        if (DOMDataBinding.NAME.equals(resultType)) {
+            weight += DOM_WEIGHT;
+        }
         graph.addEdge(sourceType, resultType, transformer, weight, publicTransformer);
     }
 
@@ -97,14 +150,18 @@ public class DefaultTransformerExtensionPoint implements TransformerExtensionPoi
      * Dynamically load transformers registered under META-INF/services.
      *
      */
-    private synchronized void loadTransformers() {
+    private void loadTransformers() {
         if (loadedTransformers) {
             return;
         }
-        loadedTransformers = true;
-        loadTransformers(PullTransformer.class);
-        loadTransformers(PushTransformer.class);
-
+        synchronized (this) {
+            if (loadedTransformers) {
+                return;
+            }
+            loadTransformers(PullTransformer.class);
+            loadTransformers(PushTransformer.class);
+            loadedTransformers = true;
+        }
     }
 
     /**
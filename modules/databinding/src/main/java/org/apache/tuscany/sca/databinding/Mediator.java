@@ -92,6 +92,18 @@ public interface Mediator {
      */
     Object mediateFault(Object fault, Operation sourceOperation, Operation targetOperation, Map<String, Object> metadata);
 
+    /**
+     * Create a pipeline which resolves the input, output and fault transformations between the
+     * source and target operation ahead of the invocations
+     * @param sourceOperation The source operation
+     * @param targetOperation The target operation
+     * @param metadata Additional metadata
+     * @return The transformation pipeline
+     */
+    TransformationPipeline createTransformationPipeline(Operation sourceOperation,
+                                                        Operation targetOperation,
+                                                        Map<String, Object> metadata);
+
     /**
      * Copy the data
      * @param data The orginal data
@@ -124,6 +136,14 @@ public interface Mediator {
                 Operation sourceOperation,
                 Operation targetOperation);
     
+    /**
+     * Check if the input and output data of an operation are all of immutable types, in which case
+     * they don't need to be copied to enforce pass-by-value semantics
+     * @param operation The operation
+     * @return true if the operation signature is immutable
+     */
+    boolean isImmutable(Operation operation);
+
     /**
      * Copy an array of data objects passed to an operation
      * @param data array of objects to copy
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.databinding;
+
+/**
+ * A pipeline that transforms the input, output and fault data between a source and a target
+ * operation. The transformer paths and the transformation contexts are resolved when the pipeline
+ * is created so that each invocation only runs the transformers.
+ *
+ * @version $Rev$ $Date$
+ * @tuscany.spi.extension.asclient
+ */
+public interface TransformationPipeline {
+
+    /**
+     * Transform the input parameters for the source operation to the expected parameters for
+     * the target operation
+     * @param input The input data, typically an array of parameters
+     * @return The transformed input data for the target operation
+     */
+    Object transformInput(Object input);
+
+    /**
+     * Transform the return value for the target operation to the expected return value for
+     * the source operation
+     * @param output The output data, typically the return value
+     * @return The transformed output data for the source operation
+     */
+    Object transformOutput(Object output);
+
+    /**
+     * Transform the fault data for the target operation to the expected fault data for
+     * the source operation
+     * @param fault The fault data, such as Java exception or fault message
+     * @return The transformed fault data for the source operation
+     */
+    Object transformFault(Object fault);
+
+}
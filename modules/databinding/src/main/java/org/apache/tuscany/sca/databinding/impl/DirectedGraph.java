@@ -22,15 +22,22 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 /**
  * Directed, weighted graph
+ * <p>
+ * The graph can be read concurrently with updates. Reads never block: the vertices and edges are
+ * kept in concurrent maps, and updates are serialized on the graph. The shortest paths are cached.
+ * Adding an edge only evicts the cached paths between vertices connected through the new edge,
+ * and removing an edge only evicts the cached paths using it.
  * 
  * @param <V> The type of vertex object
  * @param <E> The type of edge object
@@ -39,7 +46,12 @@ import java.util.logging.Logger;
  */
 public class DirectedGraph<V, E> implements Cloneable {
     private final static Logger logger = Logger.getLogger(DirectedGraph.class.getName());
-    private final Map<V, Vertex> vertices = new HashMap<V, Vertex>();
+    private final Map<V, Vertex> vertices = new ConcurrentHashMap<V, Vertex>();
+
+    /**
+     * Incremented on each update so that a path computed against an older graph is not cached
+     */
+    private volatile int version;
 
     /**
      * Key for the shortest path cache
@@ -89,8 +101,8 @@ public class DirectedGraph<V, E> implements Cloneable {
 
         // TODO: Do we want to support multiple edges for a vertex pair? If so,
         // we should use a List instead of Map
-        private Map<Vertex, Edge> outEdges = new HashMap<Vertex, Edge>();
-        private Map<Vertex, Edge> inEdges = new HashMap<Vertex, Edge>();
+        private Map<Vertex, Edge> outEdges = new ConcurrentHashMap<Vertex, Edge>();
+        private Map<Vertex, Edge> inEdges = new ConcurrentHashMap<Vertex, Edge>();
 
         private Vertex(V value) {
             this.value = value;
@@ -189,6 +201,8 @@ public class DirectedGraph<V, E> implements Cloneable {
 
         private Node previous; // NOPMD by rfeng on 9/26/06 9:17 PM
 
+        private Edge previousEdge;
+
         private Vertex vertex; // NOPMD by rfeng on 9/26/06 9:17 PM
 
         private Node(Vertex vertex) {
@@ -200,7 +214,7 @@ public class DirectedGraph<V, E> implements Cloneable {
         }
     }
 
-    public void addEdge(V source, V target, E edgeValue, int weight, boolean publicEdge) {
+    public synchronized void addEdge(V source, V target, E edgeValue, int weight, boolean publicEdge) {
         // Fix for TUSCANY-3456 
         // First check if we already has an edge
         Edge edge = getEdge(source, target);
@@ -229,6 +243,8 @@ public class DirectedGraph<V, E> implements Cloneable {
         edge = new Edge(s, t, edgeValue, weight, publicEdge);
         s.outEdges.put(t, edge);
         t.inEdges.put(s, edge);
+        version++;
+        invalidatePaths(s, t);
     }
 
     public void addEdge(V soure, V target) {
@@ -240,7 +256,7 @@ public class DirectedGraph<V, E> implements Cloneable {
         return s;
     }
 
-    public boolean removeEdge(V source, V target) {
+    public synchronized boolean removeEdge(V source, V target) {
         Vertex s = getVertex(source);
         if (s == null) {
             return false;
@@ -251,16 +267,24 @@ public class DirectedGraph<V, E> implements Cloneable {
             return false;
         }
 
-        return s.outEdges.remove(t) != null && t.inEdges.remove(s) != null;
+        Edge edge = s.outEdges.remove(t);
+        boolean removed = edge != null && t.inEdges.remove(s) != null;
+        if (edge != null) {
+            version++;
+            invalidatePaths(edge);
+        }
+        return removed;
 
     }
 
-    public void removeEdge(Edge edge) {
+    public synchronized void removeEdge(Edge edge) {
         edge.sourceVertex.outEdges.remove(edge.targetVertex);
         edge.targetVertex.inEdges.remove(edge.sourceVertex);
+        version++;
+        invalidatePaths(edge);
     }
 
-    public void removeVertex(Vertex vertex) {
+    public synchronized void removeVertex(Vertex vertex) {
         vertices.remove(vertex.getValue());
         for (Edge e : new ArrayList<Edge>(vertex.outEdges.values())) {
             removeEdge(e);
@@ -268,6 +292,62 @@ public class DirectedGraph<V, E> implements Cloneable {
         for (Edge e : new ArrayList<Edge>(vertex.inEdges.values())) {
             removeEdge(e);
         }
+        for (Iterator<VertexPair> i = paths.keySet().iterator(); i.hasNext();) {
+            VertexPair pair = i.next();
+            if (pair.source == vertex || pair.target == vertex) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Evict the cached paths that a new edge from the source to the target vertex could shorten
+     * or create, which are the paths from a vertex reaching the source vertex to a vertex
+     * reachable from the target vertex
+     */
+    private void invalidatePaths(Vertex source, Vertex target) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        Set<Vertex> sources = reach(source, false);
+        Set<Vertex> targets = reach(target, true);
+        for (Iterator<VertexPair> i = paths.keySet().iterator(); i.hasNext();) {
+            VertexPair pair = i.next();
+            if (sources.contains(pair.source) && targets.contains(pair.target)) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Evict the cached paths going through a removed edge
+     */
+    private void invalidatePaths(Edge edge) {
+        for (Iterator<Path> i = paths.values().iterator(); i.hasNext();) {
+            Path path = i.next();
+            if (path != NULL_PATH && path.getEdges().contains(edge)) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Find the vertices reachable from (forward) or reaching (backward) the given vertex
+     */
+    private Set<Vertex> reach(Vertex vertex, boolean forward) {
+        Set<Vertex> visited = new HashSet<Vertex>();
+        LinkedList<Vertex> queue = new LinkedList<Vertex>();
+        visited.add(vertex);
+        queue.add(vertex);
+        while (!queue.isEmpty()) {
+            Vertex v = queue.removeFirst();
+            for (Vertex next : (forward ? v.outEdges : v.inEdges).keySet()) {
+                if (visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return visited;
     }
 
     public Edge getEdge(Vertex source, Vertex target) {
@@ -307,18 +387,46 @@ public class DirectedGraph<V, E> implements Cloneable {
         }
 
         VertexPair pair = new VertexPair(source, target);
-        Path path = null;
-        if (paths.containsKey(pair)) {
-            path = paths.get(pair);
+        Path path = paths.get(pair);
+        if (path != null) {
             return path == NULL_PATH? null: path;
         }
 
+        int currentVersion = version;
+        path = computeShortestPath(source, target);
+        paths.put(pair, path); // Cache it
+        if (version != currentVersion) {
+            // The graph has been updated in the meantime
+            paths.remove(pair);
+        }
+        return path == NULL_PATH? null: path;
+    }
+
+    /**
+     * Compute and cache the shortest paths between all the vertices. One task is executed for each
+     * source vertex, the method returns once the tasks have been submitted.
+     * 
+     * @param executor The executor running the tasks
+     */
+    public void computeShortestPaths(Executor executor) {
+        final List<V> values = new ArrayList<V>(vertices.keySet());
+        for (final V source : values) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    for (V target : values) {
+                        getShortestPath(source, target);
+                    }
+                }
+            });
+        }
+    }
+
+    private Path computeShortestPath(Vertex source, Vertex target) {
         // Check if there is a direct link, if yes, use it instead
         Edge direct = getEdge(source, target);
-        path = new Path();
+        Path path = new Path();
         if (direct != null) {
             path.addEdge(direct);
-            paths.put(pair, path);
             return path;
         }
 
@@ -337,24 +445,26 @@ public class DirectedGraph<V, E> implements Cloneable {
         while (!otherNodes.isEmpty()) {
             nextNode = extractMin(otherNodes);
             if (nextNode.vertex == target) {
-                path = getPath(nextNode);
-                paths.put(pair, path); // Cache it
-                return path == NULL_PATH? null: path;
+                return getPath(nextNode);
             }
             nodesOnPath.add(nextNode);
             for (Edge edge : nextNode.vertex.outEdges.values()) {
                 Node adjacentNode = nodes.get(edge.targetVertex);
+                if (adjacentNode == null) {
+                    // The vertex was added after the search started
+                    continue;
+                }
                 // The private edge can only be used if the edge connects to the target directly
                 if (edge.isPublic() || edge.getTargetVertex() == target) {
                     if (nextNode.distance + edge.weight < adjacentNode.distance) {
                         adjacentNode.distance = nextNode.distance + edge.weight;
                         adjacentNode.previous = nextNode;
+                        adjacentNode.previousEdge = edge;
                     }
                 }
             }
         }
-        paths.put(pair, NULL_PATH); // Cache it
-        return null;
+        return NULL_PATH;
     }
 
     /**
@@ -404,8 +514,7 @@ public class DirectedGraph<V, E> implements Cloneable {
         Path path = new Path();
         Node u = t;
         while (u.previous != null) {
-            Edge edge = getEdge(u.previous.vertex, u.vertex);
-            path.addEdge(edge);
+            path.addEdge(u.previousEdge);
             u = u.previous;
         }
         return path;
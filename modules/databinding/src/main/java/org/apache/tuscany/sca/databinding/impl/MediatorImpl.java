@@ -23,13 +23,22 @@ import static org.apache.tuscany.sca.databinding.DataBinding.IDL_OUTPUT;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.namespace.QName;
 
@@ -44,6 +53,7 @@ import org.apache.tuscany.sca.databinding.PullTransformer;
 import org.apache.tuscany.sca.databinding.PushTransformer;
 import org.apache.tuscany.sca.databinding.TransformationContext;
 import org.apache.tuscany.sca.databinding.TransformationException;
+import org.apache.tuscany.sca.databinding.TransformationPipeline;
 import org.apache.tuscany.sca.databinding.Transformer;
 import org.apache.tuscany.sca.databinding.TransformerExtensionPoint;
 import org.apache.tuscany.sca.databinding.javabeans.JavaBeansDataBinding;
@@ -66,11 +76,16 @@ import org.oasisopen.sca.ServiceRuntimeException;
 public class MediatorImpl implements Mediator {
     private static final String TARGET_OPERATION = "target.operation";
     private static final String SOURCE_OPERATION = "source.operation";
+    private static final Set<Class<?>> IMMUTABLE_CLASSES = new HashSet<Class<?>>(Arrays.asList(new Class<?>[] {
+        String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+        Float.class, Double.class, BigInteger.class, BigDecimal.class, URI.class, UUID.class, QName.class,
+        Locale.class}));
     private ExtensionPointRegistry registry;
     private DataBindingExtensionPoint dataBindings;
     private TransformerExtensionPoint transformers;
     private InterfaceContractMapper interfaceContractMapper;
     private FaultExceptionMapper faultExceptionMapper;
+    private final Map<Class<?>, Boolean> immutableTypes = new ConcurrentHashMap<Class<?>, Boolean>();
 
     MediatorImpl(DataBindingExtensionPoint dataBindings, TransformerExtensionPoint transformers) {
         this.dataBindings = dataBindings;
@@ -216,7 +231,7 @@ public class MediatorImpl implements Mediator {
      * @param exceptionType The exception data type
      * @return The fault data type
      */
-    private DataType getFaultType(DataType exceptionType) {
+    DataType getFaultType(DataType exceptionType) {
         return exceptionType == null ? null : (DataType)exceptionType.getLogical();
     }
 
@@ -297,19 +312,8 @@ public class MediatorImpl implements Mediator {
             throw new ServiceRuntimeException(cause);
         }
 
-        // FIXME: How to match a source fault type to a target fault
-        // type?
-        DataType sourceDataType = null;
-        DataType sourceFaultType = null;
-        for (DataType exType : sourceOperation.getFaultTypes()) {
-            DataType faultType = getFaultType(exType);
-            // Match by the QName (XSD element) of the fault type
-            if (faultType != null && typesMatch(targetFaultType.getLogical(), faultType.getLogical())) {
-                sourceDataType = exType;
-                sourceFaultType = faultType;
-                break;
-            }
-        }
+        DataType sourceDataType = findMatchingFaultDataType(sourceOperation, targetFaultType);
+        DataType sourceFaultType = getFaultType(sourceDataType);
 
         if (sourceFaultType == null) {
             // No matching fault type, it's a system exception
@@ -335,13 +339,32 @@ public class MediatorImpl implements Mediator {
 
     }
 
+    /**
+     * Look up the fault data type of the source operation whose fault type matches the target fault type
+     * @param sourceOperation The source operation
+     * @param targetFaultType The fault type for the target
+     * @return The matching fault data type
+     */
+    DataType findMatchingFaultDataType(Operation sourceOperation, DataType targetFaultType) {
+        // FIXME: How to match a source fault type to a target fault
+        // type?
+        for (DataType exType : sourceOperation.getFaultTypes()) {
+            DataType faultType = getFaultType(exType);
+            // Match by the QName (XSD element) of the fault type
+            if (faultType != null && typesMatch(targetFaultType.getLogical(), faultType.getLogical())) {
+                return exType;
+            }
+        }
+        return null;
+    }
+
     /**
      * Look up the fault data type that matches the fault or exception instance 
      * @param operation The operation
      * @param faultOrException The fault or exception
      * @return The matching fault data type
      */
-    private DataType findFaultDataType(Operation operation, Object faultOrException) {
+    DataType findFaultDataType(Operation operation, Object faultOrException) {
         DataType targetDataType = null;
         for (DataType exType : operation.getFaultTypes()) {
             if (((Class)exType.getPhysical()).isInstance(faultOrException)) {
@@ -436,6 +459,84 @@ public class MediatorImpl implements Mediator {
         return mediate(input, sourceType, targetType, context);
     }
 
+    public TransformationPipeline createTransformationPipeline(Operation sourceOperation,
+                                                               Operation targetOperation,
+                                                               Map<String, Object> metadata) {
+        return new TransformationPipelineImpl(this, sourceOperation, targetOperation, metadata);
+    }
+
+    /**
+     * Create the metadata for the transformations from the source operation to the target operation
+     */
+    Map<String, Object> createMetadata(Map<String, Object> metadata, Operation sourceOperation, Operation targetOperation) {
+        Map<String, Object> context = new HashMap<String, Object>();
+        if (metadata != null) {
+            context.putAll(metadata);
+        }
+        if (sourceOperation != null) {
+            context.put(SOURCE_OPERATION, sourceOperation);
+        }
+        if (targetOperation != null) {
+            context.put(TARGET_OPERATION, targetOperation);
+        }
+        return context;
+    }
+
+    /**
+     * Resolve the transformer path and create the transformation context of each step ahead of time
+     * @return The compiled path, null if the data doesn't need to be transformed
+     * @throws TransformationException if there is no path between the databindings
+     */
+    TransformationPath compile(DataType sourceDataType, DataType targetDataType, Map<String, Object> metadata) {
+        if (sourceDataType == null || targetDataType == null || sourceDataType.equals(targetDataType)) {
+            return null;
+        }
+        List<Transformer> path = getTransformerChain(sourceDataType, targetDataType);
+        int size = path.size();
+        Transformer[] transformers = path.toArray(new Transformer[size]);
+        TransformationContext[] contexts = new TransformationContext[size];
+        for (int i = 0; i < size; i++) {
+            contexts[i] = createTransformationContext(sourceDataType, targetDataType, size, i, transformers[i], metadata);
+            if (transformers[i] instanceof PushTransformer) {
+                // The next step is the data pipe
+                i++;
+            }
+        }
+        return new TransformationPath(transformers, contexts);
+    }
+
+    /**
+     * A transformer path between two data types with the transformation contexts of each step
+     */
+    static class TransformationPath {
+        private final Transformer[] transformers;
+        private final TransformationContext[] contexts;
+
+        TransformationPath(Transformer[] transformers, TransformationContext[] contexts) {
+            this.transformers = transformers;
+            this.contexts = contexts;
+        }
+
+        @SuppressWarnings("unchecked")
+        Object transform(Object source) {
+            Object result = source;
+            int size = transformers.length;
+            for (int i = 0; i < size; i++) {
+                Transformer transformer = transformers[i];
+                TransformationContext context = contexts[i];
+                if (transformer instanceof PullTransformer) {
+                    result = ((PullTransformer)transformer).transform(result, context);
+                } else if (transformer instanceof PushTransformer) {
+                    DataPipeTransformer dataPipeFactory = (i < size - 1) ? (DataPipeTransformer)transformers[++i] : null;
+                    DataPipe dataPipe = dataPipeFactory == null ? null : dataPipeFactory.newInstance();
+                    ((PushTransformer)transformer).transform(result, dataPipe.getSink(), context);
+                    result = dataPipe.getResult();
+                }
+            }
+            return result;
+        }
+    }
+
     public TransformationContext createTransformationContext() {
         return new TransformationContextImpl();
     }
@@ -469,14 +570,8 @@ public class MediatorImpl implements Mediator {
             return null;
         }
         Class<?> clazz = data.getClass();
-        if (String.class == clazz || clazz.isPrimitive()
-            || Number.class.isAssignableFrom(clazz)
-            || Boolean.class.isAssignableFrom(clazz)
-            || Character.class.isAssignableFrom(clazz)
-            || Byte.class.isAssignableFrom(clazz)
-            || URI.class == clazz
-            || UUID.class == clazz
-            || QName.class == clazz) {
+        if (isImmutable(clazz)
+            && (clazz.getClassLoader() == null || targetDataType == null || targetDataType.getPhysical().isInstance(data))) {
             // Immutable classes
             return data;
         }
@@ -534,6 +629,63 @@ public class MediatorImpl implements Mediator {
         return dataBinding.copy(data, sourceDataType, targetDataType, sourceOperation, targetOperation);
     }
 
+    public boolean isImmutable(Operation operation) {
+        for (DataType dataType : operation.getInputType().getLogical()) {
+            if (dataType.getPhysical() == null || !isImmutable(dataType.getPhysical())) {
+                return false;
+            }
+        }
+        DataType outputType = operation.getOutputType();
+        return outputType == null || (outputType.getPhysical() != null && isImmutable(outputType.getPhysical()));
+    }
+
+    /**
+     * Check if instances of the given class are immutable. The result is cached for each class.
+     * @param type The class
+     * @return true if the class is known to be immutable
+     */
+    public boolean isImmutable(Class<?> type) {
+        Boolean immutable = immutableTypes.get(type);
+        if (immutable == null) {
+            immutable = isImmutable(type, new HashSet<Class<?>>());
+            immutableTypes.put(type, immutable);
+        }
+        return immutable;
+    }
+
+    /**
+     * A class is immutable if it's a primitive type, an enum, one of the known immutable JDK classes,
+     * or a final class whose instance fields (including the inherited ones) are all final and of
+     * immutable types.
+     */
+    private static boolean isImmutable(Class<?> type, Set<Class<?>> visiting) {
+        if (type.isPrimitive() || IMMUTABLE_CLASSES.contains(type)) {
+            return true;
+        }
+        if (type.isEnum()) {
+            return true;
+        }
+        if (type.isArray() || type.isInterface() || !Modifier.isFinal(type.getModifiers())) {
+            return false;
+        }
+        if (!visiting.add(type)) {
+            // A cycle between final classes, the result is decided by the other fields
+            return true;
+        }
+        for (Class<?> c = type; c != Object.class && c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers)) {
+                    continue;
+                }
+                if (!Modifier.isFinal(modifiers) || !isImmutable(field.getType(), visiting)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Copy an array of data objects passed to an operation
      * @param data array of objects to copy
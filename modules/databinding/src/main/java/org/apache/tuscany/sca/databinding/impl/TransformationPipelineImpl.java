@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.databinding.impl;
+
+import static org.apache.tuscany.sca.databinding.DataBinding.IDL_FAULT;
+import static org.apache.tuscany.sca.databinding.DataBinding.IDL_OUTPUT;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.tuscany.sca.databinding.TransformationException;
+import org.apache.tuscany.sca.databinding.TransformationPipeline;
+import org.apache.tuscany.sca.databinding.impl.MediatorImpl.TransformationPath;
+import org.apache.tuscany.sca.interfacedef.DataType;
+import org.apache.tuscany.sca.interfacedef.Operation;
+import org.apache.tuscany.sca.interfacedef.impl.DataTypeImpl;
+import org.oasisopen.sca.ServiceRuntimeException;
+
+/**
+ * Default TransformationPipeline implementation. The transformer paths for the input, the output
+ * and each declared fault of the target operation are resolved when the pipeline is created.
+ * If a path cannot be resolved up front, the data is mediated on each invocation as before so
+ * that the error is reported when the operation is called.
+ *
+ * @version $Rev$ $Date$
+ */
+class TransformationPipelineImpl implements TransformationPipeline {
+    private final MediatorImpl mediator;
+    private final Operation sourceOperation;
+    private final Operation targetOperation;
+    private final Map<String, Object> metadata;
+
+    private final Step input;
+    private final Step output;
+    private final Map<DataType, FaultStep> faults = new IdentityHashMap<DataType, FaultStep>();
+
+    TransformationPipelineImpl(MediatorImpl mediator,
+                               Operation sourceOperation,
+                               Operation targetOperation,
+                               Map<String, Object> metadata) {
+        this.mediator = mediator;
+        this.sourceOperation = sourceOperation;
+        this.targetOperation = targetOperation;
+        this.metadata = metadata;
+
+        Map<String, Object> inputMetadata = mediator.createMetadata(metadata, sourceOperation, targetOperation);
+        this.input = compile(sourceOperation.getInputType(), targetOperation.getInputType(), inputMetadata);
+
+        // The output and faults flow from the target operation back to the source operation
+        Map<String, Object> outputMetadata = mediator.createMetadata(metadata, targetOperation, sourceOperation);
+        DataType<DataType> targetOutputType =
+            new DataTypeImpl<DataType>(IDL_OUTPUT, Object.class, targetOperation.getOutputType());
+        DataType<DataType> sourceOutputType =
+            new DataTypeImpl<DataType>(IDL_OUTPUT, Object.class, sourceOperation.getOutputType());
+        this.output = compile(targetOutputType, sourceOutputType, outputMetadata);
+
+        for (DataType targetExType : targetOperation.getFaultTypes()) {
+            DataType targetFaultType = mediator.getFaultType(targetExType);
+            if (targetFaultType == null) {
+                continue;
+            }
+            DataType sourceExType = mediator.findMatchingFaultDataType(sourceOperation, targetFaultType);
+            DataType sourceFaultType = mediator.getFaultType(sourceExType);
+            if (sourceFaultType == null) {
+                continue;
+            }
+            Step step = null;
+            if (!(targetFaultType == sourceFaultType || targetFaultType.equals(sourceFaultType))) {
+                DataType<DataType> eTargetDataType =
+                    new DataTypeImpl<DataType>(IDL_FAULT, targetExType.getPhysical(), targetFaultType);
+                DataType<DataType> eSourceDataType =
+                    new DataTypeImpl<DataType>(IDL_FAULT, sourceExType.getPhysical(), sourceFaultType);
+                step = compile(eTargetDataType, eSourceDataType, outputMetadata);
+            }
+            faults.put(targetExType, new FaultStep(step));
+        }
+    }
+
+    private Step compile(DataType sourceDataType, DataType targetDataType, Map<String, Object> metadata) {
+        if (sourceDataType == targetDataType || (sourceDataType != null && sourceDataType.equals(targetDataType))) {
+            return null;
+        }
+        if (sourceDataType == null || sourceDataType.getDataBinding() == null) {
+            // The databinding has to be introspected from the data
+            return new Step(sourceDataType, targetDataType, metadata, null);
+        }
+        try {
+            return new Step(sourceDataType, targetDataType, metadata, mediator.compile(sourceDataType,
+                                                                                     targetDataType,
+                                                                                     metadata));
+        } catch (TransformationException e) {
+            return new Step(sourceDataType, targetDataType, metadata, null);
+        }
+    }
+
+    public Object transformInput(Object input) {
+        return this.input == null ? input : this.input.transform(input);
+    }
+
+    public Object transformOutput(Object output) {
+        return this.output == null ? output : this.output.transform(output);
+    }
+
+    public Object transformFault(Object fault) {
+        if (fault instanceof InvocationTargetException) {
+            fault = ((InvocationTargetException)fault).getCause();
+        }
+        DataType targetExType = mediator.findFaultDataType(targetOperation, fault);
+        FaultStep faultStep = targetExType == null ? null : faults.get(targetExType);
+        if (faultStep == null) {
+            if (targetExType != null && mediator.getFaultType(targetExType) != null) {
+                // Let the mediator report the unmatched fault type
+                return mediator.mediateFault(fault, sourceOperation, targetOperation, metadata);
+            }
+            // No matching fault type, it's a system exception
+            throw new ServiceRuntimeException((Throwable)fault);
+        }
+        return faultStep.step == null ? fault : faultStep.step.transform(fault);
+    }
+
+    /**
+     * A transformation between two data types, either compiled or mediated on each call
+     */
+    private class Step {
+        private final DataType sourceDataType;
+        private final DataType targetDataType;
+        private final Map<String, Object> metadata;
+        private final TransformationPath path;
+
+        private Step(DataType sourceDataType,
+                     DataType targetDataType,
+                     Map<String, Object> metadata,
+                     TransformationPath path) {
+            this.sourceDataType = sourceDataType;
+            this.targetDataType = targetDataType;
+            this.metadata = metadata;
+            this.path = path;
+        }
+
+        private Object transform(Object source) {
+            if (path != null) {
+                return path.transform(source);
+            }
+            return mediator.mediate(source, sourceDataType, targetDataType, metadata);
+        }
+    }
+
+    private static class FaultStep {
+        private final Step step;
+
+        private FaultStep(Step step) {
+            this.step = step;
+        }
+    }
+
+}
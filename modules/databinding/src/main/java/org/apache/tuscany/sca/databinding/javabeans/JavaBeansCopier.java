@@ -0,0 +1,501 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.databinding.javabeans;
+
+import java.io.Externalizable;
+import java.io.File;
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Copies object graphs for pass-by-value without going through Java serialization. A copy plan
+ * is computed once for each class and cached. Immutable objects are shared, arrays and the common
+ * collection classes are rebuilt, and Serializable beans are copied field by field. Shared and
+ * cyclic references are preserved with an identity map.
+ * <p>
+ * The plans only cover the cases where the result is the same as serializing and deserializing
+ * the graph. Any other object in the graph (custom serialization methods, Externalizable,
+ * a serializable class with a serializable superclass chain not ending at Object, classes which
+ * resolve differently in the target classloader, ...) makes the copy fail with
+ * {@link CannotCopyException} so that the caller can fall back to serialization.
+ * <p>
+ * The plans of application classes are keyed weakly by class and held softly, so the cache
+ * does not keep the classloader of an undeployed contribution alive. A plan that has been
+ * cleared is simply computed again.
+ *
+ * @version $Rev$ $Date$
+ */
+public class JavaBeansCopier {
+    private static final Class<?>[] IMMUTABLE_CLASSES =
+        new Class<?>[] {String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+                        Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, URI.class,
+                        URL.class, UUID.class, QName.class, Locale.class, File.class};
+
+    private static final Class<?>[] COLLECTION_CLASSES =
+        new Class<?>[] {ArrayList.class, LinkedList.class, Vector.class, HashSet.class, LinkedHashSet.class,
+                        TreeSet.class};
+
+    private static final Class<?>[] MAP_CLASSES =
+        new Class<?>[] {HashMap.class, Hashtable.class, TreeMap.class, ConcurrentHashMap.class};
+
+    private static final CannotCopyException CANNOT_COPY = new CannotCopyException();
+
+    // The plans of the platform classes, populated in the constructor and only read afterwards
+    private final Map<Class<?>, CopyPlan> systemPlans = new HashMap<Class<?>, CopyPlan>();
+
+    // The plans reference the class through its constructor and fields, they are held softly
+    // so that the weak key can be cleared
+    private final Map<Class<?>, Reference<CopyPlan>> plans =
+        Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<CopyPlan>>());
+
+    public JavaBeansCopier() {
+        for (Class<?> cls : IMMUTABLE_CLASSES) {
+            systemPlans.put(cls, IMMUTABLE);
+        }
+        for (Class<?> cls : COLLECTION_CLASSES) {
+            systemPlans.put(cls, new CollectionPlan(cls));
+        }
+        for (Class<?> cls : MAP_CLASSES) {
+            systemPlans.put(cls, new MapPlan(cls));
+        }
+    }
+
+    /**
+     * Copy an object graph
+     * @param source The root of the graph
+     * @param classLoader The classloader the copy should be resolved against, or null to skip the check
+     * @return The copy
+     * @throws CannotCopyException if the graph contains an object which cannot be copied without serialization
+     */
+    public Object copy(Object source, ClassLoader classLoader) throws CannotCopyException {
+        return new CopyContext(classLoader).copy(source);
+    }
+
+    /**
+     * Check if instances of the class are copied by sharing the same instance
+     * @param cls The class
+     * @return true if the class is known to be immutable
+     */
+    public boolean isImmutable(Class<?> cls) {
+        return cls.isPrimitive() || getPlan(cls) == IMMUTABLE;
+    }
+
+    private CopyPlan getPlan(Class<?> cls) {
+        CopyPlan plan = systemPlans.get(cls);
+        if (plan != null) {
+            return plan;
+        }
+        Reference<CopyPlan> ref = plans.get(cls);
+        plan = ref == null ? null : ref.get();
+        if (plan == null) {
+            plan = createPlan(cls);
+            plans.put(cls, new SoftReference<CopyPlan>(plan));
+        }
+        return plan;
+    }
+
+    /**
+     * Test if a plan is cached for the class
+     */
+    boolean isCached(Class<?> cls) {
+        if (systemPlans.containsKey(cls)) {
+            return true;
+        }
+        Reference<CopyPlan> ref = plans.get(cls);
+        return ref != null && ref.get() != null;
+    }
+
+    private CopyPlan createPlan(Class<?> cls) {
+        if (cls.isEnum() || (cls.getSuperclass() != null && cls.getSuperclass().isEnum())) {
+            return new EnumPlan();
+        }
+        if (cls.isArray()) {
+            return cls.getComponentType().isPrimitive() ? PRIMITIVE_ARRAY : new ArrayPlan(cls);
+        }
+        if (Date.class.isAssignableFrom(cls) && cls.getName().startsWith("java.")) {
+            return DATE;
+        }
+        return createBeanPlan(cls);
+    }
+
+    private CopyPlan createBeanPlan(Class<?> cls) {
+        String name = cls.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")) {
+            // The platform classes are not introspected
+            return UNSUPPORTED;
+        }
+        if (!Serializable.class.isAssignableFrom(cls) || Externalizable.class.isAssignableFrom(cls)
+            || Modifier.isAbstract(cls.getModifiers())) {
+            return UNSUPPORTED;
+        }
+        List<Field> fields = new ArrayList<Field>();
+        List<Field> transientFields = new ArrayList<Field>();
+        Class<?> c = cls;
+        for (; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            if (hasCustomSerialization(c)) {
+                return UNSUPPORTED;
+            }
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers)) {
+                    continue;
+                }
+                if ("serialPersistentFields".equals(field.getName())) {
+                    return UNSUPPORTED;
+                }
+                try {
+                    field.setAccessible(true);
+                } catch (RuntimeException e) {
+                    return UNSUPPORTED;
+                }
+                if (Modifier.isTransient(modifiers)) {
+                    transientFields.add(field);
+                } else {
+                    fields.add(field);
+                }
+            }
+        }
+        // Serialization runs the no-arg constructor of the first non-serializable superclass, which
+        // is only equivalent to running the constructor of the class itself if it is Object
+        if (c != Object.class) {
+            return UNSUPPORTED;
+        }
+        try {
+            Constructor<?> constructor = cls.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return new BeanPlan(constructor, fields, transientFields);
+        } catch (NoSuchMethodException e) {
+            return UNSUPPORTED;
+        } catch (SecurityException e) {
+            return UNSUPPORTED;
+        }
+    }
+
+    private static boolean hasCustomSerialization(Class<?> cls) {
+        for (Method method : cls.getDeclaredMethods()) {
+            String name = method.getName();
+            if ("writeObject".equals(name) || "readObject".equals(name)
+                || "readObjectNoData".equals(name)
+                || "writeReplace".equals(name)
+                || "readResolve".equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Thrown when the object graph contains an object that cannot be copied by a plan
+     */
+    public static class CannotCopyException extends Exception {
+        private static final long serialVersionUID = -4254787164627062423L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // Used for flow control, the stack trace is of no interest
+            return this;
+        }
+    }
+
+    private class CopyContext {
+        private final ClassLoader classLoader;
+        private final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+        private CopyContext(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        Object copy(Object source) throws CannotCopyException {
+            if (source == null) {
+                return null;
+            }
+            Class<?> cls = source.getClass();
+            CopyPlan plan = getPlan(cls);
+            if (plan == IMMUTABLE) {
+                return source;
+            }
+            Object copy = copies.get(source);
+            if (copy != null) {
+                return copy;
+            }
+            checkVisible(cls, plan);
+            return plan.copy(source, this);
+        }
+
+        void register(Object source, Object copy) {
+            copies.put(source, copy);
+        }
+
+        /**
+         * Make sure the class resolves to the same class in the target classloader as it would be
+         * reloaded from there by deserialization
+         */
+        private void checkVisible(Class<?> cls, CopyPlan plan) throws CannotCopyException {
+            Class<?> type = cls;
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            ClassLoader loader = type.getClassLoader();
+            if (classLoader == null || loader == null || loader == classLoader || plan.isVerified(classLoader)) {
+                return;
+            }
+            try {
+                if (Class.forName(type.getName(), false, classLoader) == type) {
+                    plan.verifiedLoader = new WeakReference<ClassLoader>(classLoader);
+                    return;
+                }
+            } catch (ClassNotFoundException e) {
+                // Fall through
+            } catch (NoClassDefFoundError e) {
+                // Fall through
+            }
+            throw CANNOT_COPY;
+        }
+    }
+
+    private static abstract class CopyPlan {
+        // The last target classloader in which the class was found to resolve to itself
+        volatile Reference<ClassLoader> verifiedLoader;
+
+        boolean isVerified(ClassLoader classLoader) {
+            Reference<ClassLoader> ref = verifiedLoader;
+            return ref != null && ref.get() == classLoader;
+        }
+
+        abstract Object copy(Object source, CopyContext context) throws CannotCopyException;
+    }
+
+    private static final CopyPlan IMMUTABLE = new CopyPlan() {
+        @Override
+        Object copy(Object source, CopyContext context) {
+            return source;
+        }
+    };
+
+    private static final CopyPlan UNSUPPORTED = new CopyPlan() {
+        @Override
+        Object copy(Object source, CopyContext context) throws CannotCopyException {
+            throw CANNOT_COPY;
+        }
+    };
+
+    private static final CopyPlan PRIMITIVE_ARRAY = new CopyPlan() {
+        @Override
+        Object copy(Object source, CopyContext context) {
+            int length = Array.getLength(source);
+            Object copy = Array.newInstance(source.getClass().getComponentType(), length);
+            System.arraycopy(source, 0, copy, 0, length);
+            context.register(source, copy);
+            return copy;
+        }
+    };
+
+    private static final CopyPlan DATE = new CopyPlan() {
+        @Override
+        Object copy(Object source, CopyContext context) {
+            Object copy = ((Date)source).clone();
+            context.register(source, copy);
+            return copy;
+        }
+    };
+
+    /**
+     * Enum constants are resolved by name, the same constant is returned
+     */
+    private static class EnumPlan extends CopyPlan {
+        @Override
+        Object copy(Object source, CopyContext context) {
+            return source;
+        }
+    }
+
+    private static class ArrayPlan extends CopyPlan {
+        private final Class<?> componentType;
+
+        private ArrayPlan(Class<?> arrayType) {
+            this.componentType = arrayType.getComponentType();
+        }
+
+        @Override
+        Object copy(Object source, CopyContext context) throws CannotCopyException {
+            Object[] array = (Object[])source;
+            Object[] copy = (Object[])Array.newInstance(componentType, array.length);
+            context.register(source, copy);
+            for (int i = 0; i < array.length; i++) {
+                copy[i] = context.copy(array[i]);
+            }
+            return copy;
+        }
+    }
+
+    private static class CollectionPlan extends CopyPlan {
+        private final Class<?> cls;
+
+        private CollectionPlan(Class<?> cls) {
+            this.cls = cls;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(Object source, CopyContext context) throws CannotCopyException {
+            if (source instanceof SortedSet && ((SortedSet<?>)source).comparator() != null) {
+                throw CANNOT_COPY;
+            }
+            Collection<Object> copy = (Collection<Object>)newInstance(cls);
+            context.register(source, copy);
+            for (Object element : (Collection<?>)source) {
+                copy.add(context.copy(element));
+            }
+            return copy;
+        }
+    }
+
+    private static class MapPlan extends CopyPlan {
+        private final Class<?> cls;
+
+        private MapPlan(Class<?> cls) {
+            this.cls = cls;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(Object source, CopyContext context) throws CannotCopyException {
+            if (source instanceof SortedMap && ((SortedMap<?, ?>)source).comparator() != null) {
+                throw CANNOT_COPY;
+            }
+            Map<Object, Object> copy = (Map<Object, Object>)newInstance(cls);
+            context.register(source, copy);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)source).entrySet()) {
+                copy.put(context.copy(entry.getKey()), context.copy(entry.getValue()));
+            }
+            return copy;
+        }
+    }
+
+    private static Object newInstance(Class<?> cls) throws CannotCopyException {
+        try {
+            return cls.newInstance();
+        } catch (Exception e) {
+            throw CANNOT_COPY;
+        }
+    }
+
+    private static class BeanPlan extends CopyPlan {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final Field[] transientFields;
+
+        private BeanPlan(Constructor<?> constructor, List<Field> fields, List<Field> transientFields) {
+            this.constructor = constructor;
+            this.fields = fields.toArray(new Field[fields.size()]);
+            this.transientFields = transientFields.toArray(new Field[transientFields.size()]);
+        }
+
+        @Override
+        Object copy(Object source, CopyContext context) throws CannotCopyException {
+            try {
+                Object copy = constructor.newInstance();
+                context.register(source, copy);
+                for (Field field : fields) {
+                    Class<?> type = field.getType();
+                    if (type.isPrimitive()) {
+                        copyPrimitive(field, type, source, copy);
+                    } else {
+                        field.set(copy, context.copy(field.get(source)));
+                    }
+                }
+                // Deserialization leaves the transient fields with their default values
+                for (Field field : transientFields) {
+                    Class<?> type = field.getType();
+                    if (!type.isPrimitive()) {
+                        field.set(copy, null);
+                    } else if (type == boolean.class) {
+                        field.setBoolean(copy, false);
+                    } else if (type == char.class) {
+                        field.setChar(copy, (char)0);
+                    } else {
+                        field.setByte(copy, (byte)0);
+                    }
+                }
+                return copy;
+            } catch (CannotCopyException e) {
+                throw e;
+            } catch (Exception e) {
+                throw CANNOT_COPY;
+            }
+        }
+
+        private static void copyPrimitive(Field field, Class<?> type, Object source, Object copy)
+            throws IllegalAccessException {
+            if (type == int.class) {
+                field.setInt(copy, field.getInt(source));
+            } else if (type == long.class) {
+                field.setLong(copy, field.getLong(source));
+            } else if (type == boolean.class) {
+                field.setBoolean(copy, field.getBoolean(source));
+            } else if (type == double.class) {
+                field.setDouble(copy, field.getDouble(source));
+            } else if (type == float.class) {
+                field.setFloat(copy, field.getFloat(source));
+            } else if (type == short.class) {
+                field.setShort(copy, field.getShort(source));
+            } else if (type == byte.class) {
+                field.setByte(copy, field.getByte(source));
+            } else {
+                field.setChar(copy, field.getChar(source));
+            }
+        }
+    }
+
+}
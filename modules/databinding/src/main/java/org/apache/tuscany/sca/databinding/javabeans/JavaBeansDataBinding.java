@@ -50,6 +50,8 @@ public class JavaBeansDataBinding extends BaseDataBinding {
     public static final int HEAVY_WEIGHT = 10000;
     public static final String NAME = "java:complexType";
 
+    private final JavaBeansCopier copier = new JavaBeansCopier();
+
     public JavaBeansDataBinding() {
         super(NAME, Object.class);
     }
@@ -74,12 +76,6 @@ public class JavaBeansDataBinding extends BaseDataBinding {
         }
         try {
             if (arg instanceof Serializable) {
-                ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = getObjectOutputStream(bos);
-                oos.writeObject(arg);
-                oos.close();
-                bos.close();
-
                 // Work out which ClassLoader to use for deserializing arg
                 // We want to use:
                 //   * The ClassLoader of the targetDataType if it is not the System ClassLoader
@@ -99,6 +95,19 @@ public class JavaBeansDataBinding extends BaseDataBinding {
                     classLoaderToUse = Thread.currentThread().getContextClassLoader();
                 }
 
+                try {
+                    // Copy the object graph directly if it doesn't depend on custom serialization
+                    return copier.copy(arg, classLoaderToUse);
+                } catch (JavaBeansCopier.CannotCopyException e) {
+                    // Fall back to serialization
+                }
+
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                ObjectOutputStream oos = getObjectOutputStream(bos);
+                oos.writeObject(arg);
+                oos.close();
+                bos.close();
+
                 ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
                 ObjectInputStream ois = getObjectInputStream(bis, classLoaderToUse);
                 Object objectCopy = ois.readObject();
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.tuscany.sca.databinding.impl.DirectedGraph.Edge;
 import org.apache.tuscany.sca.databinding.impl.DirectedGraph.Vertex;
@@ -101,6 +102,44 @@ public class DirectedGraphTestCase {
 
     }
 
+    @Test
+    public void testPathInvalidation() {
+        graph.addEdge("a", "b", null, 5, true);
+        graph.addEdge("b", "c", null, 5, true);
+        graph.addEdge("x", "y", null, 1, true);
+        Assert.assertEquals(10, graph.getShortestPath("a", "c").getWeight());
+        DirectedGraph<String, Object>.Path xy = graph.getShortestPath("x", "y");
+        Assert.assertNull(graph.getShortestPath("a", "y"));
+
+        // A shorter path through a new vertex
+        graph.addEdge("a", "d", null, 1, true);
+        graph.addEdge("d", "c", null, 1, true);
+        Assert.assertEquals(2, graph.getShortestPath("a", "c").getWeight());
+        // Unrelated paths are kept
+        Assert.assertSame(xy, graph.getShortestPath("x", "y"));
+
+        // A new connection
+        graph.addEdge("c", "x", null, 1, true);
+        Assert.assertEquals(4, graph.getShortestPath("a", "y").getWeight());
+
+        graph.removeEdge("d", "c");
+        Assert.assertEquals(10, graph.getShortestPath("a", "c").getWeight());
+        Assert.assertEquals(12, graph.getShortestPath("a", "y").getWeight());
+    }
+
+    @Test
+    public void testComputeShortestPaths() {
+        graph.addEdge("a", "b", null, 1, true);
+        graph.addEdge("b", "c", null, 1, true);
+        graph.computeShortestPaths(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        Assert.assertEquals(2, graph.getShortestPath("a", "c").getWeight());
+        Assert.assertNull(graph.getShortestPath("c", "a"));
+    }
+
     @Test
     public void testSort() {
         graph.addEdge("a", "b");
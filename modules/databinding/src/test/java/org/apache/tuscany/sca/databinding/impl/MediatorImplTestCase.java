@@ -20,6 +20,7 @@ package org.apache.tuscany.sca.databinding.impl;
 
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 
 import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
@@ -27,13 +28,17 @@ import org.apache.tuscany.sca.databinding.DataBindingExtensionPoint;
 import org.apache.tuscany.sca.databinding.DefaultDataBindingExtensionPoint;
 import org.apache.tuscany.sca.databinding.DefaultTransformerExtensionPoint;
 import org.apache.tuscany.sca.databinding.TransformationContext;
+import org.apache.tuscany.sca.databinding.TransformationPipeline;
 import org.apache.tuscany.sca.databinding.TransformerExtensionPoint;
 import org.apache.tuscany.sca.databinding.xml.Node2String;
 import org.apache.tuscany.sca.databinding.xml.Node2Writer;
 import org.apache.tuscany.sca.databinding.xml.SAX2DOMPipe;
 import org.apache.tuscany.sca.databinding.xml.String2SAX;
+import org.apache.tuscany.sca.databinding.impl.MediatorImpl.TransformationPath;
 import org.apache.tuscany.sca.interfacedef.DataType;
+import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.interfacedef.impl.DataTypeImpl;
+import org.apache.tuscany.sca.interfacedef.impl.OperationImpl;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -122,4 +127,110 @@ public class MediatorImplTestCase {
         Assert.assertTrue(str != null && str.indexOf("<shipDate>1999-12-05</shipDate>") != -1);
     }
 
+    @Test
+    public void testCompiledPath() {
+        DataType stringType = createDataType(String.class);
+        DataType nodeType = createDataType(Node.class);
+
+        // String -> SAX -> DOM uses a push transformer and a data pipe
+        TransformationPath path = mediator.compile(stringType, nodeType, null);
+        Object compiled = path.transform(IPO_XML);
+        Object mediated = mediator.mediate(IPO_XML, stringType, nodeType, null);
+        Assert.assertTrue(compiled instanceof Document);
+        Assert.assertNotSame(mediated, compiled);
+
+        // The compiled path can be run more than once
+        Object again = path.transform(IPO_XML);
+        Assert.assertNotSame(compiled, again);
+
+        TransformationPath toString = mediator.compile(nodeType, stringType, null);
+        String expected = (String)mediator.mediate(mediated, nodeType, stringType, null);
+        Assert.assertEquals(expected, toString.transform(compiled));
+        Assert.assertEquals(expected, toString.transform(again));
+
+        Assert.assertNull(mediator.compile(stringType, createDataType(String.class), null));
+    }
+
+    @Test
+    public void testTransformationPipeline() {
+        DataType stringType = createDataType(String.class);
+        DataType nodeType = createDataType(Node.class);
+        Operation source = createOperation(stringType, stringType);
+        Operation target = createOperation(nodeType, stringType);
+
+        TransformationPipeline pipeline = mediator.createTransformationPipeline(source, target, null);
+        Object compiled = pipeline.transformInput(IPO_XML);
+        Object mediated = mediator.mediateInput(IPO_XML, source, target, null);
+        Assert.assertTrue(compiled instanceof Document);
+        Assert.assertTrue(mediated instanceof Document);
+        Assert.assertEquals(mediator.mediate(mediated, nodeType, stringType, null),
+                            mediator.mediate(compiled, nodeType, stringType, null));
+
+        // The output types match so the output is passed through on both paths
+        Assert.assertSame(mediator.mediateOutput("result", source, target, null), pipeline.transformOutput("result"));
+
+        // A source type without a databinding falls back to mediating on each call, the data is
+        // introspected and the same error is reported on both paths
+        Operation untyped = createOperation(new DataTypeImpl<Class>(null, String.class, String.class), stringType);
+        Class<?> failure = getFailure(untyped, target, false);
+        Assert.assertNotNull(failure);
+        Assert.assertEquals(failure, getFailure(untyped, target, true));
+    }
+
+    private Class<?> getFailure(Operation source, Operation target, boolean compiled) {
+        try {
+            if (compiled) {
+                mediator.createTransformationPipeline(source, target, null).transformInput(IPO_XML);
+            } else {
+                mediator.mediateInput(IPO_XML, source, target, null);
+            }
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+        return null;
+    }
+
+    private static DataType createDataType(Class<?> type) {
+        return new DataTypeImpl<Class>(type.getName(), type, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Operation createOperation(DataType inputType, DataType outputType) {
+        Operation operation = new OperationImpl();
+        operation.setName("op");
+        operation.setInputType(inputType);
+        operation.setOutputType(outputType);
+        operation.setFaultTypes(new ArrayList<DataType>());
+        return operation;
+    }
+
+    @Test
+    public void testImmutable() {
+        Assert.assertTrue(mediator.isImmutable(String.class));
+        Assert.assertTrue(mediator.isImmutable(int.class));
+        Assert.assertTrue(mediator.isImmutable(Thread.State.class));
+        Assert.assertTrue(mediator.isImmutable(Point.class));
+        Assert.assertFalse(mediator.isImmutable(MutablePoint.class));
+        Assert.assertFalse(mediator.isImmutable(int[].class));
+
+        Point point = new Point(1, 2);
+        DataType dataType = new DataTypeImpl<Class>(Point.class, Point.class);
+        Assert.assertSame(point, mediator.copy(point, dataType));
+    }
+
+    private static final class Point {
+        private final int x;
+        private final int y;
+
+        private Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final class MutablePoint {
+        private int x;
+        private final int y = 0;
+    }
+
 }
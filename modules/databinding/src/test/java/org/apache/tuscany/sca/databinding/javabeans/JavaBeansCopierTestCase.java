@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+
+package org.apache.tuscany.sca.databinding.javabeans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tuscany.sca.interfacedef.DataType;
+import org.apache.tuscany.sca.interfacedef.impl.DataTypeImpl;
+import org.junit.Test;
+
+/**
+ * @version $Rev$ $Date$
+ */
+public class JavaBeansCopierTestCase {
+    private JavaBeansCopier copier = new JavaBeansCopier();
+
+    @Test
+    public void testGraph() throws Exception {
+        Node root = new Node();
+        root.name = "root";
+        root.count = 5;
+        root.values = new int[] {1, 2, 3};
+        root.cache = "cached";
+        Node child = new Node();
+        child.name = "child";
+        child.parent = root;
+        root.children.add(child);
+        root.children.add(child);
+        root.properties.put("child", child);
+
+        Node copy = (Node)copier.copy(root, getClass().getClassLoader());
+        assertNotSame(root, copy);
+        assertEquals("root", copy.name);
+        assertEquals(5, copy.count);
+        assertNotSame(root.values, copy.values);
+        assertEquals(3, copy.values[2]);
+        assertNull(copy.cache);
+
+        Node childCopy = copy.children.get(0);
+        assertNotSame(child, childCopy);
+        assertSame(childCopy, copy.children.get(1));
+        assertSame(childCopy, copy.properties.get("child"));
+        assertSame(copy, childCopy.parent);
+    }
+
+    @Test
+    public void testImmutable() throws Exception {
+        String str = "abc";
+        assertSame(str, copier.copy(str, null));
+        assertSame(Thread.State.NEW, copier.copy(Thread.State.NEW, null));
+    }
+
+    @Test
+    public void testCustomSerialization() throws Exception {
+        List<Object> list = new ArrayList<Object>();
+        list.add(new Custom());
+        try {
+            copier.copy(list, getClass().getClassLoader());
+            fail("CannotCopyException should have been thrown");
+        } catch (JavaBeansCopier.CannotCopyException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testDataBinding() throws Exception {
+        Node node = new Node();
+        node.name = "node";
+        Custom custom = new Custom();
+        custom.value = "custom";
+        Object[] args = new Object[] {node, custom};
+        DataType dataType = new DataTypeImpl<Class>(Object[].class, null);
+        Object[] copy = (Object[])new JavaBeansDataBinding().copy(args, dataType, dataType, null, null);
+        assertNotSame(args, copy);
+        assertEquals("node", ((Node)copy[0]).name);
+        assertEquals("custom", ((Custom)copy[1]).value);
+    }
+
+    @Test
+    public void testClassLoaderNotPinned() throws Exception {
+        URL location = getClass().getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new URLClassLoader(new URL[] {location}, null);
+        Class<?> cls = loader.loadClass(Node.class.getName());
+        Constructor<?> constructor = cls.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object node = constructor.newInstance();
+        assertNotSame(node, copier.copy(node, loader));
+        assertTrue(copier.isCached(cls));
+
+        WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(loader);
+        loader = null;
+        cls = null;
+        constructor = null;
+        node = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        // The plan is held softly, the classloader can go away once it is cleared
+        if (ref.get() != null) {
+            List<byte[]> pressure = new ArrayList<byte[]>();
+            try {
+                while (ref.get() != null) {
+                    pressure.add(new byte[1024 * 1024]);
+                }
+            } catch (OutOfMemoryError e) {
+                // Soft references are cleared before this is thrown
+            }
+            pressure = null;
+        }
+        assertNull(ref.get());
+    }
+
+    private static class Node implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+        private int count;
+        private int[] values;
+        private transient String cache = "initial";
+        private Node parent;
+        private List<Node> children = new ArrayList<Node>();
+        private Map<String, Node> properties = new HashMap<String, Node>();
+    }
+
+    private static class Custom implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String value;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+        }
+    }
+}
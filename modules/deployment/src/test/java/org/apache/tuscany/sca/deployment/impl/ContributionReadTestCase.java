@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.deployment.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.apache.tuscany.sca.assembly.Composite;
+import org.apache.tuscany.sca.contribution.Contribution;
+import org.apache.tuscany.sca.contribution.processor.impl.ContributionContentProcessor;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.deployment.Deployer;
+import org.apache.tuscany.sca.monitor.Monitor;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Reads a contribution of generated composites on the calling thread and on the
+ * contribution reader threads, and checks that both produce the same deployables.
+ * With -Dorg.apache.tuscany.sca.benchmark=true it also logs how long it takes to
+ * read a contribution of 500 composites.
+ */
+public class ContributionReadTestCase {
+    private static final Logger logger = Logger.getLogger(ContributionReadTestCase.class.getName());
+    private static final String PARALLELISM = ContributionContentProcessor.class.getName() + ".parallelism";
+    private static final int COMPOSITES = 50;
+    private static final int BENCHMARK_COMPOSITES = 500;
+
+    private static URL contributionURL;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        contributionURL = createContribution("target/contribution-read", COMPOSITES);
+    }
+
+    private static URL createContribution(String location, int composites) throws IOException {
+        File dir = new File(location);
+        dir.mkdirs();
+        for (int i = 0; i < composites; i++) {
+            writeComposite(new File(dir, "Composite" + i + ".composite"), i);
+        }
+        return dir.toURI().toURL();
+    }
+
+    private static void writeComposite(File file, int index) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<composite xmlns=\"http://docs.oasis-open.org/ns/opencsa/sca/200912\"");
+            writer.write(" targetNamespace=\"http://sample/composite\" name=\"Composite" + index + "\">\n");
+            for (int c = 0; c < 10; c++) {
+                String name = "Component" + index + "_" + c;
+                writer.write("  <component name=\"" + name + "\">\n");
+                writer.write("    <implementation.java class=\"sample." + name + "\"/>\n");
+                writer.write("    <service name=\"Service\"/>\n");
+                writer.write("    <reference name=\"next\" target=\"Component" + index + "_" + ((c + 1) % 10) + "\"/>\n");
+                writer.write("    <property name=\"index\">" + c + "</property>\n");
+                writer.write("  </component>\n");
+            }
+            writer.write("</composite>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private List<String> read(URL url, String parallelism) throws Exception {
+        String old = System.setProperty(PARALLELISM, parallelism);
+        try {
+            Deployer deployer = new DeployerImpl(new DefaultExtensionPointRegistry());
+            deployer.start();
+            try {
+                Monitor monitor = deployer.createMonitor();
+                Contribution contribution = deployer.loadContribution(url.toURI(), url, monitor);
+
+                List<String> names = new ArrayList<String>();
+                for (Composite composite : contribution.getDeployables()) {
+                    names.add(composite.getName().getLocalPart());
+                }
+                Collections.sort(names);
+                return names;
+            } finally {
+                deployer.stop();
+            }
+        } finally {
+            if (old == null) {
+                System.clearProperty(PARALLELISM);
+            } else {
+                System.setProperty(PARALLELISM, old);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelRead() throws Exception {
+        List<String> sequential = read(contributionURL, "1");
+        List<String> parallel = read(contributionURL, getParallelism());
+        assertEquals(COMPOSITES, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testReadTime() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("org.apache.tuscany.sca.benchmark"));
+        URL url = createContribution("target/contribution-read-benchmark", BENCHMARK_COMPOSITES);
+        for (String parallelism : new String[] {"1", getParallelism()}) {
+            long start = System.currentTimeMillis();
+            List<String> names = read(url, parallelism);
+            long time = System.currentTimeMillis() - start;
+            assertEquals(BENCHMARK_COMPOSITES, names.size());
+            logger.info("Read " + BENCHMARK_COMPOSITES + " composites with parallelism " + parallelism + ": " + time + "ms");
+        }
+    }
+
+    private static String getParallelism() {
+        return String.valueOf(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.hazelcast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tuscany.sca.common.xml.dom.DOMHelper;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Encodes a DOM tree into a compact binary form and back, which is cheaper than writing
+ * and reparsing XML text. Names and namespaces are written once and then referenced by
+ * index, text is written as length prefixed UTF-8.
+ */
+public class BinaryDOMCodec {
+    private static final int END = 0;
+    private static final int ELEMENT = 1;
+    private static final int TEXT = 2;
+    private static final int CDATA = 3;
+
+    // Names are referenced by a short index, later names are always written inline
+    private static final int MAX_NAMES = Short.MAX_VALUE - 1;
+
+    private DOMHelper domHelper;
+
+    public BinaryDOMCodec(DOMHelper domHelper) {
+        this.domHelper = domHelper;
+    }
+
+    public byte[] encode(Node node) throws IOException {
+        if (node instanceof Document) {
+            node = ((Document)node).getDocumentElement();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (node != null) {
+            writeElement(out, (Element)node, new HashMap<String, Integer>());
+        }
+        out.writeByte(END);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public Document decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        Document document = domHelper.newDocument();
+        List<String> strings = new ArrayList<String>();
+        if (in.readUnsignedByte() == ELEMENT) {
+            document.appendChild(readElement(in, document, strings));
+        }
+        return document;
+    }
+
+    private void writeElement(DataOutputStream out, Element element, Map<String, Integer> strings) throws IOException {
+        out.writeByte(ELEMENT);
+        writeName(out, element.getNamespaceURI(), strings);
+        writeName(out, element.getPrefix(), strings);
+        writeName(out, element.getLocalName() != null ? element.getLocalName() : element.getTagName(), strings);
+
+        NamedNodeMap attributes = element.getAttributes();
+        out.writeShort(attributes.getLength());
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attr = (Attr)attributes.item(i);
+            writeName(out, attr.getNamespaceURI(), strings);
+            // Keep the qualified name so that xmlns declarations and prefixes survive
+            writeName(out, attr.getName(), strings);
+            writeText(out, attr.getValue());
+        }
+
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    writeElement(out, (Element)child, strings);
+                    break;
+                case Node.TEXT_NODE:
+                    out.writeByte(TEXT);
+                    writeText(out, child.getNodeValue());
+                    break;
+                case Node.CDATA_SECTION_NODE:
+                    out.writeByte(CDATA);
+                    writeText(out, child.getNodeValue());
+                    break;
+                default:
+                    // Comments and processing instructions are not part of the payload
+            }
+        }
+        out.writeByte(END);
+    }
+
+    private Element readElement(DataInputStream in, Document document, List<String> strings) throws IOException {
+        String namespace = readName(in, strings);
+        String prefix = readName(in, strings);
+        String localName = readName(in, strings);
+        Element element;
+        if (namespace == null && prefix == null && localName.indexOf(':') >= 0) {
+            // An element created without namespace support
+            element = document.createElement(localName);
+        } else {
+            element =
+                document.createElementNS(namespace, prefix == null || prefix.length() == 0 ? localName : prefix + ":"
+                    + localName);
+        }
+
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String attrNamespace = readName(in, strings);
+            String name = readName(in, strings);
+            if (attrNamespace == null && name.indexOf(':') >= 0) {
+                element.setAttribute(name, readText(in));
+            } else {
+                element.setAttributeNS(attrNamespace, name, readText(in));
+            }
+        }
+
+        for (int type = in.readUnsignedByte(); type != END; type = in.readUnsignedByte()) {
+            switch (type) {
+                case ELEMENT:
+                    element.appendChild(readElement(in, document, strings));
+                    break;
+                case TEXT:
+                    element.appendChild(document.createTextNode(readText(in)));
+                    break;
+                case CDATA:
+                    element.appendChild(document.createCDATASection(readText(in)));
+                    break;
+                default:
+                    throw new IOException("Invalid node type: " + type);
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Write a name as a reference to an earlier occurrence, or inline the first time.
+     * 0 is null, n > 0 is the (n-1)th name seen, -1 is followed by a new name.
+     */
+    private static void writeName(DataOutputStream out, String name, Map<String, Integer> strings) throws IOException {
+        if (name == null) {
+            out.writeShort(0);
+            return;
+        }
+        Integer index = strings.get(name);
+        if (index != null) {
+            out.writeShort(index + 1);
+        } else {
+            out.writeShort(-1);
+            out.writeUTF(name);
+            if (strings.size() < MAX_NAMES) {
+                strings.put(name, strings.size());
+            }
+        }
+    }
+
+    private static String readName(DataInputStream in, List<String> strings) throws IOException {
+        int index = in.readShort();
+        if (index == 0) {
+            return null;
+        } else if (index > 0) {
+            return strings.get(index - 1);
+        } else {
+            String name = in.readUTF();
+            if (strings.size() < MAX_NAMES) {
+                strings.add(name);
+            }
+            return name;
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -40,6 +40,10 @@ public class EndpointStash {
     }
     
     public static RuntimeEndpoint getEndpoint(String uri) {
+        RuntimeEndpoint endpoint = endpoints.get(uri);
+        if (endpoint != null) {
+            return endpoint;
+        }
         for (RuntimeEndpoint ep : endpoints.values()) {
             if (ep.matches(uri)) {
                 return ep;
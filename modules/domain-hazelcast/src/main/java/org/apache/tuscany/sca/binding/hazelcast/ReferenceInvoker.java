@@ -20,39 +20,48 @@
 package org.apache.tuscany.sca.binding.hazelcast;
 
 import java.io.IOException;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.FutureTask;
-
-import javax.xml.namespace.QName;
+import java.util.concurrent.Future;
 
 import org.apache.tuscany.sca.common.xml.dom.DOMHelper;
 import org.apache.tuscany.sca.core.ExtensionPointRegistry;
 import org.apache.tuscany.sca.core.FactoryExtensionPoint;
+import org.apache.tuscany.sca.core.UtilityExtensionPoint;
 import org.apache.tuscany.sca.endpoint.hazelcast.HazelcastEndpointRegistry;
 import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.interfacedef.util.FaultException;
-import org.apache.tuscany.sca.invocation.Invoker;
+import org.apache.tuscany.sca.invocation.AsyncInvoker;
+import org.apache.tuscany.sca.invocation.InvocationCallback;
 import org.apache.tuscany.sca.invocation.Message;
 import org.apache.tuscany.sca.invocation.MessageFactory;
 import org.apache.tuscany.sca.runtime.DomainRegistryFactory;
 import org.apache.tuscany.sca.runtime.EndpointRegistry;
 import org.apache.tuscany.sca.runtime.ExtensibleDomainRegistryFactory;
+import org.apache.tuscany.sca.work.WorkScheduler;
 import org.oasisopen.sca.ServiceRuntimeException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
 import com.hazelcast.core.DistributedTask;
+import com.hazelcast.core.ExecutionCallback;
 import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberLeftException;
+
+public class ReferenceInvoker implements AsyncInvoker {
 
-public class ReferenceInvoker implements Invoker {
+    // The number of times a request is sent before giving up on finding the service
+    private static final int MAX_ATTEMPTS = 3;
 
     HazelcastEndpointRegistry hzRegistry;
-    DOMHelper domHelper;
+    BinaryDOMCodec codec;
     String serviceURI;
     private Operation operation;
     MessageFactory messageFactory;
+    WorkScheduler workScheduler;
+
+    // The member last known to own the service, re-resolved if the member has left or the service has moved
+    private volatile Member owningMember;
 
     public ReferenceInvoker(ExtensionPointRegistry extensionsRegistry, String serviceURI, Operation operation) {
         this.serviceURI = serviceURI;
@@ -64,64 +73,162 @@ public class ReferenceInvoker implements Invoker {
                 break;
             }
         }
-        this.domHelper = DOMHelper.getInstance(extensionsRegistry);
+        this.codec = new BinaryDOMCodec(DOMHelper.getInstance(extensionsRegistry));
         FactoryExtensionPoint modelFactories = extensionsRegistry.getExtensionPoint(FactoryExtensionPoint.class);
         this.messageFactory = modelFactories.getFactory(MessageFactory.class);
+        UtilityExtensionPoint utilities = extensionsRegistry.getExtensionPoint(UtilityExtensionPoint.class);
+        this.workScheduler = utilities.getUtility(WorkScheduler.class);
     }
 
     public Message invoke(Message msg) {
-        Member owningMember = hzRegistry.getOwningMember(serviceURI);
-        if (owningMember == null) {
-            throw new ServiceRuntimeException("service not found: " + serviceURI);
-        }
-        String requestXML = getRequestXML(msg);
-        Callable<String> callable = new ServiceInvoker(serviceURI, operation.getName(), requestXML);
-        FutureTask<String> task = new DistributedTask<String>(callable, owningMember);
-        ExecutorService executorService = getExecutorService();
-        executorService.execute(task);
+        byte[] request = getRequest(msg);
         try {
-            return getResponseNode(task.get());
+            ServiceResponse response = getResponse(submit(request, getOwningMember(false)), request);
+            return getResponseMessage(response);
+        } catch (ServiceRuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new ServiceRuntimeException(e);
         }
     }
 
+    public void invokeAsync(final Message msg, final InvocationCallback callback) {
+        try {
+            byte[] request = getRequest(msg);
+            submit(request, getOwningMember(false), new ResponseCallback(msg, request, callback));
+        } catch (RuntimeException e) {
+            msg.setFaultBody(e);
+            callback.onResponse(msg);
+        }
+    }
+
+    private DistributedTask<ServiceResponse> submit(byte[] request, Member member) {
+        return submit(request, member, null);
+    }
+
+    private DistributedTask<ServiceResponse> submit(byte[] request,
+                                                    Member member,
+                                                    ExecutionCallback<ServiceResponse> executionCallback) {
+        int depth = ServiceInvoker.getCallDepth() + 1;
+        ServiceInvoker callable = new ServiceInvoker(serviceURI, operation.getName(), request, depth);
+        DistributedTask<ServiceResponse> task = new DistributedTask<ServiceResponse>(callable, member);
+        if (executionCallback != null) {
+            task.setExecutionCallback(executionCallback);
+        }
+        getExecutorService(depth).execute(task);
+        return task;
+    }
+
+    /**
+     * Get the response to a request. If the member it was sent to has left the cluster or no
+     * longer has the service, the owning member is looked up again and the request is sent again,
+     * up to MAX_ATTEMPTS times in all. Any other failure is not retried as the request may
+     * already have been processed.
+     */
+    private ServiceResponse getResponse(Future<ServiceResponse> future, byte[] request) throws Exception {
+        for (int attempt = 1;; attempt++) {
+            try {
+                ServiceResponse response = future.get();
+                if (response.getKind() != ServiceResponse.NO_SUCH_SERVICE || attempt == MAX_ATTEMPTS) {
+                    return response;
+                }
+            } catch (ExecutionException e) {
+                if (!isMemberLeft(e) || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                owningMember = null;
+            }
+            future = submit(request, getOwningMember(true));
+        }
+    }
+
+    private static boolean isMemberLeft(ExecutionException e) {
+        return e instanceof MemberLeftException || e.getCause() instanceof MemberLeftException;
+    }
+
+    private Member getOwningMember(boolean refresh) {
+        Member member = owningMember;
+        if (member != null && !hzRegistry.getHazelcastInstance().getCluster().getMembers().contains(member)) {
+            // The member has left the cluster
+            member = null;
+        }
+        if (member == null || refresh) {
+            member = hzRegistry.getOwningMember(serviceURI);
+            if (member == null) {
+                throw new ServiceRuntimeException("service not found: " + serviceURI);
+            }
+            owningMember = member;
+        }
+        return member;
+    }
+
     /**
      * Hazelcast ExecutorService can't nest invocations so use a separate ExecutorService
      * for nested calls. See http://groups.google.com/group/hazelcast/browse_thread/thread/1cc0b943716476e9
+     * The nesting level is carried with the request rather than parsed from the thread name.
      */
-    private ExecutorService getExecutorService() {
-        String threadName = Thread.currentThread().getName();
-        if (!threadName.startsWith("hz.executor.") || threadName.indexOf("binding.sca.") == -1) {
-            return hzRegistry.getHazelcastInstance().getExecutorService("binding.sca.1");
-        } else {
-            String oldName = threadName.substring(threadName.lastIndexOf("binding.sca."), threadName.lastIndexOf(".thread-"));
-            int x = Integer.parseInt(oldName.substring(oldName.lastIndexOf('.') + 1));
-            return hzRegistry.getHazelcastInstance().getExecutorService(oldName.substring(0, 12) + (x + 1));
-        }
+    private ExecutorService getExecutorService(int depth) {
+        return hzRegistry.getHazelcastInstance().getExecutorService("binding.sca." + depth);
     }
 
-    private String getRequestXML(Message msg) {
+    private byte[] getRequest(Message msg) {
         Object[] args = msg.getBody();
-        String msgXML = domHelper.saveAsString((Node)args[0]);
-        return msgXML;
+        try {
+            return codec.encode((Node)args[0]);
+        } catch (IOException e) {
+            throw new ServiceRuntimeException(e);
+        }
     }
 
-    private Message getResponseNode(String responseXML) throws IOException, SAXException {
+    private Message getResponseMessage(ServiceResponse response) throws IOException {
         Message msg = messageFactory.createMessage();
-        if (responseXML.startsWith("DECLAREDEXCEPTION:")) {
-            Document responseDOM = domHelper.load(responseXML.substring(18));
-            FaultException e = new FaultException("remote exception", responseDOM);
-            Node node = ((Node)responseDOM).getFirstChild();
-            e.setFaultName(new QName(node.getNamespaceURI(), node.getLocalName()));
-            msg.setFaultBody(e);
-        } else if (responseXML.startsWith("EXCEPTION:")) {
-            throw new ServiceRuntimeException("Remote exception:" + responseXML.substring(10));
-        } else {
-            Document responseDOM = domHelper.load(responseXML);
-            msg.setBody(responseDOM);
+        switch (response.getKind()) {
+            case ServiceResponse.RESULT:
+                msg.setBody(codec.decode(response.getPayload()));
+                break;
+            case ServiceResponse.DECLARED_FAULT:
+                Document responseDOM = codec.decode(response.getPayload());
+                FaultException e = new FaultException("remote exception", responseDOM);
+                e.setFaultName(response.getFaultName());
+                msg.setFaultBody(e);
+                break;
+            case ServiceResponse.NO_SUCH_SERVICE:
+                throw new ServiceRuntimeException("service not found: " + response.getMessage());
+            default:
+                throw new ServiceRuntimeException("Remote exception:" + response.getMessage());
         }
         return msg;
     }
 
+    /**
+     * Completes an asynchronous invocation. Hazelcast calls it on one of its own threads,
+     * so the response is handed to the work scheduler to keep that thread free.
+     */
+    private class ResponseCallback implements ExecutionCallback<ServiceResponse> {
+        private final Message request;
+        private final byte[] payload;
+        private final InvocationCallback callback;
+
+        ResponseCallback(Message request, byte[] payload, InvocationCallback callback) {
+            this.request = request;
+            this.payload = payload;
+            this.callback = callback;
+        }
+
+        public void done(final Future<ServiceResponse> future) {
+            workScheduler.scheduleWork(new Runnable() {
+                public void run() {
+                    Message response;
+                    try {
+                        response = getResponseMessage(getResponse(future, payload));
+                    } catch (Throwable e) {
+                        request.setFaultBody(e instanceof ServiceRuntimeException ? e : new ServiceRuntimeException(e));
+                        response = request;
+                    }
+                    callback.onResponse(response);
+                }
+            });
+        }
+    }
+
 }
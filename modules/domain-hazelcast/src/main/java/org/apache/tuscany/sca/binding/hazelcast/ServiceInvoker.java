@@ -19,57 +19,95 @@
 
 package org.apache.tuscany.sca.binding.hazelcast;
 
+import java.io.Externalizable;
 import java.io.IOException;
-import java.io.Serializable;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.Callable;
 
+import javax.xml.namespace.QName;
+
 import org.apache.tuscany.sca.common.xml.dom.DOMHelper;
 import org.apache.tuscany.sca.interfacedef.Interface;
 import org.apache.tuscany.sca.interfacedef.InterfaceContract;
 import org.apache.tuscany.sca.interfacedef.Operation;
 import org.apache.tuscany.sca.interfacedef.util.FaultException;
 import org.apache.tuscany.sca.runtime.RuntimeEndpoint;
-import org.oasisopen.sca.NoSuchServiceException;
 import org.oasisopen.sca.ServiceRuntimeException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
-public class ServiceInvoker implements Callable<String>, Serializable {
+/**
+ * The task sent to the member owning the service. It carries the request payload in the
+ * binary DOM form and returns a typed ServiceResponse.
+ */
+public class ServiceInvoker implements Callable<ServiceResponse>, Externalizable {
     private static final long serialVersionUID = 1L;
 
-    // all fields MUST be Serializable
+    // The nesting level of remote calls on the current thread, see ReferenceInvoker
+    private static final ThreadLocal<Integer> callDepth = new ThreadLocal<Integer>();
+
     private String serviceURI;
     private String operationName;
-    private String requestXML;
+    private byte[] payload;
+    private int depth;
+
+    /**
+     * No-arg constructor for Java serialization
+     */
+    public ServiceInvoker() {
+    }
 
-    public ServiceInvoker(String serviceURI, String operationName, String msgXML) {
+    public ServiceInvoker(String serviceURI, String operationName, byte[] payload, int depth) {
         this.serviceURI = serviceURI;
         this.operationName = operationName;
-        this.requestXML = msgXML;
+        this.payload = payload;
+        this.depth = depth;
     }
 
-    public String call() throws Exception {
+    /**
+     * Get the nesting level of the remote call being served by the current thread, 0 if none
+     */
+    public static int getCallDepth() {
+        Integer depth = callDepth.get();
+        return depth == null ? 0 : depth;
+    }
+
+    public ServiceResponse call() throws Exception {
         RuntimeEndpoint endpoint = EndpointStash.getEndpoint(serviceURI);
         if (endpoint == null) {
-            throw new NoSuchServiceException(serviceURI);
+            return ServiceResponse.noSuchService(serviceURI);
         }
-        Operation operation = getRequestOperation(endpoint);
-        DOMHelper domHelper = DOMHelper.getInstance(endpoint.getCompositeContext().getExtensionPointRegistry());
-        Object[] args = getRequestArgs(domHelper);
-        String responseXML;
+        Integer oldDepth = callDepth.get();
+        callDepth.set(depth);
         try {
-            Object response = endpoint.invoke(operation, args);
-            responseXML = getResponseXML(domHelper, response);
+            Operation operation = getRequestOperation(endpoint);
+            BinaryDOMCodec codec =
+                new BinaryDOMCodec(DOMHelper.getInstance(endpoint.getCompositeContext().getExtensionPointRegistry()));
+            Object[] args = new Object[] {codec.decode(payload)};
+            try {
+                Object response = endpoint.invoke(operation, args);
+                return ServiceResponse.result(codec.encode((Node)response));
+            } catch (InvocationTargetException e) {
+                if (e.getTargetException() instanceof FaultException) {
+                    FaultException fault = (FaultException)e.getTargetException();
+                    Node faultInfo = (Node)fault.getFaultInfo();
+                    return ServiceResponse.declaredFault(getFaultName(faultInfo), codec.encode(faultInfo));
+                }
+                return ServiceResponse.exception(e.getTargetException());
+            }
         } catch (Exception e) {
-           if (e instanceof InvocationTargetException && ((InvocationTargetException)e).getTargetException() instanceof FaultException) {
-               responseXML = "DECLAREDEXCEPTION:" + getResponseXML(domHelper, ((FaultException)((InvocationTargetException)e).getTargetException()).getFaultInfo());
-           } else {
-               responseXML = "EXCEPTION: " + e.getClass() + ":" + e.getMessage();
-           }
+            return ServiceResponse.exception(e);
+        } finally {
+            callDepth.set(oldDepth);
         }
-        return responseXML;
+    }
+
+    private QName getFaultName(Node faultInfo) {
+        Node node = faultInfo instanceof Document ? ((Document)faultInfo).getDocumentElement() : faultInfo;
+        String localName = node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+        return new QName(node.getNamespaceURI(), localName);
     }
 
     private Operation getRequestOperation(RuntimeEndpoint endpoint) {
@@ -81,18 +119,23 @@ public class ServiceInvoker implements Callable<String>, Serializable {
             }
 
         }
-        // TODO: return err msg
         throw new ServiceRuntimeException("operation not found " + operationName);
     }
 
-    private Object[] getRequestArgs(DOMHelper domHelper) throws IOException, SAXException {
-        Document requestDOM = domHelper.load(requestXML);
-        return new Object[] {requestDOM};
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeUTF(serviceURI);
+        out.writeUTF(operationName);
+        out.writeInt(depth);
+        out.writeInt(payload.length);
+        out.write(payload);
     }
 
-    private String getResponseXML(DOMHelper domHelper, Object response) {
-        String responseXML = domHelper.saveAsString((Node)response);
-        return responseXML;
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        serviceURI = in.readUTF();
+        operationName = in.readUTF();
+        depth = in.readInt();
+        payload = new byte[in.readInt()];
+        in.readFully(payload);
     }
 
 }
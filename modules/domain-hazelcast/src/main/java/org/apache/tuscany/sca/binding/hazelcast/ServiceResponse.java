@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.hazelcast;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import javax.xml.namespace.QName;
+
+/**
+ * The outcome of a remote invocation, sent back from the member owning the service
+ */
+public class ServiceResponse implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of outcome
+     */
+    public static final int RESULT = 0;
+    public static final int DECLARED_FAULT = 1;
+    public static final int EXCEPTION = 2;
+    public static final int NO_SUCH_SERVICE = 3;
+
+    // Keeps the message within the writeUTF limit
+    private static final int MAX_MESSAGE_LENGTH = 8192;
+
+    private int kind;
+    private byte[] payload;
+    private QName faultName;
+    private String message;
+
+    /**
+     * No-arg constructor for Java serialization
+     */
+    public ServiceResponse() {
+    }
+
+    private ServiceResponse(int kind, byte[] payload, QName faultName, String message) {
+        this.kind = kind;
+        this.payload = payload;
+        this.faultName = faultName;
+        this.message = message;
+    }
+
+    public static ServiceResponse result(byte[] payload) {
+        return new ServiceResponse(RESULT, payload, null, null);
+    }
+
+    public static ServiceResponse declaredFault(QName faultName, byte[] payload) {
+        return new ServiceResponse(DECLARED_FAULT, payload, faultName, null);
+    }
+
+    public static ServiceResponse exception(Throwable e) {
+        String message = e.getClass().getName() + ": " + e.getMessage();
+        if (message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        return new ServiceResponse(EXCEPTION, null, null, message);
+    }
+
+    public static ServiceResponse noSuchService(String serviceURI) {
+        return new ServiceResponse(NO_SUCH_SERVICE, null, null, serviceURI);
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public QName getFaultName() {
+        return faultName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(kind);
+        out.writeInt(payload == null ? -1 : payload.length);
+        if (payload != null) {
+            out.write(payload);
+        }
+        out.writeBoolean(faultName != null);
+        if (faultName != null) {
+            out.writeUTF(faultName.getNamespaceURI());
+            out.writeUTF(faultName.getLocalPart());
+        }
+        out.writeBoolean(message != null);
+        if (message != null) {
+            out.writeUTF(message);
+        }
+    }
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        kind = in.readUnsignedByte();
+        int length = in.readInt();
+        if (length >= 0) {
+            payload = new byte[length];
+            in.readFully(payload);
+        }
+        if (in.readBoolean()) {
+            faultName = new QName(in.readUTF(), in.readUTF());
+        }
+        if (in.readBoolean()) {
+            message = in.readUTF();
+        }
+    }
+}
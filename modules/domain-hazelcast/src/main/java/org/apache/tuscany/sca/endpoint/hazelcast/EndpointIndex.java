@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.endpoint.hazelcast;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.assembly.impl.EndpointURIHelper;
+
+/**
+ * A member local cache of deserialized endpoints. Endpoints are indexed by URI, by
+ * component name and by component#service so that a lookup only looks at the endpoints
+ * which can possibly match instead of deserializing the whole distributed map.
+ */
+public class EndpointIndex {
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private final Map<String, Map<String, Endpoint>> byComponent = new ConcurrentHashMap<String, Map<String, Endpoint>>();
+    private final Map<String, Map<String, Endpoint>> byService = new ConcurrentHashMap<String, Map<String, Endpoint>>();
+
+    public synchronized void put(Endpoint endpoint) {
+        String uri = endpoint.getURI();
+        remove(uri);
+        endpoints.put(uri, endpoint);
+        String[] names = getIndexNames(uri);
+        if (names != null) {
+            add(byComponent, names[0], uri, endpoint);
+            if (names[1] != null) {
+                add(byService, names[0] + "#" + names[1], uri, endpoint);
+            }
+        }
+    }
+
+    /**
+     * Index the endpoint unless an endpoint with the same URI is already indexed
+     * @return true if the endpoint has been indexed
+     */
+    public synchronized boolean putIfAbsent(Endpoint endpoint) {
+        if (endpoints.containsKey(endpoint.getURI())) {
+            return false;
+        }
+        put(endpoint);
+        return true;
+    }
+
+    public synchronized Endpoint remove(String uri) {
+        Endpoint endpoint = endpoints.remove(uri);
+        if (endpoint != null) {
+            String[] names = getIndexNames(uri);
+            if (names != null) {
+                remove(byComponent, names[0], uri);
+                if (names[1] != null) {
+                    remove(byService, names[0] + "#" + names[1], uri);
+                }
+            }
+        }
+        return endpoint;
+    }
+
+    /**
+     * Remove the endpoint only if it is still the one indexed for its URI
+     * @return true if the endpoint has been removed
+     */
+    public synchronized boolean remove(Endpoint endpoint) {
+        if (endpoints.get(endpoint.getURI()) != endpoint) {
+            return false;
+        }
+        remove(endpoint.getURI());
+        return true;
+    }
+
+    public Endpoint get(String uri) {
+        return endpoints.get(uri);
+    }
+
+    public Collection<Endpoint> getEndpoints() {
+        return endpoints.values();
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public synchronized void clear() {
+        endpoints.clear();
+        byComponent.clear();
+        byService.clear();
+    }
+
+    /**
+     * Find the endpoints matching a service URI in any of the forms accepted by
+     * {@link Endpoint#matches(String)}
+     */
+    public List<Endpoint> find(String serviceURI) {
+        Map<String, Endpoint> candidates;
+        String[] names = EndpointURIHelper.parseServiceURI(serviceURI);
+        if (names[0] == null) {
+            candidates = endpoints;
+        } else if (names[1] != null) {
+            candidates = byService.get(names[0] + "#" + names[1]);
+        } else {
+            candidates = byComponent.get(names[0]);
+        }
+
+        List<Endpoint> found = new ArrayList<Endpoint>();
+        if (candidates != null) {
+            for (Endpoint endpoint : candidates.values()) {
+                if (endpoint.matches(serviceURI)) {
+                    found.add(endpoint);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static void add(Map<String, Map<String, Endpoint>> index, String key, String uri, Endpoint endpoint) {
+        Map<String, Endpoint> entries = index.get(key);
+        if (entries == null) {
+            entries = new ConcurrentHashMap<String, Endpoint>();
+            index.put(key, entries);
+        }
+        entries.put(uri, endpoint);
+    }
+
+    private static void remove(Map<String, Map<String, Endpoint>> index, String key, String uri) {
+        Map<String, Endpoint> entries = index.get(key);
+        if (entries != null) {
+            entries.remove(uri);
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the component URI and service name of the endpoint URI, or null if it cannot be parsed
+     * in which case the endpoint is only indexed by URI
+     */
+    private static String[] getIndexNames(String uri) {
+        try {
+            return EndpointURIHelper.parseStructuralURI(uri);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.tuscany.sca.assembly.AssemblyFactory;
@@ -67,6 +68,8 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
     private HazelcastInstance hazelcastInstance;
     protected Map<Object, Object> endpointMap;
     protected Map<String, Endpoint> localEndpoints = new ConcurrentHashMap<String, Endpoint>();
+    // Deserialized endpoints of the whole domain, kept up to date by the entry listener callbacks
+    protected EndpointIndex endpointIndex = new EndpointIndex();
     protected MultiMap<String, String> endpointOwners;
     protected AssemblyFactory assemblyFactory;
     protected Object shutdownMutex = new Object();
@@ -100,8 +103,10 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
 //        } else {
             initHazelcastInstance();
             IMap imap = hazelcastInstance.getMap(domainURI + "/Endpoints");
-            imap.addEntryListener(this, true);
             endpointMap = imap;
+            // register the listener before reading the map so that no change can be missed
+            imap.addEntryListener(this, true);
+            loadEndpointIndex();
             
             endpointOwners = hazelcastInstance.getMultiMap(domainURI + "/EndpointOwners");
 
@@ -116,10 +121,47 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
                 hazelcastInstance = null;
                 endpointMap = null;
                 endpointOwners = null;
+                endpointIndex.clear();
+            }
+        }
+    }
+
+    /**
+     * Populate the local index with the endpoints already in the domain. This is the only
+     * time the whole map is read, after that the index follows the entry events. The entry
+     * listener must already be registered: an entry read here never replaces one indexed by
+     * an event, and the endpoints removed while the map was being read are dropped afterwards.
+     */
+    protected void loadEndpointIndex() {
+        for (Map.Entry<Object, Object> entry : endpointMap.entrySet()) {
+            indexEndpoint((Endpoint)entry.getValue(), false);
+        }
+        for (Endpoint endpoint : endpointIndex.getEndpoints()) {
+            if (!endpointMap.containsKey(endpoint.getURI())) {
+                endpointIndex.remove(endpoint);
             }
         }
     }
 
+    private void indexEndpoint(Endpoint endpoint, boolean replace) {
+        Endpoint local = localEndpoints.get(endpoint.getURI());
+        if (local != null) {
+            // get the local version of the endpoint
+            // this local version won't have been serialized
+            // won't be marked as remote and will have the 
+            // full interface contract information
+            endpoint = local;
+        } else {
+            endpoint.setRemote(true);
+            ((RuntimeEndpoint)endpoint).bind(registry, this);
+        }
+        if (replace) {
+            endpointIndex.put(endpoint);
+        } else {
+            endpointIndex.putIfAbsent(endpoint);
+        }
+    }
+
     private void initHazelcastInstance() {
         Config config = getHazelcastConfig();
 
@@ -195,13 +237,15 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
     }
 
     public void addEndpoint(Endpoint endpoint) {
-        if (findEndpoint(endpoint.getURI()).size() > 0) {
+        if (endpointMap.containsKey(endpoint.getURI())) {
             Member m = getOwningMember(endpoint.getURI());
             throw new IllegalStateException("Endpoint " + endpoint.getURI() + " already exists in domain " + domainURI + " at " + m.getInetSocketAddress());
         }
             
         String localMemberAddr = hazelcastInstance.getCluster().getLocalMember().getInetSocketAddress().toString();
         String endpointURI = endpoint.getURI();
+        // Register locally first so the entry event finds the local version
+        localEndpoints.put(endpointURI, endpoint);
         Transaction txn = hazelcastInstance.getTransaction();
         txn.begin();
         try {
@@ -210,47 +254,38 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
             txn.commit();
         } catch (Throwable e) {
             txn.rollback();
+            localEndpoints.remove(endpointURI);
             throw new ServiceRuntimeException(e);
         }
-        localEndpoints.put(endpointURI, endpoint);
+        endpointIndex.put(endpoint);
         logger.info("Add endpoint - " + endpoint);
     }
 
     public List<Endpoint> findEndpoint(String uri) {
-        List<Endpoint> foundEndpoints = new ArrayList<Endpoint>();
-        for (Object v : endpointMap.values()) {
-            Endpoint endpoint = (Endpoint)v;
-            logger.fine("Matching against - " + endpoint);
-            if (endpoint.matches(uri)) {
-                if (!isLocal(endpoint)) {
-                    endpoint.setRemote(true);
-                    ((RuntimeEndpoint)endpoint).bind(registry, this);
-                } else {
-                    // get the local version of the endpoint
-                    // this local version won't have been serialized
-                    // won't be marked as remote and will have the 
-                    // full interface contract information
-                    endpoint = localEndpoints.get(endpoint.getURI());
-                }
-                
-                foundEndpoints.add(endpoint);
+        List<Endpoint> foundEndpoints = endpointIndex.find(uri);
+        if (logger.isLoggable(Level.FINE)) {
+            for (Endpoint endpoint : foundEndpoints) {
                 logger.fine("Found endpoint with matching service  - " + endpoint);
             }
         }
         return foundEndpoints;
     }
-    
 
     private boolean isLocal(Endpoint endpoint) {
         return localEndpoints.containsKey(endpoint.getURI());
     }
 
     public Endpoint getEndpoint(String uri) {
-        return (Endpoint)endpointMap.get(uri);
+        Endpoint endpoint = endpointIndex.get(uri);
+        if (endpoint == null) {
+            // The entry event may not have arrived yet
+            endpoint = (Endpoint)endpointMap.get(uri);
+        }
+        return endpoint;
     }
 
     public List<Endpoint> getEndpoints() {
-        return new ArrayList(endpointMap.values());
+        return new ArrayList<Endpoint>(endpointIndex.getEndpoints());
     }
 
     public void removeEndpoint(Endpoint endpoint) {
@@ -273,6 +308,7 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
 //                throw new ServiceRuntimeException(e);
 //            }
             localEndpoints.remove(endpointURI);
+            endpointIndex.remove(endpointURI);
             logger.info("Removed endpoint - " + endpoint);
         }
     }
@@ -299,6 +335,7 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
         if (!isLocal(newEp)) {
             logger.info(" Remote endpoint added: " + newEp);
         } 
+        indexEndpoint(newEp, true);
         endpointAdded(newEp);
     }
 
@@ -307,6 +344,7 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
         if (!isLocal(oldEp)) {
             logger.info(" Remote endpoint removed: " + value);
         }
+        endpointIndex.remove((String)key);
         endpointRemoved(oldEp);
     }
 
@@ -316,6 +354,7 @@ public class HazelcastEndpointRegistry extends BaseEndpointRegistry implements E
         if (!isLocal(newEp)) {
             logger.info(" Remote endpoint updated: " + newEp);
         }
+        indexEndpoint(newEp, true);
         endpointUpdated(oldEp, newEp);
     }
 
@@ -34,6 +34,7 @@ import org.apache.tuscany.sca.runtime.RuntimeProperties;
 
 import com.hazelcast.client.HazelcastClient;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
 
 /**
  * An EndpointRegistry using a Hazelcast Native Client
@@ -55,8 +56,11 @@ public class HazelcastClientEndpointRegistry extends HazelcastEndpointRegistry {
             throw new IllegalStateException("The registry has already been started");
         }
         initHazelcastClientInstance();
-        endpointMap = hazelcastClient.getMap(domainURI + "/Endpoints");
+        IMap imap = hazelcastClient.getMap(domainURI + "/Endpoints");
+        imap.addEntryListener(this, true);
+        endpointMap = imap;
         endpointOwners = hazelcastClient.getMultiMap(domainURI + "/EndpointOwners");
+        loadEndpointIndex();
     }
 
     @Override
@@ -65,6 +69,7 @@ public class HazelcastClientEndpointRegistry extends HazelcastEndpointRegistry {
             hazelcastClient.shutdown();
             hazelcastClient = null;
             endpointMap = null;
+            endpointIndex.clear();
         }
     }
 
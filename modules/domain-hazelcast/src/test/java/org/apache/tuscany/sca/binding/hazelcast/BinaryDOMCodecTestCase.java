@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.hazelcast;
+
+import javax.xml.XMLConstants;
+
+import org.apache.tuscany.sca.common.xml.dom.DOMHelper;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Round trips of DOM trees through the binary form
+ */
+public class BinaryDOMCodecTestCase {
+    private static ExtensionPointRegistry registry;
+    private static DOMHelper domHelper;
+    private static BinaryDOMCodec codec;
+
+    @BeforeClass
+    public static void init() {
+        registry = new DefaultExtensionPointRegistry();
+        registry.start();
+        domHelper = DOMHelper.getInstance(registry);
+        codec = new BinaryDOMCodec(domHelper);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        registry.stop();
+    }
+
+    @Test
+    public void testNamespacesAndPrefixes() throws Exception {
+        Document document =
+            domHelper.load("<a:foo xmlns:a='http://a' xmlns='http://default' name='foo'>"
+                + "<bar a:name='bar'><doo xmlns:a='http://doo' a:name='doo'/></bar>"
+                + "<empty xmlns=''/></a:foo>");
+        Document copy = roundTrip(document);
+
+        Element foo = copy.getDocumentElement();
+        Assert.assertEquals("http://a", foo.getNamespaceURI());
+        Assert.assertEquals("a", foo.getPrefix());
+        Assert.assertEquals("foo", foo.getLocalName());
+        Assert.assertEquals("foo", foo.getAttributeNS(null, "name"));
+        Assert.assertEquals("http://a", foo.getAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "a"));
+        Assert.assertEquals("http://default", foo.getAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns"));
+
+        Element bar = (Element)foo.getFirstChild();
+        Assert.assertEquals("http://default", bar.getNamespaceURI());
+        Assert.assertNull(bar.getPrefix());
+        Assert.assertEquals("bar", bar.getAttributeNS("http://a", "name"));
+
+        // The prefix is bound to another namespace further down
+        Element doo = (Element)bar.getFirstChild();
+        Assert.assertEquals("doo", doo.getAttributeNS("http://doo", "name"));
+        Assert.assertEquals("", doo.getAttributeNS("http://a", "name"));
+
+        Element empty = (Element)bar.getNextSibling();
+        Assert.assertNull(empty.getNamespaceURI());
+
+        // The copy also serializes to equivalent XML
+        Assert.assertTrue(domHelper.load(domHelper.saveAsString(copy)).getDocumentElement().isEqualNode(document
+            .getDocumentElement()));
+    }
+
+    @Test
+    public void testTextAndCDATA() throws Exception {
+        Document document = domHelper.load("<foo>one &amp; two<![CDATA[<b>three</b>]]>\u00e9\u4e2d</foo>");
+        Document copy = roundTrip(document);
+
+        Node text = copy.getDocumentElement().getFirstChild();
+        Assert.assertEquals(Node.TEXT_NODE, text.getNodeType());
+        Assert.assertEquals("one & two", text.getNodeValue());
+        Node cdata = text.getNextSibling();
+        Assert.assertEquals(Node.CDATA_SECTION_NODE, cdata.getNodeType());
+        Assert.assertEquals("<b>three</b>", cdata.getNodeValue());
+        Assert.assertEquals("\u00e9\u4e2d", cdata.getNextSibling().getNodeValue());
+    }
+
+    @Test
+    public void testNodesWithoutNamespaceSupport() throws Exception {
+        Document document = domHelper.newDocument();
+        Element root = document.createElement("p:root");
+        root.setAttribute("p:name", "value");
+        root.appendChild(document.createElement("child"));
+        document.appendChild(root);
+
+        // The names are kept, although the copy is created with namespace support where the name allows it
+        Element copy = codec.decode(codec.encode(document)).getDocumentElement();
+        Assert.assertEquals("p:root", copy.getTagName());
+        Assert.assertEquals("value", copy.getAttribute("p:name"));
+        Assert.assertEquals("child", ((Element)copy.getFirstChild()).getTagName());
+    }
+
+    @Test
+    public void testNameTableLimit() throws Exception {
+        // More distinct names than can be referenced by index, later names are written inline
+        Document document = domHelper.newDocument();
+        Element root = document.createElementNS("http://root", "root");
+        document.appendChild(root);
+        int count = Short.MAX_VALUE + 100;
+        for (int i = 0; i < count; i++) {
+            Element child = document.createElementNS("http://ns" + (i % 10), "e" + i);
+            child.setAttributeNS(null, "a" + i, String.valueOf(i));
+            root.appendChild(child);
+        }
+        // Names from before and after the limit are used again
+        root.appendChild(document.createElementNS("http://ns0", "e0"));
+        root.appendChild(document.createElementNS("http://ns0", "e" + (count - 1)));
+
+        Document copy = roundTrip(document);
+        Assert.assertEquals(count + 2, copy.getDocumentElement().getChildNodes().getLength());
+        Element last = (Element)copy.getDocumentElement().getLastChild();
+        Assert.assertEquals("e" + (count - 1), last.getLocalName());
+        Assert.assertEquals("http://ns0", last.getNamespaceURI());
+        Element limit = (Element)copy.getDocumentElement().getChildNodes().item(Short.MAX_VALUE);
+        Assert.assertEquals(String.valueOf(Short.MAX_VALUE), limit.getAttributeNS(null, "a" + Short.MAX_VALUE));
+    }
+
+    private static Document roundTrip(Document document) throws Exception {
+        Document copy = codec.decode(codec.encode(document));
+        Assert.assertTrue(copy.getDocumentElement().isEqualNode(document.getDocumentElement()));
+        return copy;
+    }
+}
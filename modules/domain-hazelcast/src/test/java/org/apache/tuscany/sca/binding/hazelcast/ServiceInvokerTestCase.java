@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.hazelcast;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import org.apache.tuscany.sca.common.xml.dom.DOMHelper;
+import org.apache.tuscany.sca.context.CompositeContext;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.interfacedef.Interface;
+import org.apache.tuscany.sca.interfacedef.InterfaceContract;
+import org.apache.tuscany.sca.interfacedef.Operation;
+import org.apache.tuscany.sca.runtime.RuntimeEndpoint;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Java serialization round trips of the task sent to the member owning the service
+ */
+public class ServiceInvokerTestCase {
+    private static final String SERVICE_URI = "ServiceInvokerTestCase/TestService";
+
+    private static ExtensionPointRegistry registry;
+    private static BinaryDOMCodec codec;
+
+    // The call depth seen by the service
+    private int depth = -1;
+
+    @BeforeClass
+    public static void init() {
+        registry = new DefaultExtensionPointRegistry();
+        registry.start();
+        codec = new BinaryDOMCodec(DOMHelper.getInstance(registry));
+    }
+
+    @AfterClass
+    public static void destroy() {
+        registry.stop();
+    }
+
+    @After
+    public void tearDown() {
+        EndpointStash.removeEndpoint(SERVICE_URI);
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        EndpointStash.addEndpoint(createEndpoint());
+        Document request = DOMHelper.getInstance(registry).load("<echo xmlns='http://test'><arg>Petra</arg></echo>");
+        ServiceInvoker invoker = new ServiceInvoker(SERVICE_URI, "echo", codec.encode(request), 2);
+
+        ServiceResponse response = ServiceResponseTestCase.roundTrip(invoker).call();
+        Assert.assertEquals(ServiceResponse.RESULT, response.getKind());
+        Document result = codec.decode(response.getPayload());
+        Assert.assertTrue(result.getDocumentElement().isEqualNode(request.getDocumentElement()));
+        // The call depth travels with the task and is only set while the service runs
+        Assert.assertEquals(2, depth);
+        Assert.assertEquals(0, ServiceInvoker.getCallDepth());
+    }
+
+    @Test
+    public void testNoSuchService() throws Exception {
+        Document request = DOMHelper.getInstance(registry).load("<echo xmlns='http://test'/>");
+        ServiceInvoker invoker = new ServiceInvoker(SERVICE_URI, "echo", codec.encode(request), 1);
+
+        ServiceResponse response = ServiceResponseTestCase.roundTrip(invoker).call();
+        Assert.assertEquals(ServiceResponse.NO_SUCH_SERVICE, response.getKind());
+        Assert.assertEquals(SERVICE_URI, response.getMessage());
+    }
+
+    /**
+     * An endpoint with an echo operation that records the call depth
+     */
+    private RuntimeEndpoint createEndpoint() {
+        final Operation operation = proxy(Operation.class, "getName", "echo");
+        final Interface interfaze = proxy(Interface.class, "getOperations", Collections.singletonList(operation));
+        final InterfaceContract contract = proxy(InterfaceContract.class, "getInterface", interfaze);
+        final CompositeContext context = new CompositeContext(registry, null);
+        return (RuntimeEndpoint)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                      new Class<?>[] {RuntimeEndpoint.class},
+                                                      new InvocationHandler() {
+                                                          public Object invoke(Object proxy, Method method, Object[] args) {
+                                                              String name = method.getName();
+                                                              if ("getURI".equals(name)) {
+                                                                  return SERVICE_URI;
+                                                              } else if ("getCompositeContext".equals(name)) {
+                                                                  return context;
+                                                              } else if ("getBindingInterfaceContract".equals(name)) {
+                                                                  return contract;
+                                                              } else if ("invoke".equals(name) && args.length == 2) {
+                                                                  Assert.assertSame(operation, args[0]);
+                                                                  depth = ServiceInvoker.getCallDepth();
+                                                                  return ((Object[])args[1])[0];
+                                                              }
+                                                              throw new UnsupportedOperationException(name);
+                                                          }
+                                                      });
+    }
+
+    private static <T> T proxy(Class<T> type, final String methodName, final Object result) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (methodName.equals(method.getName())) {
+                    return result;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+    }
+}
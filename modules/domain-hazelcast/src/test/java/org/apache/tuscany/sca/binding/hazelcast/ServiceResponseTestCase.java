@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.binding.hazelcast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Java serialization round trips of the responses sent back to the calling member
+ */
+public class ServiceResponseTestCase {
+
+    @Test
+    public void testResult() throws Exception {
+        ServiceResponse response = roundTrip(ServiceResponse.result(new byte[] {1, 2, 3}));
+        Assert.assertEquals(ServiceResponse.RESULT, response.getKind());
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, response.getPayload());
+        Assert.assertNull(response.getFaultName());
+        Assert.assertNull(response.getMessage());
+
+        response = roundTrip(ServiceResponse.result(new byte[0]));
+        Assert.assertEquals(0, response.getPayload().length);
+    }
+
+    @Test
+    public void testDeclaredFault() throws Exception {
+        QName faultName = new QName("http://test", "BadString");
+        ServiceResponse response = roundTrip(ServiceResponse.declaredFault(faultName, new byte[] {4, 5}));
+        Assert.assertEquals(ServiceResponse.DECLARED_FAULT, response.getKind());
+        Assert.assertEquals(faultName, response.getFaultName());
+        Assert.assertArrayEquals(new byte[] {4, 5}, response.getPayload());
+    }
+
+    @Test
+    public void testException() throws Exception {
+        ServiceResponse response = roundTrip(ServiceResponse.exception(new IllegalStateException("Failed")));
+        Assert.assertEquals(ServiceResponse.EXCEPTION, response.getKind());
+        Assert.assertEquals("java.lang.IllegalStateException: Failed", response.getMessage());
+        Assert.assertNull(response.getPayload());
+
+        // Long messages are cut so that they can be written with writeUTF
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            message.append('x');
+        }
+        response = roundTrip(ServiceResponse.exception(new IllegalStateException(message.toString())));
+        Assert.assertTrue(response.getMessage().length() < message.length());
+    }
+
+    @Test
+    public void testNoSuchService() throws Exception {
+        ServiceResponse response = roundTrip(ServiceResponse.noSuchService("C1/S1"));
+        Assert.assertEquals(ServiceResponse.NO_SUCH_SERVICE, response.getKind());
+        Assert.assertEquals("C1/S1", response.getMessage());
+    }
+
+    static <T> T roundTrip(T object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return (T)in.readObject();
+    }
+}
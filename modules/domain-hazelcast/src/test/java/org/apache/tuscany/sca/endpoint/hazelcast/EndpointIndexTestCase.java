@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.endpoint.hazelcast;
+
+import junit.framework.Assert;
+
+import org.apache.tuscany.sca.assembly.AssemblyFactory;
+import org.apache.tuscany.sca.assembly.DefaultAssemblyFactory;
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EndpointIndexTestCase {
+
+    private AssemblyFactory assemblyFactory = new DefaultAssemblyFactory();
+    private EndpointIndex index;
+
+    @Before
+    public void setUp() {
+        index = new EndpointIndex();
+        index.put(createEndpoint("Calculator#service-binding(CalculatorService/CalculatorService)"));
+        index.put(createEndpoint("Calculator#service-binding(CalculatorService/ws)"));
+        index.put(createEndpoint("Calculator#service-binding(AddService/AddService)"));
+        index.put(createEndpoint("Subtract#service-binding(SubtractService/SubtractService)"));
+    }
+
+    @Test
+    public void testFind() {
+        Assert.assertEquals(3, index.find("Calculator").size());
+        Assert.assertEquals(2, index.find("Calculator/CalculatorService").size());
+        Assert.assertEquals(1, index.find("Calculator/CalculatorService/ws").size());
+        Assert.assertEquals(1, index.find("Calculator#service-binding(AddService/AddService)").size());
+        Assert.assertEquals(1, index.find("/Subtract").size());
+        Assert.assertEquals(0, index.find("Calculator/SubtractService").size());
+        Assert.assertEquals(0, index.find("Divide").size());
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove("Calculator#service-binding(CalculatorService/ws)");
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(1, index.find("Calculator/CalculatorService").size());
+        Assert.assertNull(index.get("Calculator#service-binding(CalculatorService/ws)"));
+
+        index.remove("Subtract#service-binding(SubtractService/SubtractService)");
+        Assert.assertEquals(0, index.find("Subtract").size());
+    }
+
+    @Test
+    public void testReplace() {
+        Endpoint endpoint = createEndpoint("Calculator#service-binding(AddService/AddService)");
+        index.put(endpoint);
+        Assert.assertEquals(4, index.size());
+        Assert.assertSame(endpoint, index.find("Calculator/AddService").get(0));
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        Endpoint endpoint = createEndpoint("Calculator#service-binding(AddService/AddService)");
+        Assert.assertFalse(index.putIfAbsent(endpoint));
+        Assert.assertNotSame(endpoint, index.get(endpoint.getURI()));
+
+        Assert.assertFalse(index.remove(endpoint));
+        Assert.assertEquals(4, index.size());
+
+        index.put(endpoint);
+        Assert.assertTrue(index.remove(endpoint));
+        Assert.assertTrue(index.putIfAbsent(endpoint));
+        Assert.assertSame(endpoint, index.find("Calculator/AddService").get(0));
+    }
+
+    @Test
+    public void testInvalidStructuralURI() {
+        index.put(createEndpoint("Divide#bad(DivideService)"));
+        Assert.assertEquals(5, index.size());
+        Assert.assertEquals(3, index.find("Calculator").size());
+        Assert.assertNotNull(index.remove("Divide#bad(DivideService)"));
+        Assert.assertEquals(4, index.size());
+    }
+
+    private Endpoint createEndpoint(String uri) {
+        Endpoint endpoint = assemblyFactory.createEndpoint();
+        endpoint.setURI(uri);
+        return endpoint;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.endpoint.hazelcast;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.assembly.RuntimeAssemblyFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the local endpoint index of the registry is consistent with the distributed map
+ * when entry events arrive while the index is being loaded. The distributed map is simulated
+ * by a local map which fires the events itself.
+ */
+public class HazelcastEndpointRegistryTestCase {
+
+    private RuntimeAssemblyFactory assemblyFactory;
+    private HazelcastEndpointRegistry endpointRegistry;
+    private Map<Object, Object> endpointMap;
+    private Runnable concurrentChanges;
+
+    @Before
+    public void setUp() {
+        ExtensionPointRegistry registry = new DefaultExtensionPointRegistry();
+        assemblyFactory = new RuntimeAssemblyFactory(registry);
+        endpointRegistry = new HazelcastEndpointRegistry(registry, new Properties(), "default");
+        endpointMap = new HashMap<Object, Object>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Set<Map.Entry<Object, Object>> entrySet() {
+                // The entries are read first and then the events of the other members are delivered
+                Set<Map.Entry<Object, Object>> entries = new HashSet<Map.Entry<Object, Object>>();
+                for (Map.Entry<Object, Object> entry : super.entrySet()) {
+                    entries.add(new SimpleEntry(entry.getKey(), entry.getValue()));
+                }
+                if (concurrentChanges != null) {
+                    concurrentChanges.run();
+                    concurrentChanges = null;
+                }
+                return entries;
+            }
+        };
+        endpointRegistry.endpointMap = endpointMap;
+    }
+
+    @Test
+    public void testLoad() {
+        put(createEndpoint("Calculator#service-binding(CalculatorService/CalculatorService)"));
+        put(createEndpoint("Subtract#service-binding(SubtractService/SubtractService)"));
+
+        endpointRegistry.loadEndpointIndex();
+
+        Assert.assertEquals(2, endpointRegistry.getEndpoints().size());
+        Assert.assertEquals(1, endpointRegistry.findEndpoint("Calculator").size());
+        Assert.assertTrue(endpointRegistry.findEndpoint("Subtract").get(0).isRemote());
+    }
+
+    @Test
+    public void testEventsWhileLoading() {
+        final Endpoint calculator = createEndpoint("Calculator#service-binding(CalculatorService/CalculatorService)");
+        final Endpoint subtract = createEndpoint("Subtract#service-binding(SubtractService/SubtractService)");
+        final Endpoint add = createEndpoint("Add#service-binding(AddService/AddService)");
+        put(calculator);
+        put(subtract);
+        put(add);
+
+        final Endpoint newAdd = createEndpoint("Add#service-binding(AddService/AddService)");
+        final Endpoint divide = createEndpoint("Divide#service-binding(DivideService/DivideService)");
+        concurrentChanges = new Runnable() {
+            public void run() {
+                endpointMap.remove(subtract.getURI());
+                endpointRegistry.entryRemoved(subtract.getURI(), subtract);
+                endpointMap.put(newAdd.getURI(), newAdd);
+                endpointRegistry.entryUpdated(add.getURI(), add, newAdd);
+                endpointMap.put(divide.getURI(), divide);
+                endpointRegistry.entryAdded(divide.getURI(), divide);
+            }
+        };
+
+        endpointRegistry.loadEndpointIndex();
+
+        Assert.assertEquals(3, endpointRegistry.getEndpoints().size());
+        Assert.assertSame(calculator, endpointRegistry.getEndpoint(calculator.getURI()));
+        Assert.assertTrue(endpointRegistry.findEndpoint("Subtract").isEmpty());
+        Assert.assertSame(newAdd, endpointRegistry.findEndpoint("Add").get(0));
+        Assert.assertSame(divide, endpointRegistry.findEndpoint("Divide").get(0));
+    }
+
+    @Test
+    public void testReaddedWhileLoading() {
+        final Endpoint subtract = createEndpoint("Subtract#service-binding(SubtractService/SubtractService)");
+        put(subtract);
+
+        final Endpoint newSubtract = createEndpoint("Subtract#service-binding(SubtractService/SubtractService)");
+        concurrentChanges = new Runnable() {
+            public void run() {
+                endpointMap.remove(subtract.getURI());
+                endpointRegistry.entryRemoved(subtract.getURI(), subtract);
+                endpointMap.put(newSubtract.getURI(), newSubtract);
+                endpointRegistry.entryAdded(newSubtract.getURI(), newSubtract);
+            }
+        };
+
+        endpointRegistry.loadEndpointIndex();
+
+        Assert.assertEquals(1, endpointRegistry.getEndpoints().size());
+        Assert.assertSame(newSubtract, endpointRegistry.getEndpoint(subtract.getURI()));
+    }
+
+    private void put(Endpoint endpoint) {
+        endpointMap.put(endpoint.getURI(), endpoint);
+    }
+
+    private Endpoint createEndpoint(String uri) {
+        Endpoint endpoint = assemblyFactory.createEndpoint();
+        endpoint.setURI(uri);
+        return endpoint;
+    }
+}
@@ -31,6 +31,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.catalina.tribes.Channel;
 import org.apache.catalina.tribes.ChannelException;
@@ -142,6 +143,12 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
      */
     protected transient String mapname = "";
 
+    /**
+     * The source of the versions given to the entries this map is primary for. It starts
+     * from the current time so that the versions of a restarted member do not go backwards.
+     */
+    protected transient AtomicLong versionCounter = new AtomicLong(System.currentTimeMillis());
+
     //------------------------------------------------------------------------------
     //              map owner interface
     //------------------------------------------------------------------------------
@@ -539,6 +546,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                             new MapMessage(mapContextName, copy ? MapMessage.MSG_COPY : MapMessage.MSG_PROXY, false,
                                            (Serializable)entry.getKey(), copy ? (Serializable)entry.getValue() : null,
                                            null, entry.getPrimary(), entry.getBackupNodes());
+                        me.setVersion(entry.getVersion());
                         list.add(me);
                     }
                 }
@@ -624,17 +632,26 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
         }
 
         if (mapmsg.getMsgType() == MapMessage.MSG_REMOVE) {
-            super.remove(mapmsg.getKey());
+            MapEntry entry = (MapEntry)super.get(mapmsg.getKey());
+            // ignore a removal that a newer copy from the same primary has overtaken
+            if (entry != null && !isCurrent(entry, sender, mapmsg.getVersion())) {
+                super.remove(mapmsg.getKey());
+            }
         }
 
         if (mapmsg.getMsgType() == MapMessage.MSG_BACKUP || mapmsg.getMsgType() == MapMessage.MSG_COPY) {
             MapEntry entry = (MapEntry)super.get(mapmsg.getKey());
+            if (isCurrent(entry, mapmsg.getPrimary(), mapmsg.getVersion())) {
+                //we already have this copy or a newer one
+                return;
+            }
             if (entry == null) {
                 entry = new MapEntry(mapmsg.getKey(), mapmsg.getValue());
                 entry.setBackup(mapmsg.getMsgType() == MapMessage.MSG_BACKUP);
                 entry.setProxy(false);
                 entry.setBackupNodes(mapmsg.getBackupNodes());
                 entry.setPrimary(mapmsg.getPrimary());
+                entry.setVersion(mapmsg.getVersion());
                 if (mapmsg.getValue() != null && mapmsg.getValue() instanceof ReplicatedMapEntry) {
                     ((ReplicatedMapEntry)mapmsg.getValue()).setOwner(getMapOwner());
                 }
@@ -643,6 +660,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                 entry.setProxy(false);
                 entry.setBackupNodes(mapmsg.getBackupNodes());
                 entry.setPrimary(mapmsg.getPrimary());
+                entry.setVersion(mapmsg.getVersion());
                 if (entry.getValue() instanceof ReplicatedMapEntry) {
                     ReplicatedMapEntry diff = (ReplicatedMapEntry)entry.getValue();
                     if (mapmsg.isDiff()) {
@@ -708,7 +726,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                     // [rfeng] Change the behavior to replicate to all nodes
                     if (entry.isPrimary() && self.equals(entry.getPrimary())) {
                         try {
-                            Member[] backup = publishEntryInfo(entry.getKey(), entry.getValue());
+                            Member[] backup = publishEntryInfo(entry.getKey(), entry.getValue(), entry.getVersion());
                             entry.setBackupNodes(backup);
                             entry.setPrimary(self);
                         } catch (ChannelException x) {
@@ -768,7 +786,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                 if (log.isDebugEnabled())
                     log.debug("[1] Primary choosing a new backup");
                 try {
-                    Member[] backup = publishEntryInfo(entry.getKey(), entry.getValue());
+                    Member[] backup = publishEntryInfo(entry.getKey(), entry.getValue(), entry.getVersion());
                     entry.setBackupNodes(backup);
                     entry.setPrimary(channel.getLocalMember(false));
                 } catch (ChannelException x) {
@@ -798,7 +816,8 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                     entry.setPrimary(channel.getLocalMember(false));
                     entry.setBackup(false);
                     entry.setProxy(false);
-                    Member[] backup = publishEntryInfo(entry.getKey(), entry.getValue());
+                    entry.setVersion(nextVersion());
+                    Member[] backup = publishEntryInfo(entry.getKey(), entry.getValue(), entry.getVersion());
                     entry.setBackupNodes(backup);
                     if (mapOwner != null)
                         mapOwner.objectMadePrimay(entry.getKey(), entry.getValue());
@@ -833,7 +852,48 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
         return members[node];
     }
 
-    protected abstract Member[] publishEntryInfo(Object key, Object value) throws ChannelException;
+    protected abstract Member[] publishEntryInfo(Object key, Object value, long version) throws ChannelException;
+
+    /**
+     * Get a new version for an entry this map is primary for
+     * @return long
+     */
+    protected long nextVersion() {
+        return versionCounter.incrementAndGet();
+    }
+
+    /**
+     * Tells if the local entry already reflects a change made by the given primary. Versions
+     * are only comparable for changes coming from the same primary, 0 means no version.
+     * @param entry MapEntry - the local entry, can be null
+     * @param primary Member - the member that made the change
+     * @param version long - the version of the change
+     * @return boolean
+     */
+    protected boolean isCurrent(MapEntry entry, Member primary, long version) {
+        return entry != null && version != 0
+            && primary != null
+            && primary.equals(entry.getPrimary())
+            && entry.getVersion() >= version;
+    }
+
+    /**
+     * Stores an entry without replicating it
+     * @param key Object
+     * @param entry MapEntry
+     */
+    protected void putInternal(Object key, MapEntry entry) {
+        super.put(key, entry);
+    }
+
+    /**
+     * Removes an entry without replicating the removal
+     * @param key Object
+     * @return MapEntry
+     */
+    protected MapEntry removeInternal(Object key) {
+        return (MapEntry)super.remove(key);
+    }
 
     public void heartbeat() {
         try {
@@ -865,6 +925,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                 MapMessage msg =
                     new MapMessage(getMapContextName(), MapMessage.MSG_REMOVE, false, (Serializable)key, null, null,
                                    null, null);
+                msg.setVersion(nextVersion());
                 getChannel().send(getMapMembers(), msg, getChannelSendOptions());
             }
         } catch (ChannelException x) {
@@ -916,7 +977,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                 }
                 if (entry.isBackup()) {
                     //select a new backup node
-                    backup = publishEntryInfo(key, entry.getValue());
+                    backup = publishEntryInfo(key, entry.getValue(), entry.getVersion());
                 } else if (entry.isProxy()) {
                     //invalidate the previous primary
                     msg =
@@ -989,15 +1050,16 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
         entry.setBackup(false);
         entry.setProxy(false);
         entry.setPrimary(channel.getLocalMember(false));
+        entry.setVersion(nextVersion());
 
         Object old = null;
 
-        //make sure that any old values get removed
+        //make sure that any old values get removed, the new copy replaces them on the other members
         if (containsKey(key))
-            old = remove(key);
+            old = remove(key, false);
         try {
             if (notify) {
-                Member[] backup = publishEntryInfo(key, value);
+                Member[] backup = publishEntryInfo(key, value, entry.getVersion());
                 entry.setBackupNodes(backup);
             }
         } catch (ChannelException x) {
@@ -1147,6 +1209,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
         private Member primary;
         private Object key;
         private Object value;
+        private long version;
 
         public MapEntry(Object key, Object value) {
             setKey(key);
@@ -1216,6 +1279,14 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
             return old;
         }
 
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
         public Object getKey() {
             return key;
         }
@@ -1266,7 +1337,8 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
             buf.append("value:").append(getValue()).append("; ");
             buf.append("primary:").append(isPrimary()).append("; ");
             buf.append("backup:").append(isBackup()).append("; ");
-            buf.append("proxy:").append(isProxy()).append(";]");
+            buf.append("proxy:").append(isProxy()).append("; ");
+            buf.append("version:").append(getVersion()).append(";]");
             return buf.toString();
         }
 
@@ -1288,6 +1360,10 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
         public static final int MSG_INIT = 8;
         public static final int MSG_COPY = 9;
         public static final int MSG_STATE_COPY = 10;
+        public static final int MSG_DIGEST = 11;
+        public static final int MSG_DIGEST_REQUEST = 12;
+        public static final int MSG_DELTA = 13;
+        public static final int MSG_BATCH = 14;
 
         private byte[] mapId;
         private int msgtype;
@@ -1299,6 +1375,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
         private byte[] diffvalue;
         private Member[] nodes;
         private Member primary;
+        private long version;
 
         public String toString() {
             StringBuffer buf = new StringBuffer("MapMessage[context=");
@@ -1334,6 +1411,14 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                     return "MSG_STATE_COPY";
                 case MSG_COPY:
                     return "MSG_COPY";
+                case MSG_DIGEST:
+                    return "MSG_DIGEST";
+                case MSG_DIGEST_REQUEST:
+                    return "MSG_DIGEST_REQUEST";
+                case MSG_DELTA:
+                    return "MSG_DELTA";
+                case MSG_BATCH:
+                    return "MSG_BATCH";
                 default:
                     return "UNKNOWN";
             }
@@ -1446,6 +1531,14 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
             return mapId;
         }
 
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
         public void setValue(Serializable value) {
             try {
                 if (value != null)
@@ -1501,6 +1594,7 @@ public abstract class AbstractReplicatedMap extends MapStore implements RpcCallb
                                this.nodes);
             msg.keydata = this.keydata;
             msg.valuedata = this.valuedata;
+            msg.version = this.version;
             return msg;
         }
     } //MapMessage
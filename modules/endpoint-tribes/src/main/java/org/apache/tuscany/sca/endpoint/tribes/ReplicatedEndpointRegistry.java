@@ -72,6 +72,9 @@ public class ReplicatedEndpointRegistry extends BaseEndpointRegistry implements
     private int receiverPort = 4000;
     private int receiverAutoBind = 100;
     private List<URI> staticRoutes;
+    private int batchSize = 1;
+    private long batchDelay = 100;
+    private long antiEntropyInterval = 30000;
 
     private ReplicatedMap map;
 
@@ -208,6 +211,18 @@ public class ReplicatedEndpointRegistry extends BaseEndpointRegistry implements
         if (recvAutoBind != null) {
             receiverAutoBind = Integer.parseInt(recvAutoBind);
         }
+        String batchSizeStr = attributes.get("batchSize");
+        if (batchSizeStr != null) {
+            batchSize = Integer.parseInt(batchSizeStr);
+        }
+        String batchDelayStr = attributes.get("batchDelay");
+        if (batchDelayStr != null) {
+            batchDelay = Long.parseLong(batchDelayStr);
+        }
+        String antiEntropyStr = attributes.get("antiEntropyInterval");
+        if (antiEntropyStr != null) {
+            antiEntropyInterval = Long.parseLong(antiEntropyStr);
+        }
     }
 
     public void start() {
@@ -218,6 +233,9 @@ public class ReplicatedEndpointRegistry extends BaseEndpointRegistry implements
         map =
             new ReplicatedMap(null, channel, timeout, this.domainURI,
                               new ClassLoader[] {ReplicatedEndpointRegistry.class.getClassLoader()});
+        map.setBatchSize(batchSize);
+        map.setBatchDelay(batchDelay);
+        map.setAntiEntropyInterval(antiEntropyInterval);
         map.addListener(this);
 
         if (noMultiCast) {
@@ -16,9 +16,18 @@
  */
 package org.apache.tuscany.sca.endpoint.tribes;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.apache.catalina.tribes.Channel;
 import org.apache.catalina.tribes.ChannelException;
@@ -31,11 +40,33 @@ import org.apache.catalina.tribes.group.RpcCallback;
  * This file is copied from:
  * https://svn.apache.org/repos/asf/tomcat/tc6.0.x/tags/TOMCAT_6_0_20/java/org/apache/catalina/tribes/tipis/ReplicatedMap.java
  *
+ * Each member is the primary for the entries it puts and replicates them to all the other members.
+ * Instead of republishing every entry when a member joins, the members exchange digests of the
+ * entries they hold for each other and the primary sends back the missing or newer entries only.
+ * The same exchange runs periodically as an anti-entropy check. With a batch size above 1 the
+ * changes are batched so that a bulk deployment sends one message per batch.
  */
 public class ReplicatedMap extends AbstractReplicatedMap implements RpcCallback, ChannelListener, MembershipListener {
     private static final long serialVersionUID = -6318779627600581121L;
     protected static org.apache.juli.logging.Log log = org.apache.juli.logging.LogFactory.getLog(ReplicatedMap.class);
 
+    /**
+     * The number of changes sent in one message, 1 sends each change on its own as a MSG_COPY
+     */
+    protected transient int batchSize = 1;
+    /**
+     * How long a change can wait for its batch to fill up, in milliseconds
+     */
+    protected transient long batchDelay = 100;
+    /**
+     * How often the digests are compared with the other members, in milliseconds, 0 to disable
+     */
+    protected transient long antiEntropyInterval = 30000;
+
+    protected transient EntryBatch pendingChanges;
+    protected transient Timer batchTimer;
+    protected transient long lastAntiEntropy = System.currentTimeMillis();
+
     //------------------------------------------------------------------------------
     //              CONSTRUCTORS / DESTRUCTORS
     //------------------------------------------------------------------------------
@@ -99,7 +130,7 @@ public class ReplicatedMap extends AbstractReplicatedMap implements RpcCallback,
      * @return Member - the backup node
      * @throws ChannelException
      */
-    protected Member[] publishEntryInfo(Object key, Object value) throws ChannelException {
+    protected Member[] publishEntryInfo(Object key, Object value, long version) throws ChannelException {
         if (!(key instanceof Serializable && value instanceof Serializable))
             return new Member[0];
         //select a backup node
@@ -109,15 +140,286 @@ public class ReplicatedMap extends AbstractReplicatedMap implements RpcCallback,
             return new Member[0];
         }
 
+        if (batchSize > 1) {
+            addPendingChange(key, value, version);
+            return members;
+        }
+
         //publish the data out to all nodes
         MapMessage msg =
             new MapMessage(getMapContextName(), MapMessage.MSG_COPY, false, (Serializable)key, (Serializable)value,
                            null, channel.getLocalMember(false), members);
+        msg.setVersion(version);
 
         getChannel().send(members, msg, getChannelSendOptions());
 
         return members;
     }
+
+    /**
+     * Override the base method to batch the removals too
+     */
+    public Object remove(Object key, boolean notify) {
+        if (batchSize <= 1 || !notify || !(key instanceof Serializable)) {
+            return super.remove(key, notify);
+        }
+        MapEntry entry = removeInternal(key);
+        if (getMapMembers().length > 0) {
+            addPendingChange(key, null, nextVersion());
+        }
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * Queue a change for the next batch, a null value stands for a removal
+     */
+    protected void addPendingChange(Object key, Object value, long version) {
+        EntryBatch batch = null;
+        synchronized (this) {
+            if (pendingChanges == null) {
+                pendingChanges = new EntryBatch();
+                if (batchTimer == null) {
+                    batchTimer = new Timer("Tribes ReplicatedMap batch", true);
+                }
+                batchTimer.schedule(new TimerTask() {
+                    public void run() {
+                        flush();
+                    }
+                }, batchDelay);
+            }
+            pendingChanges.add(key, value, version);
+            if (pendingChanges.size() >= batchSize) {
+                batch = pendingChanges;
+                pendingChanges = null;
+            }
+        }
+        if (batch != null) {
+            sendBatch(getMapMembers(), MapMessage.MSG_BATCH, batch);
+        }
+    }
+
+    /**
+     * Send the changes waiting for their batch to fill up
+     */
+    public void flush() {
+        EntryBatch batch;
+        synchronized (this) {
+            batch = pendingChanges;
+            pendingChanges = null;
+        }
+        if (batch != null) {
+            sendBatch(getMapMembers(), MapMessage.MSG_BATCH, batch);
+        }
+    }
+
+    private void sendBatch(Member[] members, int msgType, EntryBatch batch) {
+        if (members == null || members.length == 0 || getChannel() == null) {
+            return;
+        }
+        MapMessage msg =
+            new MapMessage(getMapContextName(), msgType, false, null, batch, null, channel.getLocalMember(false), null);
+        try {
+            getChannel().send(members, msg, getChannelSendOptions());
+        } catch (ChannelException x) {
+            log.error("Unable to replicate out data for a ReplicatedMap batch", x);
+        }
+    }
+
+    /**
+     * Override the base method to pull the entries the new member is primary for, rather
+     * than publish all our entries to every member. The new member pulls ours the same way.
+     */
+    public void mapMemberAdded(Member member) {
+        if (member.equals(getChannel().getLocalMember(false)))
+            return;
+        synchronized (mapMembers) {
+            if (mapMembers.containsKey(member))
+                return;
+            mapMembers.put(member, new Long(System.currentTimeMillis()));
+        }
+        sendDigest(member, true);
+    }
+
+    /**
+     * Send the member a digest of the entries we hold with it as the primary
+     * @param member Member
+     * @param full boolean - true to list the entries, false for the summary only
+     */
+    protected void sendDigest(Member member, boolean full) {
+        EntryDigest digest = createDigest(member, full);
+        MapMessage msg =
+            new MapMessage(getMapContextName(), MapMessage.MSG_DIGEST, false, null, digest, null, channel
+                .getLocalMember(false), null);
+        try {
+            getChannel().send(new Member[] {member}, msg, getChannelSendOptions());
+        } catch (ChannelException x) {
+            log.error("Unable to send the ReplicatedMap digest to " + member, x);
+        }
+    }
+
+    private EntryDigest createDigest(Member primary, boolean full) {
+        EntryDigest digest = new EntryDigest(full);
+        Iterator<Map.Entry<Object, Object>> i = super.entrySetFull().iterator();
+        while (i.hasNext()) {
+            MapEntry entry = (MapEntry)i.next().getValue();
+            if (entry != null && primary.equals(entry.getPrimary()) && entry.isSerializable()) {
+                digest.add(entry.getKey(), entry.getVersion());
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Answer a digest from a member holding copies of our entries
+     */
+    protected void digestReceived(EntryDigest digest, Member sender) {
+        // the sender may not have been seen yet, make sure we pull its entries too
+        memberAlive(sender);
+        EntryDigest local = createDigest(getChannel().getLocalMember(false), true);
+        if (!digest.isFull()) {
+            if (!digest.matches(local)) {
+                MapMessage msg =
+                    new MapMessage(getMapContextName(), MapMessage.MSG_DIGEST_REQUEST, false, null, null, null,
+                                   channel.getLocalMember(false), null);
+                try {
+                    getChannel().send(new Member[] {sender}, msg, getChannelSendOptions());
+                } catch (ChannelException x) {
+                    log.error("Unable to request the ReplicatedMap digest from " + sender, x);
+                }
+            }
+            return;
+        }
+        EntryBatch delta = new EntryBatch();
+        Map<Object, Long> known = digest.getVersions();
+        for (Map.Entry<Object, Long> e : local.getVersions().entrySet()) {
+            Long version = known.remove(e.getKey());
+            if (version == null || version.longValue() < e.getValue().longValue()) {
+                MapEntry entry = getInternal(e.getKey());
+                if (entry != null) {
+                    delta.add(entry.getKey(), entry.getValue(), entry.getVersion());
+                }
+            }
+        }
+        // what is left the sender holds but we no longer have
+        for (Object key : known.keySet()) {
+            delta.add(key, null, nextVersion());
+        }
+        if (delta.size() > 0) {
+            sendBatch(new Member[] {sender}, MapMessage.MSG_DELTA, delta);
+        }
+    }
+
+    /**
+     * Apply the changes made by a primary
+     */
+    protected void applyBatch(EntryBatch batch, Member primary) {
+        for (int i = 0; i < batch.size(); i++) {
+            Object key = batch.getKey(i);
+            Object value = batch.getValue(i);
+            long version = batch.getVersion(i);
+            MapEntry entry = getInternal(key);
+            if (isCurrent(entry, primary, version)) {
+                continue;
+            }
+            if (value == null) {
+                // only the primary of an entry removes it
+                if (entry != null && primary.equals(entry.getPrimary())) {
+                    removeInternal(key);
+                }
+            } else {
+                entry = new MapEntry(key, value);
+                entry.setBackup(false);
+                entry.setProxy(false);
+                entry.setPrimary(primary);
+                entry.setVersion(version);
+                putInternal(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Override the base method to handle the digest and batch messages
+     */
+    public void messageReceived(Serializable msg, Member sender) {
+        if (msg instanceof MapMessage) {
+            MapMessage mapmsg = (MapMessage)msg;
+            int type = mapmsg.getMsgType();
+            if (type == MapMessage.MSG_DIGEST || type == MapMessage.MSG_DIGEST_REQUEST
+                || type == MapMessage.MSG_DELTA
+                || type == MapMessage.MSG_BATCH) {
+                try {
+                    mapmsg.deserialize(getExternalLoaders());
+                } catch (IOException x) {
+                    log.error("Unable to deserialize MapMessage.", x);
+                    return;
+                } catch (ClassNotFoundException x) {
+                    log.error("Unable to deserialize MapMessage.", x);
+                    return;
+                }
+                if (type == MapMessage.MSG_DIGEST) {
+                    digestReceived((EntryDigest)mapmsg.getValue(), sender);
+                } else if (type == MapMessage.MSG_DIGEST_REQUEST) {
+                    sendDigest(sender, true);
+                } else {
+                    applyBatch((EntryBatch)mapmsg.getValue(), mapmsg.getPrimary());
+                }
+                return;
+            }
+        }
+        super.messageReceived(msg, sender);
+    }
+
+    /**
+     * Override the base method to flush the pending changes and to compare the digests
+     * with the other members from time to time
+     */
+    public void heartbeat() {
+        super.heartbeat();
+        flush();
+        long now = System.currentTimeMillis();
+        if (antiEntropyInterval > 0 && now - lastAntiEntropy >= antiEntropyInterval) {
+            lastAntiEntropy = now;
+            Member[] members = getMapMembers();
+            for (int i = 0; i < members.length; i++) {
+                sendDigest(members[i], false);
+            }
+        }
+    }
+
+    public void finalize() {
+        flush();
+        synchronized (this) {
+            if (batchTimer != null) {
+                batchTimer.cancel();
+                batchTimer = null;
+            }
+        }
+        super.finalize();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchDelay() {
+        return batchDelay;
+    }
+
+    public void setBatchDelay(long batchDelay) {
+        this.batchDelay = batchDelay;
+    }
+
+    public long getAntiEntropyInterval() {
+        return antiEntropyInterval;
+    }
+
+    public void setAntiEntropyInterval(long antiEntropyInterval) {
+        this.antiEntropyInterval = antiEntropyInterval;
+    }
     
     /**
      * Override the base method to look up existing entries only
@@ -160,4 +462,131 @@ public class ReplicatedMap extends AbstractReplicatedMap implements RpcCallback,
             } //end if
         } //while
     }    
+
+    //------------------------------------------------------------------------------
+    //                changes and digests exchanged between the maps
+    //------------------------------------------------------------------------------
+
+    /**
+     * A list of changes made by one primary, a null value stands for a removal. The batch is
+     * written as one stream so the class descriptors of the values are only sent once.
+     */
+    public static class EntryBatch implements Externalizable {
+        private static final long serialVersionUID = 4380287357434961517L;
+
+        private List<Object> keys = new ArrayList<Object>();
+        private List<Object> values = new ArrayList<Object>();
+        private List<Long> versions = new ArrayList<Long>();
+
+        public EntryBatch() {
+        }
+
+        public void add(Object key, Object value, long version) {
+            keys.add(key);
+            values.add(value);
+            versions.add(version);
+        }
+
+        public int size() {
+            return keys.size();
+        }
+
+        public Object getKey(int index) {
+            return keys.get(index);
+        }
+
+        public Object getValue(int index) {
+            return values.get(index);
+        }
+
+        public long getVersion(int index) {
+            return versions.get(index);
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                out.writeObject(keys.get(i));
+                out.writeLong(versions.get(i));
+                out.writeObject(values.get(i));
+            }
+        }
+
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Object key = in.readObject();
+                long version = in.readLong();
+                add(key, in.readObject(), version);
+            }
+        }
+    }
+
+    /**
+     * The entries a member holds for one primary. The summary (count, highest version and
+     * checksum) is always sent, the key/version list only when the digest is full.
+     */
+    public static class EntryDigest implements Externalizable {
+        private static final long serialVersionUID = -2291858153286436426L;
+
+        private boolean full;
+        private int count;
+        private long maxVersion;
+        private long checksum;
+        private Map<Object, Long> versions = new HashMap<Object, Long>();
+
+        public EntryDigest() {
+        }
+
+        public EntryDigest(boolean full) {
+            this.full = full;
+        }
+
+        public void add(Object key, long version) {
+            count++;
+            maxVersion = Math.max(maxVersion, version);
+            // order independent so that both sides get the same value
+            checksum += (key.hashCode() * 1000003L) ^ version;
+            if (full) {
+                versions.put(key, version);
+            }
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        public boolean matches(EntryDigest other) {
+            return count == other.count && maxVersion == other.maxVersion && checksum == other.checksum;
+        }
+
+        public Map<Object, Long> getVersions() {
+            return versions;
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeBoolean(full);
+            out.writeInt(count);
+            out.writeLong(maxVersion);
+            out.writeLong(checksum);
+            if (full) {
+                for (Map.Entry<Object, Long> e : versions.entrySet()) {
+                    out.writeObject(e.getKey());
+                    out.writeLong(e.getValue());
+                }
+            }
+        }
+
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            full = in.readBoolean();
+            count = in.readInt();
+            maxVersion = in.readLong();
+            checksum = in.readLong();
+            if (full) {
+                for (int i = 0; i < count; i++) {
+                    versions.put(in.readObject(), in.readLong());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.endpoint.tribes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ErrorHandler;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.UniqueId;
+import org.apache.catalina.tribes.group.GroupChannel;
+import org.apache.catalina.tribes.membership.MemberImpl;
+import org.apache.tuscany.sca.endpoint.tribes.AbstractReplicatedMap.MapMessage;
+import org.apache.tuscany.sca.endpoint.tribes.ReplicatedMap.EntryBatch;
+import org.apache.tuscany.sca.endpoint.tribes.ReplicatedMap.EntryDigest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the digests and batches, and how a map answers them, without starting a channel
+ */
+public class ReplicatedMapDeltaTestCase {
+    private Member local;
+    private Member remote;
+    private RecordingChannel channel;
+    private ReplicatedMap map;
+
+    @Before
+    public void setUp() throws Exception {
+        local = new MemberImpl("127.0.0.1", 4001, 0);
+        remote = new MemberImpl("127.0.0.1", 4002, 0);
+        channel = new RecordingChannel(local);
+        map =
+            new ReplicatedMap(null, channel, 50, "ReplicatedMapDeltaTestCase",
+                              new ClassLoader[] {ReplicatedMapDeltaTestCase.class.getClassLoader()});
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        map.breakdown();
+    }
+
+    @Test
+    public void testEntryBatch() throws Exception {
+        EntryBatch batch = new EntryBatch();
+        batch.add("k1", "v1", 1);
+        batch.add("k2", null, 2);
+
+        EntryBatch copy = (EntryBatch)roundTrip(batch);
+        Assert.assertEquals(2, copy.size());
+        Assert.assertEquals("k1", copy.getKey(0));
+        Assert.assertEquals("v1", copy.getValue(0));
+        Assert.assertEquals(1, copy.getVersion(0));
+        Assert.assertEquals("k2", copy.getKey(1));
+        Assert.assertNull(copy.getValue(1));
+        Assert.assertEquals(2, copy.getVersion(1));
+    }
+
+    @Test
+    public void testEntryDigest() throws Exception {
+        EntryDigest full = new EntryDigest(true);
+        full.add("k1", 1);
+        full.add("k2", 2);
+        EntryDigest copy = (EntryDigest)roundTrip(full);
+        Assert.assertTrue(copy.isFull());
+        Assert.assertEquals(Long.valueOf(1), copy.getVersions().get("k1"));
+        Assert.assertEquals(Long.valueOf(2), copy.getVersions().get("k2"));
+        Assert.assertTrue(copy.matches(full));
+
+        // the summary doesn't list the entries and doesn't depend on their order
+        EntryDigest summary = new EntryDigest(false);
+        summary.add("k2", 2);
+        summary.add("k1", 1);
+        summary = (EntryDigest)roundTrip(summary);
+        Assert.assertFalse(summary.isFull());
+        Assert.assertTrue(summary.getVersions().isEmpty());
+        Assert.assertTrue(summary.matches(full));
+
+        EntryDigest newer = new EntryDigest(false);
+        newer.add("k1", 1);
+        newer.add("k2", 3);
+        Assert.assertFalse(newer.matches(full));
+    }
+
+    @Test
+    public void testApplyBatch() throws Exception {
+        EntryBatch batch = new EntryBatch();
+        batch.add("k1", "v1", 1);
+        batch.add("k2", "v2", 2);
+        map.applyBatch(batch, remote);
+        Assert.assertEquals("v1", map.get("k1"));
+        Assert.assertEquals(remote, map.getInternal("k1").getPrimary());
+        Assert.assertEquals(2, map.getInternal("k2").getVersion());
+
+        // an older change is ignored, a newer one replaces the entry
+        batch = new EntryBatch();
+        batch.add("k1", "old", 1);
+        batch.add("k2", "new", 3);
+        map.applyBatch(batch, remote);
+        Assert.assertEquals("v1", map.get("k1"));
+        Assert.assertEquals("new", map.get("k2"));
+
+        // only the primary removes its entries
+        Member other = new MemberImpl("127.0.0.1", 4003, 0);
+        batch = new EntryBatch();
+        batch.add("k1", null, 4);
+        map.applyBatch(batch, other);
+        Assert.assertEquals("v1", map.get("k1"));
+        map.applyBatch(batch, remote);
+        Assert.assertNull(map.get("k1"));
+    }
+
+    @Test
+    public void testDigestReceived() throws Exception {
+        map.put("k1", "v1");
+        map.put("k2", "v2");
+        long version = map.getInternal("k1").getVersion();
+
+        // the remote member has k1 up to date, lacks k2 and still holds a removed k3
+        EntryDigest digest = new EntryDigest(true);
+        digest.add("k1", version);
+        digest.add("k3", 1);
+        map.digestReceived(digest, remote);
+
+        List<MapMessage> deltas = channel.getSent(MapMessage.MSG_DELTA);
+        Assert.assertEquals(1, deltas.size());
+        EntryBatch delta = (EntryBatch)deltas.get(0).getValue();
+        Assert.assertEquals(2, delta.size());
+        for (int i = 0; i < delta.size(); i++) {
+            if ("k2".equals(delta.getKey(i))) {
+                Assert.assertEquals("v2", delta.getValue(i));
+            } else {
+                Assert.assertEquals("k3", delta.getKey(i));
+                Assert.assertNull(delta.getValue(i));
+            }
+        }
+        // the sender is now a map member and gets our digest too
+        Assert.assertEquals(1, channel.getSent(MapMessage.MSG_DIGEST).size());
+    }
+
+    @Test
+    public void testSummaryDigestReceived() throws Exception {
+        map.put("k1", "v1");
+        long version = map.getInternal("k1").getVersion();
+
+        EntryDigest summary = new EntryDigest(false);
+        summary.add("k1", version);
+        map.digestReceived(summary, remote);
+        Assert.assertTrue(channel.getSent(MapMessage.MSG_DIGEST_REQUEST).isEmpty());
+
+        // a mismatch asks for the full digest
+        summary = new EntryDigest(false);
+        map.digestReceived(summary, remote);
+        Assert.assertEquals(1, channel.getSent(MapMessage.MSG_DIGEST_REQUEST).size());
+        Assert.assertTrue(channel.getSent(MapMessage.MSG_DELTA).isEmpty());
+    }
+
+    @Test
+    public void testStateCarriesVersion() throws Exception {
+        map.put("k1", "v1");
+        MapMessage request =
+            new MapMessage("ReplicatedMapDeltaTestCase".getBytes("UTF-8"), MapMessage.MSG_STATE_COPY, false, null,
+                           null, null, null, null);
+        MapMessage reply = (MapMessage)map.replyRequest(request, remote);
+        List<?> state = (List<?>)reply.getValue();
+        Assert.assertEquals(1, state.size());
+        Assert.assertEquals(map.getInternal("k1").getVersion(), ((MapMessage)state.get(0)).getVersion());
+    }
+
+    private static Object roundTrip(Serializable object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+
+    /**
+     * A channel that is never started, has no other members and keeps the messages sent
+     */
+    private static class RecordingChannel extends GroupChannel {
+        private final Member localMember;
+        private final List<MapMessage> sent = new ArrayList<MapMessage>();
+
+        RecordingChannel(Member localMember) {
+            this.localMember = localMember;
+        }
+
+        public Member getLocalMember(boolean incAlive) {
+            return localMember;
+        }
+
+        public Member[] getMembers() {
+            return new Member[0];
+        }
+
+        public UniqueId send(Member[] destination, Serializable msg, int options, ErrorHandler handler)
+            throws ChannelException {
+            if (msg instanceof MapMessage) {
+                sent.add((MapMessage)msg);
+            }
+            return null;
+        }
+
+        List<MapMessage> getSent(int msgType) {
+            List<MapMessage> messages = new ArrayList<MapMessage>();
+            for (MapMessage msg : sent) {
+                if (msg.getMsgType() == msgType) {
+                    messages.add(msg);
+                }
+            }
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.endpoint.tribes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.ChannelReceiver;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.group.GroupChannel;
+import org.apache.catalina.tribes.membership.McastService;
+import org.apache.catalina.tribes.transport.ReceiverBase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Runs several ReplicatedMaps on the local host and checks how the digests, deltas and
+ * batches keep them in step
+ */
+@Ignore("TUSCANY-3718")
+public class ReplicatedMapTestCase {
+    private List<ReplicatedMap> maps = new ArrayList<ReplicatedMap>();
+
+    @After
+    public void tearDown() throws Exception {
+        for (ReplicatedMap map : maps) {
+            Channel channel = map.getChannel();
+            map.breakdown();
+            channel.stop(Channel.DEFAULT);
+        }
+        maps.clear();
+    }
+
+    @Test
+    public void testJoinViaDigest() throws Exception {
+        ReplicatedMap map1 = createMap(4100, 20, 0);
+        map1.put("k1", "v1");
+        map1.put("k2", "v2");
+
+        // the new member pulls the entries with the full digest it sends when it sees map1
+        ReplicatedMap map2 = createMap(4110, 20, 0);
+        assertValue(map2, "k1", "v1");
+        assertValue(map2, "k2", "v2");
+        Assert.assertEquals(getLocalMember(map1), map2.getInternal("k1").getPrimary());
+
+        // and map1 pulls the entries map2 is the primary for
+        map2.put("k3", "v3");
+        assertValue(map1, "k3", "v3");
+    }
+
+    @Test
+    public void testDeltaRemoval() throws Exception {
+        ReplicatedMap map1 = createMap(4120, 20, 0);
+        ReplicatedMap map2 = createMap(4130, 20, 0);
+        map1.put("k1", "v1");
+        map1.put("k2", "v2");
+        assertValue(map2, "k1", "v1");
+        assertValue(map2, "k2", "v2");
+
+        // lose the removal so that map2 holds a copy the primary no longer has
+        map1.removeInternal("k1");
+        map2.sendDigest(getLocalMember(map1), true);
+
+        assertValue(map2, "k1", null);
+        Assert.assertEquals("v2", map2.get("k2"));
+    }
+
+    @Test
+    public void testBatchFlush() throws Exception {
+        ReplicatedMap map1 = createMap(4140, 5, 0);
+        map1.setBatchDelay(200);
+        ReplicatedMap map2 = createMap(4150, 5, 0);
+        map1.put("k0", "v0");
+        assertValue(map2, "k0", "v0");
+
+        // a full batch goes out straight away
+        for (int i = 1; i <= 5; i++) {
+            map1.put("k" + i, "v" + i);
+        }
+        for (int i = 1; i <= 5; i++) {
+            assertValue(map2, "k" + i, "v" + i);
+        }
+
+        // a partial one waits for the batch delay
+        map1.put("k6", "v6");
+        map1.remove("k1");
+        assertValue(map2, "k6", "v6");
+        assertValue(map2, "k1", null);
+
+        // or goes out with an explicit flush
+        map1.setBatchDelay(60000);
+        map1.put("k7", "v7");
+        map1.flush();
+        assertValue(map2, "k7", "v7");
+    }
+
+    @Test
+    public void testAntiEntropy() throws Exception {
+        ReplicatedMap map1 = createMap(4160, 20, 0);
+        ReplicatedMap map2 = createMap(4170, 20, 0);
+        map1.put("k1", "v1");
+        map1.put("k2", "v2");
+        assertValue(map2, "k1", "v1");
+        assertValue(map2, "k2", "v2");
+
+        // lose a copy, the summaries no longer match and map1 sends the missing entry
+        map2.removeInternal("k1");
+        map2.setAntiEntropyInterval(1);
+        Thread.sleep(10);
+        map2.heartbeat();
+
+        assertValue(map2, "k1", "v1");
+        Assert.assertEquals("v2", map2.get("k2"));
+    }
+
+    private ReplicatedMap createMap(int receiverPort, int batchSize, long antiEntropyInterval) throws Exception {
+        GroupChannel channel = new GroupChannel();
+        McastService mcastService = (McastService)channel.getMembershipService();
+        mcastService.setBind("127.0.0.1");
+
+        ReplicatedMap map =
+            new ReplicatedMap(null, channel, 50, "ReplicatedMapTestCase",
+                              new ClassLoader[] {ReplicatedMapTestCase.class.getClassLoader()});
+        map.setBatchSize(batchSize);
+        map.setAntiEntropyInterval(antiEntropyInterval);
+
+        ChannelReceiver receiver = channel.getChannelReceiver();
+        if (receiver instanceof ReceiverBase) {
+            ((ReceiverBase)receiver).setAddress("127.0.0.1");
+            ((ReceiverBase)receiver).setPort(receiverPort);
+            ((ReceiverBase)receiver).setAutoBind(10);
+        }
+        channel.start(Channel.DEFAULT);
+        maps.add(map);
+        return map;
+    }
+
+    private static Member getLocalMember(ReplicatedMap map) {
+        return map.getChannel().getLocalMember(false);
+    }
+
+    private void assertValue(ReplicatedMap map, Object key, Object value) throws InterruptedException {
+        int count = 0;
+        while (!equals(value, map.get(key)) && count < 15) {
+            Thread.sleep(1000);
+            count++;
+        }
+        Assert.assertEquals(value, map.get(key));
+    }
+
+    private static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+}
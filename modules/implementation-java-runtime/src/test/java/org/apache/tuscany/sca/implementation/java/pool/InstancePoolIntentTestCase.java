@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.implementation.java.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import org.apache.tuscany.sca.assembly.Component;
+import org.apache.tuscany.sca.assembly.Composite;
+import org.apache.tuscany.sca.contribution.Contribution;
+import org.apache.tuscany.sca.core.DefaultExtensionPointRegistry;
+import org.apache.tuscany.sca.core.scope.impl.StatelessScopeContainer;
+import org.apache.tuscany.sca.deployment.Deployer;
+import org.apache.tuscany.sca.deployment.impl.DeployerImpl;
+import org.apache.tuscany.sca.monitor.Monitor;
+import org.apache.tuscany.sca.monitor.Problem;
+import org.apache.tuscany.sca.monitor.Problem.Severity;
+import org.apache.tuscany.sca.policy.Intent;
+import org.junit.Test;
+
+/**
+ * Builds a composite whose Java component requires the tuscany:instancePool intent
+ *
+ * @version $Rev$ $Date$
+ */
+public class InstancePoolIntentTestCase {
+
+    @Test
+    public void testBuild() throws Exception {
+        Deployer deployer = new DeployerImpl(new DefaultExtensionPointRegistry());
+        deployer.start();
+        try {
+            URL url = getClass().getResource("Pool.composite");
+            URL contributionURL = new URL(url, "./");
+            Monitor monitor = deployer.createMonitor();
+            Contribution contribution = deployer.loadContribution(contributionURL.toURI(), contributionURL, monitor);
+            Composite composite =
+                deployer.build(Arrays.asList(contribution), Arrays.asList(contribution), null, monitor);
+
+            for (Problem problem : monitor.getProblems()) {
+                assertTrue(problem.toString(), problem.getSeverity() != Severity.ERROR);
+            }
+
+            assertEquals(2, composite.getComponents().size());
+            for (Component component : composite.getComponents()) {
+                // The intent is required on the implementation element or inherited from the component
+                boolean required = false;
+                for (Intent intent : component.getImplementation().getRequiredIntents()) {
+                    if (StatelessScopeContainer.INSTANCE_POOL_INTENT.equals(intent.getName())) {
+                        required = true;
+                    }
+                }
+                assertTrue(component.getName(), required);
+            }
+        } finally {
+            deployer.stop();
+        }
+    }
+}
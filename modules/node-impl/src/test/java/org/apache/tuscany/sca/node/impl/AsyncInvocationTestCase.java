@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.node.impl;
+
+import hello.HelloWorldAsync;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.ws.AsyncHandler;
+import javax.xml.ws.Response;
+
+import org.apache.tuscany.sca.core.context.ServiceReferenceExt;
+import org.apache.tuscany.sca.core.invocation.impl.JDKInvocationHandler;
+import org.apache.tuscany.sca.invocation.AsyncInvokers;
+import org.apache.tuscany.sca.invocation.InvocationChain;
+import org.apache.tuscany.sca.node.Contribution;
+import org.apache.tuscany.sca.node.Node;
+import org.apache.tuscany.sca.runtime.RuntimeEndpointReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for the asynchronous client invocations over the local SCA binding
+ */
+public class AsyncInvocationTestCase {
+    private static String composite =
+        "<composite xmlns=\"http://docs.oasis-open.org/ns/opencsa/sca/200912\""
+            + " targetNamespace=\"http://sample/composite\""
+            + " name=\"HelloWorldAsync\">"
+            + " <component name=\"HelloWorld\">"
+            + " <implementation.java class=\"hello.HelloWorldImpl\"/>"
+            + " </component>"
+            + " </composite>";
+
+    private Node node;
+
+    @Before
+    public void setUp() {
+        Contribution contribution = new Contribution("c1", new File("target/test-classes").toURI().toString());
+        node = new NodeFactoryImpl().createNode(new StringReader(composite), contribution);
+        node.start();
+    }
+
+    @After
+    public void tearDown() {
+        node.stop();
+    }
+
+    @Test
+    public void testAsyncHandler() throws Exception {
+        HelloWorldAsync hw = node.getService(HelloWorldAsync.class, "HelloWorld");
+
+        // The SCA binding ends the reference chain, so the response is delivered by the binding
+        // instead of a thread waiting for the service
+        JDKInvocationHandler handler = (JDKInvocationHandler)Proxy.getInvocationHandler(hw);
+        RuntimeEndpointReference epr =
+            (RuntimeEndpointReference)((ServiceReferenceExt<?>)handler.getCallableReference()).getEndpointReference();
+        Assert.assertFalse(epr.getInvocationChains().isEmpty());
+        for (InvocationChain chain : epr.getInvocationChains()) {
+            Assert.assertTrue(AsyncInvokers.isAsync(chain.getHeadInvoker()));
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> result = new AtomicReference<String>();
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        Future<?> future = hw.helloAsync("Node", new AsyncHandler<String>() {
+            public void handleResponse(Response<String> response) {
+                try {
+                    result.set(response.get());
+                } catch (Exception e) {
+                    result.set(e.toString());
+                }
+                thread.set(Thread.currentThread());
+                latch.countDown();
+            }
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("Hello, Node", result.get());
+        Assert.assertNotSame(Thread.currentThread(), thread.get());
+        Assert.assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testAsyncPoll() throws Exception {
+        HelloWorldAsync hw = node.getService(HelloWorldAsync.class, "HelloWorld");
+        Response<String> response = hw.helloAsync("Node");
+        Assert.assertEquals("Hello, Node", response.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals("Hello, Node", hw.hello("Node"));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.node.impl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.assembly.impl.CompactEndpointSerializerImpl;
+import org.apache.tuscany.sca.core.assembly.impl.EndpointSerializerImpl;
+import org.apache.tuscany.sca.node.Contribution;
+import org.apache.tuscany.sca.node.NodeFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the size and the serialize/deserialize time of the XML and compact endpoint forms.
+ * Only runs with -Dorg.apache.tuscany.sca.benchmark=true
+ */
+public class EndpointSerializerBenchmarkTestCase {
+    private static final Logger logger = Logger.getLogger(EndpointSerializerBenchmarkTestCase.class.getName());
+    private static final int ITERATIONS = 500;
+
+    private static NodeImpl node;
+    private static Endpoint endpoint;
+    private static ExtensionPointRegistry registry;
+
+    @BeforeClass
+    public static void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("org.apache.tuscany.sca.benchmark"));
+        NodeFactory factory = new NodeFactoryImpl();
+        Contribution contribution = new Contribution("c1", new File("target/test-classes").toURI().toString());
+        node = (NodeImpl)factory.createNode("HelloWorld.composite", contribution);
+        node.start();
+        endpoint = node.getServiceEndpoints().get(0);
+        registry = node.getExtensionPointRegistry();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (node != null) {
+            node.stop();
+        }
+    }
+
+    @Test
+    public void testCompareWithXML() {
+        EndpointSerializerImpl xml = new EndpointSerializerImpl(registry);
+        CompactEndpointSerializerImpl compact = new CompactEndpointSerializerImpl(registry);
+
+        byte[] xmlBytes = xml.writeBytes(endpoint);
+        byte[] compactBytes = compact.writeBytes(endpoint);
+        String hash = compact.getContractHash(endpoint);
+        byte[] referenceBytes = compact.writeBytes(endpoint, Collections.singleton(hash));
+        Assert.assertTrue(referenceBytes.length < compactBytes.length);
+        Assert.assertNotNull(compact.readEndpoint(referenceBytes).getService().getInterfaceContract());
+
+        long xmlWrite = timeWrite(xml);
+        long compactWrite = timeWrite(compact);
+        long xmlRead = timeRead(xml, xmlBytes);
+        long compactRead = timeRead(compact, compactBytes);
+
+        logger.info("Endpoint size (bytes): xml=" + xmlBytes.length
+            + ", compact="
+            + compactBytes.length
+            + ", compact with known contract="
+            + referenceBytes.length);
+        logger.info("Serialize (us/op): xml=" + xmlWrite / ITERATIONS / 1000 + ", compact=" + compactWrite / ITERATIONS / 1000);
+        logger.info("Deserialize (us/op): xml=" + xmlRead / ITERATIONS / 1000 + ", compact=" + compactRead / ITERATIONS / 1000);
+    }
+
+    private static long timeWrite(EndpointSerializerImpl serializer) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.writeBytes(endpoint);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.writeBytes(endpoint);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeRead(EndpointSerializerImpl serializer, byte[] bytes) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.readEndpoint(bytes);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.readEndpoint(bytes);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.    
+ */
+package org.apache.tuscany.sca.node.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import org.apache.tuscany.sca.assembly.Endpoint;
+import org.apache.tuscany.sca.core.ExtensionPointRegistry;
+import org.apache.tuscany.sca.core.assembly.impl.CompactEndpointSerializerImpl;
+import org.apache.tuscany.sca.core.assembly.impl.EndpointSerializerImpl;
+import org.apache.tuscany.sca.core.assembly.impl.RuntimeEndpointImpl;
+import org.apache.tuscany.sca.node.Contribution;
+import org.apache.tuscany.sca.node.NodeFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.oasisopen.sca.ServiceRuntimeException;
+
+/**
+ * Round trips of an endpoint through the XML and compact serializers and Java serialization
+ */
+public class EndpointSerializerTestCase {
+    private static NodeImpl node;
+    private static Endpoint endpoint;
+    private static ExtensionPointRegistry registry;
+
+    @BeforeClass
+    public static void setUp() {
+        NodeFactory factory = new NodeFactoryImpl();
+        Contribution contribution = new Contribution("c1", new File("target/test-classes").toURI().toString());
+        node = (NodeImpl)factory.createNode("HelloWorld.composite", contribution);
+        node.start();
+        endpoint = node.getServiceEndpoints().get(0);
+        registry = node.getExtensionPointRegistry();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        node.stop();
+    }
+
+    @Test
+    public void testXMLRoundTrip() {
+        EndpointSerializerImpl serializer = new EndpointSerializerImpl(registry);
+        byte[] bytes = serializer.writeBytes(endpoint);
+        Assert.assertFalse(CompactEndpointSerializerImpl.isCompact(bytes));
+        assertEndpoint(serializer.readEndpoint(bytes));
+    }
+
+    @Test
+    public void testCompactRoundTrip() {
+        CompactEndpointSerializerImpl serializer = new CompactEndpointSerializerImpl(registry);
+        byte[] bytes = serializer.writeBytes(endpoint);
+        Assert.assertTrue(CompactEndpointSerializerImpl.isCompact(bytes));
+        assertEndpoint(serializer.readEndpoint(bytes));
+        // The second endpoint with the same contract gets its own copy of the parsed contract
+        Endpoint copy = serializer.readEndpoint(bytes);
+        assertEndpoint(copy);
+        Assert.assertNotSame(serializer.readEndpoint(bytes).getService().getInterfaceContract(), copy.getService()
+            .getInterfaceContract());
+
+        // The XML serializer accepts the compact form too
+        assertEndpoint(new EndpointSerializerImpl(registry).readEndpoint(bytes));
+    }
+
+    @Test
+    public void testContractReference() {
+        CompactEndpointSerializerImpl serializer = new CompactEndpointSerializerImpl(registry);
+        String hash = serializer.getContractHash(endpoint);
+        Assert.assertNotNull(hash);
+        byte[] inline = serializer.writeBytes(endpoint);
+        byte[] reference = serializer.writeBytes(endpoint, Collections.singleton(hash));
+        Assert.assertTrue(reference.length < inline.length);
+
+        // The receiver has seen the contract already
+        CompactEndpointSerializerImpl receiver = new CompactEndpointSerializerImpl(registry);
+        assertEndpoint(receiver.readEndpoint(inline));
+        Endpoint copy = receiver.readEndpoint(reference);
+        assertEndpoint(copy);
+        // The hash is kept with the copy of the contract
+        Assert.assertEquals(hash, receiver.getContractHash(copy));
+    }
+
+    @Test(expected = ServiceRuntimeException.class)
+    public void testUnknownContractReference() {
+        CompactEndpointSerializerImpl serializer = new CompactEndpointSerializerImpl(registry);
+        byte[] reference = serializer.writeBytes(endpoint, Collections.singleton(serializer.getContractHash(endpoint)));
+        new CompactEndpointSerializerImpl(registry).readEndpoint(reference);
+    }
+
+    @Test
+    public void testExternalizable() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(endpoint);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        RuntimeEndpointImpl copy = (RuntimeEndpointImpl)in.readObject();
+        copy.bind(registry, null);
+        Assert.assertEquals(endpoint.getURI(), copy.getURI());
+        assertEndpoint(copy);
+    }
+
+    @Test
+    public void testUnversionedExternalForm() throws Exception {
+        // The URI and the XML written with writeUTF, as before the form was versioned
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeUTF(endpoint.getURI());
+        out.writeUTF(new EndpointSerializerImpl(registry).write(endpoint));
+        out.close();
+
+        RuntimeEndpointImpl copy = new RuntimeEndpointImpl();
+        copy.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        copy.bind(registry, null);
+        Assert.assertEquals(endpoint.getURI(), copy.getURI());
+        assertEndpoint(copy);
+    }
+
+    @Test
+    public void testDefaultExternalForm() throws Exception {
+        // Older runtimes must still be able to read what is written by default
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        ((RuntimeEndpointImpl)endpoint).writeExternal(out);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals(endpoint.getURI(), in.readUTF());
+        assertEndpoint(new EndpointSerializerImpl(registry).readEndpoint(in.readUTF()));
+    }
+
+    @Test
+    public void testVersionedExternalForm() throws Exception {
+        String property = RuntimeEndpointImpl.class.getName() + ".versionedExternalForm";
+        System.setProperty(property, "true");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(endpoint);
+            out.close();
+        } finally {
+            System.clearProperty(property);
+        }
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        RuntimeEndpointImpl copy = (RuntimeEndpointImpl)in.readObject();
+        copy.bind(registry, null);
+        Assert.assertEquals(endpoint.getURI(), copy.getURI());
+        assertEndpoint(copy);
+    }
+
+    private static void assertEndpoint(Endpoint copy) {
+        Assert.assertEquals(endpoint.getComponent().getName(), copy.getComponent().getName());
+        Assert.assertEquals(endpoint.getService().getName(), copy.getService().getName());
+        Assert.assertEquals(endpoint.getBinding().getType(), copy.getBinding().getType());
+        Assert.assertNotNull(copy.getService().getInterfaceContract());
+    }
+}